@@ -0,0 +1,175 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link BatchConverter} による配列の一括換算を計測するベンチマークです。
+ * <p>
+ * 要素数は並列処理へ切り替わる閾値（16,384件）の前後で計測します。閾値以下の要素数では {@code convertParallel} で始まるメソッドも逐次処理となります。
+ * <p>
+ * {@code convertParallelOnNCores} は {@link java.util.concurrent.ForkJoinPool#commonPool()} の並列度を {@code N}
+ * に制限したJVMで {@code convertParallel} を計測し、コア数に対する拡張性を確認します。並列度が1の結果がコアあたりの処理量の基準値となります。
+ * 実行環境のコア数を超える並列度の結果は参考になりません。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class BatchConversionBenchmark {
+
+    /**
+     * 要素ごとの換算で使用する通貨
+     */
+    private static final List<Currency> CURRENCIES = List.of(Currency.USA_DOLLAR, Currency.JAPANESE_YEN,
+            Currency.ENGLAND_STERLING_POUND, Currency.SWISS_FRANC, Currency.CANADIAN_DOLLAR,
+            Currency.AUSTRALIAN_DOLLAR);
+
+    /**
+     * 一括換算する金額の件数
+     */
+    @Param({ "10000", "1000000" })
+    public int batchSize;
+
+    /**
+     * 一括換算器
+     */
+    private BatchConverter converter;
+
+    /**
+     * 一括換算する金額
+     */
+    private double[] amounts;
+
+    /**
+     * 要素ごとの換算元の通貨のコード値
+     */
+    private int[] from;
+
+    /**
+     * 要素ごとの換算先の通貨のコード値
+     */
+    private int[] to;
+
+    /**
+     * 一括換算の結果の格納先
+     */
+    private double[] output;
+
+    /**
+     * 補助単位の金額による一括換算の結果の格納先
+     */
+    private long[] minorUnits;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        try (ExchangeRatesReader reader = new ExchangeRatesReader(
+                new ByteArrayInputStream(ExchangeRatesPayloads.latest(Currency.USA_DOLLAR, LocalDate.of(2020, 12, 31))),
+                Currency.USA_DOLLAR)) {
+            this.converter = BatchConverter.of(reader.readAll().get(0));
+        }
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        this.amounts = random.doubles(this.batchSize, 1.0, 10_000.0).toArray();
+        this.from = random.ints(this.batchSize, 0, CURRENCIES.size()).map(i -> CURRENCIES.get(i).getCode()).toArray();
+        this.to = random.ints(this.batchSize, 0, CURRENCIES.size()).map(i -> CURRENCIES.get(i).getCode()).toArray();
+        this.output = new double[this.batchSize];
+        this.minorUnits = new long[this.batchSize];
+    }
+
+    @Benchmark
+    public double[] convert() {
+        this.converter.convert(this.amounts, Currency.JAPANESE_YEN, Currency.ENGLAND_STERLING_POUND, this.output);
+        return this.output;
+    }
+
+    @Benchmark
+    public double[] convertParallel() {
+        this.converter.convertParallel(this.amounts, Currency.JAPANESE_YEN, Currency.ENGLAND_STERLING_POUND,
+                this.output);
+        return this.output;
+    }
+
+    @Benchmark
+    public double[] convertPerElement() {
+        this.converter.convert(this.amounts, this.from, this.to, this.output);
+        return this.output;
+    }
+
+    @Benchmark
+    public double[] convertParallelPerElement() {
+        this.converter.convertParallel(this.amounts, this.from, this.to, this.output);
+        return this.output;
+    }
+
+    @Benchmark
+    public long[] convertToMinorUnits() {
+        this.converter.convertToMinorUnits(this.amounts, this.from, this.to, this.minorUnits);
+        return this.minorUnits;
+    }
+
+    @Benchmark
+    public long[] convertParallelToMinorUnits() {
+        this.converter.convertParallelToMinorUnits(this.amounts, this.from, this.to, this.minorUnits);
+        return this.minorUnits;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Djava.util.concurrent.ForkJoinPool.common.parallelism=1")
+    public double[] convertParallelOn1Core() {
+        return this.convertParallelPerElement();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Djava.util.concurrent.ForkJoinPool.common.parallelism=2")
+    public double[] convertParallelOn2Cores() {
+        return this.convertParallelPerElement();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Djava.util.concurrent.ForkJoinPool.common.parallelism=4")
+    public double[] convertParallelOn4Cores() {
+        return this.convertParallelPerElement();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Djava.util.concurrent.ForkJoinPool.common.parallelism=8")
+    public double[] convertParallelOn8Cores() {
+        return this.convertParallelPerElement();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * 為替レートによる通貨換算を計測するベンチマークです。
+ * <p>
+ * 配列による一括換算は {@link BatchConversionBenchmark} で計測します。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ConversionBenchmark {
+
+    /**
+     * 為替レート
+     */
+    private ExchangeRates rates;
+
+    /**
+     * クロスレート行列
+     */
+    private CrossRateMatrix crossRates;
+
+
+    @Setup
+    public void setUp() throws IOException {
+
+        try (ExchangeRatesReader reader = new ExchangeRatesReader(
+                new ByteArrayInputStream(ExchangeRatesPayloads.latest(Currency.USA_DOLLAR, LocalDate.of(2020, 12, 31))),
+                Currency.USA_DOLLAR)) {
+            this.rates = reader.readAll().get(0);
+        }
+
+        this.crossRates = CrossRateMatrix.of(this.rates);
+    }
+
+    @Benchmark
+    public double convert() {
+        return this.rates.convert(1_000.0, Currency.JAPANESE_YEN, Currency.ENGLAND_STERLING_POUND);
+    }
+
+    @Benchmark
+    public double convertCrossRate() {
+        return this.crossRates.convert(1_000.0, Currency.JAPANESE_YEN, Currency.ENGLAND_STERLING_POUND);
+    }
+
+    @Benchmark
+    public CrossRateMatrix buildCrossRateMatrix() {
+        return CrossRateMatrix.of(this.rates);
+    }
+}
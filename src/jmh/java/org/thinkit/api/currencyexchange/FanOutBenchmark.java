@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * 応答を遅延させる {@link ExchangeRatesServer} へ多数のリクエストを同時に送信する {@link CurrencyExchangeRates#fetchAll(List)}
+ * メソッドを、プラットフォームスレッドと仮想スレッドで比較するベンチマークです。
+ * <p>
+ * 実行中のJDKが仮想スレッドをサポートしない場合、{@code virtual} のパラメータは初期化時に失敗します。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class FanOutBenchmark {
+
+    /**
+     * プラットフォームスレッドのエグゼキュータのスレッド数
+     */
+    private static final int PLATFORM_THREADS = 16;
+
+    /**
+     * 非同期処理で使用するスレッドの種類
+     */
+    @Param({ "platform", "virtual" })
+    public String threads;
+
+    /**
+     * 同時に送信するリクエスト数。HTTP/1.1では同時に送信するリクエストごとに接続を確立するため、 {@code 10000}
+     * の場合はプロセスが開くことのできるファイル記述子の上限を引き上げて実行してください。
+     */
+    @Param({ "100", "10000" })
+    public int requestCount;
+
+    /**
+     * 為替レートAPIの代わりにリクエストを受け付けるサーバー
+     */
+    private ExchangeRatesServer server;
+
+    /**
+     * プラットフォームスレッドのエグゼキュータ。仮想スレッドを使用する場合は {@code null}
+     */
+    private ExecutorService platformExecutor;
+
+    /**
+     * 同時に送信するリクエスト
+     */
+    private List<CurrencyExchangeRates> requests;
+
+    @Setup
+    public void setUp() {
+
+        final LocalDate date = LocalDate.of(2020, 12, 31);
+
+        this.server = ExchangeRatesServer.builder()
+                .withDataset(ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR, date, date))
+                .withLatency(Duration.ofMillis(20)).build();
+
+        final CurrencyExchangeRates.Builder builder = CurrencyExchangeRates.builder()
+                .withHttpVersion(HttpClient.Version.HTTP_1_1).withEndpoint(this.server.getEndpoint());
+
+        if ("virtual".equals(this.threads)) {
+            builder.withVirtualThreads();
+        } else {
+            this.platformExecutor = Executors.newFixedThreadPool(PLATFORM_THREADS);
+            builder.withExecutor(this.platformExecutor);
+        }
+
+        this.requests = new ArrayList<>(this.requestCount);
+
+        for (int i = 0; i < this.requestCount; i++) {
+            this.requests.add(builder.build());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+
+        this.server.close();
+
+        if (this.platformExecutor != null) {
+            this.platformExecutor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public List<List<ExchangeRates>> fetchAll() {
+        return CurrencyExchangeRates.fetchAll(this.requests);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link ExchangeRatesListener} による計測のオーバーヘッドを計測するベンチマークです。
+ * <p>
+ * {@code none} はリスナーを設定しない場合、 {@code noop} は何もしないリスナーを設定した場合、 {@code metrics} は
+ * {@link ExchangeRatesMetrics} を設定した場合です。 {@code instrumentation} ベンチマークはHTTP通信を除いた計測処理のみを計測するため、
+ * {@code none} の結果がリスナーを設定しない場合の計測処理のコストそのものになります。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ListenerOverheadBenchmark {
+
+    /**
+     * 設定するリスナーの種類
+     */
+    @Param({ "none", "noop", "metrics" })
+    public String listener;
+
+    /**
+     * 為替レートAPIの代わりにリクエストを受け付けるサーバー
+     */
+    private ExchangeRatesServer server;
+
+    /**
+     * 最新リソースを取得するインスタンス
+     */
+    private CurrencyExchangeRates api;
+
+    /**
+     * 設定したリスナー。リスナーを設定しない場合は {@code null}
+     */
+    private ExchangeRatesListener configured;
+
+    /**
+     * 計測処理に渡すボディハンドラ
+     */
+    private HttpResponse.BodyHandler<Void> bodyHandler;
+
+    /**
+     * 計測処理に渡すレスポンスの情報
+     */
+    private HttpResponse.ResponseInfo responseInfo;
+
+    @Setup
+    public void setUp() {
+
+        final LocalDate date = LocalDate.of(2020, 12, 31);
+
+        this.server = ExchangeRatesServer.builder()
+                .withDataset(ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR, date, date)).build();
+
+        final CurrencyExchangeRates.Builder builder = CurrencyExchangeRates.builder()
+                .withHttpClient(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build())
+                .withEndpoint(this.server.getEndpoint());
+
+        switch (this.listener) {
+            case "noop":
+                this.configured = new ExchangeRatesListener() {
+                };
+                builder.withListener(this.configured);
+                break;
+            case "metrics":
+                this.configured = ExchangeRatesMetrics.create();
+                builder.withListener(this.configured);
+                break;
+            default:
+                this.configured = null;
+        }
+
+        this.api = builder.build();
+        this.bodyHandler = HttpResponse.BodyHandlers.discarding();
+        this.responseInfo = new HttpResponse.ResponseInfo() {
+
+            @Override
+            public int statusCode() {
+                return 200;
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return HttpHeaders.of(Map.of(), (name, value) -> true);
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return HttpClient.Version.HTTP_1_1;
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.server.close();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<ExchangeRates> fetchLatest() {
+        return this.api.fetch();
+    }
+
+    @Benchmark
+    public HttpResponse.BodySubscriber<Void> instrumentation() {
+
+        final UpstreamCall call = UpstreamCall
+                .sequence(this.configured, CurrencyExchangeRatesResource.LATEST, Currency.USA_DOLLAR).next();
+        final HttpResponse.BodySubscriber<Void> subscriber = call.bodyHandler(this.bodyHandler)
+                .apply(this.responseInfo);
+        final long startTime = call.nanoTime();
+
+        subscriber.onComplete();
+        call.succeeded(call.nanoTime() - startTime);
+        return subscriber;
+    }
+}
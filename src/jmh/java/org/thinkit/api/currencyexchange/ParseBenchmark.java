@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * 最新リソースと複数年分の履歴リソースのレスポンスボディの解析を計測するベンチマークです。
+ * <p>
+ * {@code parseViaString} は従来の {@code HttpResponse<String>} を経由する経路の基準値です。レスポンスボディ全体を
+ * {@code BodyHandlers.ofString} と同様に文字列として保持した上で解析するため、ストリームから直接解析する {@code parse}
+ * と比較することで、文字列へのバッファリングによる割り当てと遅延を確認できます。割り当て量は {@code gc} プロファイラで計測します。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    /**
+     * 解析対象のレスポンスボディの種類。{@code LATEST} は最新リソース、{@code HISTORY_nY} は {@code n} 年分の履歴リソースを表します。
+     */
+    @Param({ "LATEST", "HISTORY_1Y", "HISTORY_5Y" })
+    public String payload;
+
+    /**
+     * レスポンスボディ
+     */
+    private byte[] body;
+
+    /**
+     * gzip形式で圧縮されたレスポンスボディ
+     */
+    private byte[] gzipBody;
+
+    /**
+     * gzip形式で圧縮されたことを表すレスポンスヘッダー
+     */
+    private HttpHeaders gzipHeaders;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        final LocalDate endAt = LocalDate.of(2020, 12, 31);
+
+        if ("LATEST".equals(this.payload)) {
+            this.body = ExchangeRatesPayloads.latest(Currency.USA_DOLLAR, endAt);
+        } else {
+            final int years = Integer.parseInt(this.payload.substring("HISTORY_".length(), this.payload.length() - 1));
+            this.body = ExchangeRatesPayloads.history(Currency.USA_DOLLAR, endAt.minusYears(years).plusDays(1), endAt);
+        }
+
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(this.body.length / 4);
+
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(this.body);
+        }
+
+        this.gzipBody = compressed.toByteArray();
+        this.gzipHeaders = HttpHeaders.of(Map.of("Content-Encoding", List.of("gzip")), (name, value) -> true);
+    }
+
+    @Benchmark
+    public List<ExchangeRates> parse() throws IOException {
+        try (ExchangeRatesReader reader = new ExchangeRatesReader(new ByteArrayInputStream(this.body),
+                Currency.USA_DOLLAR)) {
+            return reader.readAll();
+        }
+    }
+
+    @Benchmark
+    public List<ExchangeRates> parseViaString() throws IOException {
+
+        final String body = new String(this.body, StandardCharsets.UTF_8);
+
+        try (ExchangeRatesReader reader = new ExchangeRatesReader(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), Currency.USA_DOLLAR)) {
+            return reader.readAll();
+        }
+    }
+
+    @Benchmark
+    public List<ExchangeRates> parseGzip() throws IOException {
+
+        final InputStream decoded = ContentEncodings.decode(this.gzipHeaders, new ByteArrayInputStream(this.gzipBody));
+
+        try (ExchangeRatesReader reader = new ExchangeRatesReader(decoded, Currency.USA_DOLLAR)) {
+            return reader.readAll();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * 複数年分の為替レートを保持する {@link RateSeriesFile} と、同一の為替レートを履歴リソースのレスポンスボディと同じ形式で保存したJSONファイルについて、
+ * 無作為な日付の参照と期間の走査を比較するベンチマークです。
+ * <p>
+ * JSONファイルは索引を持たないため、 {@code Json} で終わるベンチマークは参照の度にファイル全体をストリームとして解析します。
+ * {@code open} で始まるベンチマークは起動時に1件の為替レートを参照するまでの時間を表します。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class RateSeriesFileBenchmark {
+
+    /**
+     * 記録する期間の開始日
+     */
+    private static final LocalDate START_AT = LocalDate.of(2016, 1, 1);
+
+    /**
+     * 記録する期間の終了日
+     */
+    private static final LocalDate END_AT = LocalDate.of(2020, 12, 31);
+
+    /**
+     * 走査する期間の日数
+     */
+    private static final int RANGE_DAYS = 30;
+
+    /**
+     * ファイルを格納する一時ディレクトリ
+     */
+    private Path directory;
+
+    /**
+     * 為替レートの時系列ファイルのパス
+     */
+    private Path seriesPath;
+
+    /**
+     * JSONファイルのパス
+     */
+    private Path jsonPath;
+
+    /**
+     * 為替レートの時系列ファイル
+     */
+    private RateSeriesFile series;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        this.directory = Files.createTempDirectory("rate-series-benchmark");
+        this.seriesPath = this.directory.resolve("USD.rates");
+        this.jsonPath = this.directory.resolve("USD.json");
+
+        Files.write(this.jsonPath, ExchangeRatesPayloads.history(Currency.USA_DOLLAR, START_AT, END_AT));
+
+        try (RateSeriesFile created = RateSeriesFile.create(this.seriesPath, Currency.USA_DOLLAR, START_AT)) {
+            created.append(START_AT, END_AT, ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR, START_AT, END_AT));
+        }
+
+        this.series = RateSeriesFile.open(this.seriesPath, Currency.USA_DOLLAR);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+
+        this.series.close();
+
+        try (Stream<Path> files = Files.list(this.directory)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+
+        Files.delete(this.directory);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public double lookupMapped() {
+        return this.series.rate(randomDate(), Currency.JAPANESE_YEN);
+    }
+
+    @Benchmark
+    public double lookupJson() throws IOException {
+
+        final LocalDate date = randomDate();
+
+        for (ExchangeRates rates : this.readJson()) {
+            if (rates.getDate().equals(date)) {
+                return rates.rate(Currency.JAPANESE_YEN);
+            }
+        }
+
+        return Double.NaN;
+    }
+
+    @Benchmark
+    public List<ExchangeRates> rangeMapped() {
+
+        final LocalDate startAt = randomDate();
+
+        return this.series.range(startAt, startAt.plusDays(RANGE_DAYS - 1));
+    }
+
+    @Benchmark
+    public List<ExchangeRates> rangeJson() throws IOException {
+
+        final LocalDate startAt = randomDate();
+        final LocalDate endAt = startAt.plusDays(RANGE_DAYS - 1);
+        final List<ExchangeRates> result = new ArrayList<>(RANGE_DAYS);
+
+        for (ExchangeRates rates : this.readJson()) {
+            if (!rates.getDate().isBefore(startAt) && !rates.getDate().isAfter(endAt)) {
+                result.add(rates);
+            }
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public double openMapped() throws IOException {
+        try (RateSeriesFile opened = RateSeriesFile.open(this.seriesPath, Currency.USA_DOLLAR)) {
+            return opened.rate(randomDate(), Currency.JAPANESE_YEN);
+        }
+    }
+
+    @Benchmark
+    public List<ExchangeRates> openJson() throws IOException {
+        return this.readJson();
+    }
+
+    /**
+     * JSONファイル全体を解析し、全ての為替レートを返却します。
+     *
+     * @return 全ての為替レート
+     *
+     * @exception IOException ファイルの読み込みまたは解析に失敗した場合
+     */
+    private List<ExchangeRates> readJson() throws IOException {
+        try (InputStream input = Files.newInputStream(this.jsonPath);
+                ExchangeRatesReader reader = new ExchangeRatesReader(input, Currency.USA_DOLLAR)) {
+            return reader.readAll();
+        }
+    }
+
+    /**
+     * 記録された期間から無作為に選択した日付を返却します。
+     *
+     * @return 無作為に選択した日付
+     */
+    private static LocalDate randomDate() {
+        return START_AT.plusDays(ThreadLocalRandom.current().nextLong(END_AT.toEpochDay() - START_AT.toEpochDay() + 1));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import java.net.http.HttpClient;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link CurrencyExchangeRates.Builder#build()} メソッドとクエリの組み立てを計測するベンチマークです。
+ * <p>
+ * {@code convertDatesLegacy} は変更前の {@code build()} メソッドが検索期間の日付ごとに行っていた {@link SimpleDateFormat}
+ * による変換の基準値であり、同一の日付を {@link DateTimeFormatter} で解析する {@code convertDates} と比較します。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class RequestBuildBenchmark {
+
+    /**
+     * 取得対象のシンボル
+     */
+    private static final List<Currency> SYMBOLS = List.of(Currency.JAPANESE_YEN, Currency.CANADIAN_DOLLAR,
+            Currency.SWISS_FRANC, Currency.ENGLAND_STERLING_POUND);
+
+    /**
+     * {@code yyyyMMdd} 形式の日付を厳密に解析するフォーマッタ
+     */
+    private static final DateTimeFormatter BASIC_DATE = DateTimeFormatter.ofPattern("uuuuMMdd")
+            .withResolverStyle(ResolverStyle.STRICT);
+
+    /**
+     * 全てのインスタンスで共有するHTTPクライアント
+     */
+    private HttpClient httpClient;
+
+    /**
+     * クエリの組み立てに使用するインスタンス
+     */
+    private CurrencyExchangeRates api;
+
+    @Setup
+    public void setUp() {
+        this.httpClient = HttpClient.newHttpClient();
+        this.api = CurrencyExchangeRates.builder().withHttpClient(this.httpClient).build();
+    }
+
+    @Benchmark
+    public CurrencyExchangeRates buildLatest() {
+        return CurrencyExchangeRates.builder().withSymbolCurrencies(SYMBOLS).withHttpClient(this.httpClient).build();
+    }
+
+    @Benchmark
+    public CurrencyExchangeRates buildHistory() {
+        return CurrencyExchangeRates.builder().withSymbolCurrencies(SYMBOLS).withStartDateAt("20180101")
+                .withEndDateAt("20201231").withHttpClient(this.httpClient).build();
+    }
+
+    @Benchmark
+    public CurrencyExchangeRates buildWithSharedDefaultClient() {
+        return CurrencyExchangeRates.builder().withSymbolCurrencies(SYMBOLS).build();
+    }
+
+    @Benchmark
+    public String convertDatesLegacy() throws ParseException {
+        return toDateWithHyphen("20180101") + toDateWithHyphen("20201231");
+    }
+
+    @Benchmark
+    public String convertDates() {
+        return DateTimeFormatter.ISO_LOCAL_DATE.format(LocalDate.parse("20180101", BASIC_DATE))
+                + DateTimeFormatter.ISO_LOCAL_DATE.format(LocalDate.parse("20201231", BASIC_DATE));
+    }
+
+    @Benchmark
+    public String createQuery() {
+        return this.api.createQuery(CurrencyExchangeRatesParameter.of(Currency.USA_DOLLAR.getTag(),
+                "JPY,CAD,CHF,GBP", "2018-01-01", "2020-12-31"));
+    }
+
+    /**
+     * 変更前の {@code build()} メソッドと同様に、呼び出しごとに2つの {@link SimpleDateFormat} を生成して {@code yyyyMMdd} 形式の日付を
+     * {@code yyyy-MM-dd} 形式に変換します。
+     *
+     * @param date 変換対象の日付（yyyyMMdd形式）
+     * @return {@code yyyy-MM-dd} 形式に変換された日付
+     *
+     * @exception ParseException 日付の解析に失敗した場合
+     */
+    private static String toDateWithHyphen(String date) throws ParseException {
+        return new SimpleDateFormat("yyyy-MM-dd").format(new SimpleDateFormat("yyyyMMdd").parse(date));
+    }
+}
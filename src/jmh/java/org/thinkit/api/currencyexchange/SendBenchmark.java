@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * 同一プロセス内の {@link ExchangeRatesServer} に対するリクエストの送信からレスポンスの解析までを計測するベンチマークです。
+ * <p>
+ * {@code -prof gc} で報告される1回あたりの割り当て量には、HTTPクライアント内部の割り当ても含まれます。
+ * <p>
+ * 計測はサンプリングで行い、平均に加えて中央値と99パーセンタイル値を報告します。 {@link #fetchLatestWithNewClient()}
+ * はインスタンスごとに {@link HttpClient} を生成していた変更前の実装を再現する比較用の基準値です。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SendBenchmark {
+
+    /**
+     * 為替レートAPIの代わりにリクエストを受け付けるサーバー
+     */
+    private ExchangeRatesServer server;
+
+    /**
+     * 最新リソースを取得するインスタンス
+     */
+    private CurrencyExchangeRates latest;
+
+    /**
+     * 1年分の履歴リソースを取得するインスタンス
+     */
+    private CurrencyExchangeRates history;
+
+    @Setup
+    public void setUp() {
+
+        final LocalDate endAt = LocalDate.of(2020, 12, 31);
+
+        this.server = ExchangeRatesServer.builder()
+                .withDataset(ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR, endAt.minusYears(1).plusDays(1), endAt))
+                .build();
+
+        final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        this.latest = CurrencyExchangeRates.builder().withHttpClient(httpClient)
+                .withEndpoint(this.server.getEndpoint()).build();
+        this.history = CurrencyExchangeRates.builder().withStartDateAt(endAt.minusYears(1).plusDays(1))
+                .withEndDateAt(endAt).withHttpClient(httpClient).withEndpoint(this.server.getEndpoint()).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.server.close();
+    }
+
+    @Benchmark
+    public HttpResponse<String> sendLatest() {
+        return this.latest.send();
+    }
+
+    @Benchmark
+    public List<ExchangeRates> fetchLatest() {
+        return this.latest.fetch();
+    }
+
+    @Benchmark
+    public List<ExchangeRates> fetchLatestWithNewClient() {
+        return CurrencyExchangeRates.builder()
+                .withHttpClient(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build())
+                .withEndpoint(this.server.getEndpoint()).build().fetch();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public List<ExchangeRates> fetchLatestConcurrently() {
+        return this.latest.fetch();
+    }
+
+    @Benchmark
+    public List<ExchangeRates> fetchHistory() {
+        return this.history.fetch();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * 為替レートのスナップショットが更新され続けている間の読み込みのスループットを計測するベンチマークです。
+ * <p>
+ * {@link LatestRatesRefresher} と同様に {@link AtomicReference} を介してスナップショットを差し替える書き込みスレッドと、
+ * 同時に為替レートを読み込む複数の読み込みスレッドで構成されます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Group)
+public class SnapshotBenchmark {
+
+    /**
+     * 全ての通貨を表すシンボル
+     */
+    private static final List<Currency> ALL_SYMBOLS = List.of();
+
+    /**
+     * 現在のスナップショット
+     */
+    private final AtomicReference<RatesSnapshot> snapshot = new AtomicReference<>(RatesSnapshot.EMPTY);
+
+    /**
+     * 更新に使用する為替レート
+     */
+    private ExchangeRates rates;
+
+    @Setup
+    public void setUp() {
+        this.rates = ExchangeRates.of(Currency.USA_DOLLAR, LocalDate.of(2020, 12, 31),
+                Map.of(Currency.JAPANESE_YEN, 103.25, Currency.CANADIAN_DOLLAR, 1.27, Currency.SWISS_FRANC, 0.88));
+        this.refresh();
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(8)
+    public double readWithoutRefresh() {
+        return this.read();
+    }
+
+    @Benchmark
+    @Group("readUnderRefresh")
+    @GroupThreads(7)
+    public double read() {
+        return this.snapshot.get().get(Currency.USA_DOLLAR, ALL_SYMBOLS).orElseThrow()
+                .rate(Currency.JAPANESE_YEN);
+    }
+
+    @Benchmark
+    @Group("readUnderRefresh")
+    @GroupThreads(1)
+    public RatesSnapshot refresh() {
+        return this.snapshot.updateAndGet(
+                current -> current.with(Currency.USA_DOLLAR, ALL_SYMBOLS, this.rates, Instant.EPOCH));
+    }
+}
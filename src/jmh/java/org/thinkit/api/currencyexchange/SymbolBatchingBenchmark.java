@@ -0,0 +1,196 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link SymbolRequestBatcher} によるリクエストのまとめの効果を計測するベンチマークです。
+ * <p>
+ * 16スレッドが異なるシンボルで最新リソースを要求し、各リクエストを直接送信した場合と {@link SymbolRequestBatcher} を経由した場合の
+ * 呼び出し元から見た待ち時間を比較します。計測はサンプリングで行われるため、時間枠による待ち時間の増加を中央値と99パーセンタイル値で確認できます。
+ * また、 {@link #fetchBatchedCounted(BatchingCounters)} はスループットと共に呼び出し数と為替レートAPIへのリクエスト数を補助カウンタとして報告するため、
+ * 両者の比から呼び出し1件あたりのリクエスト数を確認できます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SymbolBatchingBenchmark {
+
+    /**
+     * 呼び出し元ごとに指定するシンボル
+     */
+    private static final List<List<Currency>> SYMBOLS = List.of(List.of(Currency.JAPANESE_YEN),
+            List.of(Currency.ENGLAND_STERLING_POUND), List.of(Currency.SWISS_FRANC),
+            List.of(Currency.CANADIAN_DOLLAR, Currency.AUSTRALIAN_DOLLAR));
+
+    /**
+     * サーバーの応答の遅延（ミリ秒）
+     */
+    @Param({ "5" })
+    private long latencyMillis;
+
+    /**
+     * リクエストをまとめる時間枠（マイクロ秒）
+     */
+    @Param({ "500", "2000" })
+    private long windowMicros;
+
+    /**
+     * 為替レートAPIの代わりにリクエストを受け付けるサーバー
+     */
+    private ExchangeRatesServer server;
+
+    /**
+     * リクエストをまとめるインスタンス
+     */
+    private SymbolRequestBatcher batcher;
+
+    /**
+     * シンボルごとのリクエスト
+     */
+    private List<CurrencyExchangeRates> requests;
+
+    /**
+     * 補助カウンタへ計上済みの為替レートAPIへのリクエスト数
+     */
+    private final AtomicLong countedUpstreamCalls = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+
+        final LocalDate date = LocalDate.of(2020, 10, 14);
+
+        this.server = ExchangeRatesServer.builder()
+                .withDataset(ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR, date.minusDays(7), date))
+                .withLatency(Duration.ofMillis(this.latencyMillis)).build();
+        this.batcher = SymbolRequestBatcher.builder().withWindow(Duration.ofNanos(this.windowMicros * 1000)).build();
+
+        final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        this.requests = new ArrayList<>(SYMBOLS.size());
+        SYMBOLS.forEach(symbols -> this.requests.add(CurrencyExchangeRates.builder().withHttpClient(httpClient)
+                .withEndpoint(this.server.getEndpoint()).withSymbolCurrencies(symbols).build()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.batcher.close();
+        this.server.close();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public List<ExchangeRates> fetchDirect() {
+        return this.nextRequest().fetch();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public List<ExchangeRates> fetchBatched() {
+        return this.batcher.fetchAsync(this.nextRequest()).join();
+    }
+
+    @Benchmark
+    @Threads(16)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public List<ExchangeRates> fetchBatchedCounted(BatchingCounters counters) {
+
+        final List<ExchangeRates> rates = this.batcher.fetchAsync(this.nextRequest()).join();
+
+        counters.calls++;
+        counters.upstreamRequests += this.claimUpstreamCalls();
+
+        return rates;
+    }
+
+    /**
+     * 前回の呼び出し以降に送信された為替レートAPIへのリクエスト数を返却し、計上済みとして記録します。
+     * <p>
+     * 各スレッドが計上する値の合計は、計測期間中に送信されたリクエスト数と一致します。
+     *
+     * @return 前回の呼び出し以降に送信されたリクエスト数
+     */
+    private long claimUpstreamCalls() {
+
+        final long current = this.batcher.getUpstreamCallCount();
+        return Math.max(0, current - this.countedUpstreamCalls.getAndAccumulate(current, Math::max));
+    }
+
+    /**
+     * 呼び出し数と為替レートAPIへのリクエスト数を数える補助カウンタです。
+     * <p>
+     * JMHはスレッドごとの値を合計して報告するため、 {@code upstreamRequests / calls} が呼び出し1件あたりのリクエスト数となります。
+     *
+     * @author Kato Shinya
+     * @since 1.0
+     * @version 1.0
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class BatchingCounters {
+
+        /**
+         * 呼び出し数
+         */
+        public long calls;
+
+        /**
+         * 為替レートAPIへのリクエスト数
+         */
+        public long upstreamRequests;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.calls = 0;
+            this.upstreamRequests = 0;
+        }
+    }
+
+    /**
+     * 呼び出しごとに無作為に選択したシンボルのリクエストを返却します。
+     *
+     * @return リクエスト
+     */
+    private CurrencyExchangeRates nextRequest() {
+        return this.requests.get(ThreadLocalRandom.current().nextInt(this.requests.size()));
+    }
+}
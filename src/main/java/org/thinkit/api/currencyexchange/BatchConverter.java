@@ -0,0 +1,448 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * 大量の金額を一括で換算する処理を定義したクラスです。
+ * <p>
+ * 換算対象の金額と換算元および換算先の通貨は、 {@link Currency} のコード値を要素とするプリミティブ型の配列で渡します。
+ * 換算結果は呼び出し元が用意した配列へ書き込まれるため、換算処理はオブジェクトを生成しません。出力先の配列として入力の金額の配列を渡すことで、
+ * 換算結果で金額を上書きすることもできます。各ループは単純な添字アクセスのみで構成されているため、JITコンパイラによる最適化の対象となります。
+ * <p>
+ * 要素数が多い場合は {@code convertParallel} で始まるメソッドを使用することで、 {@link ForkJoinPool}
+ * により換算処理を複数のスレッドへ分割して実行できます。
+ * <p>
+ * 当クラスは不変オブジェクトであり、複数のスレッドから安全に参照できます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+public final class BatchConverter {
+
+    /**
+     * 通貨数
+     */
+    private static final int SIZE = ExchangeRates.CURRENCY_COUNT;
+
+    /**
+     * 並列処理において分割を行わない要素数の閾値
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    /**
+     * 通貨のコード値を添字とした補助単位の倍率。ISO 4217 で補助単位を持たない通貨は {@code 1} 、それ以外の通貨は {@code 100} です。
+     */
+    private static final double[] MINOR_UNIT_SCALES = minorUnitScales();
+
+    /**
+     * クロスレートの行列
+     */
+    @Getter
+    private final CrossRateMatrix crossRates;
+
+    /**
+     * クロスレートの行列の配列
+     */
+    private final double[] matrix;
+
+    /**
+     * コンストラクタ
+     *
+     * @param crossRates クロスレートの行列
+     */
+    private BatchConverter(CrossRateMatrix crossRates) {
+        this.crossRates = crossRates;
+        this.matrix = crossRates.matrix();
+    }
+
+    /**
+     * 引数として渡されたクロスレートの行列を使用して換算を行う {@link BatchConverter} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param crossRates クロスレートの行列
+     * @return {@link BatchConverter} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static BatchConverter of(@NonNull CrossRateMatrix crossRates) {
+        return new BatchConverter(crossRates);
+    }
+
+    /**
+     * 引数として渡された為替レートを使用して換算を行う {@link BatchConverter} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param rates 為替レート
+     * @return {@link BatchConverter} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static BatchConverter of(@NonNull ExchangeRates rates) {
+        return new BatchConverter(CrossRateMatrix.of(rates));
+    }
+
+    /**
+     * 全ての金額を同一の通貨の組み合わせで換算します。
+     *
+     * @param amounts 換算元の金額
+     * @param from    換算元の通貨
+     * @param to      換算先の通貨
+     * @param output  換算後の金額の出力先。 {@code amounts} と同一の配列を渡すことができます。
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 配列の長さが一致しない場合
+     */
+    public void convert(@NonNull double[] amounts, @NonNull Currency from, @NonNull Currency to,
+            @NonNull double[] output) {
+        requireSameLength(amounts.length, output.length);
+        this.convert(amounts, this.matrix[from.getCode() * SIZE + to.getCode()], output, 0, amounts.length);
+    }
+
+    /**
+     * 各金額を要素ごとに指定された通貨の組み合わせで換算します。
+     *
+     * @param amounts 換算元の金額
+     * @param from    換算元の通貨のコード値
+     * @param to      換算先の通貨のコード値
+     * @param output  換算後の金額の出力先。 {@code amounts} と同一の配列を渡すことができます。
+     *
+     * @exception NullPointerException      引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException  配列の長さが一致しない場合
+     * @exception IndexOutOfBoundsException 通貨のコード値が不正な場合
+     */
+    public void convert(@NonNull double[] amounts, @NonNull int[] from, @NonNull int[] to, @NonNull double[] output) {
+        requireSameLength(amounts.length, from.length, to.length, output.length);
+        requireValidCodes(from, to);
+        this.convert(amounts, from, to, output, 0, amounts.length);
+    }
+
+    /**
+     * 各金額を要素ごとに指定された通貨の組み合わせで換算し、換算先の通貨の補助単位に四捨五入した整数として出力します。
+     * <p>
+     * 例えば米国ドルの {@code 12.345} は {@code 1235} セント、日本円の {@code 123.4} は {@code 123} 円として出力されます。
+     * <p>
+     * 補助単位の金額は決済等で使用されることを想定しているため、レートが存在しない通貨の組み合わせを {@code 0} として出力することはありません。
+     * 通貨のコード値とレートは換算の開始前に全ての要素について検証され、不正な要素が存在する場合は {@code output} へ何も書き込まずに例外を送出します。
+     *
+     * @param amounts 換算元の金額
+     * @param from    換算元の通貨のコード値
+     * @param to      換算先の通貨のコード値
+     * @param output  換算後の補助単位の金額の出力先
+     *
+     * @exception NullPointerException      引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException  配列の長さが一致しない場合、またはレートが存在しない通貨の組み合わせが含まれる場合
+     * @exception IndexOutOfBoundsException 通貨のコード値が不正な場合
+     */
+    public void convertToMinorUnits(@NonNull double[] amounts, @NonNull int[] from, @NonNull int[] to,
+            @NonNull long[] output) {
+        requireSameLength(amounts.length, from.length, to.length, output.length);
+        this.requireRates(from, to);
+        this.convertToMinorUnits(amounts, from, to, output, 0, amounts.length);
+    }
+
+    /**
+     * {@link #convert(double[], Currency, Currency, double[])} メソッドと同様の換算を {@link ForkJoinPool#commonPool()}
+     * で並列に実行します。
+     *
+     * @param amounts 換算元の金額
+     * @param from    換算元の通貨
+     * @param to      換算先の通貨
+     * @param output  換算後の金額の出力先。 {@code amounts} と同一の配列を渡すことができます。
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 配列の長さが一致しない場合
+     */
+    public void convertParallel(@NonNull double[] amounts, @NonNull Currency from, @NonNull Currency to,
+            @NonNull double[] output) {
+        requireSameLength(amounts.length, output.length);
+
+        final double rate = this.matrix[from.getCode() * SIZE + to.getCode()];
+        this.invoke(amounts.length, (start, end) -> this.convert(amounts, rate, output, start, end));
+    }
+
+    /**
+     * {@link #convert(double[], int[], int[], double[])} メソッドと同様の換算を
+     * {@link ForkJoinPool#commonPool()} で並列に実行します。
+     *
+     * @param amounts 換算元の金額
+     * @param from    換算元の通貨のコード値
+     * @param to      換算先の通貨のコード値
+     * @param output  換算後の金額の出力先。 {@code amounts} と同一の配列を渡すことができます。
+     *
+     * @exception NullPointerException      引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException  配列の長さが一致しない場合
+     * @exception IndexOutOfBoundsException 通貨のコード値が不正な場合
+     */
+    public void convertParallel(@NonNull double[] amounts, @NonNull int[] from, @NonNull int[] to,
+            @NonNull double[] output) {
+        requireSameLength(amounts.length, from.length, to.length, output.length);
+        requireValidCodes(from, to);
+        this.invoke(amounts.length, (start, end) -> this.convert(amounts, from, to, output, start, end));
+    }
+
+    /**
+     * {@link #convertToMinorUnits(double[], int[], int[], long[])} メソッドと同様の換算を
+     * {@link ForkJoinPool#commonPool()} で並列に実行します。
+     *
+     * @param amounts 換算元の金額
+     * @param from    換算元の通貨のコード値
+     * @param to      換算先の通貨のコード値
+     * @param output  換算後の補助単位の金額の出力先
+     *
+     * @exception NullPointerException      引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException  配列の長さが一致しない場合、またはレートが存在しない通貨の組み合わせが含まれる場合
+     * @exception IndexOutOfBoundsException 通貨のコード値が不正な場合
+     */
+    public void convertParallelToMinorUnits(@NonNull double[] amounts, @NonNull int[] from, @NonNull int[] to,
+            @NonNull long[] output) {
+        requireSameLength(amounts.length, from.length, to.length, output.length);
+        this.requireRates(from, to);
+        this.invoke(amounts.length, (start, end) -> this.convertToMinorUnits(amounts, from, to, output, start, end));
+    }
+
+    /**
+     * 指定された範囲の金額を単一のレートで換算します。
+     *
+     * @param amounts 換算元の金額
+     * @param rate    レート
+     * @param output  換算後の金額の出力先
+     * @param start   範囲の開始位置
+     * @param end     範囲の終了位置（この位置を含まない）
+     */
+    private void convert(double[] amounts, double rate, double[] output, int start, int end) {
+        for (int i = start; i < end; i++) {
+            output[i] = amounts[i] * rate;
+        }
+    }
+
+    /**
+     * 指定された範囲の金額を要素ごとの通貨の組み合わせで換算します。通貨のコード値は検証済みである必要があります。
+     *
+     * @param amounts 換算元の金額
+     * @param from    換算元の通貨のコード値
+     * @param to      換算先の通貨のコード値
+     * @param output  換算後の金額の出力先
+     * @param start   範囲の開始位置
+     * @param end     範囲の終了位置（この位置を含まない）
+     */
+    private void convert(double[] amounts, int[] from, int[] to, double[] output, int start, int end) {
+
+        final double[] matrix = this.matrix;
+
+        for (int i = start; i < end; i++) {
+            output[i] = amounts[i] * matrix[index(from[i], to[i])];
+        }
+    }
+
+    /**
+     * 指定された範囲の金額を要素ごとの通貨の組み合わせで換算し、換算先の通貨の補助単位の整数として出力します。通貨のコード値とレートは検証済みである必要があります。
+     *
+     * @param amounts 換算元の金額
+     * @param from    換算元の通貨のコード値
+     * @param to      換算先の通貨のコード値
+     * @param output  換算後の補助単位の金額の出力先
+     * @param start   範囲の開始位置
+     * @param end     範囲の終了位置（この位置を含まない）
+     */
+    private void convertToMinorUnits(double[] amounts, int[] from, int[] to, long[] output, int start, int end) {
+
+        final double[] matrix = this.matrix;
+        final double[] scales = MINOR_UNIT_SCALES;
+
+        for (int i = start; i < end; i++) {
+            final int target = to[i];
+            output[i] = Math.round(amounts[i] * matrix[index(from[i], target)] * scales[target]);
+        }
+    }
+
+    /**
+     * 指定された要素数の範囲を分割し、 {@link ForkJoinPool#commonPool()} で並列に処理します。
+     *
+     * @param length 要素数
+     * @param action 範囲ごとの処理
+     */
+    private void invoke(int length, RangeAction action) {
+
+        if (length <= PARALLEL_THRESHOLD) {
+            action.apply(0, length);
+            return;
+        }
+
+        ForkJoinPool.commonPool().invoke(new ConvertTask(action, 0, length));
+    }
+
+    /**
+     * 換算元と換算先の通貨のコード値に対応するクロスレートの行列内の位置を返却します。通貨のコード値は検証済みである必要があります。
+     *
+     * @param from 換算元の通貨のコード値
+     * @param to   換算先の通貨のコード値
+     * @return クロスレートの行列内の位置
+     */
+    private static int index(int from, int to) {
+        return from * SIZE + to;
+    }
+
+    /**
+     * 引数として渡された全ての要素の通貨のコード値が有効であることを検証します。
+     *
+     * @param from 換算元の通貨のコード値
+     * @param to   換算先の通貨のコード値
+     *
+     * @exception IndexOutOfBoundsException 通貨のコード値が不正な場合
+     */
+    private static void requireValidCodes(int[] from, int[] to) {
+        for (int i = 0; i < from.length; i++) {
+            if (from[i] < 0 || from[i] >= SIZE || to[i] < 0 || to[i] >= SIZE) {
+                throw new IndexOutOfBoundsException(
+                        String.format("Invalid currency code at index %d: from=%d, to=%d", i, from[i], to[i]));
+            }
+        }
+    }
+
+    /**
+     * 引数として渡された全ての要素の通貨のコード値が有効であり、通貨の組み合わせのレートが存在することを検証します。
+     *
+     * @param from 換算元の通貨のコード値
+     * @param to   換算先の通貨のコード値
+     *
+     * @exception IllegalArgumentException  レートが存在しない通貨の組み合わせが含まれる場合
+     * @exception IndexOutOfBoundsException 通貨のコード値が不正な場合
+     */
+    private void requireRates(int[] from, int[] to) {
+
+        requireValidCodes(from, to);
+
+        final double[] matrix = this.matrix;
+
+        for (int i = 0; i < from.length; i++) {
+            if (!Double.isFinite(matrix[index(from[i], to[i])])) {
+                throw new IllegalArgumentException(String.format("No rate for %s/%s at index %d",
+                        Currency.values()[from[i]].getTag(), Currency.values()[to[i]].getTag(), i));
+            }
+        }
+    }
+
+    /**
+     * 引数として渡された配列の長さが全て一致することを検証します。
+     *
+     * @param lengths 配列の長さ
+     *
+     * @exception IllegalArgumentException 配列の長さが一致しない場合
+     */
+    private static void requireSameLength(int... lengths) {
+        for (int length : lengths) {
+            if (length != lengths[0]) {
+                throw new IllegalArgumentException("All arrays must have the same length");
+            }
+        }
+    }
+
+    /**
+     * 通貨のコード値を添字とした補助単位の倍率を生成します。
+     *
+     * @return 通貨のコード値を添字とした補助単位の倍率
+     */
+    private static double[] minorUnitScales() {
+
+        final double[] scales = new double[SIZE];
+
+        for (Currency currency : Currency.values()) {
+            switch (currency) {
+                case ICELAND_KRONA:
+                case JAPANESE_YEN:
+                case KOREAN_WON:
+                    scales[currency.getCode()] = 1;
+                    break;
+                default:
+                    scales[currency.getCode()] = 100;
+            }
+        }
+
+        return scales;
+    }
+
+    /**
+     * 範囲ごとの処理を表す関数型インターフェースです。
+     */
+    @FunctionalInterface
+    private interface RangeAction {
+
+        /**
+         * 指定された範囲を処理します。
+         *
+         * @param start 範囲の開始位置
+         * @param end   範囲の終了位置（この位置を含まない）
+         */
+        void apply(int start, int end);
+    }
+
+    /**
+     * 範囲を再帰的に分割して並列に処理するタスクです。
+     */
+    private static final class ConvertTask extends RecursiveAction {
+
+        /**
+         * シリアルバージョンUID
+         */
+        private static final long serialVersionUID = 2284930113519488337L;
+
+        /**
+         * 範囲ごとの処理
+         */
+        private final transient RangeAction action;
+
+        /**
+         * 範囲の開始位置
+         */
+        private final int start;
+
+        /**
+         * 範囲の終了位置（この位置を含まない）
+         */
+        private final int end;
+
+        /**
+         * コンストラクタ
+         *
+         * @param action 範囲ごとの処理
+         * @param start  範囲の開始位置
+         * @param end    範囲の終了位置（この位置を含まない）
+         */
+        private ConvertTask(RangeAction action, int start, int end) {
+            this.action = action;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (this.end - this.start <= PARALLEL_THRESHOLD) {
+                this.action.apply(this.start, this.end);
+                return;
+            }
+
+            final int middle = (this.start + this.end) >>> 1;
+            invokeAll(new ConvertTask(this.action, this.start, middle), new ConvertTask(this.action, middle, this.end));
+        }
+    }
+}
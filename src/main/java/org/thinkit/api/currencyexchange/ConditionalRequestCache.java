@@ -0,0 +1,319 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.thinkit.api.common.entity.RequestParameter;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 為替レートAPIのレスポンスに含まれる検証子（ {@code ETag} および {@code Last-Modified}
+ * ）をリクエストパラメータごとに保持し、条件付きリクエストを送信するためのキャッシュです。
+ * <p>
+ * 検証子を保持しているリクエストパラメータに対しては {@code If-None-Match} および {@code If-Modified-Since}
+ * ヘッダーを付与してリクエストを送信します。為替レートAPIが {@code 304 Not Modified} を返却した場合は、レスポンスボディを受信および解析せずに
+ * 前回取得した為替レートを返却します。レスポンスに検証子が含まれない場合、その結果は保持されません。
+ * <p>
+ * 条件付きリクエストにより削減されたレスポンスボディのバイト数と解析時間は、前回のレスポンスの実測値を基に集計されます。
+ * <p>
+ * 当クラスはスレッドセーフであり、複数の {@link CurrencyExchangeRates} で共有することができます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ *
+ * @see CurrencyExchangeRates.Builder#withConditionalRequests(ConditionalRequestCache)
+ */
+public final class ConditionalRequestCache {
+
+    /**
+     * 更新されていないことを表すHTTPステータスコード
+     */
+    private static final int HTTP_NOT_MODIFIED = 304;
+
+    /**
+     * エンティティタグを返却するレスポンスヘッダー
+     */
+    private static final String ETAG = "ETag";
+
+    /**
+     * 最終更新日時を返却するレスポンスヘッダー
+     */
+    private static final String LAST_MODIFIED = "Last-Modified";
+
+    /**
+     * エンティティタグを送信するリクエストヘッダー
+     */
+    private static final String IF_NONE_MATCH = "If-None-Match";
+
+    /**
+     * 最終更新日時を送信するリクエストヘッダー
+     */
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    /**
+     * リクエストパラメータごとの検証子と為替レート
+     */
+    private final Cache<RequestParameter, Entry> cache;
+
+    /**
+     * {@code 304 Not Modified} を受信した回数
+     */
+    private final LongAdder notModifiedCount = new LongAdder();
+
+    /**
+     * 受信を省略したレスポンスボディのバイト数
+     */
+    private final LongAdder savedBytes = new LongAdder();
+
+    /**
+     * 省略した解析時間（ナノ秒）
+     */
+    private final LongAdder savedParseTime = new LongAdder();
+
+    /**
+     * コンストラクタ
+     *
+     * @param builder ビルダー
+     */
+    private ConditionalRequestCache(Builder builder) {
+        this.cache = CacheBuilder.newBuilder().maximumSize(builder.maximumSize).build();
+    }
+
+    /**
+     * {@link ConditionalRequestCache} クラスのインスタンスを生成するビルダークラスを返却します。
+     *
+     * @return {@link ConditionalRequestCache} クラスのインスタンスを生成するビルダークラス
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * {@link ConditionalRequestCache} クラスのインスタンスを生成するビルダークラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0
+     * @version 1.0
+     *
+     * @see #withMaximumSize(long)
+     * @see #build()
+     */
+    public static class Builder {
+
+        /**
+         * エントリ数の上限
+         */
+        private long maximumSize = 1000;
+
+        /**
+         * デフォルトコンストラクタ
+         */
+        private Builder() {
+        }
+
+        /**
+         * 検証子を保持するリクエストパラメータ数の上限を設定します。
+         * <p>
+         * 初期値として {@code 1000} が設定されています。
+         *
+         * @param maximumSize エントリ数の上限
+         * @return 自分自身のインスタンス
+         *
+         * @exception IllegalArgumentException 引数として負数が渡された場合
+         */
+        public Builder withMaximumSize(long maximumSize) {
+
+            if (maximumSize < 0) {
+                throw new IllegalArgumentException(String.format("Maximum size must not be negative: %d", maximumSize));
+            }
+
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * 設定された値を基に {@link ConditionalRequestCache} クラスの新しいインスタンスを生成し返却します。
+         *
+         * @return {@link ConditionalRequestCache} クラスの新しいインスタンス
+         */
+        public ConditionalRequestCache build() {
+            return new ConditionalRequestCache(this);
+        }
+    }
+
+    /**
+     * 引数として渡されたリクエストパラメータの検証子を保持している場合、条件付きリクエストのヘッダーを付与します。
+     *
+     * @param key     リクエストパラメータ
+     * @param request リクエストのビルダー
+     * @return 引数として渡されたリクエストのビルダー
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    HttpRequest.Builder addValidators(@NonNull RequestParameter key, @NonNull HttpRequest.Builder request) {
+
+        final Entry entry = this.cache.getIfPresent(key);
+
+        if (entry != null) {
+            if (entry.etag != null) {
+                request.setHeader(IF_NONE_MATCH, entry.etag);
+            }
+
+            if (entry.lastModified != null) {
+                request.setHeader(IF_MODIFIED_SINCE, entry.lastModified);
+            }
+        }
+
+        return request;
+    }
+
+    /**
+     * 引数として渡されたレスポンスが {@code 304 Not Modified} であり前回の為替レートを保持している場合、レスポンスボディを閉じた上で前回の為替レートを返却します。
+     *
+     * @param key      リクエストパラメータ
+     * @param response レスポンス
+     * @return 前回の為替レート。レスポンスが {@code 304 Not Modified} ではない場合、または前回の為替レートを保持していない場合は空
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     * @exception IOException          レスポンスボディを閉じる際に失敗した場合
+     */
+    Optional<List<ExchangeRates>> notModified(@NonNull RequestParameter key,
+            @NonNull HttpResponse<InputStream> response) throws IOException {
+
+        if (response.statusCode() != HTTP_NOT_MODIFIED) {
+            return Optional.empty();
+        }
+
+        final Entry entry = this.cache.getIfPresent(key);
+
+        if (entry == null) {
+            return Optional.empty();
+        }
+
+        response.body().close();
+
+        this.notModifiedCount.increment();
+        this.savedBytes.add(entry.bodyBytes);
+        this.savedParseTime.add(entry.parseTime);
+
+        return Optional.of(entry.rates);
+    }
+
+    /**
+     * 正常に取得したレスポンスの検証子と為替レートを保持します。レスポンスに検証子が含まれない場合は、保持している検証子を破棄します。
+     *
+     * @param key       リクエストパラメータ
+     * @param headers   レスポンスヘッダー
+     * @param rates     取得した為替レート
+     * @param bodyBytes レスポンスボディのバイト数
+     * @param parseTime 解析に要した時間（ナノ秒）
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    void update(@NonNull RequestParameter key, @NonNull HttpHeaders headers, @NonNull List<ExchangeRates> rates,
+            long bodyBytes, long parseTime) {
+
+        final String etag = headers.firstValue(ETAG).orElse(null);
+        final String lastModified = headers.firstValue(LAST_MODIFIED).orElse(null);
+
+        if (etag == null && lastModified == null) {
+            this.cache.invalidate(key);
+            return;
+        }
+
+        this.cache.put(key, new Entry(etag, lastModified, List.copyOf(rates), bodyBytes, parseTime));
+    }
+
+    /**
+     * {@code 304 Not Modified} を受信した回数を返却します。
+     *
+     * @return {@code 304 Not Modified} を受信した回数
+     */
+    public long getNotModifiedCount() {
+        return this.notModifiedCount.sum();
+    }
+
+    /**
+     * 条件付きリクエストにより受信を省略したレスポンスボディのバイト数を返却します。
+     *
+     * @return 受信を省略したレスポンスボディのバイト数
+     */
+    public long getSavedBytes() {
+        return this.savedBytes.sum();
+    }
+
+    /**
+     * 条件付きリクエストにより省略した解析時間を返却します。
+     *
+     * @return 省略した解析時間
+     */
+    public Duration getSavedParseTime() {
+        return Duration.ofNanos(this.savedParseTime.sum());
+    }
+
+    /**
+     * 保持している全ての検証子と為替レートを破棄します。
+     */
+    public void invalidateAll() {
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * リクエストパラメータごとの検証子と為替レートを保持するエントリです。
+     */
+    @RequiredArgsConstructor
+    private static final class Entry {
+
+        /**
+         * エンティティタグ。レスポンスに含まれなかった場合は {@code null}
+         */
+        private final String etag;
+
+        /**
+         * 最終更新日時。レスポンスに含まれなかった場合は {@code null}
+         */
+        private final String lastModified;
+
+        /**
+         * 為替レート
+         */
+        private final List<ExchangeRates> rates;
+
+        /**
+         * レスポンスボディのバイト数
+         */
+        private final long bodyBytes;
+
+        /**
+         * 解析に要した時間（ナノ秒）
+         */
+        private final long parseTime;
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.net.ssl.SSLSession;
+
+import lombok.NonNull;
+
+/**
+ * HTTPレスポンスの {@code Content-Encoding} に応じてレスポンスボディを展開する処理を定義したユーティリティクラスです。
+ * <p>
+ * {@code gzip} および {@code deflate} に対応します。 {@code deflate} はzlib形式と、一部のサーバーが返却するヘッダーを持たない形式の双方を受け付けます。
+ * レスポンスボディは読み込まれる度に逐次的に展開されるため、展開後のレスポンスボディ全体がメモリ上に保持されることはありません。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class ContentEncodings {
+
+    /**
+     * リクエスト時に送信する受け入れ可能なエンコーディングを表すヘッダー
+     */
+    static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    /**
+     * 受け入れ可能なエンコーディング
+     */
+    static final String ACCEPTED = "gzip, deflate";
+
+    /**
+     * レスポンスボディのエンコーディングを表すヘッダー
+     */
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+
+    /**
+     * レスポンスボディのバイト数を表すヘッダー
+     */
+    private static final String CONTENT_LENGTH = "Content-Length";
+
+    /**
+     * 展開時に使用するバッファのサイズ
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private ContentEncodings() {
+    }
+
+    /**
+     * 引数として渡されたレスポンスヘッダーの {@code Content-Encoding} に従い、レスポンスボディを逐次的に展開するストリームを返却します。
+     * <p>
+     * エンコーディングが指定されていない場合は、引数として渡されたストリームをそのまま返却します。複数のエンコーディングが指定されている場合は、適用された順序と逆の順序で展開します。
+     *
+     * @param headers レスポンスヘッダー
+     * @param body    レスポンスボディ
+     * @return 展開されたレスポンスボディ
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     * @exception IOException          未対応のエンコーディングが指定されている場合、または展開に失敗した場合
+     */
+    static InputStream decode(@NonNull HttpHeaders headers, @NonNull InputStream body) throws IOException {
+
+        final List<String> encodings = headers.allValues(CONTENT_ENCODING);
+        InputStream decoded = body;
+
+        try {
+            for (int i = encodings.size() - 1; i >= 0; i--) {
+                final String[] codings = encodings.get(i).split(",");
+
+                for (int j = codings.length - 1; j >= 0; j--) {
+                    decoded = decode(codings[j].trim().toLowerCase(Locale.ROOT), decoded);
+                }
+            }
+        } catch (IOException e) {
+            body.close();
+            throw e;
+        }
+
+        return decoded;
+    }
+
+    /**
+     * レスポンスボディを展開した上で文字列として返却するボディハンドラを返却します。
+     *
+     * @param charset レスポンスボディの文字セット
+     * @return 展開した上で文字列として返却するボディハンドラ
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    static HttpResponse.BodyHandler<String> ofString(@NonNull Charset charset) {
+        return responseInfo -> HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(),
+                bytes -> {
+                    try (InputStream decoded = decode(responseInfo.headers(), new ByteArrayInputStream(bytes))) {
+                        return new String(decoded.readAllBytes(), charset);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * {@link #ofString(Charset)} で展開したレスポンスから、展開前のレスポンスボディを表す {@code Content-Encoding} および
+     * {@code Content-Length} ヘッダーを除いたレスポンスを返却します。
+     * <p>
+     * レスポンスに {@code Content-Encoding} ヘッダーが含まれない場合は、引数として渡されたレスポンスをそのまま返却します。
+     *
+     * @param <T>      レスポンスボディの型
+     * @param response 展開済みのレスポンスボディを保持するレスポンス
+     * @return ヘッダーがレスポンスボディと一致するレスポンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    static <T> HttpResponse<T> stripEncoding(@NonNull HttpResponse<T> response) {
+
+        if (response.headers().firstValue(CONTENT_ENCODING).isEmpty()) {
+            return response;
+        }
+
+        return new DecodedResponse<>(response, HttpHeaders.of(response.headers().map(),
+                (name, value) -> !CONTENT_ENCODING.equalsIgnoreCase(name) && !CONTENT_LENGTH.equalsIgnoreCase(name)));
+    }
+
+    /**
+     * 引数として渡されたエンコーディングでストリームを展開します。
+     *
+     * @param coding エンコーディング
+     * @param body   展開対象のストリーム
+     * @return 展開されたストリーム
+     *
+     * @exception IOException 未対応のエンコーディングが指定された場合、またはgzip形式のヘッダーの読み込みに失敗した場合
+     */
+    private static InputStream decode(String coding, InputStream body) throws IOException {
+        switch (coding) {
+            case "":
+            case "identity":
+                return body;
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(body, BUFFER_SIZE);
+            case "deflate":
+                return inflate(body);
+            default:
+                throw new MalformedResponseException(String.format("Unsupported content encoding: %s", coding));
+        }
+    }
+
+    /**
+     * {@code deflate} 形式のストリームを展開します。先頭2バイトがzlib形式のヘッダーではない場合は、ヘッダーを持たない形式として展開します。
+     * 展開に使用した {@link Inflater} はストリームを閉じた際に解放されます。
+     *
+     * @param body 展開対象のストリーム
+     * @return 展開されたストリーム
+     *
+     * @exception IOException ストリームの先頭の読み込みに失敗した場合
+     */
+    private static InputStream inflate(InputStream body) throws IOException {
+
+        final BufferedInputStream buffered = new BufferedInputStream(body, BUFFER_SIZE);
+        buffered.mark(2);
+        final int cmf = buffered.read();
+        final int flg = buffered.read();
+        buffered.reset();
+
+        final boolean zlib = cmf >= 0 && flg >= 0 && (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+
+        final Inflater inflater = new Inflater(!zlib);
+
+        return new InflaterInputStream(buffered, inflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * 展開済みのレスポンスボディに合わせてヘッダーを置き換えたレスポンスです。ヘッダー以外は元のレスポンスへ委譲します。
+     *
+     * @param <T> レスポンスボディの型
+     */
+    private static final class DecodedResponse<T> implements HttpResponse<T> {
+
+        /**
+         * 元のレスポンス
+         */
+        private final HttpResponse<T> response;
+
+        /**
+         * 置き換えたヘッダー
+         */
+        private final HttpHeaders headers;
+
+        /**
+         * コンストラクタ
+         *
+         * @param response 元のレスポンス
+         * @param headers  置き換えたヘッダー
+         */
+        private DecodedResponse(HttpResponse<T> response, HttpHeaders headers) {
+            this.response = response;
+            this.headers = headers;
+        }
+
+        @Override
+        public int statusCode() {
+            return this.response.statusCode();
+        }
+
+        @Override
+        public HttpRequest request() {
+            return this.response.request();
+        }
+
+        @Override
+        public Optional<HttpResponse<T>> previousResponse() {
+            return this.response.previousResponse();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return this.headers;
+        }
+
+        @Override
+        public T body() {
+            return this.response.body();
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return this.response.sslSession();
+        }
+
+        @Override
+        public URI uri() {
+            return this.response.uri();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return this.response.version();
+        }
+
+        @Override
+        public String toString() {
+            return this.response.toString();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 単一の基軸通貨に対する為替レートから、全ての通貨の組み合わせのクロスレートを算出して保持する行列です。
+ * <p>
+ * 基軸通貨1単位に対する通貨 {@code X} のレートを {@code r(X)} とした場合、通貨 {@code from} 1単位に対する通貨
+ * {@code to} のクロスレートは {@code r(to) / r(from)} として算出されます。そのため、複数の基軸通貨に対する為替レートが必要な場合でも
+ * 為替レートAPIへのリクエストは1度で済みます。
+ * <p>
+ * 行列は {@link Currency} のコード値を添字とする密な1次元配列として保持されます。元の為替レートに含まれない通貨を含む組み合わせのクロスレートは
+ * {@link Double#NaN} となります。当クラスは不変オブジェクトであり、複数のスレッドから安全に参照できます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString(of = { "base", "date" })
+public final class CrossRateMatrix {
+
+    /**
+     * 通貨数
+     */
+    private static final int SIZE = ExchangeRates.CURRENCY_COUNT;
+
+    /**
+     * 元の為替レートの基軸通貨
+     */
+    @Getter
+    private final Currency base;
+
+    /**
+     * 為替レートの日付
+     */
+    @Getter
+    private final LocalDate date;
+
+    /**
+     * クロスレートの行列。 {@code from} のコード値を行、 {@code to} のコード値を列とします。
+     */
+    private final double[] matrix;
+
+    /**
+     * コンストラクタ
+     *
+     * @param base   元の為替レートの基軸通貨
+     * @param date   為替レートの日付
+     * @param matrix クロスレートの行列
+     */
+    private CrossRateMatrix(Currency base, LocalDate date, double[] matrix) {
+        this.base = base;
+        this.date = date;
+        this.matrix = matrix;
+    }
+
+    /**
+     * 引数として渡された為替レートを基にクロスレートを算出し、 {@link CrossRateMatrix} クラスの新しいインスタンスを生成し返却します。
+     * <p>
+     * 基軸通貨自身のレートが為替レートに含まれていない場合は {@code 1.0} として扱います。各クロスレートは
+     * {@link ExchangeRates#rate(Currency, Currency)} と同一の除算で算出されるため、両者の結果は常に一致します。
+     *
+     * @param rates 単一の基軸通貨に対する為替レート
+     * @return {@link CrossRateMatrix} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static CrossRateMatrix of(@NonNull ExchangeRates rates) {
+
+        final double[] quotes = rates.toArray();
+        quotes[rates.getBase().getCode()] = 1.0;
+
+        final double[] matrix = new double[SIZE * SIZE];
+
+        for (int from = 0; from < SIZE; from++) {
+            final double quote = quotes[from];
+            final int row = from * SIZE;
+
+            for (int to = 0; to < SIZE; to++) {
+                matrix[row + to] = quotes[to] / quote;
+            }
+        }
+
+        return new CrossRateMatrix(rates.getBase(), rates.getDate(), matrix);
+    }
+
+    /**
+     * 通貨 {@code from} 1単位に対する通貨 {@code to} のクロスレートを返却します。
+     *
+     * @param from 換算元の通貨
+     * @param to   換算先の通貨
+     * @return クロスレート。いずれかの通貨のレートが存在しない場合は {@link Double#NaN}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public double rate(@NonNull Currency from, @NonNull Currency to) {
+        return this.matrix[from.getCode() * SIZE + to.getCode()];
+    }
+
+    /**
+     * 通貨 {@code from} の金額を通貨 {@code to} の金額へ換算します。
+     *
+     * @param amount 換算元の金額
+     * @param from   換算元の通貨
+     * @param to     換算先の通貨
+     * @return 換算後の金額。いずれかの通貨のレートが存在しない場合は {@link Double#NaN}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public double convert(double amount, @NonNull Currency from, @NonNull Currency to) {
+        return amount * this.rate(from, to);
+    }
+
+    /**
+     * クロスレートの行列を返却します。返却される配列は複製されないため、呼び出し元は配列を変更してはいけません。
+     *
+     * @return {@code from} のコード値を行、 {@code to} のコード値を列とするクロスレートの行列
+     */
+    double[] matrix() {
+        return this.matrix;
+    }
+
+    /**
+     * 引数として渡された通貨を基軸通貨とする為替レートを返却します。
+     * <p>
+     * 返却される為替レートには、レートが存在する全ての通貨が含まれます。
+     *
+     * @param base 基軸通貨
+     * @return {@code base} を基軸通貨とする為替レート
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public ExchangeRates rebase(@NonNull Currency base) {
+
+        final int row = base.getCode() * SIZE;
+        return ExchangeRates.of(base, this.date, Arrays.copyOfRange(this.matrix, row, row + SIZE));
+    }
+}
@@ -15,24 +15,45 @@
 package org.thinkit.api.currencyexchange;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.google.common.io.CountingInputStream;
 
-import org.apache.commons.lang3.StringUtils;
 import org.thinkit.api.common.Communicable;
-import org.thinkit.api.common.Resource;
 import org.thinkit.api.common.entity.RequestParameter;
 import org.thinkit.api.common.exception.ApiRequestFailedException;
 import org.thinkit.api.currencyexchange.catalog.Currency;
 
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.NonNull;
 
 /**
@@ -45,20 +66,135 @@ import lombok.NonNull;
 public final class CurrencyExchangeRates implements Communicable {
 
     /**
-     * API呼び出し時のURL
+     * 為替レートAPIのベースURLの初期値
      */
     private static final String EXCHANGE_RATES_API = "https://api.exchangeratesapi.io";
 
+    /**
+     * 単一のベースURLへ送信する場合のエンドポイントのインデックス
+     */
+    private static final int DEFAULT_ENDPOINT = 0;
+
+    /**
+     * 正常終了を表すHTTPステータスコード
+     */
+    private static final int HTTP_OK = 200;
+
+    /**
+     * 未更新を表すHTTPステータスコード
+     */
+    private static final int HTTP_NOT_MODIFIED = 304;
+
     /**
      * 為替レートAPIのリソース
      */
-    private Resource resource;
+    @Getter(AccessLevel.PACKAGE)
+    private CurrencyExchangeRatesResource resource;
 
     /**
      * リクエストパラメーター
      */
     private RequestParameter requestParameter;
 
+    /**
+     * 基軸通貨
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private Currency base;
+
+    /**
+     * 取得対象のシンボル
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private List<Currency> symbols;
+
+    /**
+     * 検索開始日。最新リソースを対象とする場合は {@code null}
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private LocalDate startAt;
+
+    /**
+     * 検索終了日。最新リソースを対象とする場合は {@code null}
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private LocalDate endAt;
+
+    /**
+     * 為替レートのキャッシュ。キャッシュを使用しない場合は {@code null}
+     */
+    private ExchangeRatesCache cache;
+
+    /**
+     * 履歴リソースの為替レートのストア。ストアを使用しない場合は {@code null}
+     */
+    private HistoricalRatesStore historicalStore;
+
+    /**
+     * 為替レートの取得に適用する耐障害性の方針。適用しない場合は {@code null}
+     */
+    private ResiliencePolicy resiliencePolicy;
+
+    /**
+     * 条件付きリクエストのキャッシュ。条件付きリクエストを送信しない場合は {@code null}
+     */
+    private ConditionalRequestCache conditionalRequests;
+
+    /**
+     * 圧縮されたレスポンスを要求するか否か
+     */
+    private boolean compression;
+
+    /**
+     * 為替レートAPIのベースURL
+     */
+    private String endpoint;
+
+    /**
+     * リクエストを振り分ける為替レートAPIのエンドポイントの一覧。単一のベースURLへ送信する場合は {@code null}
+     */
+    private EndpointPool endpointPool;
+
+    /**
+     * リクエストの頻度と同時実行数の制限。制限しない場合は {@code null}
+     */
+    private RequestLimiter requestLimiter;
+
+    /**
+     * リクエストの計測結果の通知先。計測を行わない場合は {@code null}
+     */
+    private ExchangeRatesListener listener;
+
+    /**
+     * エンドポイントごとの為替レートAPIのURI。インスタンスの生成時に一度だけ組み立てられます。
+     */
+    private URI[] uris;
+
+    /**
+     * エンドポイントごとの、設定されたリクエストタイムアウトで送信するHTTPリクエスト。インスタンスの生成時に一度だけ組み立てられ、全てのスレッドで再利用されます。
+     */
+    private HttpRequest[] httpRequests;
+
+    /**
+     * HTTPクライアント
+     */
+    private HttpClient httpClient;
+
+    /**
+     * リクエストタイムアウト
+     */
+    private Duration requestTimeout;
+
+    /**
+     * 履歴リソースの検索期間を分割する単位。分割しない場合は {@code null}
+     */
+    private Period chunkPeriod;
+
+    /**
+     * 分割した検索期間を同時に取得するリクエスト数の上限
+     */
+    private int chunkParallelism;
+
     /**
      * デフォルトコンストラクタ
      */
@@ -84,11 +220,41 @@ public final class CurrencyExchangeRates implements Communicable {
      * @see #withBaseCurrency(Currency)
      * @see #withSymbolCurrencies(List)
      * @see #withStartDateAt(String)
+     * @see #withStartDateAt(LocalDate)
      * @see #withEndDateAt(String)
+     * @see #withEndDateAt(LocalDate)
+     * @see #withHttpClient(HttpClient)
+     * @see #withConnectTimeout(Duration)
+     * @see #withRequestTimeout(Duration)
+     * @see #withHttpVersion(HttpClient.Version)
+     * @see #withExecutor(Executor)
+     * @see #withVirtualThreads()
+     * @see #withCache(ExchangeRatesCache)
+     * @see #withHistoricalStore(HistoricalRatesStore)
+     * @see #withHistoryChunking(Period, int)
+     * @see #withResiliencePolicy(ResiliencePolicy)
+     * @see #withConditionalRequests(ConditionalRequestCache)
+     * @see #withCompression(boolean)
+     * @see #withListener(ExchangeRatesListener)
+     * @see #withEndpoint(String)
+     * @see #withEndpoints(List)
+     * @see #withEndpointPool(EndpointPool)
+     * @see #withRequestLimiter(RequestLimiter)
      * @see #build()
      */
     public static class Builder {
 
+        /**
+         * リクエストタイムアウトの初期値
+         */
+        private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+        /**
+         * {@code yyyyMMdd} 形式の日付を厳密に解析するフォーマッタ
+         */
+        private static final DateTimeFormatter BASIC_DATE = DateTimeFormatter.ofPattern("uuuuMMdd")
+                .withResolverStyle(ResolverStyle.STRICT);
+
         /**
          * 基軸通貨
          */
@@ -100,14 +266,94 @@ public final class CurrencyExchangeRates implements Communicable {
         private List<Currency> symbols = new ArrayList<>(0);
 
         /**
-         * 検索開始日
+         * 検索開始日。設定されていない場合は {@code null}
+         */
+        private LocalDate startAt;
+
+        /**
+         * 検索終了日。設定されていない場合は {@code null}
+         */
+        private LocalDate endAt;
+
+        /**
+         * 呼び出し元から注入されたHTTPクライアント
+         */
+        private HttpClient httpClient;
+
+        /**
+         * 接続タイムアウト
+         */
+        private Duration connectTimeout = HttpClientSetting.DEFAULT_CONNECT_TIMEOUT;
+
+        /**
+         * リクエストタイムアウト
+         */
+        private Duration requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+
+        /**
+         * 優先するHTTPバージョン
+         */
+        private HttpClient.Version version = HttpClient.Version.HTTP_2;
+
+        /**
+         * 非同期処理で使用するエグゼキュータ
+         */
+        private Executor executor;
+
+        /**
+         * 為替レートのキャッシュ
+         */
+        private ExchangeRatesCache cache;
+
+        /**
+         * 履歴リソースの為替レートのストア
+         */
+        private HistoricalRatesStore historicalStore;
+
+        /**
+         * 履歴リソースの検索期間を分割する単位
+         */
+        private Period chunkPeriod;
+
+        /**
+         * 分割した検索期間を同時に取得するリクエスト数の上限
+         */
+        private int chunkParallelism = 1;
+
+        /**
+         * 為替レートの取得に適用する耐障害性の方針
+         */
+        private ResiliencePolicy resiliencePolicy;
+
+        /**
+         * 条件付きリクエストのキャッシュ
+         */
+        private ConditionalRequestCache conditionalRequests;
+
+        /**
+         * 圧縮されたレスポンスを要求するか否か
          */
-        private String startAt = "";
+        private boolean compression = true;
 
         /**
-         * 検索終了日
+         * 為替レートAPIのベースURL
          */
-        private String endAt = "";
+        private String endpoint = EXCHANGE_RATES_API;
+
+        /**
+         * リクエストを振り分ける為替レートAPIのエンドポイントの一覧
+         */
+        private EndpointPool endpointPool;
+
+        /**
+         * リクエストの頻度と同時実行数の制限
+         */
+        private RequestLimiter requestLimiter;
+
+        /**
+         * リクエストの計測結果の通知先
+         */
+        private ExchangeRatesListener listener;
 
         /**
          * デフォルトコンストラクタ
@@ -152,15 +398,34 @@ public final class CurrencyExchangeRates implements Communicable {
          * 当メソッドの呼び出しは任意ですが、呼び出した際には {@link #withEndDateAt(String)}
          * メソッドの呼び出しを行い終了日を設定してください。
          * <p>
-         * 開始日は {@code yyyyMMdd} 形式で設定してください。
+         * 開始日は {@code yyyyMMdd} 形式で設定してください。存在しない日付は受け付けません。空文字列が渡された場合は設定済みの開始日を取り消します。
          *
          * @param startAt 開始日
          * @return 自分自身のインスタンス
          *
-         * @exception NullPointerException 引数として {@code null} が渡された場合
+         * @exception NullPointerException       引数として {@code null} が渡された場合
+         * @exception InvalidDateFormatException 引数として渡された {@code startAt} が
+         *                                       {@code yyyyMMdd} 形式の有効な日付ではない場合
          * @see #withEndDateAt(String)
          */
         public Builder withStartDateAt(@NonNull String startAt) {
+            this.startAt = this.parseDate(startAt);
+            return this;
+        }
+
+        /**
+         * 為替レートを取得する際の開始日を設定します。
+         * <p>
+         * 当メソッドの呼び出しは任意ですが、呼び出した際には {@link #withEndDateAt(LocalDate)}
+         * メソッドの呼び出しを行い終了日を設定してください。
+         *
+         * @param startAt 開始日
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         * @see #withEndDateAt(LocalDate)
+         */
+        public Builder withStartDateAt(@NonNull LocalDate startAt) {
             this.startAt = startAt;
             return this;
         }
@@ -171,111 +436,1375 @@ public final class CurrencyExchangeRates implements Communicable {
          * 当メソッドの呼び出しは任意ですが、呼び出した際には {@link #withStartDateAt(String)}
          * メソッドの呼び出しを行い開始日を設定してください。
          * <p>
-         * 終了日は {@code yyyyMMdd} 形式で設定してください。
+         * 終了日は {@code yyyyMMdd} 形式で設定してください。存在しない日付は受け付けません。空文字列が渡された場合は設定済みの終了日を取り消します。
          *
          * @param endAt 終了日
          * @return 自分自身のインスタンス
          *
-         * @exception NullPointerException 引数として {@code null} が渡された場合
+         * @exception NullPointerException       引数として {@code null} が渡された場合
+         * @exception InvalidDateFormatException 引数として渡された {@code endAt} が
+         *                                       {@code yyyyMMdd} 形式の有効な日付ではない場合
          * @see #withStartDateAt(String)
          */
         public Builder withEndDateAt(@NonNull String endAt) {
-            this.endAt = endAt;
+            this.endAt = this.parseDate(endAt);
             return this;
         }
 
         /**
-         * 設定された値を基に {@link CurrencyExchangeRates} クラスの新しいインスタンスを生成し返却します。
+         * 為替レートを取得する際の終了日を設定します。
          * <p>
-         * リクエストパラメータの設定が必要ない場合は {@link Builder} クラスのインスタンスを生成し直接この
-         * {@link Builder#build()} メソッドを実行しても問題ありません。
+         * 当メソッドの呼び出しは任意ですが、呼び出した際には {@link #withStartDateAt(LocalDate)}
+         * メソッドの呼び出しを行い開始日を設定してください。
+         *
+         * @param endAt 終了日
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         * @see #withStartDateAt(LocalDate)
+         */
+        public Builder withEndDateAt(@NonNull LocalDate endAt) {
+            this.endAt = endAt;
+            return this;
+        }
+
+        /**
+         * リクエスト送信時に使用するHTTPクライアントを設定します。
          * <p>
-         * {@link #withStartDateAt(String)} メソッドと {@link #withEndDateAt(String)}
-         * メソッドが呼び出され、開始日と終了日が設定されている場合は履歴リソースから為替情報を取得します。
-         * 開始日と終了日が共に空文字列の場合は最新リソースから為替情報を取得します。
+         * 当メソッドを呼び出さない場合は、同一の設定値に対してJVM全体で共有されるHTTPクライアントを使用します。
+         * 当メソッドでHTTPクライアントを設定した場合は {@link #withConnectTimeout(Duration)} 、
+         * {@link #withHttpVersion(HttpClient.Version)} 、 {@link #withExecutor(Executor)}
+         * メソッドで設定された値は無視されます。
          *
-         * @return {@link CurrencyExchangeRates} クラスの新しいインスタンス
+         * @param httpClient HTTPクライアント
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
          */
-        public Communicable build() {
+        public Builder withHttpClient(@NonNull HttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
 
-            final CurrencyExchangeRates api = new CurrencyExchangeRates();
+        /**
+         * 共有されるHTTPクライアントの接続タイムアウトを設定します。
+         * <p>
+         * 初期値として10秒が設定されています。
+         *
+         * @param connectTimeout 接続タイムアウト
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     引数として {@code null} が渡された場合
+         * @exception IllegalArgumentException 引数として {@code 0} 以下の期間が渡された場合
+         */
+        public Builder withConnectTimeout(@NonNull Duration connectTimeout) {
+            this.connectTimeout = this.requirePositive(connectTimeout);
+            return this;
+        }
 
-            if (StringUtils.isEmpty(this.startAt) && StringUtils.isEmpty(this.endAt)) {
-                api.resource = CurrencyExchangeRatesResource.LATEST;
-            } else if (!StringUtils.isEmpty(this.startAt) && !StringUtils.isEmpty(this.endAt)) {
-                api.resource = CurrencyExchangeRatesResource.HISTORY;
-            } else {
-                throw new InvalidDateException();
-            }
+        /**
+         * リクエスト毎のタイムアウトを設定します。指定された期間内にレスポンスヘッダーを受信できなかった場合はリクエストが失敗します。
+         * <p>
+         * 初期値として30秒が設定されています。
+         *
+         * @param requestTimeout リクエストタイムアウト
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     引数として {@code null} が渡された場合
+         * @exception IllegalArgumentException 引数として {@code 0} 以下の期間が渡された場合
+         */
+        public Builder withRequestTimeout(@NonNull Duration requestTimeout) {
+            this.requestTimeout = this.requirePositive(requestTimeout);
+            return this;
+        }
 
-            api.requestParameter = CurrencyExchangeRatesParameter.of(this.base.getTag(), this.getTsvSymbols(),
-                    this.toDateWithHyphen(this.startAt), this.toDateWithHyphen(this.endAt));
+        /**
+         * 共有されるHTTPクライアントが優先するHTTPバージョンを設定します。
+         * <p>
+         * 初期値として {@link HttpClient.Version#HTTP_2} が設定されています。
+         *
+         * @param version 優先するHTTPバージョン
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withHttpVersion(@NonNull HttpClient.Version version) {
+            this.version = version;
+            return this;
+        }
 
-            return api;
+        /**
+         * 共有されるHTTPクライアントが非同期処理で使用するエグゼキュータを設定します。
+         * <p>
+         * 当メソッドを呼び出さない場合はHTTPクライアントのデフォルトのエグゼキュータを使用します。
+         * 渡されたエグゼキュータのライフサイクルは呼び出し元で管理してください。
+         *
+         * @param executor 非同期処理で使用するエグゼキュータ
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withExecutor(@NonNull Executor executor) {
+            this.executor = executor;
+            return this;
         }
 
         /**
-         * 設定された検索対象のシンボルをHTTPリクエスト時に使用する際のTSV形式へ変換して文字列型として返却します。 検索対象のシンボルを設定する
-         * {@link #withSymbolCurrencies(List)} メソッドが呼び出されなかった場合、または検索対象のシンボルが
-         * {@code null} または空の場合は空文字列を返却します。空文字列が返却された場合は、後続処理の
-         * {@link Communicable#createRequestParameter(RequestParameter)}
-         * メソッドで当該パラメータの設定は除外されます。
+         * 共有されるHTTPクライアントが非同期処理でタスクごとに仮想スレッドを使用するように設定します。
+         * <p>
+         * レスポンスの受信とレスポンスボディの解析が仮想スレッド上で行われるため、多数のリクエストを同時に送信する場合でもプラットフォームスレッドを占有しません。
+         * 当メソッドは {@link #withExecutor(Executor)} メソッドで設定されたエグゼキュータを置き換えます。実行中のJDKが仮想スレッドをサポートするかは
+         * {@link CurrencyExchangeRates#isVirtualThreadSupported()} メソッドで確認できます。
          *
-         * @return 検索対象のシンボルが設定されている場合はTSV形式へ変換されたシンボル。検索対象のシンボルが {@code null}
-         *         または空の場合は空文字列
+         * @return 自分自身のインスタンス
+         *
+         * @exception UnsupportedOperationException 実行中のJDKが仮想スレッドをサポートしない場合
          */
-        private String getTsvSymbols() {
+        public Builder withVirtualThreads() {
+            this.executor = VirtualThreads.executor();
+            return this;
+        }
 
-            if (this.symbols == null || this.symbols.isEmpty()) {
-                return "";
-            }
+        /**
+         * {@link CurrencyExchangeRates#fetch()} メソッドおよび {@link CurrencyExchangeRates#fetchAsync()}
+         * メソッドで使用する為替レートのキャッシュを設定します。
+         * <p>
+         * 当メソッドを呼び出さない場合はキャッシュを使用せず、常に為替レートAPIへリクエストを送信します。同一のキャッシュを複数の
+         * {@link CurrencyExchangeRates} で共有することができます。
+         *
+         * @param cache 為替レートのキャッシュ
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withCache(@NonNull ExchangeRatesCache cache) {
+            this.cache = cache;
+            return this;
+        }
 
-            return String.join(",", this.symbols.stream().map(Currency::getTag).collect(Collectors.toList()));
+        /**
+         * 履歴リソースから為替レートを取得する際に使用する為替レートのストアを設定します。
+         * <p>
+         * ストアが設定されている場合、 {@link CurrencyExchangeRates#fetch()} メソッドおよび
+         * {@link CurrencyExchangeRates#fetchAsync()} メソッドは検索期間のうちストアに保持されていない期間のみを為替レートAPIから取得します。
+         * 最新リソースを対象とする場合、ストアは使用されません。同一のストアを複数の {@link CurrencyExchangeRates} で共有することができます。
+         *
+         * @param historicalStore 履歴リソースの為替レートのストア
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withHistoricalStore(@NonNull HistoricalRatesStore historicalStore) {
+            this.historicalStore = historicalStore;
+            return this;
         }
 
         /**
-         * 引数として与えれられた {@code date} を {@code yyyy-MM-dd} 形式に変換し返却します。
+         * 履歴リソースの検索期間を指定された単位で分割し、分割した期間ごとのリクエストを並行して送信するように設定します。
          * <p>
-         * 引数として渡される日付は {@code yyyyMMdd} 形式であることを想定しており、想定外の形式で日付が渡された場合は
-         * {@link InvalidDateFormatException} が実行時に発生します。
+         * 分割した期間の為替レートは指定された上限数まで同時に取得され、取得後に日付の昇順で結合されます。検索期間が分割の単位以下の場合は分割されません。
+         * 当メソッドを呼び出さない場合、検索期間は分割されません。
          *
-         * @param date 変換対象の日付（yyyyMMdd形式）
-         * @return {@code yyyy-MM-dd} 形式に変換された日付
+         * @param chunkPeriod 検索期間を分割する単位
+         * @param parallelism 同時に送信するリクエスト数の上限
+         * @return 自分自身のインスタンス
          *
-         * @exception NullPointerException       引数として {@code null} が渡された場合
-         * @exception InvalidDateFormatException 引数として渡された {@code date} が
-         *                                       {@code yyyyMMdd} 形式ではない場合
+         * @exception NullPointerException     {@code chunkPeriod} として {@code null} が渡された場合
+         * @exception IllegalArgumentException {@code chunkPeriod} が {@code 0} 以下の期間の場合、または
+         *                                     {@code parallelism} が {@code 1} 未満の場合
          */
-        private String toDateWithHyphen(@NonNull String date) {
+        public Builder withHistoryChunking(@NonNull Period chunkPeriod, int parallelism) {
 
-            if (StringUtils.isEmpty(date)) {
-                return "";
+            if (chunkPeriod.isZero() || chunkPeriod.isNegative()
+                    || !LocalDate.EPOCH.plus(chunkPeriod).isAfter(LocalDate.EPOCH)) {
+                throw new IllegalArgumentException(String.format("Period must be positive: %s", chunkPeriod));
             }
 
-            final SimpleDateFormat fromSdf = new SimpleDateFormat("yyyyMMdd");
-            final SimpleDateFormat toSdf = new SimpleDateFormat("yyyy-MM-dd");
-
-            try {
-                return toSdf.format(fromSdf.parse(date));
-            } catch (ParseException e) {
-                throw new InvalidDateFormatException(e);
+            if (parallelism < 1) {
+                throw new IllegalArgumentException(String.format("Parallelism must be positive: %d", parallelism));
             }
+
+            this.chunkPeriod = chunkPeriod;
+            this.chunkParallelism = parallelism;
+            return this;
         }
-    }
 
-    @Override
-    public HttpResponse<String> send() {
+        /**
+         * {@link CurrencyExchangeRates#fetch()} メソッドおよび {@link CurrencyExchangeRates#fetchAsync()}
+         * メソッドで為替レートAPIへリクエストを送信する際に適用する耐障害性の方針を設定します。
+         * <p>
+         * 当メソッドを呼び出さない場合、リクエストは再試行されず、失敗した時点で例外が発生します。同一の方針を複数の
+         * {@link CurrencyExchangeRates} で共有した場合、サーキットブレーカーの状態も共有されます。
+         *
+         * @param resiliencePolicy 耐障害性の方針
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withResiliencePolicy(@NonNull ResiliencePolicy resiliencePolicy) {
+            this.resiliencePolicy = resiliencePolicy;
+            return this;
+        }
 
-        final String requestParameter = this.createQuery(this.requestParameter);
-        final String requestUrl = String.format("%s/%s/%s", EXCHANGE_RATES_API, resource.getResource(),
-                requestParameter);
+        /**
+         * {@link CurrencyExchangeRates#fetch()} メソッドおよび {@link CurrencyExchangeRates#fetchAsync()}
+         * メソッドで条件付きリクエストを送信する際に使用するキャッシュを設定します。
+         * <p>
+         * 設定した場合、為替レートAPIから受信した検証子を基に条件付きリクエストを送信し、為替レートが更新されていなければ前回取得した為替レートを返却します。
+         * 当メソッドを呼び出さない場合、条件付きリクエストは送信されません。
+         *
+         * @param conditionalRequests 条件付きリクエストのキャッシュ
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withConditionalRequests(@NonNull ConditionalRequestCache conditionalRequests) {
+            this.conditionalRequests = conditionalRequests;
+            return this;
+        }
+
+        /**
+         * 為替レートAPIへ圧縮されたレスポンスを要求するか否かを設定します。
+         * <p>
+         * 有効な場合は {@code Accept-Encoding} ヘッダーで {@code gzip} および {@code deflate} を受け入れ可能であることを通知します。
+         * 圧縮されたレスポンスボディは受信しながら逐次的に展開されて解析されます。初期値として {@code true} が設定されています。
+         * <p>
+         * {@link CurrencyExchangeRates#send()} および {@link CurrencyExchangeRates#sendAsync(Duration)} メソッドも同様に圧縮されたレスポンスを要求し、展開した文字列をレスポンスボディとして返却します。
+         * 返却されるレスポンスのヘッダーは展開後のレスポンスボディと一致するよう、 {@code Content-Encoding} および {@code Content-Length}
+         * ヘッダーが除かれます。送信されるリクエストヘッダーを圧縮の導入前と同一に保つ必要がある場合は {@code false} を設定してください。
+         *
+         * @param compression 圧縮されたレスポンスを要求する場合は {@code true} 、それ以外の場合は {@code false}
+         * @return 自分自身のインスタンス
+         */
+        public Builder withCompression(boolean compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * 為替レートAPIへのリクエストの計測結果を通知するリスナーを設定します。
+         * <p>
+         * リスナーにはリクエストごとのレスポンスヘッダーの受信までの時間、レスポンスボディの受信時間、解析時間、バイト数およびステータスコードと、
+         * キャッシュのヒットとミス、再試行が通知されます。当メソッドを呼び出さない場合は計測を行いません。集計には {@link ExchangeRatesMetrics}
+         * を使用できます。
+         *
+         * @param listener リクエストの計測結果を通知するリスナー
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withListener(@NonNull ExchangeRatesListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * リクエストの送信先となる為替レートAPIのベースURLを設定します。
+         * <p>
+         * 為替レートAPIと同一のリソースを提供するミラーや、負荷試験用の {@link ExchangeRatesServer} へリクエストを送信する場合に使用します。
+         * 末尾のスラッシュは取り除かれます。初期値として {@code https://api.exchangeratesapi.io} が設定されています。
+         *
+         * @param endpoint 為替レートAPIのベースURL
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     引数として {@code null} が渡された場合
+         * @exception IllegalArgumentException {@code http} または {@code https} の絶対URLではない場合
+         */
+        public Builder withEndpoint(@NonNull String endpoint) {
+            this.endpoint = EndpointPool.requireHttpUrl(endpoint);
+            this.endpointPool = null;
+            return this;
+        }
+
+        /**
+         * リクエストの送信先となる為替レートAPIのベースURLの一覧を設定します。
+         * <p>
+         * 各リクエストは一覧のうち応答が最も速い正常なエンドポイントへ送信され、失敗した場合は他のエンドポイントへ送信し直されます。
+         * 振り分けの詳細は {@link EndpointPool} を参照してください。当メソッドで設定した一覧の状態は当ビルダーから生成したインスタンスの間でのみ共有されます。
+         * 複数のビルダーの間で共有する場合は {@link #withEndpointPool(EndpointPool)} メソッドを使用してください。
+         *
+         * @param endpoints 為替レートAPIのベースURLの一覧
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     引数として {@code null} が渡された場合
+         * @exception IllegalArgumentException 一覧が空の場合、重複するURLを含む場合、または {@code http} もしくは {@code https}
+         *                                     の絶対URLではないURLを含む場合
+         */
+        public Builder withEndpoints(@NonNull List<String> endpoints) {
+            return this.withEndpointPool(EndpointPool.builder().withEndpoints(endpoints).build());
+        }
+
+        /**
+         * リクエストを振り分ける為替レートAPIのエンドポイントの一覧を設定します。
+         * <p>
+         * 同一の {@link EndpointPool} を設定した全てのインスタンスで、エンドポイントごとの平均時間と除外状態が共有されます。
+         * 当メソッドを呼び出した場合、 {@link #withEndpoint(String)} メソッドで設定したベースURLは使用されません。
+         *
+         * @param endpointPool リクエストを振り分けるエンドポイントの一覧
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withEndpointPool(@NonNull EndpointPool endpointPool) {
+            this.endpointPool = endpointPool;
+            return this;
+        }
+
+        /**
+         * 為替レートAPIへ送信するリクエストの頻度と同時実行数の制限を設定します。
+         * <p>
+         * 同一の {@link RequestLimiter} を設定した全てのインスタンスのリクエストに制限が適用されます。耐障害性の方針が設定されている場合は、
+         * 再試行を含む各試行に制限が適用されます。エンドポイントの一覧が設定されている場合、他のエンドポイントへの送信し直しは同じ許可の範囲で行われ、
+         * 新たな許可を取得しません。上限に達した際の扱いは {@link RequestLimiter.OverloadPolicy} を参照してください。
+         *
+         * @param requestLimiter リクエストの頻度と同時実行数の制限
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withRequestLimiter(@NonNull RequestLimiter requestLimiter) {
+            this.requestLimiter = requestLimiter;
+            return this;
+        }
+
+        /**
+         * 設定された値を基に {@link CurrencyExchangeRates} クラスの新しいインスタンスを生成し返却します。
+         * <p>
+         * リクエストパラメータの設定が必要ない場合は {@link Builder} クラスのインスタンスを生成し直接この
+         * {@link Builder#build()} メソッドを実行しても問題ありません。
+         * <p>
+         * {@link #withStartDateAt(String)} メソッドと {@link #withEndDateAt(String)}
+         * メソッドが呼び出され、開始日と終了日が設定されている場合は履歴リソースから為替情報を取得します。
+         * 開始日と終了日が共に設定されていない場合は最新リソースから為替情報を取得します。
+         *
+         * @return {@link CurrencyExchangeRates} クラスの新しいインスタンス
+         *
+         * @exception InvalidDateException 開始日と終了日の一方のみが設定されている場合、または開始日が終了日より後の場合
+         */
+        public CurrencyExchangeRates build() {
+
+            final CurrencyExchangeRates api = new CurrencyExchangeRates();
+
+            if (this.startAt == null && this.endAt == null) {
+                api.resource = CurrencyExchangeRatesResource.LATEST;
+            } else if (this.startAt != null && this.endAt != null) {
+                if (this.startAt.isAfter(this.endAt)) {
+                    throw new InvalidDateException(
+                            String.format("Start date %s is after end date %s", this.startAt, this.endAt));
+                }
+
+                api.resource = CurrencyExchangeRatesResource.HISTORY;
+            } else {
+                throw new InvalidDateException();
+            }
+
+            api.base = this.base;
+            api.symbols = List.copyOf(this.symbols);
+            api.startAt = this.startAt;
+            api.endAt = this.endAt;
+            api.requestParameter = CurrencyExchangeRatesParameter.of(this.base.getTag(), this.getTsvSymbols(),
+                    toIsoDate(this.startAt), toIsoDate(this.endAt));
+            api.httpClient = this.httpClient != null ? this.httpClient
+                    : HttpClientSetting.of(this.connectTimeout, this.version, this.executor).getHttpClient();
+            api.requestTimeout = this.requestTimeout;
+            api.cache = this.cache;
+            api.historicalStore = this.historicalStore;
+            api.chunkPeriod = this.chunkPeriod;
+            api.chunkParallelism = this.chunkParallelism;
+            api.resiliencePolicy = this.resiliencePolicy;
+            api.conditionalRequests = this.conditionalRequests;
+            api.compression = this.compression;
+            api.endpoint = this.endpoint;
+            api.endpointPool = this.endpointPool;
+            api.requestLimiter = this.requestLimiter;
+            api.listener = this.listener;
+
+            return api.prepare();
+        }
+
+        /**
+         * 引数として渡された期間が {@code 0} より大きいことを検証し、そのまま返却します。
+         *
+         * @param duration 検証対象の期間
+         * @return 引数として渡された期間
+         *
+         * @exception IllegalArgumentException 引数として {@code 0} 以下の期間が渡された場合
+         */
+        private Duration requirePositive(@NonNull Duration duration) {
+
+            if (duration.isZero() || duration.isNegative()) {
+                throw new IllegalArgumentException(String.format("Duration must be positive: %s", duration));
+            }
+
+            return duration;
+        }
+
+        /**
+         * 設定された検索対象のシンボルをHTTPリクエスト時に使用する際のTSV形式へ変換して文字列型として返却します。 検索対象のシンボルを設定する
+         * {@link #withSymbolCurrencies(List)} メソッドが呼び出されなかった場合、または検索対象のシンボルが
+         * {@code null} または空の場合は空文字列を返却します。空文字列が返却された場合は、後続処理の
+         * {@link Communicable#createRequestParameter(RequestParameter)}
+         * メソッドで当該パラメータの設定は除外されます。
+         *
+         * @return 検索対象のシンボルが設定されている場合はTSV形式へ変換されたシンボル。検索対象のシンボルが {@code null}
+         *         または空の場合は空文字列
+         */
+        private String getTsvSymbols() {
+
+            if (this.symbols == null || this.symbols.isEmpty()) {
+                return "";
+            }
+
+            return toTsvSymbols(this.symbols);
+        }
+
+        /**
+         * 引数として渡された {@code yyyyMMdd} 形式の日付を解析し返却します。
+         * <p>
+         * 解析には共有の不変なフォーマッタを使用し、存在しない日付は受け付けません。
+         *
+         * @param date 解析対象の日付（yyyyMMdd形式）
+         * @return 解析された日付。空文字列が渡された場合は {@code null}
+         *
+         * @exception InvalidDateFormatException 引数として渡された {@code date} が {@code yyyyMMdd}
+         *                                       形式の有効な日付ではない場合
+         */
+        private LocalDate parseDate(String date) {
+
+            if (date.isEmpty()) {
+                return null;
+            }
+
+            try {
+                return LocalDate.parse(date, BASIC_DATE);
+            } catch (DateTimeParseException e) {
+                throw new InvalidDateFormatException(e);
+            }
+        }
+    }
+
+    @Override
+    public HttpResponse<String> send() {
+
+        if (this.endpointPool != null || this.requestLimiter != null) {
+            return Futures.join(this.sendAsync());
+        }
+
+        final UpstreamCall call = this.startCall().next();
+
+        try {
+            final HttpResponse<String> response = this.httpClient.send(
+                    this.createHttpRequest(DEFAULT_ENDPOINT, this.requestTimeout),
+                    call.bodyHandler(ContentEncodings.ofString(StandardCharsets.UTF_8)));
+            call.succeeded(0);
+            return ContentEncodings.stripEncoding(response);
+        } catch (IOException e) {
+            call.failed(e);
+            throw new ApiRequestFailedException(e);
+        } catch (InterruptedException e) {
+            call.failed(e);
+            Thread.currentThread().interrupt();
+            throw new ApiRequestFailedException(e);
+        }
+    }
+
+    /**
+     * 為替レートAPIへ非同期でリクエストを送信し、レスポンスを受信した際に完了する {@link CompletableFuture} を返却します。
+     * <p>
+     * 当メソッドは呼び出し元のスレッドをブロックしません。リクエストタイムアウトには
+     * {@link Builder#withRequestTimeout(Duration)} メソッドで設定された値を使用します。
+     *
+     * @return レスポンスを受信した際に完了する {@link CompletableFuture}
+     *
+     * @see #sendAsync(Duration)
+     */
+    public CompletableFuture<HttpResponse<String>> sendAsync() {
+        return this.sendAsync(this.requestTimeout);
+    }
+
+    /**
+     * 指定されたタイムアウトで為替レートAPIへ非同期でリクエストを送信し、レスポンスを受信した際に完了する
+     * {@link CompletableFuture} を返却します。
+     * <p>
+     * リクエストの送信またはレスポンスの受信に失敗した場合、返却される {@link CompletableFuture} は
+     * {@link ApiRequestFailedException} で完了します。指定されたタイムアウトまでにレスポンスボディの受信が完了しなかった場合は
+     * {@link TimeoutException} で完了します。HTTPクライアントがレスポンスヘッダーの待機中に {@link HttpTimeoutException}
+     * を送出した場合も同様に {@link TimeoutException} で完了するため、タイムアウトはいずれの段階で検出されても同一の例外で通知されます。
+     * 返却された {@link CompletableFuture} をキャンセルした場合は、送信中のリクエストもキャンセルされます。
+     * <p>
+     * 圧縮が有効な場合、レスポンスボディは展開された文字列であり、レスポンスのヘッダーから {@code Content-Encoding} および
+     * {@code Content-Length} ヘッダーは除かれます。
+     * <p>
+     * エンドポイントの一覧が設定されている場合、タイムアウトはエンドポイントごとの試行に適用されます。リクエストの制限が設定されている場合、
+     * 制限による待機時間はタイムアウトに含まれません。
+     *
+     * @param timeout このリクエストのタイムアウト
+     * @return レスポンスを受信した際に完了する {@link CompletableFuture}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public CompletableFuture<HttpResponse<String>> sendAsync(@NonNull Duration timeout) {
+        return this.limit(() -> {
+            final UpstreamCall.Sequence calls = this.startCall();
+
+            return this.exchangeAsync(endpoint -> this.createHttpRequest(endpoint, timeout),
+                    ContentEncodings.ofString(StandardCharsets.UTF_8), timeout, calls)
+                    .whenComplete((response, throwable) -> {
+                        if (throwable == null) {
+                            calls.current().succeeded(0);
+                        } else {
+                            calls.current().failed(throwable);
+                        }
+                    }).thenApply(ContentEncodings::stripEncoding);
+        });
+    }
+
+    /**
+     * 引数として渡された全てのリクエストを同時に非同期で送信し、全てのレスポンスを受信した際に完了する
+     * {@link CompletableFuture} を返却します。
+     * <p>
+     * 返却される {@link CompletableFuture} の結果は、引数として渡されたリクエストと同じ順序のレスポンスのリストです。
+     * いずれかのリクエストが失敗した場合、返却される {@link CompletableFuture} は直ちに失敗し、残りのリクエストはキャンセルされます。
+     *
+     * @param requests 送信するリクエストのリスト
+     * @return 全てのレスポンスを受信した際に完了する {@link CompletableFuture}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static CompletableFuture<List<HttpResponse<String>>> sendAllAsync(
+            @NonNull List<CurrencyExchangeRates> requests) {
+        return Futures.allAsList(
+                requests.stream().map(CurrencyExchangeRates::sendAsync).collect(Collectors.toList()));
+    }
+
+    /**
+     * 実行中のJDKが仮想スレッドをサポートするか判定します。
+     *
+     * @return 仮想スレッドをサポートする場合は {@code true} 、それ以外の場合は {@code false}
+     *
+     * @see Builder#withVirtualThreads()
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VirtualThreads.isSupported();
+    }
+
+    /**
+     * 引数として渡された全てのリクエストの為替レートを同時に取得し、全ての取得が完了するまで待機します。
+     * <p>
+     * 返却されるリストは引数として渡されたリクエストと同じ順序で、各要素は {@link #fetch()} メソッドの結果と同一です。
+     * いずれかのリクエストが失敗した場合は残りのリクエストをキャンセルした上で直ちに例外を発生させます。待機中に呼び出し元のスレッドが割り込まれた場合も
+     * 全てのリクエストをキャンセルするため、当メソッドから制御が戻った時点で送信中のリクエストが残ることはありません。
+     *
+     * @param requests 為替レートを取得するリクエストのリスト
+     * @return リクエストごとの、日付の昇順に並べた為替レートのリスト
+     *
+     * @exception NullPointerException      引数として {@code null} が渡された場合
+     * @exception ApiRequestFailedException いずれかのリクエストが失敗した場合、または待機中に割り込まれた場合
+     *
+     * @see #fetchAllAsync(List)
+     */
+    public static List<List<ExchangeRates>> fetchAll(@NonNull List<CurrencyExchangeRates> requests) {
+
+        final CompletableFuture<List<List<ExchangeRates>>> results = fetchAllAsync(requests);
+
+        try {
+            return results.get();
+        } catch (ExecutionException e) {
+            throw Futures.toApiRequestFailedException(e);
+        } catch (InterruptedException e) {
+            results.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ApiRequestFailedException(e);
+        }
+    }
+
+    /**
+     * 引数として渡された全てのリクエストの為替レートを同時に非同期で取得し、全ての取得が完了した際に完了する {@link CompletableFuture}
+     * を返却します。
+     * <p>
+     * 返却される {@link CompletableFuture} の結果は、引数として渡されたリクエストと同じ順序の為替レートのリストです。
+     * いずれかのリクエストが失敗した場合、返却される {@link CompletableFuture} は直ちに失敗し、残りのリクエストはキャンセルされます。
+     * 返却された {@link CompletableFuture} をキャンセルした場合も全てのリクエストがキャンセルされます。
+     *
+     * @param requests 為替レートを取得するリクエストのリスト
+     * @return 全ての取得が完了した際に完了する {@link CompletableFuture}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static CompletableFuture<List<List<ExchangeRates>>> fetchAllAsync(
+            @NonNull List<CurrencyExchangeRates> requests) {
+        return Futures.allAsList(
+                requests.stream().map(CurrencyExchangeRates::fetchAsync).collect(Collectors.toList()));
+    }
+
+    /**
+     * 為替レートAPIへリクエストを送信し、レスポンスを日付の昇順に並べた為替レートのリストとして返却します。
+     * <p>
+     * レスポンスボディは受信しながら逐次的に解析されるため、レスポンスボディ全体が文字列としてメモリ上に保持されることはありません。
+     * 最新リソースを対象とする場合は要素数が1のリストを返却します。
+     *
+     * @return 日付の昇順に並べた為替レートのリスト
+     *
+     * @exception ApiRequestFailedException リクエストの送信またはレスポンスの解析に失敗した場合
+     */
+    public List<ExchangeRates> fetch() {
+
+        if (this.cache != null || this.isStored() || this.isChunked() || this.resiliencePolicy != null
+                || this.endpointPool != null || this.requestLimiter != null) {
+            return Futures.join(this.fetchAsync());
+        }
+
+        final UpstreamCall.Sequence calls = this.startCall();
+        final HttpResponse.BodyHandler<InputStream> handler = HttpResponse.BodyHandlers.ofInputStream();
+
+        try {
+            final Optional<List<ExchangeRates>> rates = this.readExchangeRates(this.httpClient
+                    .send(this.createRatesRequest(DEFAULT_ENDPOINT), calls.next().bodyHandler(handler)),
+                    calls.current());
+
+            if (rates.isPresent()) {
+                return rates.get();
+            }
+
+            return this.readExchangeRates(this.httpClient.send(this.httpRequests[DEFAULT_ENDPOINT],
+                    calls.next().bodyHandler(handler)), calls.current())
+                    .orElseThrow(CurrencyExchangeRates::unexpectedNotModified);
+        } catch (IOException e) {
+            calls.current().failed(e);
+            throw new ApiRequestFailedException(e);
+        } catch (InterruptedException e) {
+            calls.current().failed(e);
+            Thread.currentThread().interrupt();
+            throw new ApiRequestFailedException(e);
+        }
+    }
+
+    /**
+     * 為替レートAPIへリクエストを送信し、レスポンスボディを受信しながら1日分ずつ為替レートを返却するストリームを返却します。
+     * <p>
+     * 為替レートはストリームの要素が要求された時点でレスポンスボディから読み込まれます。そのため、検索期間の長さに関わらずメモリ上に保持される為替レートは
+     * 1日分のみであり、要素の処理が遅い場合はレスポンスボディの受信も待機します。要素はレスポンスボディ内の順序で返却されるため、日付の昇順であるとは限りません。
+     * <p>
+     * {@link Builder#withHistoryChunking(Period, int)} メソッドで検索期間の分割が設定されている場合は、分割した期間ごとに古い順にリクエストを送信します。
+     * 当メソッドはキャッシュおよびストアを使用しません。
+     * <p>
+     * 返却されたストリームは使用後に必ず閉じてください。
+     *
+     * <pre>
+     * try (Stream&lt;ExchangeRates&gt; history = api.stream()) {
+     *     history.forEach(daily -&gt; ...);
+     * }
+     * </pre>
+     *
+     * @return 1日分ずつ為替レートを返却するストリーム
+     *
+     * @exception ApiRequestFailedException リクエストの送信に失敗した場合、またはレスポンスの解析に失敗した場合
+     */
+    public Stream<ExchangeRates> stream() {
+
+        if (this.isChunked()) {
+            return this.chunks().stream().flatMap(CurrencyExchangeRates::stream);
+        }
+
+        try {
+            final HttpResponse<InputStream> response = this.endpointPool == null && this.requestLimiter == null
+                    ? this.httpClient.send(this.createHttpRequest(DEFAULT_ENDPOINT, this.requestTimeout),
+                            HttpResponse.BodyHandlers.ofInputStream())
+                    : Futures.join(this.limit(() -> this.exchangeAsync(
+                            endpoint -> this.createHttpRequest(endpoint, this.requestTimeout),
+                            HttpResponse.BodyHandlers.ofInputStream(), this.requestTimeout,
+                            UpstreamCall.DISABLED_SEQUENCE)));
+            return this.openReader(response.statusCode(), response.headers(), response.body()).stream();
+        } catch (IOException e) {
+            throw new ApiRequestFailedException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiRequestFailedException(e);
+        }
+    }
+
+    /**
+     * 為替レートAPIへ非同期でリクエストを送信し、レスポンスを日付の昇順に並べた為替レートのリストとして返却する
+     * {@link CompletableFuture} を返却します。
+     * <p>
+     * レスポンスボディの解析はHTTPクライアントに設定されたエグゼキュータ、または設定されていない場合は
+     * {@link ForkJoinPool#commonPool()} で行われます。タイムアウトとキャンセルの扱いは {@link #sendAsync(Duration)}
+     * メソッドと同様です。
+     * <p>
+     * {@link Builder#withCache(ExchangeRatesCache)} メソッドでキャッシュが設定されている場合は、キャッシュに有効なエントリが存在する限り
+     * リクエストを送信しません。 {@link Builder#withHistoricalStore(HistoricalRatesStore)}
+     * メソッドでストアが設定されている場合は、履歴リソースの検索期間のうちストアに保持されていない期間のみを取得します。
+     * {@link Builder#withResiliencePolicy(ResiliencePolicy)} メソッドで耐障害性の方針が設定されている場合は、為替レートAPIへのリクエストに方針を適用します。
+     * {@link Builder#withRequestLimiter(RequestLimiter)} メソッドでリクエストの制限が設定されている場合は、為替レートAPIへの各リクエストに制限を適用します。
+     *
+     * @return 日付の昇順に並べた為替レートのリストを返却する {@link CompletableFuture}
+     *
+     * @see #fetch()
+     */
+    public CompletableFuture<List<ExchangeRates>> fetchAsync() {
+
+        if (this.cache == null) {
+            return this.loadAsync();
+        }
+
+        if (this.listener == null) {
+            return this.cache.get(this.requestParameter, this.endAt, this::loadAsync);
+        }
+
+        final AtomicBoolean loaded = new AtomicBoolean();
+        final CompletableFuture<List<ExchangeRates>> rates = this.cache.get(this.requestParameter, this.endAt,
+                () -> {
+                    loaded.set(true);
+                    return this.loadAsync();
+                });
+
+        if (loaded.get()) {
+            this.listener.onCacheMiss(this.resource, this.base);
+        } else {
+            this.listener.onCacheHit(this.resource, this.base);
+        }
+
+        return rates;
+    }
+
+    /**
+     * キャッシュを使用せずに為替レートを非同期で取得します。履歴リソースを対象とし、ストアが設定されている場合はストアを経由して取得します。
+     *
+     * @return 日付の昇順に並べた為替レートのリストを返却する {@link CompletableFuture}
+     */
+    private CompletableFuture<List<ExchangeRates>> loadAsync() {
+
+        if (this.isStored()) {
+            return this.historicalStore.get(this.base, this.startAt, this.endAt, this.symbols,
+                    (from, to) -> this.forRange(from, to, List.of()).fetchFromUpstreamAsync());
+        }
+
+        return this.fetchFromUpstreamAsync();
+    }
+
+    /**
+     * キャッシュを使用せずに為替レートAPIへ非同期でリクエストを送信し、レスポンスを日付の昇順に並べた為替レートのリストとして返却する
+     * {@link CompletableFuture} を返却します。
+     * <p>
+     * 耐障害性の方針が設定されている場合は方針を適用します。検索期間を分割する場合は、分割した期間ごとのリクエストに方針を適用します。
+     *
+     * @return 日付の昇順に並べた為替レートのリストを返却する {@link CompletableFuture}
+     */
+    private CompletableFuture<List<ExchangeRates>> fetchFromUpstreamAsync() {
+
+        if (this.isChunked()) {
+            return this.fetchChunksAsync();
+        }
+
+        if (this.resiliencePolicy != null) {
+            if (this.listener == null) {
+                return this.resiliencePolicy.execute(this.requestParameter, this::requestUpstreamAsync);
+            }
+
+            return this.resiliencePolicy.execute(this.requestParameter, this::countedAttempt);
+        }
+
+        return this.requestUpstreamAsync();
+    }
+
+    /**
+     * 為替レートAPIへ1件のリクエストを非同期で送信し、レスポンスを日付の昇順に並べた為替レートのリストとして返却する
+     * {@link CompletableFuture} を返却します。
+     * <p>
+     * リクエストの制限が設定されている場合は制限を適用します。
+     *
+     * @return 日付の昇順に並べた為替レートのリストを返却する {@link CompletableFuture}
+     */
+    private CompletableFuture<List<ExchangeRates>> requestUpstreamAsync() {
+
+        if (this.requestLimiter == null) {
+            return this.sendRatesRequestAsync();
+        }
+
+        return this.requestLimiter.execute(this.requestParameter, this::sendRatesRequestAsync);
+    }
+
+    /**
+     * 為替レートAPIへ1件のリクエストを非同期で送信し、レスポンスを日付の昇順に並べた為替レートのリストとして返却する
+     * {@link CompletableFuture} を返却します。
+     * <p>
+     * レスポンスの受信と解析の全体には、リクエストタイムアウトにエンドポイント数を乗じたタイムアウトが適用されます。
+     *
+     * @return 日付の昇順に並べた為替レートのリストを返却する {@link CompletableFuture}
+     */
+    private CompletableFuture<List<ExchangeRates>> sendRatesRequestAsync() {
+
+        final UpstreamCall.Sequence calls = this.startCall();
+        final HttpResponse.BodyHandler<InputStream> handler = HttpResponse.BodyHandlers.ofInputStream();
+        final Executor executor = this.httpClient.executor().orElseGet(ForkJoinPool::commonPool);
+        final CompletableFuture<List<ExchangeRates>> rates = Futures
+                .forward(this.exchangeAsync(this::createRatesRequest, handler, this.requestTimeout, calls)
+                        .thenApplyAsync(response -> this.readExchangeRates(response, calls.current()), executor)
+                        .thenCompose(result -> result.isPresent() ? CompletableFuture.completedFuture(result.get())
+                                : this.sendUnconditionalRequestAsync(handler, calls, executor)))
+                .orTimeout(this.requestTimeout.toMillis() * this.uris.length, TimeUnit.MILLISECONDS);
+
+        if (calls.isEnabled()) {
+            rates.whenComplete((result, throwable) -> {
+                if (throwable != null) {
+                    calls.current().failed(throwable);
+                }
+            });
+        }
+
+        return rates;
+    }
+
+    /**
+     * 検証子を含まないリクエストを非同期で送信し、レスポンスを日付の昇順に並べた為替レートのリストとして返却する {@link CompletableFuture} を返却します。
+     * <p>
+     * 条件付きリクエストに対する未更新のレスポンスを受信した時点で、キャッシュから前回の為替レートが破棄されていた場合に使用します。
+     *
+     * @param handler  レスポンスボディのハンドラ
+     * @param calls    計測中の一連の送信
+     * @param executor レスポンスボディを解析するエグゼキュータ
+     * @return 日付の昇順に並べた為替レートのリストを返却する {@link CompletableFuture}
+     */
+    private CompletableFuture<List<ExchangeRates>> sendUnconditionalRequestAsync(
+            HttpResponse.BodyHandler<InputStream> handler, UpstreamCall.Sequence calls, Executor executor) {
+        return this.exchangeAsync(endpoint -> this.httpRequests[endpoint], handler, this.requestTimeout, calls)
+                .thenApplyAsync(response -> this.readExchangeRates(response, calls.current())
+                        .orElseThrow(CurrencyExchangeRates::unexpectedNotModified), executor);
+    }
+
+    /**
+     * リクエストの制限が設定されている場合は制限を適用して {@code request} を実行し、設定されていない場合はそのまま実行します。
+     *
+     * @param <T>     結果の型
+     * @param request リクエストを送信し、その結果を返却する処理
+     * @return {@code request} の結果を返却する {@link CompletableFuture}
+     */
+    private <T> CompletableFuture<T> limit(Supplier<CompletableFuture<T>> request) {
+        return this.requestLimiter == null ? request.get() : this.requestLimiter.execute(request);
+    }
+
+    /**
+     * 為替レートAPIへ非同期でリクエストを送信し、レスポンスを受信した際に完了する {@link CompletableFuture} を返却します。
+     * <p>
+     * エンドポイントの一覧が設定されている場合は一覧のエンドポイントへ振り分け、失敗した場合は他のエンドポイントへ送信し直します。
+     * タイムアウトはエンドポイントごとの試行に適用されます。試行ごとに {@code calls} の新しい計測を開始するため、他のエンドポイントへ送信し直した場合も
+     * 試行ごとのステータスコードと時間がそれぞれ通知されます。
+     *
+     * @param <T>     レスポンスボディの型
+     * @param request エンドポイントのインデックスを受け取り、送信するHTTPリクエストを返却する処理
+     * @param handler レスポンスボディのハンドラ
+     * @param timeout 試行ごとのタイムアウト
+     * @param calls   計測中の一連の送信
+     * @return レスポンスを受信した際に完了する {@link CompletableFuture}
+     */
+    private <T> CompletableFuture<HttpResponse<T>> exchangeAsync(IntFunction<HttpRequest> request,
+            HttpResponse.BodyHandler<T> handler, Duration timeout, UpstreamCall.Sequence calls) {
+
+        if (this.endpointPool == null) {
+            return this.exchangeAsync(DEFAULT_ENDPOINT, request, handler, timeout, calls.next());
+        }
+
+        return this.endpointPool.execute(handler,
+                (endpoint, timed) -> this.exchangeAsync(endpoint, request, timed, timeout, calls.next()));
+    }
+
+    /**
+     * 引数として渡されたインデックスのエンドポイントへ非同期でリクエストを送信し、レスポンスを受信した際に完了する {@link CompletableFuture}
+     * を返却します。
+     *
+     * <p>
+     * 試行が失敗した場合は、返却する {@link CompletableFuture} が完了するより先に {@code call} へ失敗を記録します。
+     *
+     * @param <T>      レスポンスボディの型
+     * @param endpoint エンドポイントのインデックス
+     * @param request  エンドポイントのインデックスを受け取り、送信するHTTPリクエストを返却する処理
+     * @param handler  レスポンスボディのハンドラ
+     * @param timeout  タイムアウト
+     * @param call     当試行の計測
+     * @return レスポンスを受信した際に完了する {@link CompletableFuture} 。タイムアウトした場合は {@link HttpRequest} に設定されたタイムアウトと
+     *         当メソッドのタイムアウトのいずれが先に経過したかに関わらず {@link TimeoutException} で完了します
+     */
+    private <T> CompletableFuture<HttpResponse<T>> exchangeAsync(int endpoint, IntFunction<HttpRequest> request,
+            HttpResponse.BodyHandler<T> handler, Duration timeout, UpstreamCall call) {
+
+        final CompletableFuture<HttpResponse<T>> sent = this.httpClient.sendAsync(request.apply(endpoint),
+                call.bodyHandler(handler));
+        final CompletableFuture<HttpResponse<T>> response = new CompletableFuture<>();
+
+        sent.whenComplete((result, throwable) -> {
+            if (throwable == null) {
+                response.complete(result);
+            } else if (Futures.unwrap(throwable) instanceof HttpTimeoutException) {
+                response.completeExceptionally(new TimeoutException(Futures.unwrap(throwable).getMessage()));
+            } else {
+                response.completeExceptionally(Futures.toApiRequestFailedException(throwable));
+            }
+        });
+        response.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                sent.cancel(true);
+            }
+        });
+
+        response.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        if (!call.isEnabled()) {
+            return response;
+        }
+
+        final CompletableFuture<HttpResponse<T>> recorded = response.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                call.failed(throwable);
+            }
+        });
+        recorded.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                response.cancel(true);
+            }
+        });
+
+        return recorded;
+    }
+
+    /**
+     * 耐障害性の方針の1回分の試行として、再試行とヘッジリクエストをそれぞれリスナーへ通知した上でリクエストを送信します。
+     *
+     * @param number 試行の回数。最初の試行を {@code 1} とします。
+     * @param hedge  ヘッジリクエストの場合は {@code true} 、それ以外の場合は {@code false}
+     * @return 日付の昇順に並べた為替レートのリストを返却する {@link CompletableFuture}
+     */
+    private CompletableFuture<List<ExchangeRates>> countedAttempt(int number, boolean hedge) {
+
+        if (hedge) {
+            this.listener.onHedge(this.resource, this.base, number - 1);
+        } else if (number > 1) {
+            this.listener.onRetry(this.resource, this.base, number - 1);
+        }
+
+        return this.requestUpstreamAsync();
+    }
+
+    /**
+     * 為替レートAPIへ送信する1件のリクエストに対する一連の送信の計測を開始します。
+     *
+     * @return 計測中の一連の送信。リスナーが設定されていない場合は {@link UpstreamCall#DISABLED_SEQUENCE}
+     */
+    private UpstreamCall.Sequence startCall() {
+        return UpstreamCall.sequence(this.listener, this.resource, this.base);
+    }
 
-        final HttpRequest request = HttpRequest.newBuilder().uri(URI.create(requestUrl)).GET().build();
+    /**
+     * 履歴リソースの検索期間を分割して取得するか判定します。
+     *
+     * @return 分割して取得する場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    private boolean isChunked() {
+        return this.chunkPeriod != null && this.resource == CurrencyExchangeRatesResource.HISTORY
+                && !this.startAt.plus(this.chunkPeriod).isAfter(this.endAt);
+    }
+
+    /**
+     * 履歴リソースの検索期間を分割し、分割した期間ごとのリクエストを上限数まで並行して送信します。
+     * <p>
+     * 各レーンは完了したリクエストの次に未送信の期間のリクエストを送信するため、スレッドをブロックすることなく同時に送信されるリクエスト数が上限数以下に保たれます。
+     * いずれかの期間の取得に失敗した場合は、未送信の期間のリクエストは送信されず、送信中のリクエストはキャンセルされます。
+     *
+     * @return 日付の昇順に並べた為替レートのリストを返却する {@link CompletableFuture}
+     */
+    private CompletableFuture<List<ExchangeRates>> fetchChunksAsync() {
+
+        final List<CurrencyExchangeRates> chunks = this.chunks();
+        final List<CompletableFuture<List<ExchangeRates>>> results = new ArrayList<>(chunks.size());
+        chunks.forEach(chunk -> results.add(new CompletableFuture<>()));
+
+        final AtomicInteger next = new AtomicInteger();
+
+        for (int lane = 0; lane < Math.min(this.chunkParallelism, chunks.size()); lane++) {
+            sendNextChunk(chunks, results, next);
+        }
+
+        return Futures.allAsList(results).thenApply(
+                chunkedRates -> chunkedRates.stream().flatMap(List::stream).collect(Collectors.toList()));
+    }
+
+    /**
+     * 履歴リソースの検索期間を分割の単位ごとに分割し、分割した期間ごとのリクエストを古い順に並べたリストとして返却します。
+     *
+     * @return 分割した期間ごとのリクエスト
+     */
+    private List<CurrencyExchangeRates> chunks() {
+
+        final List<CurrencyExchangeRates> chunks = new ArrayList<>();
+
+        for (LocalDate from = this.startAt; !from.isAfter(this.endAt); from = from.plus(this.chunkPeriod)) {
+            final LocalDate to = from.plus(this.chunkPeriod).minusDays(1);
+            chunks.add(this.forRange(from, to.isAfter(this.endAt) ? this.endAt : to, this.symbols));
+        }
+
+        return chunks;
+    }
+
+    /**
+     * 未送信の期間のうち最も古い期間のリクエストを送信し、完了後に次の期間のリクエストを送信します。
+     *
+     * @param chunks  分割した期間ごとのリクエスト
+     * @param results 分割した期間ごとの結果
+     * @param next    次に送信する期間の添字
+     */
+    private static void sendNextChunk(List<CurrencyExchangeRates> chunks,
+            List<CompletableFuture<List<ExchangeRates>>> results, AtomicInteger next) {
+
+        final int index = next.getAndIncrement();
+
+        if (index >= chunks.size() || results.get(index).isDone()) {
+            return;
+        }
+
+        final CompletableFuture<List<ExchangeRates>> result = results.get(index);
+        final CompletableFuture<List<ExchangeRates>> request = chunks.get(index).fetchFromUpstreamAsync();
+
+        result.whenComplete((rates, throwable) -> {
+            if (throwable != null) {
+                request.cancel(true);
+            }
+        });
+
+        request.whenComplete((rates, throwable) -> {
+            if (throwable == null) {
+                result.complete(rates);
+                sendNextChunk(chunks, results, next);
+            } else {
+                result.completeExceptionally(throwable);
+            }
+        });
+    }
+
+    /**
+     * 当リクエストの為替レートをストアを経由して取得するか判定します。
+     *
+     * @return ストアを経由して取得する場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    private boolean isStored() {
+        return this.historicalStore != null && this.resource == CurrencyExchangeRatesResource.HISTORY;
+    }
+
+    /**
+     * 当インスタンスの通信設定を引き継ぎ、指定された期間とシンボルで履歴リソースを取得する新しいインスタンスを生成し返却します。
+     * <p>
+     * 生成されたインスタンスはキャッシュおよびストアを使用しません。生成されたインスタンスの検索期間が分割の単位より長い場合は、
+     * 当インスタンスと同様に検索期間を分割して取得します。
+     *
+     * @param startAt 検索開始日
+     * @param endAt   検索終了日
+     * @param symbols 取得対象のシンボル。空の場合は全ての通貨を取得します。
+     * @return 指定された期間の履歴リソースを取得する新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    private CurrencyExchangeRates forRange(@NonNull LocalDate startAt, @NonNull LocalDate endAt,
+            @NonNull List<Currency> symbols) {
 
+        final CurrencyExchangeRates api = this.copy();
+
+        api.resource = CurrencyExchangeRatesResource.HISTORY;
+        api.symbols = symbols;
+        api.startAt = startAt;
+        api.endAt = endAt;
+        api.requestParameter = CurrencyExchangeRatesParameter.of(this.base.getTag(), toTsvSymbols(symbols),
+                toIsoDate(startAt), toIsoDate(endAt));
+        api.cache = null;
+        api.historicalStore = null;
+
+        return api.prepare();
+    }
+
+    /**
+     * 当インスタンスの設定を全て引き継ぎ、取得対象のシンボルのみを指定されたシンボルに置き換えた新しいインスタンスを生成し返却します。
+     *
+     * @param symbols 取得対象のシンボル。空の場合は全ての通貨を取得します。
+     * @return 指定されたシンボルを取得する新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    CurrencyExchangeRates forSymbols(@NonNull List<Currency> symbols) {
+
+        final CurrencyExchangeRates api = this.copy();
+
+        api.symbols = List.copyOf(symbols);
+        api.requestParameter = CurrencyExchangeRatesParameter.of(this.base.getTag(), toTsvSymbols(symbols),
+                toIsoDate(this.startAt), toIsoDate(this.endAt));
+
+        return api.prepare();
+    }
+
+    /**
+     * 当インスタンスの設定を全て引き継いだ新しいインスタンスを生成し返却します。
+     * <p>
+     * 組み立て済みのHTTPリクエストは引き継がれないため、複製の設定を変更した後に {@link #prepare()} メソッドを呼び出してください。
+     *
+     * @return 当インスタンスの複製
+     */
+    private CurrencyExchangeRates copy() {
+
+        final CurrencyExchangeRates api = new CurrencyExchangeRates();
+
+        api.resource = this.resource;
+        api.requestParameter = this.requestParameter;
+        api.base = this.base;
+        api.symbols = this.symbols;
+        api.startAt = this.startAt;
+        api.endAt = this.endAt;
+        api.cache = this.cache;
+        api.historicalStore = this.historicalStore;
+        api.httpClient = this.httpClient;
+        api.requestTimeout = this.requestTimeout;
+        api.chunkPeriod = this.chunkPeriod;
+        api.chunkParallelism = this.chunkParallelism;
+        api.resiliencePolicy = this.resiliencePolicy;
+        api.conditionalRequests = this.conditionalRequests;
+        api.compression = this.compression;
+        api.endpoint = this.endpoint;
+        api.endpointPool = this.endpointPool;
+        api.requestLimiter = this.requestLimiter;
+        api.listener = this.listener;
+
+        return api;
+    }
+
+    /**
+     * 引数として渡された日付をHTTPリクエスト時に使用する {@code yyyy-MM-dd} 形式の文字列へ変換して返却します。
+     *
+     * @param date 日付
+     * @return {@code yyyy-MM-dd} 形式の日付。日付が {@code null} の場合は空文字列
+     */
+    private static String toIsoDate(LocalDate date) {
+        return date == null ? "" : DateTimeFormatter.ISO_LOCAL_DATE.format(date);
+    }
+
+    /**
+     * 引数として渡されたシンボルをHTTPリクエスト時に使用するカンマ区切りの文字列へ変換して返却します。
+     *
+     * @param symbols シンボル
+     * @return カンマ区切りのシンボル。シンボルが空の場合は空文字列
+     */
+    private static String toTsvSymbols(List<Currency> symbols) {
+
+        final StringBuilder tsvSymbols = new StringBuilder(symbols.size() * 4);
+
+        for (Currency symbol : symbols) {
+            if (tsvSymbols.length() > 0) {
+                tsvSymbols.append(',');
+            }
+
+            tsvSymbols.append(symbol.getTag());
+        }
+
+        return tsvSymbols.toString();
+    }
+
+    /**
+     * 引数として渡されたレスポンスのボディを逐次的に読み込み、解析に要した時間と結果を計測中のリクエストへ記録した上で、日付の昇順に並べた為替レートのリストとして返却します。
+     * 前回の為替レートを保持していない未更新のレスポンスの場合は何も記録せずに空を返却します。
+     *
+     * @param response レスポンス
+     * @param call     計測中のリクエスト
+     * @return 日付の昇順に並べた為替レートのリスト。前回の為替レートを保持していない未更新のレスポンスの場合は空
+     *
+     * @exception ApiRequestFailedException レスポンスのステータスコードが正常ではない場合、またはレスポンスの解析に失敗した場合
+     */
+    private Optional<List<ExchangeRates>> readExchangeRates(@NonNull HttpResponse<InputStream> response,
+            @NonNull UpstreamCall call) {
+
+        final long startTime = call.nanoTime();
+
+        try {
+            final Optional<List<ExchangeRates>> rates = this.readExchangeRates(response);
+
+            if (rates.isPresent()) {
+                call.succeeded(call.nanoTime() - startTime);
+            }
+
+            return rates;
+        } catch (RuntimeException e) {
+            call.failed(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 引数として渡されたレスポンスのボディを逐次的に読み込み、日付の昇順に並べた為替レートのリストとして返却します。
+     * <p>
+     * 条件付きリクエストのキャッシュが設定されている場合は、未更新のレスポンスに対してキャッシュされた為替レートを返却し、それ以外のレスポンスの検証子と為替レートをキャッシュへ格納します。
+     * 検証子を送信してから未更新のレスポンスを受信するまでの間にキャッシュから前回の為替レートが破棄されていた場合は、レスポンスボディを閉じた上で空を返却します。
+     * この場合、呼び出し元は検証子を含まないリクエストを1度だけ送信し直します。
+     *
+     * @param response レスポンス
+     * @return 日付の昇順に並べた為替レートのリスト。前回の為替レートを保持していない未更新のレスポンスの場合は空
+     *
+     * @exception ApiRequestFailedException レスポンスのステータスコードが正常ではない場合、またはレスポンスの解析に失敗した場合
+     */
+    private Optional<List<ExchangeRates>> readExchangeRates(@NonNull HttpResponse<InputStream> response) {
         try {
-            return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
-        } catch (IOException | InterruptedException e) {
+            if (this.conditionalRequests == null) {
+                return Optional.of(this.readAll(response.statusCode(), response.headers(), response.body()));
+            }
+
+            final Optional<List<ExchangeRates>> notModified = this.conditionalRequests
+                    .notModified(this.requestParameter, response);
+
+            if (notModified.isPresent()) {
+                return notModified;
+            }
+
+            if (response.statusCode() == HTTP_NOT_MODIFIED) {
+                response.body().close();
+                return Optional.empty();
+            }
+
+            final CountingInputStream body = new CountingInputStream(response.body());
+            final long startTime = System.nanoTime();
+            final List<ExchangeRates> rates = this.readAll(response.statusCode(), response.headers(), body);
+
+            this.conditionalRequests.update(this.requestParameter, response.headers(), rates, body.getCount(),
+                    System.nanoTime() - startTime);
+
+            return Optional.of(rates);
+        } catch (IOException e) {
             throw new ApiRequestFailedException(e);
         }
     }
+
+    /**
+     * 検証子を含まないリクエストに対して未更新のレスポンスを受信した場合の例外を生成します。
+     *
+     * @return 未更新のレスポンスを表す例外
+     */
+    private static ApiRequestFailedException unexpectedNotModified() {
+        return new ApiRequestFailedException(new ErrorResponseException(HTTP_NOT_MODIFIED,
+                String.format("Unexpected HTTP status code: %d", HTTP_NOT_MODIFIED)));
+    }
+
+    /**
+     * 引数として渡されたレスポンスボディを全て読み込み、日付の昇順に並べた為替レートのリストとして返却します。
+     *
+     * @param statusCode レスポンスのステータスコード
+     * @param headers    レスポンスヘッダー
+     * @param body       レスポンスボディ
+     * @return 日付の昇順に並べた為替レートのリスト
+     *
+     * @exception IOException レスポンスのステータスコードが正常ではない場合、またはレスポンスの解析に失敗した場合
+     */
+    private List<ExchangeRates> readAll(int statusCode, @NonNull HttpHeaders headers, @NonNull InputStream body)
+            throws IOException {
+        try (ExchangeRatesReader reader = this.openReader(statusCode, headers, body)) {
+            return reader.readAll();
+        }
+    }
+
+    /**
+     * 引数として渡されたステータスコードを検証し、レスポンスボディを展開しながら読み込むリーダーを返却します。
+     * <p>
+     * ステータスコードが正常ではない場合はレスポンスボディを閉じた上で例外を発生させます。
+     *
+     * @param statusCode レスポンスのステータスコード
+     * @param headers    レスポンスヘッダー
+     * @param body       レスポンスボディ
+     * @return レスポンスボディを読み込むリーダー
+     *
+     * @exception IOException レスポンスのステータスコードが正常ではない場合、またはレスポンスボディのエンコーディングに対応していない場合
+     */
+    private ExchangeRatesReader openReader(int statusCode, @NonNull HttpHeaders headers, @NonNull InputStream body)
+            throws IOException {
+
+        if (statusCode != HTTP_OK) {
+            body.close();
+            throw new ErrorResponseException(statusCode,
+                    String.format("Unexpected HTTP status code: %d", statusCode));
+        }
+
+        return new ExchangeRatesReader(ContentEncodings.decode(headers, body), this.base);
+    }
+
+    /**
+     * 為替レートAPIへ送信するHTTPリクエストを返却します。
+     * <p>
+     * 設定されたリクエストタイムアウトが渡された場合は、組み立て済みのHTTPリクエストを再利用します。
+     *
+     * @param endpoint エンドポイントのインデックス
+     * @param timeout  リクエストタイムアウト
+     * @return 為替レートAPIへ送信するHTTPリクエスト
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    private HttpRequest createHttpRequest(int endpoint, @NonNull Duration timeout) {
+
+        if (timeout.equals(this.requestTimeout)) {
+            return this.httpRequests[endpoint];
+        }
+
+        return this.createHttpRequestBuilder(endpoint, timeout).build();
+    }
+
+    /**
+     * 為替レートを取得するためのHTTPリクエストを生成し返却します。
+     * <p>
+     * 条件付きリクエストのキャッシュが設定されており、当リクエストの検証子を保持している場合は条件付きリクエストを生成します。
+     * それ以外の場合は組み立て済みのHTTPリクエストを再利用します。
+     *
+     * @param endpoint エンドポイントのインデックス
+     * @return 為替レートを取得するためのHTTPリクエスト
+     */
+    private HttpRequest createRatesRequest(int endpoint) {
+
+        if (this.conditionalRequests == null) {
+            return this.httpRequests[endpoint];
+        }
+
+        return this.conditionalRequests.addValidators(this.requestParameter,
+                this.createHttpRequestBuilder(endpoint, this.requestTimeout)).build();
+    }
+
+    /**
+     * 設定された情報を基にエンドポイントごとの為替レートAPIのURIと、設定されたリクエストタイムアウトで送信するHTTPリクエストを組み立てます。
+     * <p>
+     * 当メソッドはインスタンスの生成時に一度だけ呼び出されます。組み立てられたHTTPリクエストは不変であるため、以降の送信では複数のスレッドから同時に再利用されます。
+     *
+     * @return 自分自身のインスタンス
+     */
+    private CurrencyExchangeRates prepare() {
+
+        final String path = '/' + this.resource.getResource() + '/' + this.createQuery(this.requestParameter);
+        final List<String> endpoints = this.endpointPool == null ? List.of(this.endpoint)
+                : this.endpointPool.getEndpoints();
+
+        this.uris = new URI[endpoints.size()];
+        this.httpRequests = new HttpRequest[endpoints.size()];
+
+        for (int i = 0; i < endpoints.size(); i++) {
+            this.uris[i] = URI.create(endpoints.get(i) + path);
+            this.httpRequests[i] = this.createHttpRequestBuilder(i, this.requestTimeout).build();
+        }
+
+        return this;
+    }
+
+    /**
+     * 組み立て済みのURIを基に為替レートAPIへ送信するHTTPリクエストのビルダーを生成し返却します。
+     *
+     * @param endpoint エンドポイントのインデックス
+     * @param timeout  リクエストタイムアウト
+     * @return 為替レートAPIへ送信するHTTPリクエストのビルダー
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    private HttpRequest.Builder createHttpRequestBuilder(int endpoint, @NonNull Duration timeout) {
+
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(this.uris[endpoint]).timeout(timeout).GET();
+
+        if (this.compression) {
+            builder.setHeader(ContentEncodings.ACCEPT_ENCODING, ContentEncodings.ACCEPTED);
+        }
+
+        return builder;
+    }
 }
\ No newline at end of file
@@ -27,7 +27,7 @@ import lombok.RequiredArgsConstructor;
  * @version 1.0
  */
 @RequiredArgsConstructor
-enum CurrencyExchangeRatesResource implements Resource {
+public enum CurrencyExchangeRatesResource implements Resource {
 
     /**
      * 最新の為替情報を取得するリソース
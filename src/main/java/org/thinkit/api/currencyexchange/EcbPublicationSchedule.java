@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import lombok.NonNull;
+
+/**
+ * 欧州中央銀行による為替レートの公表スケジュールを定義したクラスです。
+ * <p>
+ * 欧州中央銀行は営業日の中央ヨーロッパ時間16時頃に参照レートを公表します。当クラスでは土曜日と日曜日を非営業日として扱い、
+ * 祝日は考慮しません。祝日に公表が行われなかった場合でも、次の公表時刻までは同じ為替レートが有効であるため問題はありません。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class EcbPublicationSchedule {
+
+    /**
+     * 欧州中央銀行のタイムゾーン
+     */
+    static final ZoneId ECB_ZONE = ZoneId.of("Europe/Berlin");
+
+    /**
+     * 為替レートの公表時刻。公表処理の遅延を考慮し公式の公表時刻に余裕を持たせています。
+     */
+    private static final LocalTime PUBLICATION_TIME = LocalTime.of(16, 15);
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private EcbPublicationSchedule() {
+    }
+
+    /**
+     * 引数として渡された時刻より後の直近の公表時刻を返却します。
+     *
+     * @param now 基準となる時刻
+     * @return {@code now} より後の直近の公表時刻
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    static Instant nextPublication(@NonNull Instant now) {
+
+        ZonedDateTime publication = now.atZone(ECB_ZONE).with(PUBLICATION_TIME);
+
+        while (!publication.toInstant().isAfter(now) || isWeekend(publication.getDayOfWeek())) {
+            publication = publication.plusDays(1).with(PUBLICATION_TIME);
+        }
+
+        return publication.toInstant();
+    }
+
+    /**
+     * 引数として渡された時刻における欧州中央銀行の現地日付を返却します。
+     *
+     * @param now 基準となる時刻
+     * @return 欧州中央銀行の現地日付
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    static LocalDate today(@NonNull Instant now) {
+        return LocalDate.ofInstant(now, ECB_ZONE);
+    }
+
+    /**
+     * 引数として渡された曜日が週末であるか判定します。
+     *
+     * @param dayOfWeek 曜日
+     * @return 週末である場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    private static boolean isWeekend(DayOfWeek dayOfWeek) {
+        return dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY;
+    }
+}
@@ -0,0 +1,920 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import lombok.NonNull;
+
+/**
+ * 同一のリソースを提供する複数の為替レートAPIのエンドポイントへリクエストを振り分けるクラスです。
+ * <p>
+ * エンドポイントごとにレスポンスヘッダーを受信するまでの時間と失敗率を指数加重移動平均（EWMA）で追跡し、各リクエストは除外されていないエンドポイントのうち
+ * 平均時間を成功率で割ったスコアが最も小さいエンドポイントへ送信されます。失敗した試行はスコアを引き上げるため、断続的に失敗するエンドポイントへの振り分けは減少します。
+ * まだ計測結果がなく失敗もしていないエンドポイントはスコアが {@code 0} として扱われるため、優先して試行されます。
+ * <p>
+ * リクエストの送信に失敗した場合、タイムアウトした場合、またはステータスコード {@code 429} もしくは {@code 5xx} のレスポンスを受信した場合は、
+ * 当リクエストでまだ試行していないエンドポイントへ同一のリクエストを送信し直します。全てのエンドポイントで失敗した場合は、最後の試行の結果で完了します。
+ * <p>
+ * 連続した失敗回数が閾値に達したエンドポイント、および平均時間が最も速いエンドポイントの一定倍を超えたエンドポイントは、一定期間リクエストの振り分け対象から除外されます。
+ * 除外期間が経過したエンドポイントは回復中の状態となり、除外前の計測結果を保持したまま、同時に1件までの試験的なリクエストのみが送信されます。
+ * 試験的なリクエストが規定の回数連続して成功した場合は通常の振り分け対象へ戻り、失敗した場合は直ちに再び除外されます。
+ * 他に振り分け可能なエンドポイントが存在しない場合は除外されず、全てのエンドポイントが除外されている場合は除外期間が最も早く終わるエンドポイントへ送信します。
+ * <p>
+ * {@link RequestLimiter} を併用する場合、許可は {@link CurrencyExchangeRates} の1回の呼び出しにつき1件取得され、
+ * 他のエンドポイントへの送信し直しは同じ許可の範囲で行われます。そのため1件の許可に対して最大でエンドポイント数のHTTPリクエストが送信されます。
+ * <p>
+ * エンドポイントの状態は当インスタンスを共有する全てのリクエストで共有されます。当クラスはスレッドセーフです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ *
+ * @see CurrencyExchangeRates.Builder#withEndpoints(List)
+ * @see CurrencyExchangeRates.Builder#withEndpointPool(EndpointPool)
+ */
+public final class EndpointPool {
+
+    /**
+     * 振り分け先とするエンドポイント数の上限
+     */
+    static final int MAXIMUM_SIZE = Long.SIZE;
+
+    /**
+     * エンドポイントの一覧
+     */
+    private final Endpoint[] endpoints;
+
+    /**
+     * 平均時間の平滑化係数
+     */
+    private final double smoothing;
+
+    /**
+     * エンドポイントを除外する連続した失敗回数
+     */
+    private final int failureThreshold;
+
+    /**
+     * エンドポイントを除外する期間
+     */
+    private final Duration ejectionTime;
+
+    /**
+     * 外れ値として除外する、最も速いエンドポイントの平均時間に対する倍率
+     */
+    private final double outlierFactor;
+
+    /**
+     * 外れ値の判定に必要な計測回数
+     */
+    private final int minimumSamples;
+
+    /**
+     * 除外期間の経過後に通常の振り分け対象へ戻すまでに成功する必要がある試験的なリクエストの回数
+     */
+    private final int recoveryProbes;
+
+    /**
+     * 他のエンドポイントへリクエストを送信し直した回数
+     */
+    private final LongAdder failoverCount = new LongAdder();
+
+    /**
+     * エンドポイントを除外した回数
+     */
+    private final LongAdder ejectionCount = new LongAdder();
+
+    /**
+     * コンストラクタ
+     *
+     * @param builder ビルダー
+     */
+    private EndpointPool(Builder builder) {
+        this.endpoints = builder.endpoints.stream().map(Endpoint::new).toArray(Endpoint[]::new);
+        this.smoothing = builder.smoothing;
+        this.failureThreshold = builder.failureThreshold;
+        this.ejectionTime = builder.ejectionTime;
+        this.outlierFactor = builder.outlierFactor;
+        this.minimumSamples = builder.minimumSamples;
+        this.recoveryProbes = builder.recoveryProbes;
+    }
+
+    /**
+     * {@link EndpointPool} クラスのインスタンスを生成するビルダークラスを返却します。
+     *
+     * @return {@link EndpointPool} クラスのインスタンスを生成するビルダークラス
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * {@link EndpointPool} クラスのインスタンスを生成するビルダークラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0
+     * @version 1.0
+     *
+     * @see #withEndpoints(List)
+     * @see #withSmoothing(double)
+     * @see #withEjection(int, Duration)
+     * @see #withOutlierDetection(double, int)
+     * @see #withRecoveryProbes(int)
+     * @see #build()
+     */
+    public static class Builder {
+
+        /**
+         * エンドポイントの一覧
+         */
+        private List<String> endpoints;
+
+        /**
+         * 平均時間の平滑化係数
+         */
+        private double smoothing = 0.3;
+
+        /**
+         * エンドポイントを除外する連続した失敗回数
+         */
+        private int failureThreshold = 3;
+
+        /**
+         * エンドポイントを除外する期間
+         */
+        private Duration ejectionTime = Duration.ofSeconds(30);
+
+        /**
+         * 外れ値として除外する、最も速いエンドポイントの平均時間に対する倍率
+         */
+        private double outlierFactor = 3.0;
+
+        /**
+         * 外れ値の判定に必要な計測回数
+         */
+        private int minimumSamples = 10;
+
+        /**
+         * 除外期間の経過後に通常の振り分け対象へ戻すまでに成功する必要がある試験的なリクエストの回数
+         */
+        private int recoveryProbes = 3;
+
+        /**
+         * デフォルトコンストラクタ
+         */
+        private Builder() {
+        }
+
+        /**
+         * リクエストの振り分け先となる為替レートAPIのベースURLの一覧を設定します。
+         * <p>
+         * 平均時間が等しい場合はリストの先頭に近いエンドポイントが優先されます。各URLの末尾のスラッシュは取り除かれます。当メソッドの呼び出しは必須です。
+         *
+         * @param endpoints 為替レートAPIのベースURLの一覧
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     引数として {@code null} が渡された場合
+         * @exception IllegalArgumentException 一覧が空の場合、 {@value EndpointPool#MAXIMUM_SIZE} 件を超える場合、
+         *                                     重複するURLを含む場合、または {@code http} もしくは {@code https}
+         *                                     の絶対URLではないURLを含む場合
+         */
+        public Builder withEndpoints(@NonNull List<String> endpoints) {
+
+            final List<String> urls = endpoints.stream().map(EndpointPool::requireHttpUrl).distinct()
+                    .collect(Collectors.toUnmodifiableList());
+
+            if (urls.isEmpty() || urls.size() > MAXIMUM_SIZE) {
+                throw new IllegalArgumentException(
+                        String.format("Endpoint count must be between 1 and %d: %d", MAXIMUM_SIZE, urls.size()));
+            } else if (urls.size() != endpoints.size()) {
+                throw new IllegalArgumentException(String.format("Endpoints must be distinct: %s", endpoints));
+            }
+
+            this.endpoints = urls;
+            return this;
+        }
+
+        /**
+         * 平均時間の平滑化係数を設定します。値が大きいほど直近の計測結果が平均時間へ強く反映されます。
+         * <p>
+         * 初期値として {@code 0.3} が設定されています。
+         *
+         * @param smoothing 平均時間の平滑化係数
+         * @return 自分自身のインスタンス
+         *
+         * @exception IllegalArgumentException 引数として {@code 0} 以下または {@code 1} より大きい値が渡された場合
+         */
+        public Builder withSmoothing(double smoothing) {
+
+            if (!(smoothing > 0.0 && smoothing <= 1.0)) {
+                throw new IllegalArgumentException(String.format("Smoothing must be in (0, 1]: %s", smoothing));
+            }
+
+            this.smoothing = smoothing;
+            return this;
+        }
+
+        /**
+         * 連続した失敗によるエンドポイントの除外を設定します。
+         * <p>
+         * 初期値として連続した失敗回数 {@code 3} 回でエンドポイントを除外し、30秒間振り分け対象としないよう設定されています。
+         * 除外期間は外れ値として除外したエンドポイントにも適用されます。
+         *
+         * @param failureThreshold エンドポイントを除外する連続した失敗回数
+         * @param ejectionTime     エンドポイントを除外する期間
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     {@code ejectionTime} として {@code null} が渡された場合
+         * @exception IllegalArgumentException {@code failureThreshold} が {@code 1} 未満の場合、または
+         *                                     {@code ejectionTime} が {@code 0} 以下の期間の場合
+         */
+        public Builder withEjection(int failureThreshold, @NonNull Duration ejectionTime) {
+
+            if (failureThreshold < 1) {
+                throw new IllegalArgumentException(
+                        String.format("Failure threshold must be positive: %d", failureThreshold));
+            } else if (ejectionTime.isNegative() || ejectionTime.isZero()) {
+                throw new IllegalArgumentException(String.format("Duration must be positive: %s", ejectionTime));
+            }
+
+            this.failureThreshold = failureThreshold;
+            this.ejectionTime = ejectionTime;
+            return this;
+        }
+
+        /**
+         * 平均時間による外れ値の判定を設定します。計測回数が {@code minimumSamples} 以上のエンドポイントの平均時間が、同じく計測回数が
+         * {@code minimumSamples} 以上の他のエンドポイントのうち最も短い平均時間の {@code factor} 倍を超えた場合に除外します。
+         * <p>
+         * 初期値として倍率 {@code 3.0} 、計測回数 {@code 10} 回が設定されています。
+         *
+         * @param factor         外れ値として除外する、最も速いエンドポイントの平均時間に対する倍率
+         * @param minimumSamples 外れ値の判定に必要な計測回数
+         * @return 自分自身のインスタンス
+         *
+         * @exception IllegalArgumentException {@code factor} が {@code 1} 以下の場合、または {@code minimumSamples}
+         *                                     が {@code 1} 未満の場合
+         */
+        public Builder withOutlierDetection(double factor, int minimumSamples) {
+
+            if (!(factor > 1.0)) {
+                throw new IllegalArgumentException(String.format("Outlier factor must be greater than 1: %s", factor));
+            } else if (minimumSamples < 1) {
+                throw new IllegalArgumentException(
+                        String.format("Minimum samples must be positive: %d", minimumSamples));
+            }
+
+            this.outlierFactor = factor;
+            this.minimumSamples = minimumSamples;
+            return this;
+        }
+
+        /**
+         * 除外期間が経過したエンドポイントを通常の振り分け対象へ戻すまでに、連続して成功する必要がある試験的なリクエストの回数を設定します。
+         * <p>
+         * 回復中のエンドポイントへは同時に1件までの試験的なリクエストのみが送信されます。初期値として {@code 3} 回が設定されています。
+         *
+         * @param recoveryProbes 通常の振り分け対象へ戻すまでに成功する必要がある試験的なリクエストの回数
+         * @return 自分自身のインスタンス
+         *
+         * @exception IllegalArgumentException 引数として {@code 1} 未満の値が渡された場合
+         */
+        public Builder withRecoveryProbes(int recoveryProbes) {
+
+            if (recoveryProbes < 1) {
+                throw new IllegalArgumentException(
+                        String.format("Recovery probes must be positive: %d", recoveryProbes));
+            }
+
+            this.recoveryProbes = recoveryProbes;
+            return this;
+        }
+
+        /**
+         * 設定された値を基に {@link EndpointPool} クラスの新しいインスタンスを生成し返却します。
+         *
+         * @return {@link EndpointPool} クラスの新しいインスタンス
+         *
+         * @exception IllegalStateException {@link #withEndpoints(List)} メソッドが呼び出されていない場合
+         */
+        public EndpointPool build() {
+
+            if (this.endpoints == null) {
+                throw new IllegalStateException("Endpoints are not set");
+            }
+
+            return new EndpointPool(this);
+        }
+    }
+
+    /**
+     * リクエストの振り分け先となるベースURLの一覧を返却します。
+     *
+     * @return 為替レートAPIのベースURLの一覧
+     */
+    public List<String> getEndpoints() {
+        return Arrays.stream(this.endpoints).map(endpoint -> endpoint.url).collect(Collectors.toUnmodifiableList());
+    }
+
+    /**
+     * 引数として渡されたエンドポイントのレスポンスヘッダーを受信するまでの平均時間を返却します。
+     *
+     * @param endpoint 為替レートAPIのベースURL
+     * @return 平均時間。計測結果が存在しない場合は {@link Duration#ZERO}
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 当インスタンスに含まれないエンドポイントが渡された場合
+     */
+    public Duration getLatency(@NonNull String endpoint) {
+        return Duration.ofNanos((long) this.find(endpoint).latency);
+    }
+
+    /**
+     * 引数として渡されたエンドポイントが振り分け対象から除外されているか判定します。
+     *
+     * @param endpoint 為替レートAPIのベースURL
+     * @return 除外されている場合は {@code true} 、それ以外の場合は {@code false}
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 当インスタンスに含まれないエンドポイントが渡された場合
+     */
+    public boolean isEjected(@NonNull String endpoint) {
+        return !this.find(endpoint).isAvailable(System.nanoTime());
+    }
+
+    /**
+     * 引数として渡されたエンドポイントが、除外期間の経過後に試験的なリクエストのみを受け付ける回復中の状態であるか判定します。
+     *
+     * @param endpoint 為替レートAPIのベースURL
+     * @return 回復中の場合は {@code true} 、それ以外の場合は {@code false}
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 当インスタンスに含まれないエンドポイントが渡された場合
+     */
+    public boolean isRecovering(@NonNull String endpoint) {
+        final Endpoint found = this.find(endpoint);
+        return found.isRecovering() && found.isAvailable(System.nanoTime());
+    }
+
+    /**
+     * 他のエンドポイントへリクエストを送信し直した回数を返却します。
+     *
+     * @return 他のエンドポイントへリクエストを送信し直した回数
+     */
+    public long getFailoverCount() {
+        return this.failoverCount.sum();
+    }
+
+    /**
+     * エンドポイントを除外した回数を返却します。
+     *
+     * @return エンドポイントを除外した回数
+     */
+    public long getEjectionCount() {
+        return this.ejectionCount.sum();
+    }
+
+    /**
+     * エンドポイント数を返却します。
+     *
+     * @return エンドポイント数
+     */
+    int size() {
+        return this.endpoints.length;
+    }
+
+    /**
+     * 引数として渡された処理でエンドポイントへリクエストを送信し、失敗した場合は他のエンドポイントへ送信し直します。
+     * <p>
+     * {@code attempt} にはエンドポイントのインデックスと、{@code handler} にレスポンスヘッダーの受信時刻の記録を追加したボディハンドラが渡されます。
+     * インデックスは {@link #getEndpoints()} メソッドが返却する一覧の順序と一致します。平均時間にはレスポンスボディの受信時間を含めないため、
+     * {@code attempt} は渡されたボディハンドラでレスポンスを受信してください。
+     * 他のエンドポイントへ送信し直す際、失敗したレスポンスのボディが {@link Closeable} である場合は閉じられます。返却された
+     * {@link CompletableFuture} をキャンセルした場合は、送信中の試行もキャンセルされます。
+     *
+     * @param <T>     レスポンスボディの型
+     * @param handler レスポンスボディのハンドラ
+     * @param attempt エンドポイントのインデックスとボディハンドラを受け取り、1件のリクエストを送信する処理
+     * @return 成功したレスポンス、または最後に試行したエンドポイントの結果で完了する {@link CompletableFuture}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    <T> CompletableFuture<HttpResponse<T>> execute(@NonNull HttpResponse.BodyHandler<T> handler,
+            @NonNull Attempt<T> attempt) {
+
+        final CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        final int probe = this.selectProbe(0L);
+        this.attempt(handler, attempt, result, probe >= 0 ? probe : this.select(0L), 0L, probe >= 0);
+
+        return result;
+    }
+
+    /**
+     * 引数として渡されたインデックスのエンドポイントへ1件のリクエストを送信し、結果を記録します。
+     *
+     * @param <T>     レスポンスボディの型
+     * @param handler レスポンスボディのハンドラ
+     * @param attempt エンドポイントのインデックスとボディハンドラを受け取り、1件のリクエストを送信する処理
+     * @param result  最終的な結果で完了する {@link CompletableFuture}
+     * @param index   送信先のエンドポイントのインデックス
+     * @param tried   当リクエストで試行済みのエンドポイントを表すビット集合
+     * @param probe   回復中のエンドポイントへの試験的なリクエストである場合は {@code true}
+     */
+    private <T> void attempt(HttpResponse.BodyHandler<T> handler, Attempt<T> attempt,
+            CompletableFuture<HttpResponse<T>> result, int index, long tried, boolean probe) {
+
+        final Endpoint endpoint = this.endpoints[index];
+
+        if (result.isDone()) {
+            endpoint.releaseProbe(probe);
+            return;
+        }
+
+        final long startedAt = System.nanoTime();
+        final AtomicLong headersAt = new AtomicLong();
+        CompletableFuture<HttpResponse<T>> pending;
+
+        try {
+            pending = attempt.send(index, responseInfo -> {
+                headersAt.set(System.nanoTime());
+                return handler.apply(responseInfo);
+            });
+        } catch (RuntimeException e) {
+            pending = CompletableFuture.failedFuture(e);
+        }
+
+        final CompletableFuture<HttpResponse<T>> current = pending;
+        result.whenComplete((response, throwable) -> {
+            if (throwable != null) {
+                current.cancel(true);
+            }
+        });
+        current.whenComplete((response, throwable) -> {
+            if (throwable == null && !isFailure(response.statusCode())) {
+                final long receivedAt = headersAt.get();
+                this.succeeded(endpoint, (receivedAt != 0 ? receivedAt : System.nanoTime()) - startedAt, probe);
+                result.complete(response);
+                return;
+            }
+
+            if (throwable != null && Futures.unwrap(throwable) instanceof CancellationException) {
+                endpoint.releaseProbe(probe);
+                result.completeExceptionally(throwable);
+                return;
+            }
+
+            this.failed(endpoint, probe);
+
+            final long attempted = tried | 1L << index;
+            final int probeNext = this.selectProbe(attempted);
+            final int next = probeNext >= 0 ? probeNext : this.select(attempted);
+
+            if (next < 0) {
+                if (throwable == null) {
+                    result.complete(response);
+                } else {
+                    result.completeExceptionally(throwable);
+                }
+
+                return;
+            }
+
+            if (throwable == null) {
+                discard(response);
+            }
+
+            this.failoverCount.increment();
+            this.attempt(handler, attempt, result, next, attempted, probeNext >= 0);
+        });
+    }
+
+    /**
+     * 試行済みのエンドポイントを除き、試験的なリクエストを受け付ける回復中のエンドポイントを選択し、試験的なリクエストの送信枠を確保します。
+     *
+     * @param tried 当リクエストで試行済みのエンドポイントを表すビット集合
+     * @return 選択したエンドポイントのインデックス。該当するエンドポイントが存在しない場合は {@code -1}
+     */
+    private int selectProbe(long tried) {
+
+        final long now = System.nanoTime();
+
+        for (int i = 0; i < this.endpoints.length; i++) {
+            if ((tried & 1L << i) == 0 && this.endpoints[i].tryStartProbe(now)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * 試行済みのエンドポイントを除き、回復中ではない振り分け対象のエンドポイントのうちスコアが最も小さいエンドポイントを選択します。
+     * <p>
+     * 最初の試行で全てのエンドポイントが除外または回復中である場合は、除外期間が最も早く終わるエンドポイントを選択します。
+     *
+     * @param tried 当リクエストで試行済みのエンドポイントを表すビット集合
+     * @return 選択したエンドポイントのインデックス。選択可能なエンドポイントが存在しない場合は {@code -1}
+     */
+    private int select(long tried) {
+
+        final long now = System.nanoTime();
+        int selected = -1;
+        double lowest = Double.POSITIVE_INFINITY;
+
+        for (int i = 0; i < this.endpoints.length; i++) {
+            final Endpoint endpoint = this.endpoints[i];
+
+            if ((tried & 1L << i) != 0 || !endpoint.isAvailable(now) || endpoint.isRecovering()) {
+                continue;
+            }
+
+            final double score = endpoint.score();
+
+            if (score < lowest) {
+                selected = i;
+                lowest = score;
+            }
+        }
+
+        if (selected >= 0 || tried != 0L) {
+            return selected;
+        }
+
+        for (int i = 0; i < this.endpoints.length; i++) {
+            if (selected < 0 || this.endpoints[i].ejectedUntil - this.endpoints[selected].ejectedUntil < 0) {
+                selected = i;
+            }
+        }
+
+        return selected;
+    }
+
+    /**
+     * 引数として渡されたエンドポイントへの試行の成功を記録し、平均時間が外れ値となった場合はエンドポイントを除外します。
+     * <p>
+     * 回復中のエンドポイントは、試験的なリクエストが規定の回数成功するまで外れ値として判定しません。
+     *
+     * @param endpoint エンドポイント
+     * @param latency  レスポンスヘッダーを受信するまでの時間（ナノ秒）
+     * @param probe    試験的なリクエストである場合は {@code true}
+     */
+    private void succeeded(Endpoint endpoint, long latency, boolean probe) {
+
+        endpoint.succeeded(latency, this.smoothing, probe);
+
+        if (endpoint.samples < this.minimumSamples || endpoint.isRecovering()) {
+            return;
+        }
+
+        final long now = System.nanoTime();
+        double fastest = Double.POSITIVE_INFINITY;
+
+        for (Endpoint other : this.endpoints) {
+            if (other != endpoint && other.samples >= this.minimumSamples && other.isAvailable(now)) {
+                fastest = Math.min(fastest, other.latency);
+            }
+        }
+
+        if (endpoint.latency > fastest * this.outlierFactor) {
+            this.eject(endpoint, now);
+        }
+    }
+
+    /**
+     * 引数として渡されたエンドポイントへの試行の失敗を記録し、連続した失敗回数が閾値に達した場合、または試験的なリクエストが失敗した場合は
+     * エンドポイントを除外します。
+     * <p>
+     * 他に振り分け可能なエンドポイントが存在しない場合は除外しません。
+     *
+     * @param endpoint エンドポイント
+     * @param probe    試験的なリクエストである場合は {@code true}
+     */
+    private void failed(Endpoint endpoint, boolean probe) {
+
+        if (endpoint.failed(this.smoothing, probe) < this.failureThreshold && !probe) {
+            return;
+        }
+
+        final long now = System.nanoTime();
+
+        for (Endpoint other : this.endpoints) {
+            if (other != endpoint && other.isAvailable(now)) {
+                this.eject(endpoint, now);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 引数として渡されたエンドポイントを除外期間の間、振り分け対象から除外します。
+     *
+     * @param endpoint エンドポイント
+     * @param now      現在時刻（ナノ秒）
+     */
+    private void eject(Endpoint endpoint, long now) {
+        if (endpoint.eject(now, now + this.ejectionTime.toNanos(), this.recoveryProbes)) {
+            this.ejectionCount.increment();
+        }
+    }
+
+    /**
+     * 引数として渡されたベースURLに一致するエンドポイントを返却します。
+     *
+     * @param url 為替レートAPIのベースURL
+     * @return エンドポイント
+     *
+     * @exception IllegalArgumentException 当インスタンスに含まれないエンドポイントが渡された場合
+     */
+    private Endpoint find(String url) {
+
+        final String normalized = url.replaceAll("/+$", "");
+
+        for (Endpoint endpoint : this.endpoints) {
+            if (endpoint.url.equals(normalized)) {
+                return endpoint;
+            }
+        }
+
+        throw new IllegalArgumentException(String.format("Unknown endpoint: %s", url));
+    }
+
+    /**
+     * 引数として渡されたステータスコードを他のエンドポイントへ送信し直すべき失敗として扱うか判定します。
+     *
+     * @param statusCode ステータスコード
+     * @return ステータスコードが {@code 429} または {@code 5xx} の場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    private static boolean isFailure(int statusCode) {
+        return ErrorResponseException.isTransient(statusCode);
+    }
+
+    /**
+     * 引数として渡されたレスポンスのボディが {@link Closeable} である場合は閉じ、接続を解放します。ボディを閉じる際に発生した例外は無視します。
+     *
+     * @param response 破棄するレスポンス
+     */
+    private static void discard(HttpResponse<?> response) {
+        if (response.body() instanceof Closeable) {
+            try {
+                ((Closeable) response.body()).close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 引数として渡されたURLが {@code http} または {@code https} の絶対URLであることを検証し、末尾のスラッシュを取り除いて返却します。
+     *
+     * @param url 検証対象のURL
+     * @return 末尾のスラッシュを取り除いたURL
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException {@code http} または {@code https} の絶対URLではない場合
+     */
+    static String requireHttpUrl(@NonNull String url) {
+
+        final URI uri = URI.create(url);
+
+        if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())
+                || uri.getHost() == null) {
+            throw new IllegalArgumentException(String.format("Endpoint must be an absolute HTTP URL: %s", url));
+        }
+
+        return url.replaceAll("/+$", "");
+    }
+
+    /**
+     * 1件のリクエストを送信する処理です。
+     *
+     * @param <T> レスポンスボディの型
+     */
+    @FunctionalInterface
+    interface Attempt<T> {
+
+        /**
+         * 引数として渡されたインデックスのエンドポイントへ1件のリクエストを送信します。
+         *
+         * @param endpoint エンドポイントのインデックス
+         * @param handler  レスポンスヘッダーの受信時刻を記録するボディハンドラ
+         * @return レスポンスを受信した際に完了する {@link CompletableFuture}
+         */
+        CompletableFuture<HttpResponse<T>> send(int endpoint, HttpResponse.BodyHandler<T> handler);
+    }
+
+    /**
+     * 振り分け先となる1件のエンドポイントの状態です。
+     * <p>
+     * 状態の更新は当インスタンスのロックを取得して行い、振り分け時の参照はロックを取得せずに行います。
+     */
+    private static final class Endpoint {
+
+        /**
+         * スコアの算出に使用する成功率の下限
+         */
+        private static final double MINIMUM_SUCCESS_RATE = 0.001;
+
+        /**
+         * 為替レートAPIのベースURL
+         */
+        private final String url;
+
+        /**
+         * レスポンスヘッダーを受信するまでの平均時間（ナノ秒）
+         */
+        private volatile double latency;
+
+        /**
+         * 平均時間の計測回数
+         */
+        private volatile int samples;
+
+        /**
+         * 試行の失敗率の指数加重移動平均
+         */
+        private volatile double failureRate;
+
+        /**
+         * 連続した失敗回数
+         */
+        private int consecutiveFailures;
+
+        /**
+         * 通常の振り分け対象へ戻すまでに成功する必要がある残りの試験的なリクエストの回数
+         */
+        private volatile int remainingProbes;
+
+        /**
+         * 試験的なリクエストを送信中であるか否か
+         */
+        private boolean probing;
+
+        /**
+         * 除外されているか否か
+         */
+        private volatile boolean ejected;
+
+        /**
+         * 除外期間が終了する時刻（ナノ秒）
+         */
+        private volatile long ejectedUntil;
+
+        /**
+         * コンストラクタ
+         *
+         * @param url 為替レートAPIのベースURL
+         */
+        private Endpoint(String url) {
+            this.url = url;
+        }
+
+        /**
+         * 振り分け対象であるか判定します。
+         *
+         * @param now 現在時刻（ナノ秒）
+         * @return 除外されていない場合、または除外期間が終了している場合は {@code true} 、それ以外の場合は {@code false}
+         */
+        private boolean isAvailable(long now) {
+            return !this.ejected || now - this.ejectedUntil >= 0;
+        }
+
+        /**
+         * 除外期間の経過後、試験的なリクエストが規定の回数成功していない回復中の状態であるか判定します。
+         *
+         * @return 回復中の場合は {@code true} 、それ以外の場合は {@code false}
+         */
+        private boolean isRecovering() {
+            return this.remainingProbes > 0;
+        }
+
+        /**
+         * 振り分けに使用するスコアを返却します。スコアは平均時間を成功率で割った値であり、小さいほど優先されます。
+         * <p>
+         * 計測結果が存在しない場合は、失敗していなければ {@code 0} 、失敗している場合は他の全てのエンドポイントより大きな値を返却します。
+         *
+         * @return スコア
+         */
+        private double score() {
+
+            final double failureRate = this.failureRate;
+
+            if (this.samples == 0) {
+                return failureRate == 0.0 ? 0.0 : Double.MAX_VALUE;
+            }
+
+            return this.latency / Math.max(1.0 - failureRate, MINIMUM_SUCCESS_RATE);
+        }
+
+        /**
+         * 回復中であり除外期間が経過している場合、試験的なリクエストを送信中の状態とします。
+         *
+         * @param now 現在時刻（ナノ秒）
+         * @return 試験的なリクエストの送信枠を確保した場合は {@code true} 、それ以外の場合は {@code false}
+         */
+        private synchronized boolean tryStartProbe(long now) {
+
+            if (!this.isRecovering() || this.probing || !this.isAvailable(now)) {
+                return false;
+            }
+
+            this.probing = true;
+            return true;
+        }
+
+        /**
+         * 試験的なリクエストが結果を記録せずに終了した場合に、試験的なリクエストの送信枠を解放します。
+         *
+         * @param probe 試験的なリクエストである場合は {@code true}
+         */
+        private synchronized void releaseProbe(boolean probe) {
+            if (probe) {
+                this.probing = false;
+            }
+        }
+
+        /**
+         * 試行の成功を記録し、平均時間と失敗率を更新します。試験的なリクエストが規定の回数成功した場合は通常の振り分け対象へ戻します。
+         *
+         * @param latency   レスポンスヘッダーを受信するまでの時間（ナノ秒）
+         * @param smoothing 平均時間の平滑化係数
+         * @param probe     試験的なリクエストである場合は {@code true}
+         */
+        private synchronized void succeeded(long latency, double smoothing, boolean probe) {
+
+            this.consecutiveFailures = 0;
+            this.latency = this.samples == 0 ? latency : smoothing * latency + (1.0 - smoothing) * this.latency;
+            this.failureRate = (1.0 - smoothing) * this.failureRate;
+            this.samples++;
+
+            if (probe) {
+                this.probing = false;
+
+                if (--this.remainingProbes == 0) {
+                    this.ejected = false;
+                }
+            }
+        }
+
+        /**
+         * 試行の失敗を記録し、失敗率を更新します。
+         *
+         * @param smoothing 失敗率の平滑化係数
+         * @param probe     試験的なリクエストである場合は {@code true}
+         * @return 連続した失敗回数
+         */
+        private synchronized int failed(double smoothing, boolean probe) {
+
+            this.failureRate = smoothing + (1.0 - smoothing) * this.failureRate;
+
+            if (probe) {
+                this.probing = false;
+            }
+
+            return ++this.consecutiveFailures;
+        }
+
+        /**
+         * 除外期間が終了する時刻まで振り分け対象から除外します。計測結果は保持され、除外期間の経過後は試験的なリクエストのみを受け付けます。
+         *
+         * @param now            現在時刻（ナノ秒）
+         * @param ejectedUntil   除外期間が終了する時刻（ナノ秒）
+         * @param recoveryProbes 通常の振り分け対象へ戻すまでに成功する必要がある試験的なリクエストの回数
+         * @return 新たに除外した場合は {@code true} 、既に除外されていた場合は {@code false}
+         */
+        private synchronized boolean eject(long now, long ejectedUntil, int recoveryProbes) {
+
+            if (!this.isAvailable(now)) {
+                return false;
+            }
+
+            this.consecutiveFailures = 0;
+            this.remainingProbes = recoveryProbes;
+            this.ejectedUntil = ejectedUntil;
+            this.ejected = true;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.IOException;
+
+/**
+ * Thrown to indicate that the exchange rates API answered a request with an
+ * error, either through an unexpected HTTP status code or through an error
+ * payload in the response body.
+ * <p>
+ * Unlike other {@link IOException}s, this exception means that the request
+ * reached the API and was answered, so it is only worth retrying when the
+ * status code signals a transient condition ({@code 429} or {@code 5xx}).
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+public final class ErrorResponseException extends IOException {
+
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 0L;
+
+    /**
+     * The HTTP status code of the response
+     */
+    private final int statusCode;
+
+    /**
+     * Constructs an <code>ErrorResponseException</code> with the specified HTTP
+     * status code and detail message.
+     *
+     * @param statusCode the HTTP status code of the response.
+     * @param message    the detail message.
+     */
+    public ErrorResponseException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Returns the HTTP status code of the response.
+     *
+     * @return the HTTP status code of the response
+     */
+    public int getStatusCode() {
+        return this.statusCode;
+    }
+
+    /**
+     * Returns whether the error signals a transient condition that may succeed
+     * when the request is sent again, that is {@code 429 Too Many Requests} or a
+     * {@code 5xx} status code.
+     *
+     * @return {@code true} if the request may be retried, otherwise
+     *         {@code false}
+     */
+    public boolean isTransient() {
+        return isTransient(this.statusCode);
+    }
+
+    /**
+     * Returns whether the specified HTTP status code signals a transient
+     * condition, that is {@code 429 Too Many Requests} or a {@code 5xx} status
+     * code.
+     *
+     * @param statusCode the HTTP status code.
+     * @return {@code true} if the status code is transient, otherwise
+     *         {@code false}
+     */
+    static boolean isTransient(int statusCode) {
+        return statusCode == 429 || statusCode >= 500;
+    }
+}
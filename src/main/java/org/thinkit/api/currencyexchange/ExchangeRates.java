@@ -0,0 +1,267 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 特定の日付における基軸通貨に対する為替レートを管理するクラスです。
+ * <p>
+ * 為替レートは {@link Currency} のコード値を添字とする {@code double} 型の配列で保持されるため、
+ * {@link #rate(Currency, Currency)} メソッドおよび {@link #convert(double, Currency, Currency)}
+ * メソッドは呼び出し毎にオブジェクトを生成しません。為替レートが存在しない通貨には {@link Double#NaN} が格納されます。
+ * <p>
+ * 当クラスは不変オブジェクトであり、複数のスレッドから安全に参照できます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString(onlyExplicitlyIncluded = true)
+@EqualsAndHashCode
+public final class ExchangeRates implements Serializable {
+
+    /**
+     * シリアルバージョンUID
+     */
+    private static final long serialVersionUID = -3520960183517353012L;
+
+    /**
+     * 通貨数
+     */
+    static final int CURRENCY_COUNT = Currency.values().length;
+
+    /**
+     * 列挙子の配列
+     */
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    /**
+     * 基軸通貨
+     */
+    @Getter
+    @ToString.Include
+    private final Currency base;
+
+    /**
+     * 為替レートの日付
+     */
+    @Getter
+    @ToString.Include
+    private final LocalDate date;
+
+    /**
+     * 通貨のコード値を添字とした為替レート
+     */
+    private final double[] values;
+
+    /**
+     * コンストラクタ
+     *
+     * @param base   基軸通貨
+     * @param date   為替レートの日付
+     * @param values 通貨のコード値を添字とした為替レート
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    private ExchangeRates(@NonNull Currency base, @NonNull LocalDate date, @NonNull double[] values) {
+        this.base = base;
+        this.date = date;
+        this.values = values;
+    }
+
+    /**
+     * 引数として渡された情報を基に {@link ExchangeRates} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param base  基軸通貨
+     * @param date  為替レートの日付
+     * @param rates 通貨ごとの為替レート
+     * @return {@link ExchangeRates} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static ExchangeRates of(@NonNull Currency base, @NonNull LocalDate date,
+            @NonNull Map<Currency, Double> rates) {
+
+        final double[] values = emptyValues();
+        rates.forEach((currency, rate) -> values[currency.getCode()] = rate);
+
+        return new ExchangeRates(base, date, values);
+    }
+
+    /**
+     * 引数として渡された配列を為替レートとして保持する {@link ExchangeRates} クラスの新しいインスタンスを生成し返却します。
+     * <p>
+     * 渡された配列は複製されないため、呼び出し元は生成後に配列を変更してはいけません。
+     *
+     * @param base   基軸通貨
+     * @param date   為替レートの日付
+     * @param values 通貨のコード値を添字とした為替レート
+     * @return {@link ExchangeRates} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 配列の長さが通貨数と一致しない場合
+     */
+    static ExchangeRates of(@NonNull Currency base, @NonNull LocalDate date, @NonNull double[] values) {
+
+        if (values.length != CURRENCY_COUNT) {
+            throw new IllegalArgumentException(String.format("Expected %d rates but got %d", CURRENCY_COUNT,
+                    values.length));
+        }
+
+        return new ExchangeRates(base, date, values);
+    }
+
+    /**
+     * 全ての要素が {@link Double#NaN} で初期化された為替レートの配列を返却します。
+     *
+     * @return 通貨のコード値を添字とした空の為替レート
+     */
+    static double[] emptyValues() {
+        final double[] values = new double[CURRENCY_COUNT];
+        Arrays.fill(values, Double.NaN);
+        return values;
+    }
+
+    /**
+     * 通貨ごとの為替レートを返却します。為替レートが存在しない通貨は含まれません。
+     * <p>
+     * 当メソッドは呼び出し毎に新しいマップを生成します。繰り返し為替レートを参照する場合は {@link #rate(Currency)} メソッドを使用してください。
+     *
+     * @return 通貨ごとの為替レート
+     */
+    @ToString.Include(name = "rates")
+    public Map<Currency, Double> getRates() {
+
+        final Map<Currency, Double> rates = new EnumMap<>(Currency.class);
+
+        for (Currency currency : CURRENCIES) {
+            final double rate = this.values[currency.getCode()];
+
+            if (!Double.isNaN(rate)) {
+                rates.put(currency, rate);
+            }
+        }
+
+        return Collections.unmodifiableMap(rates);
+    }
+
+    /**
+     * 引数として渡された通貨の為替レートを返却します。
+     *
+     * @param currency 通貨
+     * @return 基軸通貨1単位に対する {@code currency} のレート。為替レートが存在しない場合は {@code null}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public Double getRate(@NonNull Currency currency) {
+        final double rate = this.values[currency.getCode()];
+        return Double.isNaN(rate) ? null : rate;
+    }
+
+    /**
+     * 基軸通貨1単位に対する引数として渡された通貨のレートを返却します。
+     *
+     * @param currency 通貨
+     * @return 基軸通貨1単位に対する {@code currency} のレート。為替レートが存在しない場合は {@link Double#NaN}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public double rate(@NonNull Currency currency) {
+        return this.values[currency.getCode()];
+    }
+
+    /**
+     * 通貨 {@code from} 1単位に対する通貨 {@code to} のレートを返却します。
+     * <p>
+     * 基軸通貨以外の通貨同士のレートはクロスレートとして算出されます。基軸通貨自身のレートは為替レートに含まれていない場合でも {@code 1.0} として扱います。
+     *
+     * @param from 換算元の通貨
+     * @param to   換算先の通貨
+     * @return 通貨 {@code from} 1単位に対する通貨 {@code to} のレート。いずれかの通貨のレートが存在しない場合は
+     *         {@link Double#NaN}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public double rate(@NonNull Currency from, @NonNull Currency to) {
+        return this.quote(to.getCode()) / this.quote(from.getCode());
+    }
+
+    /**
+     * 通貨 {@code from} の金額を通貨 {@code to} の金額へ換算します。
+     *
+     * @param amount 換算元の金額
+     * @param from   換算元の通貨
+     * @param to     換算先の通貨
+     * @return 換算後の金額。いずれかの通貨のレートが存在しない場合は {@link Double#NaN}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public double convert(double amount, @NonNull Currency from, @NonNull Currency to) {
+        return amount * this.rate(from, to);
+    }
+
+    /**
+     * 当為替レートを引数として渡された通貨で絞り込んだ為替レートを返却します。
+     *
+     * @param symbols 返却する通貨。空の場合は全ての通貨を返却します。
+     * @return 絞り込まれた為替レート
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    ExchangeRates select(@NonNull Collection<Currency> symbols) {
+
+        if (symbols.isEmpty()) {
+            return this;
+        }
+
+        final double[] selected = emptyValues();
+        symbols.forEach(symbol -> selected[symbol.getCode()] = this.values[symbol.getCode()]);
+
+        return new ExchangeRates(this.base, this.date, selected);
+    }
+
+    /**
+     * 通貨のコード値を添字とした為替レートの複製を返却します。
+     *
+     * @return 通貨のコード値を添字とした為替レートの複製
+     */
+    double[] toArray() {
+        return this.values.clone();
+    }
+
+    /**
+     * 引数として渡されたコード値の通貨の、基軸通貨1単位に対するレートを返却します。基軸通貨自身のレートは {@code 1.0} として扱います。
+     *
+     * @param code 通貨のコード値
+     * @return 基軸通貨1単位に対するレート
+     */
+    private double quote(int code) {
+        return code == this.base.getCode() ? 1.0 : this.values[code];
+    }
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.base.Ticker;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import org.thinkit.api.common.entity.RequestParameter;
+
+import lombok.NonNull;
+
+/**
+ * 為替レートAPIから取得した為替レートをプロセス内に保持するキャッシュです。
+ * <p>
+ * キャッシュのキーにはリクエストパラメータを使用し、エントリ数の上限を超えた場合は最近使用されていないエントリから破棄されます。
+ * 各エントリは生存期間を経過した時点で失効します。また、公表時刻を考慮する設定が有効な場合は、最新の為替レートを含むエントリは生存期間内であっても
+ * 欧州中央銀行の次の公表時刻で失効します。
+ * <p>
+ * 同一のキーに対する読み込みが同時に要求された場合、為替レートAPIへのリクエストは1度だけ送信され、その結果が全ての呼び出し元で共有されます。
+ * <p>
+ * 当クラスはスレッドセーフであり、複数の {@link CurrencyExchangeRates} で共有することができます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ *
+ * @see CurrencyExchangeRates.Builder#withCache(ExchangeRatesCache)
+ */
+public final class ExchangeRatesCache {
+
+    /**
+     * キャッシュ本体
+     */
+    private final Cache<RequestParameter, Entry> cache;
+
+    /**
+     * 公表時刻を考慮するか否か
+     */
+    private final boolean publicationAware;
+
+    /**
+     * 時計
+     */
+    private final Clock clock;
+
+    /**
+     * キャッシュのヒット数
+     */
+    private final LongAdder hitCount = new LongAdder();
+
+    /**
+     * キャッシュのミス数
+     */
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * 読み込みの成功数
+     */
+    private final LongAdder loadSuccessCount = new LongAdder();
+
+    /**
+     * 読み込みの失敗数
+     */
+    private final LongAdder loadFailureCount = new LongAdder();
+
+    /**
+     * 読み込みに要した合計時間（ナノ秒）
+     */
+    private final LongAdder totalLoadTime = new LongAdder();
+
+    /**
+     * 破棄されたエントリ数
+     */
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * コンストラクタ
+     *
+     * @param builder ビルダー
+     */
+    private ExchangeRatesCache(Builder builder) {
+        this.cache = CacheBuilder.newBuilder().maximumSize(builder.maximumSize)
+                .expireAfterWrite(builder.timeToLive.toNanos(), TimeUnit.NANOSECONDS).ticker(ticker(builder.clock))
+                .removalListener((RemovalNotification<RequestParameter, Entry> notification) -> {
+                    if (notification.wasEvicted()) {
+                        this.evictionCount.increment();
+                    }
+                }).build();
+        this.publicationAware = builder.publicationAware;
+        this.clock = builder.clock;
+    }
+
+    /**
+     * {@link ExchangeRatesCache} クラスのインスタンスを生成するビルダークラスを返却します。
+     *
+     * @return {@link ExchangeRatesCache} クラスのインスタンスを生成するビルダークラス
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * {@link ExchangeRatesCache} クラスのインスタンスを生成するビルダークラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0
+     * @version 1.0
+     *
+     * @see #withMaximumSize(long)
+     * @see #withTimeToLive(Duration)
+     * @see #withPublicationAware(boolean)
+     * @see #build()
+     */
+    public static class Builder {
+
+        /**
+         * エントリ数の上限
+         */
+        private long maximumSize = 1000;
+
+        /**
+         * エントリの生存期間
+         */
+        private Duration timeToLive = Duration.ofHours(1);
+
+        /**
+         * 公表時刻を考慮するか否か
+         */
+        private boolean publicationAware = true;
+
+        /**
+         * 時計
+         */
+        private Clock clock = Clock.systemUTC();
+
+        /**
+         * デフォルトコンストラクタ
+         */
+        private Builder() {
+        }
+
+        /**
+         * キャッシュに保持するエントリ数の上限を設定します。
+         * <p>
+         * 初期値として {@code 1000} が設定されています。
+         *
+         * @param maximumSize エントリ数の上限
+         * @return 自分自身のインスタンス
+         *
+         * @exception IllegalArgumentException 引数として負数が渡された場合
+         */
+        public Builder withMaximumSize(long maximumSize) {
+
+            if (maximumSize < 0) {
+                throw new IllegalArgumentException(String.format("Maximum size must not be negative: %d", maximumSize));
+            }
+
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * エントリの生存期間を設定します。エントリは書き込まれてから生存期間を経過した時点で失効します。
+         * <p>
+         * 初期値として1時間が設定されています。
+         *
+         * @param timeToLive エントリの生存期間
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     引数として {@code null} が渡された場合
+         * @exception IllegalArgumentException 引数として {@code 0} 以下の期間が渡された場合
+         */
+        public Builder withTimeToLive(@NonNull Duration timeToLive) {
+
+            if (timeToLive.isZero() || timeToLive.isNegative()) {
+                throw new IllegalArgumentException(String.format("Duration must be positive: %s", timeToLive));
+            }
+
+            this.timeToLive = timeToLive;
+            return this;
+        }
+
+        /**
+         * 欧州中央銀行の公表時刻を考慮してエントリを失効させるか否かを設定します。
+         * <p>
+         * 有効な場合、最新の為替レートを含むエントリは生存期間内であっても次の公表時刻で失効します。初期値として {@code true}
+         * が設定されています。
+         *
+         * @param publicationAware 公表時刻を考慮する場合は {@code true} 、それ以外の場合は {@code false}
+         * @return 自分自身のインスタンス
+         */
+        public Builder withPublicationAware(boolean publicationAware) {
+            this.publicationAware = publicationAware;
+            return this;
+        }
+
+        /**
+         * 公表時刻の判定および生存期間の計測に使用する時計を設定します。
+         *
+         * @param clock 時計
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        Builder withClock(@NonNull Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * 設定された値を基に {@link ExchangeRatesCache} クラスの新しいインスタンスを生成し返却します。
+         *
+         * @return {@link ExchangeRatesCache} クラスの新しいインスタンス
+         */
+        public ExchangeRatesCache build() {
+            return new ExchangeRatesCache(this);
+        }
+    }
+
+    /**
+     * 引数として渡されたキーに対応する為替レートを返却します。
+     * <p>
+     * キャッシュに有効なエントリが存在しない場合は {@code loader} を呼び出して為替レートを読み込みます。同一のキーに対する読み込みが既に進行中の場合は、
+     * {@code loader} を呼び出さずに進行中の読み込み結果を共有します。読み込みに失敗した場合、そのエントリはキャッシュから削除されます。
+     * 進行中の読み込み結果を共有した呼び出しはヒットとして集計され、 {@code loader} を呼び出した場合のみミスとして集計されます。
+     * <p>
+     * 検索終了日が {@code null} の場合、または当キャッシュの時計で欧州中央銀行の現地日付の当日以降の場合、エントリは今後更新される可能性のある為替レートを含むとみなされます。
+     *
+     * @param key      リクエストパラメータ
+     * @param endAt    検索終了日。最新リソースの場合は {@code null}
+     * @param loader   為替レートを非同期で読み込む処理
+     * @return 為替レートを返却する {@link CompletableFuture}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    CompletableFuture<List<ExchangeRates>> get(@NonNull RequestParameter key, LocalDate endAt,
+            @NonNull Supplier<CompletableFuture<List<ExchangeRates>>> loader) {
+
+        final Instant now = this.clock.instant();
+        final boolean latest = endAt == null || !endAt.isBefore(EcbPublicationSchedule.today(now));
+        final Entry present = this.cache.getIfPresent(key);
+
+        if (present != null) {
+            if (!present.isExpired(now)) {
+                this.hitCount.increment();
+                return present.getFuture();
+            }
+
+            if (this.cache.asMap().remove(key, present)) {
+                this.evictionCount.increment();
+            }
+        }
+
+        final AtomicBoolean loaded = new AtomicBoolean();
+
+        try {
+            final Entry entry = this.cache.get(key, () -> {
+                loaded.set(true);
+                return this.load(key, latest, now, loader);
+            });
+
+            (loaded.get() ? this.missCount : this.hitCount).increment();
+            return entry.getFuture();
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            this.missCount.increment();
+            return CompletableFuture.failedFuture(Futures.toApiRequestFailedException(e.getCause()));
+        }
+    }
+
+    /**
+     * キャッシュに保持されている全てのエントリを破棄します。
+     */
+    public void invalidateAll() {
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * キャッシュに保持されているエントリ数の概算値を返却します。
+     *
+     * @return エントリ数の概算値
+     */
+    public long size() {
+        return this.cache.size();
+    }
+
+    /**
+     * 現時点の統計情報を返却します。
+     *
+     * @return 現時点の統計情報
+     */
+    public ExchangeRatesCacheStats stats() {
+        return new ExchangeRatesCacheStats(this.hitCount.sum(), this.missCount.sum(), this.loadSuccessCount.sum(),
+                this.loadFailureCount.sum(), this.totalLoadTime.sum(), this.evictionCount.sum());
+    }
+
+    /**
+     * 引数として渡された時計の現在時刻をナノ秒単位で返却する {@link Ticker} を生成します。
+     * <p>
+     * エントリの生存期間を公表時刻と同一の時計で計測するために使用します。
+     *
+     * @param clock 時計
+     * @return 時計の現在時刻を返却する {@link Ticker}
+     */
+    private static Ticker ticker(Clock clock) {
+        return new Ticker() {
+
+            @Override
+            public long read() {
+                final Instant now = clock.instant();
+                return TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
+            }
+        };
+    }
+
+    /**
+     * 為替レートの読み込みを開始し、読み込み結果を保持するエントリを返却します。
+     *
+     * @param key    リクエストパラメータ
+     * @param latest 最新の為替レートを含むか否か
+     * @param now    現在時刻
+     * @param loader 為替レートを非同期で読み込む処理
+     * @return 読み込み結果を保持するエントリ
+     */
+    private Entry load(RequestParameter key, boolean latest, Instant now,
+            Supplier<CompletableFuture<List<ExchangeRates>>> loader) {
+
+        final long startTime = System.nanoTime();
+        final Entry entry = new Entry(loader.get(),
+                this.publicationAware && latest ? EcbPublicationSchedule.nextPublication(now) : Instant.MAX);
+
+        entry.future.whenComplete((result, throwable) -> {
+            this.totalLoadTime.add(System.nanoTime() - startTime);
+
+            if (throwable == null) {
+                this.loadSuccessCount.increment();
+            } else {
+                this.loadFailureCount.increment();
+                this.cache.asMap().remove(key, entry);
+            }
+        });
+
+        return entry;
+    }
+
+    /**
+     * キャッシュのエントリです。
+     */
+    private static final class Entry {
+
+        /**
+         * 為替レートを返却する {@link CompletableFuture}
+         */
+        private final CompletableFuture<List<ExchangeRates>> future;
+
+        /**
+         * エントリが失効する時刻
+         */
+        private final Instant expiresAt;
+
+        /**
+         * コンストラクタ
+         *
+         * @param future    為替レートを返却する {@link CompletableFuture}
+         * @param expiresAt エントリが失効する時刻
+         */
+        private Entry(CompletableFuture<List<ExchangeRates>> future, Instant expiresAt) {
+            this.future = future;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * 呼び出し元によるキャンセルがキャッシュ内の読み込みへ伝播しない {@link CompletableFuture} を返却します。
+         *
+         * @return 為替レートを返却する {@link CompletableFuture}
+         */
+        private CompletableFuture<List<ExchangeRates>> getFuture() {
+            return this.future.thenApply(rates -> rates);
+        }
+
+        /**
+         * 引数として渡された時刻においてエントリが失効しているか判定します。読み込みに失敗したエントリは常に失効しているものとして扱います。
+         *
+         * @param now 判定する時刻
+         * @return エントリが失効している場合は {@code true} 、それ以外の場合は {@code false}
+         */
+        private boolean isExpired(Instant now) {
+            return this.future.isCompletedExceptionally() || !now.isBefore(this.expiresAt);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.Serializable;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * {@link ExchangeRatesCache} の統計情報を管理するクラスです。
+ * <p>
+ * 当クラスは統計情報を取得した時点のスナップショットであり、不変オブジェクトです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class ExchangeRatesCacheStats implements Serializable {
+
+    /**
+     * シリアルバージョンUID
+     */
+    private static final long serialVersionUID = 6174094722387316519L;
+
+    /**
+     * キャッシュのヒット数
+     */
+    @Getter
+    private final long hitCount;
+
+    /**
+     * キャッシュのミス数
+     */
+    @Getter
+    private final long missCount;
+
+    /**
+     * 読み込みの成功数
+     */
+    @Getter
+    private final long loadSuccessCount;
+
+    /**
+     * 読み込みの失敗数
+     */
+    @Getter
+    private final long loadFailureCount;
+
+    /**
+     * 読み込みに要した合計時間（ナノ秒）
+     */
+    @Getter
+    private final long totalLoadTime;
+
+    /**
+     * 破棄されたエントリ数
+     */
+    @Getter
+    private final long evictionCount;
+
+    /**
+     * キャッシュのヒット率を返却します。リクエストが1度も行われていない場合は {@code 1.0} を返却します。
+     *
+     * @return キャッシュのヒット率
+     */
+    public double hitRate() {
+        final long requestCount = this.hitCount + this.missCount;
+        return requestCount == 0 ? 1.0 : (double) this.hitCount / requestCount;
+    }
+
+    /**
+     * 読み込み1回あたりの平均所要時間（ナノ秒）を返却します。読み込みが1度も行われていない場合は {@code 0.0} を返却します。
+     *
+     * @return 読み込み1回あたりの平均所要時間（ナノ秒）
+     */
+    public double averageLoadPenalty() {
+        final long loadCount = this.loadSuccessCount + this.loadFailureCount;
+        return loadCount == 0 ? 0.0 : (double) this.totalLoadTime / loadCount;
+    }
+}
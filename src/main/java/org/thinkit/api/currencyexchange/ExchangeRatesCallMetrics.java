@@ -0,0 +1,232 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * リソースと基軸通貨の組み合わせごとに、為替レートAPIへのリクエストの計測結果を集計するクラスです。
+ * <p>
+ * 全ての集計はロックを使用せずに行われます。時間を記録するヒストグラムの単位はナノ秒です。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ *
+ * @see ExchangeRatesMetrics#get(CurrencyExchangeRatesResource, Currency)
+ */
+@ToString
+public final class ExchangeRatesCallMetrics {
+
+    /**
+     * 集計対象とするステータスコードの上限（この値を含まない）
+     */
+    private static final int MAX_STATUS_CODE = 600;
+
+    /**
+     * 為替レートAPIのリソース
+     */
+    @Getter
+    private final CurrencyExchangeRatesResource resource;
+
+    /**
+     * 基軸通貨
+     */
+    @Getter
+    private final Currency base;
+
+    /**
+     * レスポンスヘッダーを受信するまでの時間（ナノ秒）
+     */
+    @Getter
+    private final LongHistogram timeToHeaders = new LongHistogram();
+
+    /**
+     * レスポンスボディの受信に要した時間（ナノ秒）
+     */
+    @Getter
+    private final LongHistogram bodyTime = new LongHistogram();
+
+    /**
+     * レスポンスボディの展開と解析に要した時間（ナノ秒）
+     */
+    @Getter
+    private final LongHistogram parseTime = new LongHistogram();
+
+    /**
+     * 受信したレスポンスボディのバイト数
+     */
+    @Getter
+    private final LongHistogram payloadBytes = new LongHistogram();
+
+    /**
+     * レスポンスを受信する前に失敗したリクエスト数
+     */
+    private final LongAdder failureCount = new LongAdder();
+
+    /**
+     * キャッシュのヒット数
+     */
+    private final LongAdder cacheHitCount = new LongAdder();
+
+    /**
+     * キャッシュのミス数
+     */
+    private final LongAdder cacheMissCount = new LongAdder();
+
+    /**
+     * 再試行の送信数
+     */
+    private final LongAdder retryCount = new LongAdder();
+
+    /**
+     * ヘッジリクエストの送信数
+     */
+    private final LongAdder hedgeCount = new LongAdder();
+
+    /**
+     * ステータスコードごとのレスポンス数
+     */
+    @ToString.Exclude
+    private final AtomicLongArray statusCounts = new AtomicLongArray(MAX_STATUS_CODE);
+
+    /**
+     * コンストラクタ
+     *
+     * @param resource 為替レートAPIのリソース
+     * @param base     基軸通貨
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    ExchangeRatesCallMetrics(@NonNull CurrencyExchangeRatesResource resource, @NonNull Currency base) {
+        this.resource = resource;
+        this.base = base;
+    }
+
+    /**
+     * レスポンスを受信する前に失敗したリクエスト数を返却します。
+     *
+     * @return レスポンスを受信する前に失敗したリクエスト数
+     */
+    public long getFailureCount() {
+        return this.failureCount.sum();
+    }
+
+    /**
+     * キャッシュのヒット数を返却します。
+     *
+     * @return キャッシュのヒット数
+     */
+    public long getCacheHitCount() {
+        return this.cacheHitCount.sum();
+    }
+
+    /**
+     * キャッシュのミス数を返却します。
+     *
+     * @return キャッシュのミス数
+     */
+    public long getCacheMissCount() {
+        return this.cacheMissCount.sum();
+    }
+
+    /**
+     * 再試行の送信数を返却します。
+     *
+     * @return 再試行の送信数
+     */
+    public long getRetryCount() {
+        return this.retryCount.sum();
+    }
+
+    /**
+     * ヘッジリクエストの送信数を返却します。
+     *
+     * @return ヘッジリクエストの送信数
+     */
+    public long getHedgeCount() {
+        return this.hedgeCount.sum();
+    }
+
+    /**
+     * 引数として渡されたステータスコードのレスポンス数を返却します。
+     *
+     * @param statusCode ステータスコード
+     * @return ステータスコードのレスポンス数。集計対象外のステータスコードの場合は {@code 0}
+     */
+    public long getStatusCount(int statusCode) {
+        return statusCode >= 0 && statusCode < MAX_STATUS_CODE ? this.statusCounts.get(statusCode) : 0;
+    }
+
+    /**
+     * リクエストの計測結果を集計します。
+     *
+     * @param event リクエストの計測結果
+     */
+    void record(@NonNull UpstreamCallEvent event) {
+
+        this.timeToHeaders.record(event.getTimeToHeaders());
+        this.bodyTime.record(event.getBodyTime());
+        this.parseTime.record(event.getParseTime());
+        this.payloadBytes.record(event.getPayloadBytes());
+
+        if (event.getStatusCode() >= 0 && event.getStatusCode() < MAX_STATUS_CODE) {
+            this.statusCounts.incrementAndGet(event.getStatusCode());
+        }
+    }
+
+    /**
+     * レスポンスを受信する前に失敗したリクエストを集計します。
+     */
+    void recordFailure() {
+        this.failureCount.increment();
+    }
+
+    /**
+     * キャッシュのヒットを集計します。
+     */
+    void recordCacheHit() {
+        this.cacheHitCount.increment();
+    }
+
+    /**
+     * キャッシュのミスを集計します。
+     */
+    void recordCacheMiss() {
+        this.cacheMissCount.increment();
+    }
+
+    /**
+     * 再試行の送信を集計します。
+     */
+    void recordRetry() {
+        this.retryCount.increment();
+    }
+
+    /**
+     * ヘッジリクエストの送信を集計します。
+     */
+    void recordHedge() {
+        this.hedgeCount.increment();
+    }
+}
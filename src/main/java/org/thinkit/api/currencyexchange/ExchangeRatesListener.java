@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * 為替レートAPIへのリクエストの計測結果を受け取るリスナーです。
+ * <p>
+ * {@link CurrencyExchangeRates.Builder#withListener(ExchangeRatesListener)} メソッドで設定された場合のみ呼び出されます。
+ * 全てのメソッドは何もしない既定の実装を持つため、必要なメソッドのみを実装してください。リスナーはリクエストを処理するスレッドから同期的に呼び出されるため、
+ * 実装はスレッドセーフであり、かつブロックしてはいけません。リスナーが設定されていない場合は計測自体を行わないため、性能への影響はありません。
+ * <p>
+ * {@link CurrencyExchangeRates#stream()} メソッドはレスポンスボディの読み込みが呼び出し元の処理に依存するため、計測の対象外です。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ *
+ * @see ExchangeRatesMetrics
+ */
+public interface ExchangeRatesListener {
+
+    /**
+     * 為替レートAPIからレスポンスのステータスコードを受信したリクエストが完了した際に呼び出されます。
+     * <p>
+     * 耐障害性の方針による再試行およびヘッジリクエスト、検索期間を分割したリクエストはそれぞれ1件のリクエストとして通知されます。
+     *
+     * @param event リクエストの計測結果
+     */
+    default void onUpstreamCall(UpstreamCallEvent event) {
+    }
+
+    /**
+     * 為替レートAPIからレスポンスを受信する前にリクエストが失敗した際に呼び出されます。
+     *
+     * @param resource 為替レートAPIのリソース
+     * @param base     基軸通貨
+     * @param cause    失敗の原因
+     */
+    default void onUpstreamFailure(CurrencyExchangeRatesResource resource, Currency base, Throwable cause) {
+    }
+
+    /**
+     * {@link ExchangeRatesCache} に有効な為替レートが存在した際に呼び出されます。
+     *
+     * @param resource 為替レートAPIのリソース
+     * @param base     基軸通貨
+     */
+    default void onCacheHit(CurrencyExchangeRatesResource resource, Currency base) {
+    }
+
+    /**
+     * {@link ExchangeRatesCache} に有効な為替レートが存在せず、為替レートを読み込む際に呼び出されます。
+     *
+     * @param resource 為替レートAPIのリソース
+     * @param base     基軸通貨
+     */
+    default void onCacheMiss(CurrencyExchangeRatesResource resource, Currency base) {
+    }
+
+    /**
+     * {@link ResiliencePolicy} により再試行を送信する際に呼び出されます。ヘッジリクエストは再試行として通知されません。
+     *
+     * @param resource 為替レートAPIのリソース
+     * @param base     基軸通貨
+     * @param attempt  試行回数。最初の試行を {@code 0} とし、再試行ごとに {@code 1} ずつ増加します。
+     *
+     * @see #onHedge(CurrencyExchangeRatesResource, Currency, int)
+     */
+    default void onRetry(CurrencyExchangeRatesResource resource, Currency base, int attempt) {
+    }
+
+    /**
+     * {@link ResiliencePolicy} によりヘッジリクエストを送信する際に呼び出されます。
+     *
+     * @param resource 為替レートAPIのリソース
+     * @param base     基軸通貨
+     * @param attempt  ヘッジリクエストの対象となる試行の試行回数。最初の試行を {@code 0} とし、再試行ごとに {@code 1} ずつ増加します。
+     */
+    default void onHedge(CurrencyExchangeRatesResource resource, Currency base, int attempt) {
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+import lombok.NonNull;
+
+/**
+ * 為替レートAPIへのリクエストの計測結果を、リソースと基軸通貨の組み合わせごとに集計する {@link ExchangeRatesListener} です。
+ * <p>
+ * 集計先はリソースと基軸通貨から算出される添字で固定長の配列から参照されるため、計測結果の集計時にロックの取得もオブジェクトの生成も発生しません。
+ * 同一のインスタンスを複数の {@link CurrencyExchangeRates} で共有することができます。
+ *
+ * <pre>
+ * ExchangeRatesMetrics metrics = ExchangeRatesMetrics.create();
+ * CurrencyExchangeRates api = CurrencyExchangeRates.builder().withListener(metrics).build();
+ * api.fetch();
+ * long p99 = metrics.get(CurrencyExchangeRatesResource.LATEST, Currency.USA_DOLLAR).getTimeToHeaders()
+ *         .get99thPercentile();
+ * </pre>
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+public final class ExchangeRatesMetrics implements ExchangeRatesListener {
+
+    /**
+     * 通貨の数
+     */
+    private static final int CURRENCY_COUNT = Currency.values().length;
+
+    /**
+     * リソースと基軸通貨の組み合わせごとの集計結果。最初に参照された際に生成されます。
+     */
+    private final AtomicReferenceArray<ExchangeRatesCallMetrics> metrics = new AtomicReferenceArray<>(
+            CurrencyExchangeRatesResource.values().length * CURRENCY_COUNT);
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private ExchangeRatesMetrics() {
+    }
+
+    /**
+     * {@link ExchangeRatesMetrics} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @return {@link ExchangeRatesMetrics} クラスの新しいインスタンス
+     */
+    public static ExchangeRatesMetrics create() {
+        return new ExchangeRatesMetrics();
+    }
+
+    /**
+     * 引数として渡されたリソースと基軸通貨の組み合わせの集計結果を返却します。
+     *
+     * @param resource 為替レートAPIのリソース
+     * @param base     基軸通貨
+     * @return リソースと基軸通貨の組み合わせの集計結果
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public ExchangeRatesCallMetrics get(@NonNull CurrencyExchangeRatesResource resource, @NonNull Currency base) {
+
+        final int index = resource.ordinal() * CURRENCY_COUNT + base.getCode();
+        final ExchangeRatesCallMetrics present = this.metrics.get(index);
+
+        if (present != null) {
+            return present;
+        }
+
+        this.metrics.compareAndSet(index, null, new ExchangeRatesCallMetrics(resource, base));
+        return this.metrics.get(index);
+    }
+
+    @Override
+    public void onUpstreamCall(@NonNull UpstreamCallEvent event) {
+        this.get(event.getResource(), event.getBase()).record(event);
+    }
+
+    @Override
+    public void onUpstreamFailure(@NonNull CurrencyExchangeRatesResource resource, @NonNull Currency base,
+            @NonNull Throwable cause) {
+        this.get(resource, base).recordFailure();
+    }
+
+    @Override
+    public void onCacheHit(@NonNull CurrencyExchangeRatesResource resource, @NonNull Currency base) {
+        this.get(resource, base).recordCacheHit();
+    }
+
+    @Override
+    public void onCacheMiss(@NonNull CurrencyExchangeRatesResource resource, @NonNull Currency base) {
+        this.get(resource, base).recordCacheMiss();
+    }
+
+    @Override
+    public void onRetry(@NonNull CurrencyExchangeRatesResource resource, @NonNull Currency base, int attempt) {
+        this.get(resource, base).recordRetry();
+    }
+
+    @Override
+    public void onHedge(@NonNull CurrencyExchangeRatesResource resource, @NonNull Currency base, int attempt) {
+        this.get(resource, base).recordHedge();
+    }
+}
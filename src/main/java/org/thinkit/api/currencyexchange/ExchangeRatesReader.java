@@ -0,0 +1,644 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.thinkit.api.common.exception.ApiRequestFailedException;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+import lombok.NonNull;
+
+/**
+ * 為替レートAPIのレスポンスボディを逐次的に読み込み {@link ExchangeRates} へ変換するクラスです。
+ * <p>
+ * レスポンスボディは固定長のバッファを介して先頭から1度だけ読み込まれるため、レスポンスボディ全体を文字列としてメモリ上に保持することはありません。
+ * 形式が不正なレスポンスボディは {@link MalformedResponseException} で通知されます。当クラスはスレッドセーフではありません。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class ExchangeRatesReader implements Closeable {
+
+    /**
+     * 読み込みバッファのサイズ
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * 入力の終端を表す値
+     */
+    private static final int END_OF_INPUT = -1;
+
+    /**
+     * レスポンスボディのリーダー
+     */
+    private final Reader reader;
+
+    /**
+     * 読み込みバッファ
+     */
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    /**
+     * 読み込みバッファ内の現在位置
+     */
+    private int position;
+
+    /**
+     * 読み込みバッファ内の有効な文字数
+     */
+    private int limit;
+
+    /**
+     * トークンの読み込みに使用するビルダー
+     */
+    private final StringBuilder token = new StringBuilder();
+
+    /**
+     * リクエスト時に指定した基軸通貨
+     */
+    private final Currency base;
+
+    /**
+     * 読み込みの状態
+     */
+    private State state = State.START;
+
+    /**
+     * 最新リソースの為替レート。最新リソースの為替レートを読み込んでいない場合は {@code null}
+     */
+    private double[] latestRates;
+
+    /**
+     * 最新リソースの為替レートの日付。日付を読み込んでいない場合は {@code null}
+     */
+    private LocalDate date;
+
+    /**
+     * コンストラクタ
+     *
+     * @param inputStream レスポンスボディの入力ストリーム
+     * @param base        リクエスト時に指定した基軸通貨
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    ExchangeRatesReader(@NonNull InputStream inputStream, @NonNull Currency base) {
+        this.reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+        this.base = base;
+    }
+
+    /**
+     * レスポンスボディを全て読み込み、日付の昇順に並べた為替レートのリストとして返却します。
+     * <p>
+     * 最新リソースのレスポンスの場合は要素数が1のリストを返却します。レスポンスに含まれる通貨のうち、
+     * {@link Currency} で定義されていない通貨は無視されます。
+     *
+     * @return 日付の昇順に並べた為替レートのリスト
+     *
+     * @exception IOException レスポンスボディの読み込みに失敗した場合、またはレスポンスボディの形式が不正な場合
+     */
+    List<ExchangeRates> readAll() throws IOException {
+
+        final List<ExchangeRates> rates = new ArrayList<>();
+
+        for (ExchangeRates daily = this.readNext(); daily != null; daily = this.readNext()) {
+            rates.add(daily);
+        }
+
+        rates.sort(Comparator.comparing(ExchangeRates::getDate));
+        return rates;
+    }
+
+    /**
+     * レスポンスボディを1日分ずつ読み込みながら為替レートを返却するストリームを返却します。
+     * <p>
+     * 為替レートはストリームの要素が要求された時点で読み込まれるため、メモリ上に保持される為替レートは検索期間に関わらず1日分のみです。
+     * 要素はレスポンスボディ内の順序で返却されます。ストリームを閉じた場合、レスポンスボディも閉じられます。
+     * 読み込みに失敗した場合は {@link ApiRequestFailedException} が発生します。
+     *
+     * @return 1日分ずつ為替レートを返却するストリーム
+     */
+    Stream<ExchangeRates> stream() {
+
+        final Iterator<ExchangeRates> iterator = new Iterator<>() {
+
+            /**
+             * 次に返却する為替レート
+             */
+            private ExchangeRates next;
+
+            @Override
+            public boolean hasNext() {
+
+                if (this.next == null) {
+                    try {
+                        this.next = ExchangeRatesReader.this.readNext();
+                    } catch (IOException e) {
+                        throw new ApiRequestFailedException(e);
+                    }
+                }
+
+                return this.next != null;
+            }
+
+            @Override
+            public ExchangeRates next() {
+
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                final ExchangeRates current = this.next;
+                this.next = null;
+
+                return current;
+            }
+        };
+
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(() -> {
+                    try {
+                        this.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * レスポンスボディから次の1日分の為替レートを読み込み返却します。
+     * <p>
+     * 履歴リソースの為替レートは日付ごとに読み込まれた時点で返却されます。最新リソースの為替レートはレスポンスボディの末尾まで読み込んだ時点で返却されます。
+     *
+     * @return 次の1日分の為替レート。レスポンスボディの末尾に達した場合は {@code null}
+     *
+     * @exception IOException レスポンスボディの読み込みに失敗した場合、またはレスポンスボディの形式が不正な場合
+     */
+    ExchangeRates readNext() throws IOException {
+
+        while (true) {
+            switch (this.state) {
+                case START:
+                    this.expect('{');
+                    this.state = this.consumeIf('}') ? State.FINISHING : State.MEMBER;
+                    break;
+
+                case MEMBER:
+                    final String key = this.nextString();
+                    this.expect(':');
+
+                    if ("rates".equals(key)) {
+                        this.expect('{');
+                        this.state = this.consumeIf('}') ? State.AFTER_MEMBER : State.RATES;
+                    } else {
+                        this.readMember(key);
+                        this.state = State.AFTER_MEMBER;
+                    }
+                    break;
+
+                case RATES:
+                    final String name = this.nextString();
+                    ExchangeRates daily = null;
+
+                    this.expect(':');
+
+                    if (this.peek() == '{') {
+                        daily = ExchangeRates.of(this.base, this.toDate(name), this.readRates());
+                    } else {
+                        if (this.latestRates == null) {
+                            this.latestRates = ExchangeRates.emptyValues();
+                        }
+
+                        this.putRate(this.latestRates, name, this.nextDouble());
+                    }
+
+                    if (!this.consumeIf(',')) {
+                        this.expect('}');
+                        this.state = State.AFTER_MEMBER;
+                    }
+
+                    if (daily != null) {
+                        return daily;
+                    }
+                    break;
+
+                case AFTER_MEMBER:
+                    if (this.consumeIf(',')) {
+                        this.state = State.MEMBER;
+                    } else {
+                        this.expect('}');
+                        this.state = State.FINISHING;
+                    }
+                    break;
+
+                case FINISHING:
+                    this.state = State.END;
+
+                    if (this.date != null) {
+                        return ExchangeRates.of(this.base, this.date,
+                                this.latestRates == null ? ExchangeRates.emptyValues() : this.latestRates);
+                    }
+                    break;
+
+                default:
+                    return null;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+
+    /**
+     * 為替レート以外のメンバーの値を読み込みます。
+     *
+     * @param key メンバーのキー
+     *
+     * @exception IOException 読み込みに失敗した場合、形式が不正な場合、またはエラーレスポンスの場合
+     */
+    private void readMember(String key) throws IOException {
+        switch (key) {
+            case "base":
+                final String tag = this.nextString();
+
+                if (!this.base.getTag().equals(tag)) {
+                    throw new MalformedResponseException(String.format("Unexpected base currency: %s", tag));
+                }
+                break;
+
+            case "date":
+                this.date = this.toDate(this.nextString());
+                break;
+
+            case "error":
+                throw new ErrorResponseException(HttpURLConnection.HTTP_OK,
+                        String.format("Exchange rates API returned an error: %s", this.readErrorMessage()));
+
+            default:
+                this.skipValue();
+        }
+    }
+
+    /**
+     * 1日分の為替レートのオブジェクトを読み込み返却します。
+     *
+     * @return 通貨のコード値を添字とした為替レート
+     *
+     * @exception IOException 読み込みに失敗した場合、または形式が不正な場合
+     */
+    private double[] readRates() throws IOException {
+
+        final double[] rates = ExchangeRates.emptyValues();
+
+        this.expect('{');
+
+        if (!this.consumeIf('}')) {
+            do {
+                final String tag = this.nextString();
+                this.expect(':');
+                this.putRate(rates, tag, this.nextDouble());
+            } while (this.consumeIf(','));
+
+            this.expect('}');
+        }
+
+        return rates;
+    }
+
+    /**
+     * 引数として渡されたタグに対応する通貨が定義されている場合のみ、為替レートを配列へ格納します。
+     *
+     * @param rates 格納先の配列
+     * @param tag   通貨のタグ
+     * @param rate  為替レート
+     */
+    private void putRate(double[] rates, String tag, double rate) {
+
+        final Currency currency = Currency.ofTag(tag);
+
+        if (currency != null) {
+            rates[currency.getCode()] = rate;
+        }
+    }
+
+    /**
+     * エラーレスポンスのメッセージを読み込み返却します。
+     *
+     * @return エラーメッセージ
+     *
+     * @exception IOException 読み込みに失敗した場合、または形式が不正な場合
+     */
+    private String readErrorMessage() throws IOException {
+
+        if (this.peek() == '"') {
+            return this.nextString();
+        }
+
+        this.skipValue();
+        return "unknown error";
+    }
+
+    /**
+     * 引数として渡された {@code yyyy-MM-dd} 形式の文字列を日付へ変換し返却します。
+     *
+     * @param date {@code yyyy-MM-dd} 形式の文字列
+     * @return 日付
+     *
+     * @exception IOException 日付の形式が不正な場合
+     */
+    private LocalDate toDate(String date) throws IOException {
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new MalformedResponseException(e);
+        }
+    }
+
+    /**
+     * 空白文字を読み飛ばした上で次の文字を消費せずに返却します。
+     *
+     * @return 次の文字。入力の終端に達した場合は {@code -1}
+     *
+     * @exception IOException 読み込みに失敗した場合
+     */
+    private int peek() throws IOException {
+
+        while (true) {
+            if (this.position >= this.limit && !this.fill()) {
+                return END_OF_INPUT;
+            }
+
+            final char c = this.buffer[this.position];
+
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                this.position++;
+            } else {
+                return c;
+            }
+        }
+    }
+
+    /**
+     * 次の文字を消費して返却します。空白文字の読み飛ばしは行いません。
+     *
+     * @return 次の文字
+     *
+     * @exception IOException 読み込みに失敗した場合、または入力の終端に達した場合
+     */
+    private char read() throws IOException {
+
+        if (this.position >= this.limit && !this.fill()) {
+            throw new MalformedResponseException("Unexpected end of response body");
+        }
+
+        return this.buffer[this.position++];
+    }
+
+    /**
+     * 読み込みバッファへ次の文字列を読み込みます。
+     *
+     * @return 1文字以上読み込まれた場合は {@code true} 、入力の終端に達した場合は {@code false}
+     *
+     * @exception IOException 読み込みに失敗した場合
+     */
+    private boolean fill() throws IOException {
+
+        final int count = this.reader.read(this.buffer, 0, this.buffer.length);
+
+        if (count <= 0) {
+            return false;
+        }
+
+        this.position = 0;
+        this.limit = count;
+        return true;
+    }
+
+    /**
+     * 空白文字を読み飛ばした上で、次の文字が引数として渡された文字である場合は消費します。
+     *
+     * @param expected 期待する文字
+     * @return 次の文字を消費した場合は {@code true} 、それ以外の場合は {@code false}
+     *
+     * @exception IOException 読み込みに失敗した場合
+     */
+    private boolean consumeIf(char expected) throws IOException {
+
+        if (this.peek() == expected) {
+            this.position++;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * 空白文字を読み飛ばした上で、次の文字が引数として渡された文字であることを検証し消費します。
+     *
+     * @param expected 期待する文字
+     *
+     * @exception IOException 読み込みに失敗した場合、または次の文字が期待する文字ではない場合
+     */
+    private void expect(char expected) throws IOException {
+        if (!this.consumeIf(expected)) {
+            throw new MalformedResponseException(String.format("Expected '%s' in response body", expected));
+        }
+    }
+
+    /**
+     * 次の文字列トークンを読み込み返却します。
+     *
+     * @return 文字列トークン
+     *
+     * @exception IOException 読み込みに失敗した場合、または形式が不正な場合
+     */
+    private String nextString() throws IOException {
+
+        this.expect('"');
+        this.token.setLength(0);
+
+        while (true) {
+            final char c = this.read();
+
+            if (c == '"') {
+                return this.token.toString();
+            } else if (c != '\\') {
+                this.token.append(c);
+                continue;
+            }
+
+            final char escaped = this.read();
+
+            switch (escaped) {
+                case 'b':
+                    this.token.append('\b');
+                    break;
+                case 'f':
+                    this.token.append('\f');
+                    break;
+                case 'n':
+                    this.token.append('\n');
+                    break;
+                case 'r':
+                    this.token.append('\r');
+                    break;
+                case 't':
+                    this.token.append('\t');
+                    break;
+                case 'u':
+                    final char[] hex = { this.read(), this.read(), this.read(), this.read() };
+
+                    try {
+                        this.token.append((char) Integer.parseInt(new String(hex), 16));
+                    } catch (NumberFormatException e) {
+                        throw new MalformedResponseException(e);
+                    }
+                    break;
+                default:
+                    this.token.append(escaped);
+            }
+        }
+    }
+
+    /**
+     * 次の数値トークンを読み込み返却します。
+     *
+     * @return 数値
+     *
+     * @exception IOException 読み込みに失敗した場合、または形式が不正な場合
+     */
+    private double nextDouble() throws IOException {
+
+        this.peek();
+        this.token.setLength(0);
+
+        while (this.position < this.limit || this.fill()) {
+            final char c = this.buffer[this.position];
+
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                this.token.append(c);
+                this.position++;
+            } else {
+                break;
+            }
+        }
+
+        try {
+            return Double.parseDouble(this.token.toString());
+        } catch (NumberFormatException e) {
+            throw new MalformedResponseException(e);
+        }
+    }
+
+    /**
+     * 次の値を読み飛ばします。
+     *
+     * @exception IOException 読み込みに失敗した場合、または形式が不正な場合
+     */
+    private void skipValue() throws IOException {
+
+        final int next = this.peek();
+
+        if (next == '"') {
+            this.nextString();
+        } else if (next == '{' || next == '[') {
+            final char close = next == '{' ? '}' : ']';
+            this.position++;
+
+            if (!this.consumeIf(close)) {
+                do {
+                    if (next == '{') {
+                        this.nextString();
+                        this.expect(':');
+                    }
+
+                    this.skipValue();
+                } while (this.consumeIf(','));
+
+                this.expect(close);
+            }
+        } else if (next == 't' || next == 'f' || next == 'n') {
+            while (this.position < this.limit || this.fill()) {
+                if (!Character.isLetter(this.buffer[this.position])) {
+                    break;
+                }
+
+                this.position++;
+            }
+        } else {
+            this.nextDouble();
+        }
+    }
+
+    /**
+     * 読み込みの状態です。
+     */
+    private enum State {
+
+        /**
+         * レスポンスボディの読み込み前
+         */
+        START,
+
+        /**
+         * メンバーのキーの読み込み前
+         */
+        MEMBER,
+
+        /**
+         * 為替レートのオブジェクト内の要素の読み込み前
+         */
+        RATES,
+
+        /**
+         * メンバーの値の読み込み後
+         */
+        AFTER_MEMBER,
+
+        /**
+         * レスポンスボディの末尾の読み込み後
+         */
+        FINISHING,
+
+        /**
+         * 読み込みの完了後
+         */
+        END
+    }
+}
@@ -0,0 +1,799 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * ローカルのデータセットを基に為替レートAPIと同一の形式で為替レートを返却する、組み込み用の軽量なHTTPサーバーです。
+ * <p>
+ * 為替レートAPIと同じ {@code /latest} および {@code /history} リソースを、同じクエリパラメータ（ {@code base} 、
+ * {@code symbols} 、 {@code start_at} 、 {@code end_at} ）で提供します。最新リソースはデータセットの最も新しい日付の為替レートを返却し、
+ * 任意の基軸通貨の為替レートはデータセットの為替レートからクロスレートとして算出されます。
+ * <p>
+ * 負荷試験のために、応答の遅延、エラーの注入および {@code 429 Too Many Requests} による流量制限を設定できます。
+ * 同一のクエリに対するレスポンスボディは一度だけ生成されて再利用されるため、サーバー自体がクライアントの計測のボトルネックになることはありません。
+ * 遅延はスレッドを占有せずにスケジューラで待機するため、遅延を設定した場合でも同時に多数のリクエストを処理できます。
+ * <p>
+ * 正常なレスポンスにはレスポンスボディから算出した {@code ETag} ヘッダーが付与され、 {@code If-None-Match} ヘッダーが一致するリクエストには
+ * {@code 304 Not Modified} を返却します。
+ * <p>
+ * 遅延ACKによる待ち時間を計測に含めないよう、JVMの起動時に {@code -Dsun.net.httpserver.nodelay=true} を指定してください。
+ * {@code test} タスクと {@code jmh} タスクでは指定済みです。
+ *
+ * <pre>
+ * try (ExchangeRatesServer server = ExchangeRatesServer.builder()
+ *         .withDataset(Path.of("history.json"), Currency.USA_DOLLAR).withLatency(Duration.ofMillis(20))
+ *         .withErrorRate(0.01).build()) {
+ *     CurrencyExchangeRates api = CurrencyExchangeRates.builder().withEndpoint(server.getEndpoint()).build();
+ *     api.fetch();
+ * }
+ * </pre>
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ *
+ * @see CurrencyExchangeRates.Builder#withEndpoint(String)
+ */
+public final class ExchangeRatesServer implements Closeable {
+
+    /**
+     * 保持するレスポンスの上限数
+     */
+    private static final long MAXIMUM_RESPONSES = 10_000;
+
+    /**
+     * 流量制限を超えた際のレスポンス
+     */
+    private static final Response TOO_MANY_REQUESTS = Response.error(429, "Rate limit exceeded");
+
+    /**
+     * 注入されたエラーのレスポンス
+     */
+    private static final Response INJECTED_FAILURE = Response.error(500, "Injected failure");
+
+    /**
+     * HTTPサーバー
+     */
+    private final HttpServer server;
+
+    /**
+     * リクエストを処理するエグゼキュータ
+     */
+    private final ExecutorService executor;
+
+    /**
+     * 遅延させたレスポンスを送信するスケジューラ
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 日付ごとの為替レート
+     */
+    private final NavigableMap<LocalDate, ExchangeRates> dataset;
+
+    /**
+     * クエリごとに生成済みのレスポンス
+     */
+    private final Cache<String, Response> responses = CacheBuilder.newBuilder().maximumSize(MAXIMUM_RESPONSES)
+            .build();
+
+    /**
+     * 応答の遅延時間（ナノ秒）
+     */
+    private final long latency;
+
+    /**
+     * 応答の遅延時間に加算する揺らぎの上限（ナノ秒）
+     */
+    private final long latencyJitter;
+
+    /**
+     * エラーを注入する割合
+     */
+    private final double errorRate;
+
+    /**
+     * 流量制限において1件のリクエストが消費する時間（ナノ秒）。流量を制限しない場合は {@code 0}
+     */
+    private final long permitInterval;
+
+    /**
+     * 流量制限において連続して受け付けるリクエストの時間幅（ナノ秒）
+     */
+    private final long burstTolerance;
+
+    /**
+     * 流量制限において次のリクエストが理論上到着する時刻（ナノ秒）
+     */
+    private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+
+    /**
+     * 受信したリクエスト数
+     */
+    private final LongAdder requestCount = new LongAdder();
+
+    /**
+     * 流量制限により拒否したリクエスト数
+     */
+    private final LongAdder throttledCount = new LongAdder();
+
+    /**
+     * エラーを注入したリクエスト数
+     */
+    private final LongAdder injectedErrorCount = new LongAdder();
+
+    /**
+     * コンストラクタ
+     *
+     * @param builder ビルダー
+     *
+     * @exception IOException HTTPサーバーの起動に失敗した場合
+     */
+    private ExchangeRatesServer(Builder builder) throws IOException {
+
+        this.dataset = new TreeMap<>();
+        builder.dataset.forEach(rates -> this.dataset.put(rates.getDate(), rates));
+        this.latency = builder.latency.toNanos();
+        this.latencyJitter = builder.latencyJitter.toNanos();
+        this.errorRate = builder.errorRate;
+        this.permitInterval = builder.permitsPerSecond == 0 ? 0
+                : TimeUnit.SECONDS.toNanos(1) / builder.permitsPerSecond;
+        this.burstTolerance = this.permitInterval * builder.burst;
+        this.executor = Executors.newFixedThreadPool(builder.threads, daemonThreads("exchange-rates-server"));
+        this.scheduler = Executors.newScheduledThreadPool(1, daemonThreads("exchange-rates-server-delay"));
+        this.server = HttpServer.create(builder.address, 0);
+        this.server.createContext('/' + CurrencyExchangeRatesResource.LATEST.getResource(),
+                exchange -> this.handle(exchange, CurrencyExchangeRatesResource.LATEST));
+        this.server.createContext('/' + CurrencyExchangeRatesResource.HISTORY.getResource(),
+                exchange -> this.handle(exchange, CurrencyExchangeRatesResource.HISTORY));
+        this.server.setExecutor(this.executor);
+        this.server.start();
+    }
+
+    /**
+     * {@link ExchangeRatesServer} クラスのインスタンスを生成するビルダークラスを返却します。
+     *
+     * @return {@link ExchangeRatesServer} クラスのインスタンスを生成するビルダークラス
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * {@link ExchangeRatesServer} クラスのインスタンスを生成するビルダークラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0
+     * @version 1.0
+     *
+     * @see #withAddress(InetSocketAddress)
+     * @see #withThreads(int)
+     * @see #withDataset(Collection)
+     * @see #withDataset(Path, Currency)
+     * @see #withLatency(Duration)
+     * @see #withLatencyJitter(Duration)
+     * @see #withErrorRate(double)
+     * @see #withThrottle(int, int)
+     * @see #build()
+     */
+    public static class Builder {
+
+        /**
+         * 待ち受けるアドレス
+         */
+        private InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+        /**
+         * リクエストを処理するスレッド数
+         */
+        private int threads = Runtime.getRuntime().availableProcessors() * 2;
+
+        /**
+         * 返却する為替レートのデータセット
+         */
+        private final List<ExchangeRates> dataset = new ArrayList<>();
+
+        /**
+         * 応答の遅延時間
+         */
+        private Duration latency = Duration.ZERO;
+
+        /**
+         * 応答の遅延時間に加算する揺らぎの上限
+         */
+        private Duration latencyJitter = Duration.ZERO;
+
+        /**
+         * エラーを注入する割合
+         */
+        private double errorRate;
+
+        /**
+         * 1秒あたりに受け付けるリクエスト数。流量を制限しない場合は {@code 0}
+         */
+        private int permitsPerSecond;
+
+        /**
+         * 連続して受け付けるリクエスト数
+         */
+        private int burst;
+
+        /**
+         * デフォルトコンストラクタ
+         */
+        private Builder() {
+        }
+
+        /**
+         * 待ち受けるアドレスを設定します。初期値としてループバックアドレスの空いているポートが設定されています。
+         *
+         * @param address 待ち受けるアドレス
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withAddress(@NonNull InetSocketAddress address) {
+            this.address = address;
+            return this;
+        }
+
+        /**
+         * リクエストを処理するスレッド数を設定します。初期値として利用可能なプロセッサ数の2倍が設定されています。
+         *
+         * @param threads リクエストを処理するスレッド数
+         * @return 自分自身のインスタンス
+         *
+         * @exception IllegalArgumentException {@code threads} が {@code 1} 未満の場合
+         */
+        public Builder withThreads(int threads) {
+
+            if (threads < 1) {
+                throw new IllegalArgumentException(String.format("Threads must be positive: %d", threads));
+            }
+
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * 返却する為替レートのデータセットを追加します。同一の日付の為替レートが複数追加された場合は、後から追加された為替レートが使用されます。
+         *
+         * @param dataset 返却する為替レート
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withDataset(@NonNull Collection<ExchangeRates> dataset) {
+            this.dataset.addAll(dataset);
+            return this;
+        }
+
+        /**
+         * 為替レートAPIのレスポンスと同一の形式のJSONファイルを読み込み、返却する為替レートのデータセットへ追加します。
+         * <p>
+         * 最新リソースと履歴リソースのどちらの形式のファイルも読み込むことができます。
+         *
+         * @param file JSONファイル
+         * @param base JSONファイルの基軸通貨
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         * @exception UncheckedIOException JSONファイルの読み込みに失敗した場合、または形式が不正な場合
+         */
+        public Builder withDataset(@NonNull Path file, @NonNull Currency base) {
+
+            try (InputStream inputStream = Files.newInputStream(file);
+                    ExchangeRatesReader reader = new ExchangeRatesReader(inputStream, base)) {
+                this.dataset.addAll(reader.readAll());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            return this;
+        }
+
+        /**
+         * 全てのレスポンスに適用する応答の遅延時間を設定します。初期値として {@link Duration#ZERO} が設定されています。
+         *
+         * @param latency 応答の遅延時間
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     引数として {@code null} が渡された場合
+         * @exception IllegalArgumentException 負の期間が渡された場合
+         */
+        public Builder withLatency(@NonNull Duration latency) {
+            this.latency = requireNonNegative(latency);
+            return this;
+        }
+
+        /**
+         * 応答の遅延時間に加算する揺らぎの上限を設定します。各レスポンスの遅延時間には {@code 0} 以上この値以下の一様乱数が加算されます。
+         * 初期値として {@link Duration#ZERO} が設定されています。
+         *
+         * @param latencyJitter 応答の遅延時間に加算する揺らぎの上限
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     引数として {@code null} が渡された場合
+         * @exception IllegalArgumentException 負の期間が渡された場合
+         */
+        public Builder withLatencyJitter(@NonNull Duration latencyJitter) {
+            this.latencyJitter = requireNonNegative(latencyJitter);
+            return this;
+        }
+
+        /**
+         * {@code 500 Internal Server Error} を返却するリクエストの割合を設定します。初期値として {@code 0.0} が設定されています。
+         *
+         * @param errorRate エラーを注入する割合（ {@code 0.0} 以上 {@code 1.0} 以下）
+         * @return 自分自身のインスタンス
+         *
+         * @exception IllegalArgumentException 割合が範囲外の場合
+         */
+        public Builder withErrorRate(double errorRate) {
+
+            if (!(errorRate >= 0.0 && errorRate <= 1.0)) {
+                throw new IllegalArgumentException(String.format("Error rate must be between 0 and 1: %s", errorRate));
+            }
+
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * 1秒あたりに受け付けるリクエスト数を設定します。上限を超えたリクエストには {@code 429 Too Many Requests} を返却します。
+         * <p>
+         * 流量はGCRA（Generic Cell Rate Algorithm）により制限され、 {@code burst} 件までのリクエストは連続して受け付けます。
+         * 当メソッドを呼び出さない場合は流量を制限しません。
+         *
+         * @param permitsPerSecond 1秒あたりに受け付けるリクエスト数
+         * @param burst            連続して受け付けるリクエスト数
+         * @return 自分自身のインスタンス
+         *
+         * @exception IllegalArgumentException いずれかの引数が {@code 1} 未満の場合
+         */
+        public Builder withThrottle(int permitsPerSecond, int burst) {
+
+            if (permitsPerSecond < 1 || burst < 1) {
+                throw new IllegalArgumentException(String.format(
+                        "Permits per second and burst must be positive: %d, %d", permitsPerSecond, burst));
+            }
+
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+            return this;
+        }
+
+        /**
+         * 設定された値を基に {@link ExchangeRatesServer} クラスの新しいインスタンスを生成し、リクエストの受け付けを開始します。
+         *
+         * @return リクエストの受け付けを開始した {@link ExchangeRatesServer} クラスの新しいインスタンス
+         *
+         * @exception UncheckedIOException HTTPサーバーの起動に失敗した場合
+         */
+        public ExchangeRatesServer build() {
+            try {
+                return new ExchangeRatesServer(this);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * 引数として渡された期間が負ではないことを検証し、そのまま返却します。
+         *
+         * @param duration 検証対象の期間
+         * @return 引数として渡された期間
+         *
+         * @exception IllegalArgumentException 負の期間が渡された場合
+         */
+        private static Duration requireNonNegative(Duration duration) {
+
+            if (duration.isNegative()) {
+                throw new IllegalArgumentException(String.format("Duration must not be negative: %s", duration));
+            }
+
+            return duration;
+        }
+    }
+
+    /**
+     * {@link CurrencyExchangeRates.Builder#withEndpoint(String)} メソッドに渡すエンドポイントを返却します。
+     *
+     * @return 当サーバーのエンドポイント（末尾のスラッシュを含まない）
+     */
+    public String getEndpoint() {
+
+        final InetSocketAddress address = this.server.getAddress();
+        final String host = address.getAddress().isAnyLocalAddress() ? InetAddress.getLoopbackAddress().getHostAddress()
+                : address.getAddress().getHostAddress();
+
+        return String.format(host.indexOf(':') < 0 ? "http://%s:%d" : "http://[%s]:%d", host, address.getPort());
+    }
+
+    /**
+     * 受信したリクエスト数を返却します。
+     *
+     * @return 受信したリクエスト数
+     */
+    public long getRequestCount() {
+        return this.requestCount.sum();
+    }
+
+    /**
+     * 流量制限により拒否したリクエスト数を返却します。
+     *
+     * @return 流量制限により拒否したリクエスト数
+     */
+    public long getThrottledCount() {
+        return this.throttledCount.sum();
+    }
+
+    /**
+     * エラーを注入したリクエスト数を返却します。
+     *
+     * @return エラーを注入したリクエスト数
+     */
+    public long getInjectedErrorCount() {
+        return this.injectedErrorCount.sum();
+    }
+
+    /**
+     * リクエストの受け付けを停止し、処理中のリクエストを破棄します。
+     */
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.scheduler.shutdownNow();
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * リクエストを処理し、設定された遅延時間の経過後にレスポンスを送信します。
+     *
+     * @param exchange HTTPリクエストとレスポンスの交換
+     * @param resource 要求されたリソース
+     *
+     * @exception IOException レスポンスの送信に失敗した場合
+     */
+    private void handle(HttpExchange exchange, CurrencyExchangeRatesResource resource) throws IOException {
+
+        this.requestCount.increment();
+
+        final Response response;
+
+        if (!this.tryAcquire()) {
+            this.throttledCount.increment();
+            response = TOO_MANY_REQUESTS;
+        } else if (this.errorRate > 0 && ThreadLocalRandom.current().nextDouble() < this.errorRate) {
+            this.injectedErrorCount.increment();
+            response = INJECTED_FAILURE;
+        } else {
+            final String query = exchange.getRequestURI().getRawQuery();
+            response = this.responses.asMap().computeIfAbsent(resource.getResource() + '?' + query,
+                    key -> this.respond(resource, query));
+        }
+
+        final long delay = this.latency
+                + (this.latencyJitter == 0 ? 0 : ThreadLocalRandom.current().nextLong(this.latencyJitter + 1));
+
+        if (delay == 0) {
+            send(exchange, response);
+            return;
+        }
+
+        this.scheduler.schedule(() -> {
+            try {
+                send(exchange, response);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 流量制限の枠を1件分確保します。
+     *
+     * @return 確保できた場合は {@code true} 、流量制限を超えた場合は {@code false}
+     */
+    private boolean tryAcquire() {
+
+        if (this.permitInterval == 0) {
+            return true;
+        }
+
+        final long now = System.nanoTime();
+
+        while (true) {
+            final long arrival = this.theoreticalArrival.get();
+            final long next = Math.max(arrival - now, 0) + now + this.permitInterval;
+
+            if (next - now > this.burstTolerance) {
+                return false;
+            }
+
+            if (this.theoreticalArrival.compareAndSet(arrival, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 引数として渡されたリソースとクエリに対するレスポンスを生成します。
+     *
+     * @param resource 要求されたリソース
+     * @param rawQuery エンコードされたままのクエリ。クエリが存在しない場合は {@code null}
+     * @return レスポンス
+     */
+    private Response respond(CurrencyExchangeRatesResource resource, String rawQuery) {
+
+        final Map<String, String> parameters = parseQuery(rawQuery);
+        final Currency base = Currency.ofTag(parameters.getOrDefault("base", Currency.USA_DOLLAR.getTag()));
+
+        if (base == null) {
+            return Response.error(400, String.format("Base '%s' is not supported.", parameters.get("base")));
+        }
+
+        final List<Currency> symbols = new ArrayList<>();
+
+        if (!parameters.getOrDefault("symbols", "").isEmpty()) {
+            for (String tag : parameters.get("symbols").split(",")) {
+                final Currency symbol = Currency.ofTag(tag.trim());
+
+                if (symbol == null) {
+                    return Response.error(400, String.format("Symbols '%s' are invalid.", parameters.get("symbols")));
+                }
+
+                symbols.add(symbol);
+            }
+        }
+
+        if (this.dataset.isEmpty()) {
+            return Response.error(404, "No exchange rates are available.");
+        }
+
+        final StringBuilder body = new StringBuilder(1024);
+
+        if (resource == CurrencyExchangeRatesResource.LATEST) {
+            final ExchangeRates latest = this.dataset.lastEntry().getValue();
+
+            body.append("{\"rates\":");
+            appendRates(body, latest, base, symbols);
+            body.append(",\"base\":\"").append(base.getTag()).append("\",\"date\":\"").append(latest.getDate())
+                    .append("\"}");
+
+            return Response.ok(body);
+        }
+
+        final LocalDate startAt;
+        final LocalDate endAt;
+
+        try {
+            startAt = LocalDate.parse(parameters.getOrDefault("start_at", ""));
+            endAt = LocalDate.parse(parameters.getOrDefault("end_at", ""));
+        } catch (DateTimeParseException e) {
+            return Response.error(400, "start_at and end_at parameters must be dates in yyyy-MM-dd format.");
+        }
+
+        if (startAt.isAfter(endAt)) {
+            return Response.error(400, "start_at must be older than end_at.");
+        }
+
+        body.append("{\"rates\":{");
+
+        for (ExchangeRates daily : this.dataset.subMap(startAt, true, endAt, true).values()) {
+            if (body.charAt(body.length() - 1) != '{') {
+                body.append(',');
+            }
+
+            body.append('"').append(daily.getDate()).append("\":");
+            appendRates(body, daily, base, symbols);
+        }
+
+        body.append("},\"start_at\":\"").append(startAt).append("\",\"base\":\"").append(base.getTag())
+                .append("\",\"end_at\":\"").append(endAt).append("\"}");
+
+        return Response.ok(body);
+    }
+
+    /**
+     * 引数として渡された基軸通貨に対する為替レートをJSONオブジェクトとして追加します。為替レートが存在しない通貨は省略されます。
+     *
+     * @param body    追加先のビルダー
+     * @param rates   データセットの為替レート
+     * @param base    基軸通貨
+     * @param symbols 追加する通貨。空の場合は基軸通貨以外の全ての通貨を追加します。
+     */
+    private static void appendRates(StringBuilder body, ExchangeRates rates, Currency base, List<Currency> symbols) {
+
+        body.append('{');
+
+        for (Currency currency : symbols.isEmpty() ? List.of(Currency.values()) : symbols) {
+            final double rate = rates.rate(base, currency);
+
+            if (Double.isNaN(rate) || (symbols.isEmpty() && currency == base)) {
+                continue;
+            }
+
+            if (body.charAt(body.length() - 1) != '{') {
+                body.append(',');
+            }
+
+            body.append('"').append(currency.getTag()).append("\":").append(rate);
+        }
+
+        body.append('}');
+    }
+
+    /**
+     * エンコードされたクエリを解析し、パラメータ名と値のマップとして返却します。
+     *
+     * @param rawQuery エンコードされたままのクエリ。クエリが存在しない場合は {@code null}
+     * @return パラメータ名と値のマップ
+     */
+    private static Map<String, String> parseQuery(String rawQuery) {
+
+        final Map<String, String> parameters = new TreeMap<>();
+
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+
+        for (String parameter : rawQuery.split("&")) {
+            final int separator = parameter.indexOf('=');
+
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+
+        return parameters;
+    }
+
+    /**
+     * 引数として渡されたレスポンスを送信します。
+     *
+     * @param exchange HTTPリクエストとレスポンスの交換
+     * @param response レスポンス
+     *
+     * @exception IOException レスポンスの送信に失敗した場合
+     */
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+
+            if (response.statusCode == TOO_MANY_REQUESTS.statusCode) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+            }
+
+            if (response.etag != null) {
+                exchange.getResponseHeaders().set("ETag", response.etag);
+
+                if (response.etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+            }
+
+            exchange.sendResponseHeaders(response.statusCode, response.body.length);
+
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response.body);
+            }
+        }
+    }
+
+    /**
+     * 引数として渡された名前のデーモンスレッドを生成するスレッドファクトリを返却します。
+     *
+     * @param name スレッド名
+     * @return デーモンスレッドを生成するスレッドファクトリ
+     */
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            final Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 生成済みのレスポンスを管理するクラスです。
+     */
+    @RequiredArgsConstructor
+    private static final class Response {
+
+        /**
+         * ステータスコード
+         */
+        private final int statusCode;
+
+        /**
+         * UTF-8でエンコードされたレスポンスボディ
+         */
+        private final byte[] body;
+
+        /**
+         * エンティティタグ。エラーレスポンスの場合は {@code null}
+         */
+        private final String etag;
+
+        /**
+         * 正常終了のレスポンスを生成します。
+         *
+         * @param body レスポンスボディ
+         * @return 正常終了のレスポンス
+         */
+        static Response ok(CharSequence body) {
+
+            final byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+
+            return new Response(200, bytes, String.format("\"%08x\"", Arrays.hashCode(bytes)));
+        }
+
+        /**
+         * 為替レートAPIと同一の形式のエラーレスポンスを生成します。
+         *
+         * @param statusCode ステータスコード
+         * @param message    エラーメッセージ
+         * @return エラーレスポンス
+         */
+        static Response error(int statusCode, String message) {
+            return new Response(statusCode,
+                    String.format("{\"error\":\"%s\"}", message).getBytes(StandardCharsets.UTF_8), null);
+        }
+    }
+}
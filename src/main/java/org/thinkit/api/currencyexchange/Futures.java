@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import org.thinkit.api.common.exception.ApiRequestFailedException;
+
+import lombok.NonNull;
+
+/**
+ * {@link CompletableFuture} を合成する処理を定義したユーティリティクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class Futures {
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private Futures() {
+    }
+
+    /**
+     * 引数として渡された {@code source} の結果を、API呼び出し用の新しい {@link CompletableFuture} へ連携して返却します。
+     * <p>
+     * {@code source} が例外で完了した場合、返却される {@link CompletableFuture} は
+     * {@link ApiRequestFailedException} で完了します。返却された {@link CompletableFuture}
+     * がキャンセルされた場合、またはタイムアウトした場合は {@code source} もキャンセルされます。
+     *
+     * @param <T>    結果の型
+     * @param source 連携元の {@link CompletableFuture}
+     * @return {@code source} の結果が連携される新しい {@link CompletableFuture}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    static <T> CompletableFuture<T> forward(@NonNull CompletableFuture<T> source) {
+
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        source.whenComplete((result, throwable) -> {
+            if (throwable == null) {
+                future.complete(result);
+            } else {
+                future.completeExceptionally(toApiRequestFailedException(throwable));
+            }
+        });
+
+        future.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                source.cancel(true);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * 引数として渡された全ての {@link CompletableFuture} の結果を、渡された順序のリストとして返却する
+     * {@link CompletableFuture} を生成します。
+     * <p>
+     * いずれかの {@link CompletableFuture} が例外で完了した場合、返却される {@link CompletableFuture}
+     * は直ちに同一の例外で完了し、未完了の {@link CompletableFuture} は全てキャンセルされます。返却された
+     * {@link CompletableFuture} がキャンセルされた場合も同様に未完了の {@link CompletableFuture}
+     * は全てキャンセルされます。
+     *
+     * @param <T>     結果の型
+     * @param futures 合成対象の {@link CompletableFuture} のリスト
+     * @return 全ての結果をリストとして返却する {@link CompletableFuture}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    static <T> CompletableFuture<List<T>> allAsList(@NonNull List<CompletableFuture<T>> futures) {
+
+        final CompletableFuture<List<T>> aggregate = new CompletableFuture<>();
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).whenComplete((ignore, throwable) -> {
+            if (throwable == null) {
+                final List<T> results = new ArrayList<>(futures.size());
+                futures.forEach(future -> results.add(future.join()));
+                aggregate.complete(results);
+            }
+        });
+
+        futures.forEach(future -> future.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                aggregate.completeExceptionally(unwrap(throwable));
+            }
+        }));
+
+        aggregate.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                futures.forEach(future -> future.cancel(true));
+            }
+        });
+
+        return aggregate;
+    }
+
+    /**
+     * 引数として渡された {@link CompletableFuture} の完了を待機し結果を返却します。
+     *
+     * @param <T>    結果の型
+     * @param future 待機対象の {@link CompletableFuture}
+     * @return {@code future} の結果
+     *
+     * @exception NullPointerException      引数として {@code null} が渡された場合
+     * @exception ApiRequestFailedException {@code future} が例外で完了した場合
+     * @exception CancellationException     {@code future} がキャンセルされた場合
+     */
+    static <T> T join(@NonNull CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw toApiRequestFailedException(e);
+        }
+    }
+
+    /**
+     * 引数として渡された例外を {@link ApiRequestFailedException} に変換して返却します。
+     * <p>
+     * {@link CompletionException} などのラッパー例外は展開されます。展開後の例外が既に
+     * {@link ApiRequestFailedException} または {@link CancellationException} である場合はそのまま返却します。
+     *
+     * @param throwable 変換対象の例外
+     * @return 変換後の例外
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    static RuntimeException toApiRequestFailedException(@NonNull Throwable throwable) {
+
+        final Throwable cause = unwrap(throwable);
+
+        if (cause instanceof ApiRequestFailedException) {
+            return (ApiRequestFailedException) cause;
+        } else if (cause instanceof CancellationException) {
+            return (CancellationException) cause;
+        }
+
+        return new ApiRequestFailedException(cause);
+    }
+
+    /**
+     * {@link CompletionException} および {@link ExecutionException} を展開し原因となった例外を返却します。
+     *
+     * @param throwable 展開対象の例外
+     * @return 原因となった例外
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    static Throwable unwrap(@NonNull Throwable throwable) {
+
+        Throwable cause = throwable;
+
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+
+        return cause;
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+import lombok.NonNull;
+
+/**
+ * 履歴リソースから取得した為替レートを基軸通貨ごとに保持するストアです。
+ * <p>
+ * 公表済みの為替レートは変更されないため、当ストアは取得済みの期間を基軸通貨ごとに記録し、要求された期間のうち未取得の期間のみを為替レートAPIから取得します。
+ * 取得した為替レートは保持済みの為替レートと結合されて返却されます。為替レートが公表されない休業日も取得済みの期間として記録されるため、
+ * 同一の期間に対して繰り返しリクエストが送信されることはありません。欧州中央銀行の現地日付で当日以降の為替レートは今後更新される可能性があるため、
+ * 取得済みの期間としては記録されません。
+ * <p>
+ * 当ストアは指定されたシンボルに関わらず全ての通貨の為替レートを取得して保持し、返却時に指定されたシンボルで絞り込みます。
+ * <p>
+ * ディレクトリを指定して生成した場合、取得済みの為替レートは基軸通貨ごとに {@link RateSeriesFile} 形式のファイルへ永続化され、
+ * プロセスを再起動した後も再利用されます。ファイルは最初に永続化された期間から未来方向へのみ追記されるため、それより前の期間の為替レートはメモリ上にのみ保持されます。
+ * <p>
+ * 当クラスはスレッドセーフであり、複数の {@link CurrencyExchangeRates} で共有することができます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ *
+ * @see CurrencyExchangeRates.Builder#withHistoricalStore(HistoricalRatesStore)
+ */
+public final class HistoricalRatesStore implements Closeable {
+
+    /**
+     * 永続化ファイルの拡張子
+     */
+    private static final String FILE_EXTENSION = ".rates";
+
+    /**
+     * 基軸通貨ごとの時系列
+     */
+    private final ConcurrentMap<Currency, Series> series = new ConcurrentHashMap<>();
+
+    /**
+     * 永続化先のディレクトリ。永続化しない場合は {@code null}
+     */
+    private final Path directory;
+
+    /**
+     * 時計
+     */
+    private final Clock clock;
+
+    /**
+     * デフォルトコンストラクタ。為替レートはメモリ上にのみ保持されます。
+     */
+    public HistoricalRatesStore() {
+        this(null, Clock.systemUTC());
+    }
+
+    /**
+     * コンストラクタ。為替レートは引数として渡されたディレクトリへ永続化されます。
+     *
+     * @param directory 永続化先のディレクトリ
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     * @exception UncheckedIOException ディレクトリの作成に失敗した場合
+     */
+    public HistoricalRatesStore(@NonNull Path directory) {
+        this(directory, Clock.systemUTC());
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * コンストラクタ
+     *
+     * @param directory 永続化先のディレクトリ。永続化しない場合は {@code null}
+     * @param clock     時計
+     *
+     * @exception NullPointerException {@code clock} として {@code null} が渡された場合
+     */
+    HistoricalRatesStore(Path directory, @NonNull Clock clock) {
+        this.directory = directory;
+        this.clock = clock;
+    }
+
+    /**
+     * 引数として渡された期間の為替レートを日付の昇順に並べたリストとして返却します。
+     * <p>
+     * 要求された期間のうち取得済みではない期間のみ {@code loader} を呼び出して取得し、保持済みの為替レートと結合します。
+     * {@code loader} には取得対象の開始日と終了日が渡され、全ての通貨の為替レートを返却する必要があります。
+     *
+     * @param base    基軸通貨
+     * @param startAt 検索開始日
+     * @param endAt   検索終了日
+     * @param symbols 返却する通貨。空の場合は全ての通貨を返却します。
+     * @param loader  指定された期間の為替レートを非同期で取得する処理
+     * @return 日付の昇順に並べた為替レートのリストを返却する {@link CompletableFuture}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    CompletableFuture<List<ExchangeRates>> get(@NonNull Currency base, @NonNull LocalDate startAt,
+            @NonNull LocalDate endAt, @NonNull Collection<Currency> symbols,
+            @NonNull BiFunction<LocalDate, LocalDate, CompletableFuture<List<ExchangeRates>>> loader) {
+
+        final Series series = this.series.computeIfAbsent(base, this::createSeries);
+        final List<CompletableFuture<Void>> loads = new ArrayList<>();
+
+        for (Range<LocalDate> missing : series.missing(startAt, endAt)) {
+            final LocalDate from = missing.lowerEndpoint();
+            final LocalDate to = missing.upperEndpoint().minusDays(1);
+
+            loads.add(loader.apply(from, to).thenAccept(rates -> series.merge(from, to, rates,
+                    EcbPublicationSchedule.today(this.clock.instant()))));
+        }
+
+        return Futures.allAsList(loads).thenApply(ignore -> series.get(startAt, endAt).stream()
+                .map(rates -> rates.select(symbols)).collect(Collectors.toList()));
+    }
+
+    /**
+     * 引数として渡された基軸通貨の保持済みの為替レート数を返却します。
+     *
+     * @param base 基軸通貨
+     * @return 保持済みの為替レート数
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public int size(@NonNull Currency base) {
+        final Series series = this.series.get(base);
+        return series == null ? 0 : series.get(LocalDate.MIN, LocalDate.MAX).size();
+    }
+
+    /**
+     * 永続化ファイルを閉じ、メモリ上に保持している全ての為替レートと取得済みの期間を破棄します。永続化ファイルの内容は削除されません。
+     *
+     * @exception IOException 永続化ファイルを閉じる際に失敗した場合
+     */
+    @Override
+    public void close() throws IOException {
+
+        for (Series series : this.series.values()) {
+            if (series.file != null) {
+                series.file.close();
+            }
+        }
+
+        this.series.clear();
+    }
+
+    /**
+     * 引数として渡された基軸通貨の時系列を生成します。永続化ファイルが存在する場合は、その期間を取得済みの期間として記録します。
+     *
+     * @param base 基軸通貨
+     * @return 時系列
+     *
+     * @exception UncheckedIOException 永続化ファイルの読み込みに失敗した場合
+     */
+    private Series createSeries(Currency base) {
+
+        try {
+            return new Series(base,
+                    this.directory == null ? null : this.directory.resolve(base.getTag() + FILE_EXTENSION));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 特定の基軸通貨に対する為替レートの時系列です。
+     * <p>
+     * 永続化ファイルへ追記された為替レートはメモリ上から破棄され、以降は永続化ファイルから読み込まれます。
+     */
+    private static final class Series {
+
+        /**
+         * 基軸通貨
+         */
+        private final Currency base;
+
+        /**
+         * 永続化ファイルのパス。永続化しない場合は {@code null}
+         */
+        private final Path path;
+
+        /**
+         * 永続化ファイル。永続化ファイルが作成されていない場合は {@code null}
+         */
+        private volatile RateSeriesFile file;
+
+        /**
+         * 永続化されていない日付ごとの為替レート
+         */
+        private final NavigableMap<LocalDate, ExchangeRates> days = new ConcurrentSkipListMap<>();
+
+        /**
+         * 取得済みの期間。各期間は終了日を含まない半開区間で保持します。
+         */
+        private final RangeSet<LocalDate> covered = TreeRangeSet.create();
+
+        /**
+         * コンストラクタ
+         *
+         * @param base 基軸通貨
+         * @param path 永続化ファイルのパス。永続化しない場合は {@code null}
+         *
+         * @exception IOException 永続化ファイルの読み込みに失敗した場合
+         */
+        private Series(Currency base, Path path) throws IOException {
+            this.base = base;
+            this.path = path;
+            this.file = path == null ? null : RateSeriesFile.open(path, base);
+
+            if (this.file != null && this.file.getFirstDate().isBefore(this.file.getEndDate())) {
+                this.covered.add(Range.closedOpen(this.file.getFirstDate(), this.file.getEndDate()));
+            }
+        }
+
+        /**
+         * 引数として渡された期間のうち取得済みではない期間を返却します。
+         *
+         * @param startAt 開始日
+         * @param endAt   終了日
+         * @return 取得済みではない期間のリスト。各期間は終了日を含まない半開区間です。
+         */
+        private synchronized List<Range<LocalDate>> missing(LocalDate startAt, LocalDate endAt) {
+            return new ArrayList<>(
+                    this.covered.complement().subRangeSet(Range.closedOpen(startAt, endAt.plusDays(1))).asRanges());
+        }
+
+        /**
+         * 引数として渡された期間の為替レートを時系列へ結合し、当日より前の期間を取得済みとして記録します。
+         *
+         * @param from  取得した期間の開始日
+         * @param to    取得した期間の終了日
+         * @param rates 取得した為替レート
+         * @param today 欧州中央銀行の現地日付における当日
+         *
+         * @exception UncheckedIOException 永続化ファイルへの書き込みに失敗した場合
+         */
+        private synchronized void merge(LocalDate from, LocalDate to, List<ExchangeRates> rates, LocalDate today) {
+
+            rates.forEach(daily -> this.days.put(daily.getDate(), daily));
+
+            final LocalDate coveredTo = to.isBefore(today) ? to.plusDays(1) : today;
+
+            if (from.isBefore(coveredTo)) {
+                this.covered.add(Range.closedOpen(from, coveredTo));
+
+                try {
+                    this.persist();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        /**
+         * 永続化ファイルの末尾と連続する取得済みの期間を永続化ファイルへ追記し、追記した為替レートをメモリ上から破棄します。
+         * <p>
+         * 永続化ファイルが作成されていない場合は、最も古い取得済みの期間の開始日から始まる永続化ファイルを作成します。
+         *
+         * @exception IOException 永続化ファイルへの書き込みに失敗した場合
+         */
+        private void persist() throws IOException {
+
+            if (this.path == null || this.covered.isEmpty()) {
+                return;
+            }
+
+            if (this.file == null) {
+                this.file = RateSeriesFile.create(this.path, this.base, this.covered.span().lowerEndpoint());
+            }
+
+            final LocalDate fileEnd = this.file.getEndDate();
+            final Range<LocalDate> contiguous = this.covered
+                    .rangeContaining(fileEnd.equals(this.file.getFirstDate()) ? fileEnd : fileEnd.minusDays(1));
+
+            if (contiguous == null || !contiguous.upperEndpoint().isAfter(fileEnd)) {
+                return;
+            }
+
+            final NavigableMap<LocalDate, ExchangeRates> appended = this.days.subMap(fileEnd, true,
+                    contiguous.upperEndpoint(), false);
+
+            this.file.append(fileEnd, contiguous.upperEndpoint().minusDays(1), new ArrayList<>(appended.values()));
+            appended.clear();
+        }
+
+        /**
+         * 引数として渡された期間の為替レートを日付の昇順に並べたリストとして返却します。
+         * <p>
+         * 永続化ファイルへの追記と並行して呼び出された場合でも為替レートが欠落しないよう、メモリ上の為替レートを参照した後に永続化ファイルを参照します。
+         *
+         * @param startAt 開始日
+         * @param endAt   終了日
+         * @return 日付の昇順に並べた為替レートのリスト
+         */
+        private List<ExchangeRates> get(LocalDate startAt, LocalDate endAt) {
+
+            final NavigableMap<LocalDate, ExchangeRates> result = new TreeMap<>(
+                    this.days.subMap(startAt, true, endAt, true));
+            final RateSeriesFile file = this.file;
+
+            if (file != null) {
+                file.range(startAt, endAt).forEach(daily -> result.put(daily.getDate(), daily));
+            }
+
+            return new ArrayList<>(result.values());
+        }
+    }
+}
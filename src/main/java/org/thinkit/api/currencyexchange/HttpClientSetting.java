@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+import com.google.common.cache.CacheBuilder;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 為替レートAPIとの通信で使用する {@link HttpClient} の設定値を管理するクラスです。
+ * <p>
+ * {@link HttpClient} は同一の設定値ごとにJVM全体で共有されます。そのため、リクエスト毎にコネクションプールやTLSセッション、
+ * HTTP/2のコネクションが破棄されることはありません。
+ * <p>
+ * 呼び出し元が指定したエグゼキュータを使用する {@link HttpClient} は弱参照で保持され、参照するインスタンスが存在しなくなった時点で
+ * エグゼキュータと共に解放されます。そのため、リクエストごとに異なるエグゼキュータを指定した場合でも {@link HttpClient} が蓄積することはありません。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString
+@EqualsAndHashCode
+final class HttpClientSetting {
+
+    /**
+     * 接続タイムアウトの初期値
+     */
+    static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * デフォルトの設定値
+     */
+    static final HttpClientSetting DEFAULT = new HttpClientSetting(DEFAULT_CONNECT_TIMEOUT, HttpClient.Version.HTTP_2,
+            null);
+
+    /**
+     * 設定値ごとに共有される、デフォルトのエグゼキュータを使用する {@link HttpClient}
+     */
+    private static final ConcurrentMap<HttpClientSetting, HttpClient> HTTP_CLIENTS = new ConcurrentHashMap<>();
+
+    /**
+     * 設定値ごとに共有される、呼び出し元が指定したエグゼキュータを使用する {@link HttpClient} 。値は弱参照で保持されます。
+     */
+    private static final ConcurrentMap<HttpClientSetting, HttpClient> EXECUTOR_HTTP_CLIENTS = CacheBuilder
+            .newBuilder().weakValues().<HttpClientSetting, HttpClient>build().asMap();
+
+    /**
+     * 接続タイムアウト
+     */
+    @Getter
+    private final Duration connectTimeout;
+
+    /**
+     * 優先するHTTPバージョン
+     */
+    @Getter
+    private final HttpClient.Version version;
+
+    /**
+     * 非同期処理で使用するエグゼキュータ。 {@code null} の場合は {@link HttpClient} のデフォルトを使用します。
+     */
+    private final Executor executor;
+
+    /**
+     * コンストラクタ
+     *
+     * @param connectTimeout 接続タイムアウト
+     * @param version        優先するHTTPバージョン
+     * @param executor       非同期処理で使用するエグゼキュータ
+     *
+     * @exception NullPointerException {@code connectTimeout} または {@code version} として
+     *                                 {@code null} が渡された場合
+     */
+    private HttpClientSetting(@NonNull Duration connectTimeout, @NonNull HttpClient.Version version,
+            Executor executor) {
+        this.connectTimeout = connectTimeout;
+        this.version = version;
+        this.executor = executor;
+    }
+
+    /**
+     * 引数として渡された情報を基に {@link HttpClientSetting} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param connectTimeout 接続タイムアウト
+     * @param version        優先するHTTPバージョン
+     * @param executor       非同期処理で使用するエグゼキュータ。 {@code null} の場合は {@link HttpClient}
+     *                       のデフォルトを使用します。
+     * @return {@link HttpClientSetting} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException {@code connectTimeout} または {@code version} として
+     *                                 {@code null} が渡された場合
+     */
+    static HttpClientSetting of(@NonNull Duration connectTimeout, @NonNull HttpClient.Version version,
+            Executor executor) {
+        return new HttpClientSetting(connectTimeout, version, executor);
+    }
+
+    /**
+     * 当設定値に対応する共有の {@link HttpClient} を返却します。
+     * <p>
+     * 同一の設定値に対する {@link HttpClient} は初回呼び出し時に一度だけ生成され、以降の呼び出しでは同一のインスタンスが返却されます。
+     * エグゼキュータが指定されている場合は、返却された {@link HttpClient} が参照されている間のみ同一のインスタンスが返却されます。
+     *
+     * @return 当設定値に対応する共有の {@link HttpClient}
+     */
+    HttpClient getHttpClient() {
+        return (this.executor == null ? HTTP_CLIENTS : EXECUTOR_HTTP_CLIENTS).computeIfAbsent(this,
+                HttpClientSetting::createHttpClient);
+    }
+
+    /**
+     * 当設定値を基に {@link HttpClient} の新しいインスタンスを生成し返却します。
+     *
+     * @return {@link HttpClient} の新しいインスタンス
+     */
+    private HttpClient createHttpClient() {
+
+        final HttpClient.Builder builder = HttpClient.newBuilder().connectTimeout(this.connectTimeout)
+                .version(this.version).followRedirects(HttpClient.Redirect.NORMAL);
+
+        if (this.executor != null) {
+            builder.executor(this.executor);
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,596 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 登録された最新リソースの為替レートをバックグラウンドで定期的に取得し、常に取得済みの為替レートを返却できる状態に保つクラスです。
+ * <p>
+ * 各為替レートは生存期間が経過する前に先行して再取得されます。再取得の時刻は無作為にずらされるため、多数の為替レートを登録した場合でも再取得は同時に集中しません。
+ * 公表時刻を考慮する設定が有効な場合は、欧州中央銀行の公表時刻の直後にも再取得されます。再取得に失敗した場合は取得済みの為替レートを保持したまま、待機時間を倍増させながら再試行します。
+ * <p>
+ * 取得した為替レートは全ての購読の為替レートを含むバージョン付きの不変な {@link RatesSnapshot} として1つのアトミックな参照を通じて公開されるため、
+ * {@link #snapshot()} メソッドおよび {@link #get(Currency, Collection)}
+ * メソッドはロックの取得や為替レートAPIとの通信を行わずに、一部のみが更新された状態を含まない一貫した為替レートを返却します。
+ * <p>
+ * 当クラスはスレッドセーフです。
+ *
+ * <pre>
+ * try (LatestRatesRefresher refresher = LatestRatesRefresher.builder().withRequest(api).build()) {
+ *     refresher.start().join();
+ *     Optional&lt;ExchangeRates&gt; rates = refresher.get(Currency.USA_DOLLAR, List.of(Currency.JAPANESE_YEN));
+ * }
+ * </pre>
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+public final class LatestRatesRefresher implements Closeable {
+
+    /**
+     * 再取得に失敗した際の再試行までの待機時間の初期値
+     */
+    private static final Duration INITIAL_RETRY_DELAY = Duration.ofSeconds(1);
+
+    /**
+     * 基軸通貨とシンボルごとの購読
+     */
+    private final Collection<Subscription> subscriptions;
+
+    /**
+     * 最新のスナップショット
+     */
+    private final AtomicReference<RatesSnapshot> snapshot = new AtomicReference<>(RatesSnapshot.EMPTY);
+
+    /**
+     * 為替レートの生存期間
+     */
+    private final Duration timeToLive;
+
+    /**
+     * 生存期間が経過する何秒前に再取得するか
+     */
+    private final Duration refreshAhead;
+
+    /**
+     * 再取得の時刻を無作為にずらす幅
+     */
+    private final Duration jitter;
+
+    /**
+     * 公表時刻を考慮するか否か
+     */
+    private final boolean publicationAware;
+
+    /**
+     * 再取得を実行するスケジューラ
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * スケジューラを当クラスが生成したか否か
+     */
+    private final boolean ownsScheduler;
+
+    /**
+     * 時計
+     */
+    private final Clock clock;
+
+    /**
+     * 取得を開始したか否か
+     */
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    /**
+     * 全ての購読の初回の取得が完了した際に完了する {@link CompletableFuture}
+     */
+    private final CompletableFuture<Void> initialLoad = new CompletableFuture<>();
+
+    /**
+     * 閉じられたか否か
+     */
+    private volatile boolean closed;
+
+    /**
+     * コンストラクタ
+     *
+     * @param builder ビルダー
+     */
+    private LatestRatesRefresher(Builder builder) {
+
+        this.subscriptions = builder.requests.values().stream().map(Subscription::new)
+                .collect(Collectors.toUnmodifiableList());
+        this.timeToLive = builder.timeToLive;
+        this.refreshAhead = builder.refreshAhead;
+        this.jitter = builder.jitter;
+        this.publicationAware = builder.publicationAware;
+        this.ownsScheduler = builder.scheduler == null;
+        this.scheduler = this.ownsScheduler ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "currency-exchange-refresher");
+            thread.setDaemon(true);
+            return thread;
+        }) : builder.scheduler;
+        this.clock = builder.clock;
+    }
+
+    /**
+     * {@link LatestRatesRefresher} クラスのインスタンスを生成するビルダークラスを返却します。
+     *
+     * @return {@link LatestRatesRefresher} クラスのインスタンスを生成するビルダークラス
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * {@link LatestRatesRefresher} クラスのインスタンスを生成するビルダークラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0
+     * @version 1.0
+     *
+     * @see #withRequest(CurrencyExchangeRates)
+     * @see #withTimeToLive(Duration)
+     * @see #withRefreshAhead(Duration)
+     * @see #withJitter(Duration)
+     * @see #withPublicationAware(boolean)
+     * @see #withScheduler(ScheduledExecutorService)
+     * @see #build()
+     */
+    public static class Builder {
+
+        /**
+         * 基軸通貨とシンボルごとの定期的に取得するリクエスト
+         */
+        private final Map<Map.Entry<Currency, Set<Currency>>, CurrencyExchangeRates> requests = new LinkedHashMap<>();
+
+        /**
+         * 為替レートの生存期間
+         */
+        private Duration timeToLive = Duration.ofHours(1);
+
+        /**
+         * 生存期間が経過する何秒前に再取得するか
+         */
+        private Duration refreshAhead = Duration.ofMinutes(5);
+
+        /**
+         * 再取得の時刻を無作為にずらす幅
+         */
+        private Duration jitter = Duration.ofSeconds(30);
+
+        /**
+         * 公表時刻を考慮するか否か
+         */
+        private boolean publicationAware = true;
+
+        /**
+         * 再取得を実行するスケジューラ
+         */
+        private ScheduledExecutorService scheduler;
+
+        /**
+         * 時計
+         */
+        private Clock clock = Clock.systemUTC();
+
+        /**
+         * デフォルトコンストラクタ
+         */
+        private Builder() {
+        }
+
+        /**
+         * 定期的に取得する最新リソースのリクエストを追加します。リクエストは基軸通貨とシンボルの組み合わせで識別され、同一の組み合わせのリクエストは後から追加したもので置き換えられます。
+         *
+         * @param request 最新リソースのリクエスト
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     引数として {@code null} が渡された場合
+         * @exception IllegalArgumentException 最新リソース以外のリクエストが渡された場合
+         */
+        public Builder withRequest(@NonNull CurrencyExchangeRates request) {
+
+            if (request.getResource() != CurrencyExchangeRatesResource.LATEST) {
+                throw new IllegalArgumentException(
+                        String.format("Only LATEST requests can be refreshed: %s", request.getResource()));
+            }
+
+            this.requests.put(Map.entry(request.getBase(), Set.copyOf(request.getSymbols())), request);
+            return this;
+        }
+
+        /**
+         * 為替レートの生存期間を設定します。取得した為替レートは生存期間が経過する前に再取得されます。
+         * <p>
+         * 初期値として1時間が設定されています。
+         *
+         * @param timeToLive 為替レートの生存期間
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     引数として {@code null} が渡された場合
+         * @exception IllegalArgumentException 引数として {@code 0} 以下の期間が渡された場合
+         */
+        public Builder withTimeToLive(@NonNull Duration timeToLive) {
+            this.timeToLive = requirePositive(timeToLive);
+            return this;
+        }
+
+        /**
+         * 生存期間が経過する何秒前に再取得するかを設定します。生存期間より長い期間を設定した場合は、取得直後に再取得されます。
+         * <p>
+         * 初期値として5分が設定されています。
+         *
+         * @param refreshAhead 生存期間が経過する前に再取得するまでの期間
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     引数として {@code null} が渡された場合
+         * @exception IllegalArgumentException 引数として負の期間が渡された場合
+         */
+        public Builder withRefreshAhead(@NonNull Duration refreshAhead) {
+            this.refreshAhead = requireNotNegative(refreshAhead);
+            return this;
+        }
+
+        /**
+         * 再取得の時刻を無作為にずらす幅を設定します。
+         * <p>
+         * 生存期間に基づく再取得は指定された幅だけ早められ、公表時刻に基づく再取得は指定された幅だけ遅らされます。初期値として30秒が設定されています。
+         *
+         * @param jitter 再取得の時刻を無作為にずらす幅
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     引数として {@code null} が渡された場合
+         * @exception IllegalArgumentException 引数として負の期間が渡された場合
+         */
+        public Builder withJitter(@NonNull Duration jitter) {
+            this.jitter = requireNotNegative(jitter);
+            return this;
+        }
+
+        /**
+         * 欧州中央銀行の公表時刻の直後に再取得するか否かを設定します。
+         * <p>
+         * 初期値として {@code true} が設定されています。
+         *
+         * @param publicationAware 公表時刻の直後に再取得する場合は {@code true} 、それ以外の場合は {@code false}
+         * @return 自分自身のインスタンス
+         */
+        public Builder withPublicationAware(boolean publicationAware) {
+            this.publicationAware = publicationAware;
+            return this;
+        }
+
+        /**
+         * 再取得を実行するスケジューラを設定します。
+         * <p>
+         * 当メソッドを呼び出さない場合は、当クラス専用のスケジューラを生成し {@link LatestRatesRefresher#close()}
+         * メソッドで停止します。渡されたスケジューラのライフサイクルは呼び出し元で管理してください。
+         *
+         * @param scheduler 再取得を実行するスケジューラ
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withScheduler(@NonNull ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * 再取得の時刻の算出に使用する時計を設定します。
+         *
+         * @param clock 時計
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        Builder withClock(@NonNull Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * 設定された値を基に {@link LatestRatesRefresher} クラスの新しいインスタンスを生成し返却します。
+         * <p>
+         * 生成されたインスタンスは {@link LatestRatesRefresher#start()} メソッドが呼び出されるまで為替レートを取得しません。
+         *
+         * @return {@link LatestRatesRefresher} クラスの新しいインスタンス
+         */
+        public LatestRatesRefresher build() {
+            return new LatestRatesRefresher(this);
+        }
+
+        /**
+         * 引数として渡された期間が {@code 0} より大きいことを検証し、そのまま返却します。
+         *
+         * @param duration 検証対象の期間
+         * @return 引数として渡された期間
+         *
+         * @exception IllegalArgumentException 引数として {@code 0} 以下の期間が渡された場合
+         */
+        private static Duration requirePositive(Duration duration) {
+
+            if (duration.isZero() || duration.isNegative()) {
+                throw new IllegalArgumentException(String.format("Duration must be positive: %s", duration));
+            }
+
+            return duration;
+        }
+
+        /**
+         * 引数として渡された期間が負ではないことを検証し、そのまま返却します。
+         *
+         * @param duration 検証対象の期間
+         * @return 引数として渡された期間
+         *
+         * @exception IllegalArgumentException 引数として負の期間が渡された場合
+         */
+        private static Duration requireNotNegative(Duration duration) {
+
+            if (duration.isNegative()) {
+                throw new IllegalArgumentException(String.format("Duration must not be negative: %s", duration));
+            }
+
+            return duration;
+        }
+    }
+
+    /**
+     * 登録された全てのリクエストの取得を開始し、以降は定期的に再取得します。
+     * <p>
+     * 返却される {@link CompletableFuture} は全てのリクエストの初回の取得が完了した際に完了します。初回の取得に失敗したリクエストは、
+     * 返却される {@link CompletableFuture} を失敗させることなくバックグラウンドで再試行されます。
+     * <p>
+     * 当メソッドを複数回呼び出した場合、取得を開始するのは最初の呼び出しのみです。2回目以降の呼び出しは定期的な再取得を重複して予約せず、
+     * 最初の呼び出しと同一の初回の取得の完了を待つ {@link CompletableFuture} を返却します。
+     *
+     * @return 全てのリクエストの初回の取得が完了した際に完了する {@link CompletableFuture}
+     *
+     * @exception IllegalStateException 既に閉じられている場合
+     */
+    public CompletableFuture<Void> start() {
+
+        if (this.closed) {
+            throw new IllegalStateException("Refresher is already closed");
+        }
+
+        if (this.started.compareAndSet(false, true)) {
+            CompletableFuture.allOf(this.subscriptions.stream().map(subscription -> this.refresh(subscription, 0))
+                    .toArray(CompletableFuture<?>[]::new)).whenComplete((result, throwable) -> {
+                        if (throwable == null) {
+                            this.initialLoad.complete(null);
+                        } else {
+                            this.initialLoad.completeExceptionally(throwable);
+                        }
+                    });
+        }
+
+        return this.initialLoad.copy();
+    }
+
+    /**
+     * 最新のスナップショットを返却します。当メソッドはスレッドをブロックせず、為替レートAPIとの通信も行いません。
+     * <p>
+     * 返却されたスナップショットは不変であるため、複数の為替レートを組み合わせる計算では同一のスナップショットを参照し続けることで、
+     * 計算の途中で再取得が完了した場合でも一貫した為替レートを使用できます。
+     *
+     * @return 最新のスナップショット
+     */
+    public RatesSnapshot snapshot() {
+        return this.snapshot.get();
+    }
+
+    /**
+     * 引数として渡された基軸通貨とシンボルの最新の為替レートを返却します。当メソッドはスレッドをブロックせず、為替レートAPIとの通信も行いません。
+     * <p>
+     * 同一の基軸通貨とシンボルで登録されたリクエストが存在しない場合は、同一の基軸通貨で指定されたシンボルを全て含むリクエストの為替レートを絞り込んで返却します。
+     * 複数の為替レートを一貫した状態で参照する場合は {@link #snapshot()} メソッドを使用してください。
+     *
+     * @param base    基軸通貨
+     * @param symbols シンボル。空の場合は全ての通貨を返却します。
+     * @return 最新の為替レート。該当するリクエストが登録されていない場合、または未だ取得されていない場合は空
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public Optional<ExchangeRates> get(@NonNull Currency base, @NonNull Collection<Currency> symbols) {
+        return this.snapshot.get().get(base, symbols);
+    }
+
+    /**
+     * 定期的な再取得を停止します。当クラスが生成したスケジューラは停止されます。停止後も取得済みの為替レートは参照できます。
+     */
+    @Override
+    public void close() {
+
+        this.closed = true;
+
+        this.subscriptions.forEach(subscription -> {
+            final ScheduledFuture<?> next = subscription.next.getAndSet(null);
+
+            if (next != null) {
+                next.cancel(false);
+            }
+        });
+
+        if (this.ownsScheduler) {
+            this.scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 引数として渡された購読の為替レートを取得し、取得結果に応じて次の再取得を予約します。
+     *
+     * @param subscription 購読
+     * @param failures     直前までに連続して失敗した回数
+     * @return 取得が完了した際に完了する {@link CompletableFuture}
+     */
+    private CompletableFuture<Void> refresh(Subscription subscription, int failures) {
+
+        if (this.closed) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final CompletableFuture<List<ExchangeRates>> fetched;
+
+        try {
+            fetched = subscription.request.fetchAsync();
+        } catch (RuntimeException e) {
+            this.scheduleRetry(subscription, failures + 1);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return fetched.handle((rates, throwable) -> {
+            if (throwable != null || rates.isEmpty()) {
+                this.scheduleRetry(subscription, failures + 1);
+            } else {
+                this.publish(subscription, rates.get(0));
+                this.schedule(subscription, this.nextRefreshDelay(this.clock.instant()), 0);
+            }
+
+            return null;
+        });
+    }
+
+    /**
+     * 引数として渡された為替レートで購読の為替レートを置き換えた新しいバージョンのスナップショットを公開します。
+     * <p>
+     * スナップショットは比較と交換により差し替えられるため、複数の購読が同時に公開された場合でもいずれかの更新が失われることはありません。
+     *
+     * @param subscription 購読
+     * @param rates        取得した為替レート
+     */
+    private void publish(Subscription subscription, ExchangeRates rates) {
+
+        final CurrencyExchangeRates request = subscription.request;
+        final Instant publishedAt = this.clock.instant();
+
+        this.snapshot.updateAndGet(
+                current -> current.with(request.getBase(), request.getSymbols(), rates, publishedAt));
+    }
+
+    /**
+     * 連続した失敗回数に応じて待機時間を倍増させ、再試行を予約します。待機時間は生存期間を超えません。
+     *
+     * @param subscription 購読
+     * @param failures     連続して失敗した回数
+     */
+    private void scheduleRetry(Subscription subscription, int failures) {
+
+        final long ceiling = this.timeToLive.toNanos();
+        final long delay = INITIAL_RETRY_DELAY.toNanos() << Math.min(failures - 1, 30);
+
+        this.schedule(subscription, Math.min(ceiling, delay) + this.randomJitter(), failures);
+    }
+
+    /**
+     * 指定された待機時間の経過後に再取得を予約します。
+     *
+     * @param subscription 購読
+     * @param delay        待機時間（ナノ秒）
+     * @param failures     連続して失敗した回数
+     */
+    private void schedule(Subscription subscription, long delay, int failures) {
+
+        if (this.closed) {
+            return;
+        }
+
+        try {
+            subscription.next.set(this.scheduler.schedule(() -> this.refresh(subscription, failures),
+                    Math.max(0, delay), TimeUnit.NANOSECONDS));
+        } catch (RuntimeException e) {
+            if (!this.closed) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 取得が完了した時刻を基に、次の再取得までの待機時間を算出します。
+     * <p>
+     * 生存期間が経過する時刻から先行期間と無作為な幅を差し引いた時刻に再取得します。公表時刻を考慮する設定が有効であり、それより前に公表時刻が到来する場合は、
+     * 公表時刻に無作為な幅を加えた時刻に再取得します。
+     *
+     * @param now 取得が完了した時刻
+     * @return 次の再取得までの待機時間（ナノ秒）
+     */
+    private long nextRefreshDelay(Instant now) {
+
+        final long aheadOfExpiry = this.timeToLive.minus(this.refreshAhead).toNanos() - this.randomJitter();
+
+        if (this.publicationAware) {
+            final long untilPublication = Duration.between(now, EcbPublicationSchedule.nextPublication(now)).toNanos();
+
+            if (untilPublication < aheadOfExpiry) {
+                return untilPublication + this.randomJitter();
+            }
+        }
+
+        return aheadOfExpiry;
+    }
+
+    /**
+     * {@code 0} 以上、再取得の時刻を無作為にずらす幅以下の無作為な期間を返却します。
+     *
+     * @return 無作為な期間（ナノ秒）
+     */
+    private long randomJitter() {
+        return this.jitter.isZero() ? 0 : ThreadLocalRandom.current().nextLong(this.jitter.toNanos() + 1);
+    }
+
+    /**
+     * 定期的に取得するリクエストと、予約済みの次の再取得を保持する購読です。
+     */
+    @RequiredArgsConstructor
+    private static final class Subscription {
+
+        /**
+         * 定期的に取得するリクエスト
+         */
+        private final CurrencyExchangeRates request;
+
+        /**
+         * 予約済みの次の再取得
+         */
+        private final AtomicReference<ScheduledFuture<?>> next = new AtomicReference<>();
+    }
+}
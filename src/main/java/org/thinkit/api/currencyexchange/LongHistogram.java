@@ -0,0 +1,224 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.ToString;
+
+/**
+ * 0以上の値の分布をロックを使用せずに記録するヒストグラムです。
+ * <p>
+ * 値は2の冪ごとの区間をさらに32等分したバケットへ記録されるため、百分位数の相対誤差は約3%以内に収まります。記録は固定長の配列に対する
+ * アトミックな加算のみで行われ、記録時にオブジェクトを生成しません。複数のスレッドから同時に記録する場合でもブロックしませんが、
+ * 記録中に取得した統計値は直近の記録を含まない場合があります。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public final class LongHistogram {
+
+    /**
+     * 2の冪ごとの区間を分割するバケット数のビット数
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * 2の冪ごとの区間を分割するバケット数
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * バケット数
+     */
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT * (Long.SIZE - SUB_BUCKET_BITS);
+
+    /**
+     * バケットごとの記録数
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * 記録数
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * 記録された値の合計
+     */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * 記録された値の最大値
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    LongHistogram() {
+    }
+
+    /**
+     * 値を記録します。負の値は {@code 0} として記録されます。
+     *
+     * @param value 記録する値
+     */
+    public void record(long value) {
+
+        final long recorded = Math.max(value, 0);
+
+        this.buckets.incrementAndGet(bucketIndex(recorded));
+        this.count.increment();
+        this.sum.add(recorded);
+
+        long current = this.max.get();
+
+        while (recorded > current && !this.max.compareAndSet(current, recorded)) {
+            current = this.max.get();
+        }
+    }
+
+    /**
+     * 記録数を返却します。
+     *
+     * @return 記録数
+     */
+    @ToString.Include(name = "count")
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * 記録された値の最大値を返却します。値が記録されていない場合は {@code 0} を返却します。
+     *
+     * @return 記録された値の最大値
+     */
+    @ToString.Include(name = "max")
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * 記録された値の平均値を返却します。値が記録されていない場合は {@code 0.0} を返却します。
+     *
+     * @return 記録された値の平均値
+     */
+    @ToString.Include(name = "mean")
+    public double getMean() {
+        final long count = this.count.sum();
+        return count == 0 ? 0.0 : (double) this.sum.sum() / count;
+    }
+
+    /**
+     * 引数として渡された百分位数に対応する値を返却します。
+     * <p>
+     * 返却される値は該当するバケットの上限値であり、記録された値の最大値を超えることはありません。値が記録されていない場合は {@code 0} を返却します。
+     *
+     * @param percentile 百分位数（{@code 0.0} 以上 {@code 100.0} 以下）
+     * @return 百分位数に対応する値
+     *
+     * @exception IllegalArgumentException 百分位数が範囲外の場合
+     */
+    public long getValueAtPercentile(double percentile) {
+
+        if (!(percentile >= 0.0 && percentile <= 100.0)) {
+            throw new IllegalArgumentException(String.format("Percentile must be between 0 and 100: %s", percentile));
+        }
+
+        final long total = this.count.sum();
+
+        if (total == 0) {
+            return 0;
+        }
+
+        final long target = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long accumulated = 0;
+
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            accumulated += this.buckets.get(index);
+
+            if (accumulated >= target) {
+                return Math.min(highestValueOf(index), this.max.get());
+            }
+        }
+
+        return this.max.get();
+    }
+
+    /**
+     * 中央値を返却します。
+     *
+     * @return 中央値
+     *
+     * @see #getValueAtPercentile(double)
+     */
+    @ToString.Include(name = "median")
+    public long getMedian() {
+        return this.getValueAtPercentile(50.0);
+    }
+
+    /**
+     * 99パーセンタイル値を返却します。
+     *
+     * @return 99パーセンタイル値
+     *
+     * @see #getValueAtPercentile(double)
+     */
+    @ToString.Include(name = "p99")
+    public long get99thPercentile() {
+        return this.getValueAtPercentile(99.0);
+    }
+
+    /**
+     * 引数として渡された値を記録するバケットの添字を返却します。
+     *
+     * @param value 0以上の値
+     * @return バケットの添字
+     */
+    static int bucketIndex(long value) {
+
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+
+        return SUB_BUCKET_COUNT * (shift + 1) + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    /**
+     * 引数として渡された添字のバケットに記録される値の上限値を返却します。
+     *
+     * @param index バケットの添字
+     * @return バケットに記録される値の上限値
+     */
+    static long highestValueOf(int index) {
+
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        final int shift = index / SUB_BUCKET_COUNT - 1;
+        final long lowest = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.IOException;
+
+/**
+ * Thrown to indicate that a response body of the exchange rates API could
+ * not be decoded or parsed, or that its content does not match the request.
+ * <p>
+ * Unlike the {@link IOException}s raised while the response is transferred,
+ * this exception means that the complete response was received and rejected,
+ * so sending the same request again is not expected to succeed.
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+public final class MalformedResponseException extends IOException {
+
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 0L;
+
+    /**
+     * Constructs a <code>MalformedResponseException</code> with the specified
+     * detail message.
+     *
+     * @param message the detail message.
+     */
+    public MalformedResponseException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructs a <code>MalformedResponseException</code> with the specified
+     * cause and a detail message of
+     * <tt>(cause==null ? null : cause.toString())</tt>.
+     *
+     * @param cause the cause (which is saved for later retrieval by the
+     *              {@link Throwable#getCause()} method).
+     */
+    public MalformedResponseException(Throwable cause) {
+        super(cause);
+    }
+}
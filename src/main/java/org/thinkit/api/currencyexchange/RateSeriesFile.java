@@ -0,0 +1,594 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+import lombok.NonNull;
+
+/**
+ * 特定の基軸通貨に対する為替レートの時系列を列指向のバイナリ形式で永続化するファイルです。
+ * <p>
+ * ファイルは固定長のヘッダーと、 {@link Currency} のコード値ごとの {@code double} 型の列で構成されます。各列は開始日からの経過日数を添字とし、
+ * 為替レートが存在しない日付には {@link Double#NaN} が格納されます。ファイルは {@link FileChannel#map} でメモリへマップされるため、
+ * 起動時に為替レートを読み込む必要はありません。
+ * <p>
+ * 為替レートは末尾への追記のみが可能です。追記時は為替レートを書き込んでディスクへ反映した後にヘッダーの日数を更新するため、
+ * 書き込みの途中でプロセスが停止した場合でも、ヘッダーに記録された日数までの為替レートは常に整合した状態で読み込まれます。
+ * 容量が不足した場合は一時ファイルへ複写した上でアトミックに置き換えます。マップされたままのファイルは置き換えられないプラットフォームがあるため、
+ * 置き換えの前に元のファイルのマップを解放しチャネルを閉じます。
+ * <p>
+ * 追記は排他的に行われ、読み込みは追記と並行して複数のスレッドから同時に行うことができます。読み込み時は記録済みの日数を参照した後にマップを参照するため、
+ * 追記中の為替レートが読み込まれることはありません。読み込みはマップの解放と排他されるため、解放済みのマップが参照されることはありません。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class RateSeriesFile implements Closeable {
+
+    /**
+     * ファイル形式を識別するマジックナンバー
+     */
+    private static final int MAGIC = 0x45435246;
+
+    /**
+     * ファイル形式のバージョン
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * ヘッダーのバイト数
+     */
+    private static final int HEADER_SIZE = 64;
+
+    /**
+     * 基軸通貨のコード値の位置
+     */
+    private static final int BASE_OFFSET = 8;
+
+    /**
+     * 列の容量の位置
+     */
+    private static final int CAPACITY_OFFSET = 12;
+
+    /**
+     * 開始日の位置
+     */
+    private static final int FIRST_DAY_OFFSET = 16;
+
+    /**
+     * 日数の位置
+     */
+    private static final int COUNT_OFFSET = 24;
+
+    /**
+     * 列の容量の初期値（日数）
+     */
+    private static final int INITIAL_CAPACITY = 366;
+
+    /**
+     * 列数
+     */
+    private static final int COLUMN_COUNT = ExchangeRates.CURRENCY_COUNT;
+
+    /**
+     * 列挙子の配列
+     */
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    /**
+     * 列の容量の上限（日数）
+     */
+    private static final int MAXIMUM_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / (COLUMN_COUNT * Double.BYTES);
+
+    /**
+     * メモリへのマップを解放するメソッド。実行中のJDKがサポートしない場合は {@code null}
+     */
+    private static final MethodHandle UNMAPPER = findUnmapper();
+
+    /**
+     * ファイルのパス
+     */
+    private final Path path;
+
+    /**
+     * 基軸通貨
+     */
+    private final Currency base;
+
+    /**
+     * 開始日のエポック日
+     */
+    private final long firstDay;
+
+    /**
+     * ファイルチャネル
+     */
+    private FileChannel channel;
+
+    /**
+     * メモリへマップされたファイル
+     */
+    private volatile MappedByteBuffer buffer;
+
+    /**
+     * 列の容量（日数）
+     */
+    private int capacity;
+
+    /**
+     * 記録済みの日数
+     */
+    private volatile int count;
+
+    /**
+     * 読み込みとマップの解放を排他するロック
+     */
+    private final StampedLock mappingLock = new StampedLock();
+
+    /**
+     * コンストラクタ
+     *
+     * @param path     ファイルのパス
+     * @param base     基軸通貨
+     * @param firstDay 開始日のエポック日
+     * @param channel  ファイルチャネル
+     * @param buffer   メモリへマップされたファイル
+     * @param capacity 列の容量
+     * @param count    記録済みの日数
+     */
+    private RateSeriesFile(Path path, Currency base, long firstDay, FileChannel channel, MappedByteBuffer buffer,
+            int capacity, int count) {
+        this.path = path;
+        this.base = base;
+        this.firstDay = firstDay;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.count = count;
+    }
+
+    /**
+     * 引数として渡されたパスのファイルを開き返却します。ファイルが存在しない場合は {@code null} を返却します。
+     *
+     * @param path ファイルのパス
+     * @param base 基軸通貨
+     * @return 開かれたファイル。ファイルが存在しない場合は {@code null}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     * @exception IOException          ファイルの読み込みに失敗した場合、またはファイルの形式やヘッダーが不正な場合
+     */
+    static RateSeriesFile open(@NonNull Path path, @NonNull Currency base) throws IOException {
+
+        if (!Files.exists(path)) {
+            return null;
+        }
+
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException(String.format("Not a rate series file: %s", path));
+            }
+
+            if (buffer.getInt(BASE_OFFSET) != base.getCode()) {
+                throw new IOException(String.format("Rate series file %s is not based on %s", path, base.getTag()));
+            }
+
+            final int capacity = buffer.getInt(CAPACITY_OFFSET);
+            final int count = buffer.getInt(COUNT_OFFSET);
+
+            if (capacity < 0 || capacity > MAXIMUM_CAPACITY || count < 0 || count > capacity) {
+                throw new IOException(String.format("Rate series file has a corrupt header: %s (capacity=%d, count=%d)",
+                        path, capacity, count));
+            }
+
+            if (buffer.capacity() < fileSize(capacity)) {
+                throw new IOException(String.format("Rate series file is truncated: %s", path));
+            }
+
+            return new RateSeriesFile(path, base, buffer.getLong(FIRST_DAY_OFFSET), channel, buffer, capacity, count);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 引数として渡された開始日から始まる空のファイルを作成し返却します。既にファイルが存在する場合は置き換えます。
+     *
+     * @param path     ファイルのパス
+     * @param base     基軸通貨
+     * @param firstDay 開始日
+     * @return 作成されたファイル
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     * @exception IOException          ファイルの作成に失敗した場合
+     */
+    static RateSeriesFile create(@NonNull Path path, @NonNull Currency base, @NonNull LocalDate firstDay)
+            throws IOException {
+        writeFile(path, base, firstDay.toEpochDay(), INITIAL_CAPACITY, null, 0);
+        return open(path, base);
+    }
+
+    /**
+     * 記録済みの期間の開始日を返却します。
+     *
+     * @return 開始日
+     */
+    LocalDate getFirstDate() {
+        return LocalDate.ofEpochDay(this.firstDay);
+    }
+
+    /**
+     * 記録済みの期間の終了日の翌日を返却します。
+     *
+     * @return 終了日の翌日
+     */
+    LocalDate getEndDate() {
+        return LocalDate.ofEpochDay(this.firstDay + this.count);
+    }
+
+    /**
+     * 引数として渡された日付と通貨の為替レートを返却します。
+     *
+     * @param date     日付
+     * @param currency 通貨
+     * @return 為替レート。為替レートが存在しない場合は {@link Double#NaN}
+     *
+     * @exception NullPointerException  引数として {@code null} が渡された場合
+     * @exception IllegalStateException ファイルの拡張に失敗してマップが解放されたままの場合
+     */
+    double rate(@NonNull LocalDate date, @NonNull Currency currency) {
+
+        final long index = date.toEpochDay() - this.firstDay;
+        final int count = this.count;
+
+        if (index < 0 || index >= count) {
+            return Double.NaN;
+        }
+
+        final long stamp = this.mappingLock.readLock();
+
+        try {
+            final MappedByteBuffer buffer = this.mapped();
+            return buffer.getDouble(offset(this.capacityOf(buffer), currency.getCode(), (int) index));
+        } finally {
+            this.mappingLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 引数として渡された期間のうち為替レートが存在する日付の為替レートを、日付の昇順に並べたリストとして返却します。
+     *
+     * @param startAt 開始日
+     * @param endAt   終了日
+     * @return 日付の昇順に並べた為替レートのリスト
+     *
+     * @exception NullPointerException  引数として {@code null} が渡された場合
+     * @exception IllegalStateException ファイルの拡張に失敗してマップが解放されたままの場合
+     */
+    List<ExchangeRates> range(@NonNull LocalDate startAt, @NonNull LocalDate endAt) {
+
+        final int count = this.count;
+        final int from = (int) Math.max(0, startAt.toEpochDay() - this.firstDay);
+        final int to = (int) Math.min(count - 1L, endAt.toEpochDay() - this.firstDay);
+        final List<ExchangeRates> result = new ArrayList<>(Math.max(0, to - from + 1));
+        final long stamp = this.mappingLock.readLock();
+
+        try {
+            final MappedByteBuffer buffer = this.mapped();
+            final int capacity = this.capacityOf(buffer);
+
+            for (int index = from; index <= to; index++) {
+                final double[] rates = new double[COLUMN_COUNT];
+                boolean present = false;
+
+                for (int column = 0; column < COLUMN_COUNT; column++) {
+                    rates[column] = buffer.getDouble(offset(capacity, column, index));
+                    present |= !Double.isNaN(rates[column]);
+                }
+
+                if (present) {
+                    result.add(ExchangeRates.of(this.base, LocalDate.ofEpochDay(this.firstDay + index), rates));
+                }
+            }
+        } finally {
+            this.mappingLock.unlockRead(stamp);
+        }
+
+        return result;
+    }
+
+    /**
+     * 引数として渡された期間の為替レートをファイルの末尾へ追記します。
+     * <p>
+     * 期間の開始日は記録済みの期間の終了日の翌日以前である必要があります。記録済みの日付の為替レートは無視され、期間内で為替レートが存在しない日付には
+     * {@link Double#NaN} が記録されます。
+     *
+     * @param startAt 追記する期間の開始日
+     * @param endAt   追記する期間の終了日
+     * @param rates   追記する為替レート
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 期間の開始日が記録済みの期間と連続していない場合
+     * @exception IOException              ファイルへの書き込みに失敗した場合
+     * @exception IllegalStateException    ファイルの拡張に失敗してマップが解放されたままの場合
+     */
+    synchronized void append(@NonNull LocalDate startAt, @NonNull LocalDate endAt, @NonNull List<ExchangeRates> rates)
+            throws IOException {
+
+        if (startAt.toEpochDay() > this.firstDay + this.count) {
+            throw new IllegalArgumentException(
+                    String.format("Appended range must start on or before %s: %s", this.getEndDate(), startAt));
+        }
+
+        final long newCount = endAt.toEpochDay() - this.firstDay + 1;
+
+        if (newCount <= this.count) {
+            return;
+        }
+
+        if (newCount > MAXIMUM_CAPACITY) {
+            throw new IllegalArgumentException(String.format("Range is too long: %s", endAt));
+        }
+
+        this.mapped();
+
+        if (newCount > this.capacity) {
+            this.grow((int) newCount);
+        }
+
+        final MappedByteBuffer buffer = this.mapped();
+
+        for (int index = this.count; index < newCount; index++) {
+            for (int column = 0; column < COLUMN_COUNT; column++) {
+                buffer.putDouble(offset(this.capacity, column, index), Double.NaN);
+            }
+        }
+
+        for (ExchangeRates daily : rates) {
+            final long index = daily.getDate().toEpochDay() - this.firstDay;
+
+            if (index >= this.count && index < newCount) {
+                for (int column = 0; column < COLUMN_COUNT; column++) {
+                    buffer.putDouble(offset(this.capacity, column, (int) index), daily.rate(CURRENCIES[column]));
+                }
+            }
+        }
+
+        buffer.force();
+        buffer.putInt(COUNT_OFFSET, (int) newCount);
+        buffer.force();
+
+        this.count = (int) newCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * 容量が指定された日数以上となるようにファイルを拡張します。
+     * <p>
+     * 拡張後のファイルは一時ファイルへ書き込まれた後に元のファイルとアトミックに置き換えられるため、拡張の途中でプロセスが停止した場合でも元のファイルは破損しません。
+     * 置き換えの前に元のファイルのマップを解放してチャネルを閉じ、置き換えに失敗した場合は元のファイルを開き直します。開き直しにも失敗した場合は置き換えの例外に
+     * 開き直しの例外を抑制された例外として追加して送出し、以降の読み書きは {@link IllegalStateException} で失敗します。いずれの場合もロックは必ず解放されます。
+     *
+     * @param minimumCapacity 必要な容量（日数）
+     *
+     * @exception IOException ファイルの拡張に失敗した場合
+     */
+    private void grow(int minimumCapacity) throws IOException {
+
+        final int newCapacity = (int) Math.min(MAXIMUM_CAPACITY, Math.max(minimumCapacity, this.capacity * 2L));
+        final Path temporary = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+
+        writeFile(temporary, this.base, this.firstDay, newCapacity, this, this.count);
+
+        final long stamp = this.mappingLock.writeLock();
+
+        try {
+            try {
+                this.channel.close();
+                unmap(this.buffer);
+                this.buffer = null;
+                Files.move(temporary, this.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException | RuntimeException e) {
+                try {
+                    this.reopen();
+                } catch (IOException | RuntimeException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+
+                throw e;
+            }
+
+            this.reopen();
+        } finally {
+            this.mappingLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * ファイルを開き直してメモリへマップします。マップに失敗した場合は開いたチャネルを閉じます。
+     *
+     * @exception IOException ファイルを開けなかった場合
+     */
+    private void reopen() throws IOException {
+
+        final FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            this.capacity = this.capacityOf(buffer);
+            this.channel = channel;
+            this.buffer = buffer;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 現在のマップを返却します。
+     *
+     * @return メモリへマップされたファイル
+     *
+     * @exception IllegalStateException ファイルの拡張に失敗してマップが解放されたままの場合
+     */
+    private MappedByteBuffer mapped() {
+
+        final MappedByteBuffer buffer = this.buffer;
+
+        if (buffer == null) {
+            throw new IllegalStateException(String.format("File is no longer mapped: %s", this.path));
+        }
+
+        return buffer;
+    }
+
+    /**
+     * 引数として渡されたマップを解放します。実行中のJDKが解放をサポートしない場合、マップはガベージコレクションにより解放されます。
+     *
+     * @param buffer メモリへマップされたファイル
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+
+        if (UNMAPPER == null) {
+            return;
+        }
+
+        try {
+            UNMAPPER.invokeExact((ByteBuffer) buffer);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * メモリへのマップを解放するメソッドを検索します。
+     *
+     * @return メモリへのマップを解放するメソッド。実行中のJDKがサポートしない場合は {@code null}
+     */
+    private static MethodHandle findUnmapper() {
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+
+            return MethodHandles.publicLookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 引数として渡された情報でファイルを書き込みます。
+     *
+     * @param path     ファイルのパス
+     * @param base     基軸通貨
+     * @param firstDay 開始日のエポック日
+     * @param capacity 列の容量
+     * @param source   複写元のファイル。複写しない場合は {@code null}
+     * @param count    記録済みの日数
+     *
+     * @exception IOException ファイルの書き込みに失敗した場合
+     */
+    private static void writeFile(Path path, Currency base, long firstDay, int capacity, RateSeriesFile source,
+            int count) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(BASE_OFFSET, base.getCode());
+            buffer.putInt(CAPACITY_OFFSET, capacity);
+            buffer.putLong(FIRST_DAY_OFFSET, firstDay);
+            buffer.putInt(COUNT_OFFSET, count);
+
+            if (source != null) {
+                for (int column = 0; column < COLUMN_COUNT; column++) {
+                    for (int index = 0; index < count; index++) {
+                        buffer.putDouble(offset(capacity, column, index),
+                                source.buffer.getDouble(offset(source.capacity, column, index)));
+                    }
+                }
+            }
+
+            buffer.force();
+        }
+    }
+
+    /**
+     * 引数として渡されたマップ済みのファイルの列の容量を返却します。
+     *
+     * @param buffer メモリへマップされたファイル
+     * @return 列の容量
+     */
+    private int capacityOf(MappedByteBuffer buffer) {
+        return buffer.getInt(CAPACITY_OFFSET);
+    }
+
+    /**
+     * 引数として渡された列と日付に対応する為替レートのファイル内の位置を返却します。
+     *
+     * @param capacity 列の容量
+     * @param column   列の添字
+     * @param index    開始日からの経過日数
+     * @return ファイル内の位置
+     */
+    private static int offset(int capacity, int column, int index) {
+        return HEADER_SIZE + (column * capacity + index) * Double.BYTES;
+    }
+
+    /**
+     * 引数として渡された容量のファイルのバイト数を返却します。
+     *
+     * @param capacity 列の容量
+     * @return ファイルのバイト数
+     */
+    private static long fileSize(int capacity) {
+        return HEADER_SIZE + (long) COLUMN_COUNT * capacity * Double.BYTES;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * ある時点で取得済みの全ての為替レートを保持する、バージョン付きの不変なスナップショットです。
+ * <p>
+ * スナップショットは為替レートが更新される度に新しいバージョンとして生成され、既存のスナップショットが変更されることはありません。
+ * そのため、1つのスナップショットを参照し続ける限り、複数の為替レートを組み合わせる計算の途中で一部の為替レートのみが更新されることはありません。
+ *
+ * <pre>
+ * RatesSnapshot pinned = refresher.snapshot();
+ * double viaYen = pinned.get(Currency.USA_DOLLAR, List.of()).orElseThrow().convert(amount, Currency.USA_DOLLAR,
+ *         Currency.JAPANESE_YEN);
+ * double back = pinned.get(Currency.JAPANESE_YEN, List.of()).orElseThrow().convert(viaYen, Currency.JAPANESE_YEN,
+ *         Currency.ENGLAND_STERLING_POUND);
+ * </pre>
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ *
+ * @see LatestRatesRefresher#snapshot()
+ */
+@ToString
+public final class RatesSnapshot {
+
+    /**
+     * 為替レートを1件も含まない最初のスナップショット
+     */
+    static final RatesSnapshot EMPTY = new RatesSnapshot(0, Instant.EPOCH, Map.of());
+
+    /**
+     * バージョン。スナップショットが更新される度に {@code 1} ずつ増加します。
+     */
+    @Getter
+    private final long version;
+
+    /**
+     * 当スナップショットが公開された時刻
+     */
+    @Getter
+    private final Instant publishedAt;
+
+    /**
+     * 基軸通貨とシンボルごとの為替レート
+     */
+    private final Map<Key, ExchangeRates> rates;
+
+    /**
+     * コンストラクタ
+     *
+     * @param version     バージョン
+     * @param publishedAt 公開された時刻
+     * @param rates       基軸通貨とシンボルごとの為替レート
+     */
+    private RatesSnapshot(long version, Instant publishedAt, Map<Key, ExchangeRates> rates) {
+        this.version = version;
+        this.publishedAt = publishedAt;
+        this.rates = rates;
+    }
+
+    /**
+     * 当スナップショットの為替レートに、引数として渡された基軸通貨とシンボルの為替レートを追加または置き換えた新しいバージョンのスナップショットを返却します。
+     *
+     * @param base        基軸通貨
+     * @param symbols     シンボル。空の場合は全ての通貨を表します。
+     * @param rates       為替レート
+     * @param publishedAt 新しいスナップショットが公開される時刻
+     * @return 新しいバージョンのスナップショット
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    RatesSnapshot with(@NonNull Currency base, @NonNull Collection<Currency> symbols, @NonNull ExchangeRates rates,
+            @NonNull Instant publishedAt) {
+
+        final Map<Key, ExchangeRates> updated = new HashMap<>(this.rates);
+        updated.put(Key.of(base, symbols), rates);
+
+        return new RatesSnapshot(this.version + 1, publishedAt, Map.copyOf(updated));
+    }
+
+    /**
+     * 引数として渡された基軸通貨とシンボルの為替レートを返却します。
+     * <p>
+     * 同一の基軸通貨とシンボルの為替レートが存在しない場合は、同一の基軸通貨で指定されたシンボルを全て含む為替レートを絞り込んで返却します。
+     *
+     * @param base    基軸通貨
+     * @param symbols シンボル。空の場合は全ての通貨を返却します。
+     * @return 為替レート。該当する為替レートが存在しない場合は空
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public Optional<ExchangeRates> get(@NonNull Currency base, @NonNull Collection<Currency> symbols) {
+
+        final ExchangeRates exact = this.rates.get(Key.of(base, symbols));
+
+        if (exact != null) {
+            return Optional.of(exact);
+        }
+
+        for (Map.Entry<Key, ExchangeRates> entry : this.rates.entrySet()) {
+            if (entry.getKey().covers(base, symbols)) {
+                return Optional.of(entry.getValue().select(symbols));
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * 当スナップショットが保持する為替レートの件数を返却します。
+     *
+     * @return 為替レートの件数
+     */
+    public int size() {
+        return this.rates.size();
+    }
+
+    /**
+     * 基軸通貨とシンボルの組み合わせを表すキーです。
+     */
+    @ToString
+    @EqualsAndHashCode
+    @RequiredArgsConstructor(staticName = "create")
+    private static final class Key {
+
+        /**
+         * 基軸通貨
+         */
+        private final Currency base;
+
+        /**
+         * シンボル。空の場合は全ての通貨を表します。
+         */
+        private final Set<Currency> symbols;
+
+        /**
+         * 引数として渡された基軸通貨とシンボルのキーを返却します。
+         *
+         * @param base    基軸通貨
+         * @param symbols シンボル
+         * @return キー
+         */
+        private static Key of(Currency base, Collection<Currency> symbols) {
+            return create(base, Set.copyOf(symbols));
+        }
+
+        /**
+         * 当キーの為替レートが、引数として渡された基軸通貨とシンボルの為替レートを全て含むか判定します。
+         *
+         * @param base    基軸通貨
+         * @param symbols シンボル。空の場合は全ての通貨を表します。
+         * @return 全て含む場合は {@code true} 、それ以外の場合は {@code false}
+         */
+        private boolean covers(Currency base, Collection<Currency> symbols) {
+            return this.base == base
+                    && (this.symbols.isEmpty() || !symbols.isEmpty() && this.symbols.containsAll(symbols));
+        }
+    }
+}
@@ -0,0 +1,662 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.thinkit.api.common.entity.RequestParameter;
+import org.thinkit.api.common.exception.ApiRequestFailedException;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * 為替レートAPIへ送信するリクエストの頻度と同時実行数をクライアント側で制限するクラスです。
+ * <p>
+ * リクエストの頻度はトークンバケットで制限され、1秒あたりの許可数を平均として、バースト数までのリクエストを待機せずに送信できます。
+ * 同時実行数は送信中のリクエスト数の上限として制限されます。トークンと送信枠の取得はいずれもロックを使用せずに行われます。
+ * <p>
+ * 上限に達した際の扱いは {@link OverloadPolicy} で指定します。待機する場合、送信枠はリクエストが到着した順に割り当てられ、
+ * 待機時間の上限を超えた場合または待機中のリクエスト数が上限に達している場合は {@link RequestLimitExceededException} を原因とする
+ * {@link ApiRequestFailedException} で失敗します。
+ * <p>
+ * 送信枠はレスポンスの受信と解析が完了した時点で解放されます。ただし {@link CurrencyExchangeRates#stream()} メソッドではレスポンスヘッダーを受信した時点で解放されます。
+ * 制限は当インスタンスを共有する全てのリクエストに適用されるため、同一のインスタンスを全ての {@link CurrencyExchangeRates} に設定することで
+ * JVM全体の送信を制限できます。当クラスはスレッドセーフです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ *
+ * @see CurrencyExchangeRates.Builder#withRequestLimiter(RequestLimiter)
+ */
+public final class RequestLimiter {
+
+    /**
+     * 最後に取得に成功した為替レートを保持するリクエストパラメータ数の上限
+     */
+    private static final long LAST_GOOD_MAXIMUM_SIZE = 1000;
+
+    /**
+     * トークンを1件補充する間隔（ナノ秒）。頻度を制限しない場合は {@code 0}
+     */
+    private final long emissionInterval;
+
+    /**
+     * バーストとして待機せずに許可されるトークン数に相当する時間（ナノ秒）
+     */
+    private final long burstTolerance;
+
+    /**
+     * 送信中のリクエスト数の上限
+     */
+    private final int maxInFlight;
+
+    /**
+     * 上限に達した際の扱い
+     */
+    @Getter
+    private final OverloadPolicy policy;
+
+    /**
+     * 待機時間の上限（ナノ秒）
+     */
+    private final long maxWait;
+
+    /**
+     * 送信枠を待機するリクエスト数の上限
+     */
+    private final int maxQueueDepth;
+
+    /**
+     * 次のトークンが補充される理論上の時刻（ナノ秒）
+     */
+    private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+
+    /**
+     * 送信中のリクエスト数
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * 送信枠を待機しているリクエスト
+     */
+    private final ConcurrentLinkedQueue<CompletableFuture<Void>> waiters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 送信枠を待機しているリクエスト数
+     */
+    private final AtomicInteger waitingForPermit = new AtomicInteger();
+
+    /**
+     * トークンの補充を待機しているリクエスト数
+     */
+    private final AtomicInteger waitingForToken = new AtomicInteger();
+
+    /**
+     * リクエストが到着してから送信を開始するまでの待機時間（ナノ秒）
+     */
+    @Getter
+    private final LongHistogram waitTime = new LongHistogram();
+
+    /**
+     * 上限に達したために失敗させたリクエスト数
+     */
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * 上限に達したために最後に取得に成功した為替レートを返却した回数
+     */
+    private final LongAdder staleCount = new LongAdder();
+
+    /**
+     * リクエストパラメータごとの最後に取得に成功した為替レート
+     */
+    private final Cache<RequestParameter, List<ExchangeRates>> lastGood = CacheBuilder.newBuilder()
+            .maximumSize(LAST_GOOD_MAXIMUM_SIZE).build();
+
+    /**
+     * コンストラクタ
+     *
+     * @param builder ビルダー
+     */
+    private RequestLimiter(Builder builder) {
+        this.emissionInterval = builder.permitsPerSecond == 0 ? 0L
+                : Math.max(1L, TimeUnit.SECONDS.toNanos(1) / builder.permitsPerSecond);
+        this.burstTolerance = this.emissionInterval * (builder.burst - 1);
+        this.maxInFlight = builder.maxInFlight;
+        this.policy = builder.policy;
+        this.maxWait = builder.maxWait.toNanos();
+        this.maxQueueDepth = builder.maxQueueDepth;
+    }
+
+    /**
+     * {@link RequestLimiter} クラスのインスタンスを生成するビルダークラスを返却します。
+     *
+     * @return {@link RequestLimiter} クラスのインスタンスを生成するビルダークラス
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 送信の上限に達した際の扱いを定義した列挙型です。
+     *
+     * @author Kato Shinya
+     * @since 1.0
+     * @version 1.0
+     */
+    public enum OverloadPolicy {
+
+        /**
+         * 待機時間の上限まで、トークンの補充と送信枠の解放を待機します。
+         */
+        QUEUE,
+
+        /**
+         * 待機せずに直ちに失敗します。
+         */
+        FAIL_FAST,
+
+        /**
+         * 同一のリクエストパラメータで最後に取得に成功した為替レートを直ちに返却します。為替レートを取得するリクエスト以外、
+         * または最後に取得に成功した為替レートが存在しない場合は {@link #QUEUE} と同様に待機します。
+         */
+        STALE;
+    }
+
+    /**
+     * {@link RequestLimiter} クラスのインスタンスを生成するビルダークラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0
+     * @version 1.0
+     *
+     * @see #withRateLimit(int, int)
+     * @see #withMaxInFlight(int)
+     * @see #withPolicy(OverloadPolicy)
+     * @see #withMaxWait(Duration)
+     * @see #withMaxQueueDepth(int)
+     * @see #build()
+     */
+    public static class Builder {
+
+        /**
+         * 1秒あたりの許可数。頻度を制限しない場合は {@code 0}
+         */
+        private int permitsPerSecond;
+
+        /**
+         * 待機せずに許可されるリクエスト数
+         */
+        private int burst = 1;
+
+        /**
+         * 送信中のリクエスト数の上限
+         */
+        private int maxInFlight = Integer.MAX_VALUE;
+
+        /**
+         * 上限に達した際の扱い
+         */
+        private OverloadPolicy policy = OverloadPolicy.QUEUE;
+
+        /**
+         * 待機時間の上限
+         */
+        private Duration maxWait = Duration.ofSeconds(10);
+
+        /**
+         * 送信枠を待機するリクエスト数の上限
+         */
+        private int maxQueueDepth = 1000;
+
+        /**
+         * デフォルトコンストラクタ
+         */
+        private Builder() {
+        }
+
+        /**
+         * トークンバケットによるリクエストの頻度の制限を設定します。
+         * <p>
+         * 当メソッドを呼び出さない場合、リクエストの頻度は制限されません。
+         *
+         * @param permitsPerSecond 1秒あたりの許可数
+         * @param burst            待機せずに許可されるリクエスト数
+         * @return 自分自身のインスタンス
+         *
+         * @exception IllegalArgumentException 引数として {@code 1} 未満の値が渡された場合
+         */
+        public Builder withRateLimit(int permitsPerSecond, int burst) {
+
+            if (permitsPerSecond < 1 || burst < 1) {
+                throw new IllegalArgumentException(
+                        String.format("Rate limit must be positive: %d/s, burst %d", permitsPerSecond, burst));
+            }
+
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+            return this;
+        }
+
+        /**
+         * 送信中のリクエスト数の上限を設定します。
+         * <p>
+         * 当メソッドを呼び出さない場合、送信中のリクエスト数は制限されません。
+         *
+         * @param maxInFlight 送信中のリクエスト数の上限
+         * @return 自分自身のインスタンス
+         *
+         * @exception IllegalArgumentException 引数として {@code 1} 未満の値が渡された場合
+         */
+        public Builder withMaxInFlight(int maxInFlight) {
+
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException(String.format("Max in-flight must be positive: %d", maxInFlight));
+            }
+
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * 上限に達した際の扱いを設定します。
+         * <p>
+         * 初期値として {@link OverloadPolicy#QUEUE} が設定されています。
+         *
+         * @param policy 上限に達した際の扱い
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withPolicy(@NonNull OverloadPolicy policy) {
+            this.policy = policy;
+            return this;
+        }
+
+        /**
+         * リクエストが到着してから送信を開始するまでの待機時間の上限を設定します。
+         * <p>
+         * 初期値として10秒が設定されています。
+         *
+         * @param maxWait 待機時間の上限
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     引数として {@code null} が渡された場合
+         * @exception IllegalArgumentException 引数として {@code 0} 以下の期間が渡された場合
+         */
+        public Builder withMaxWait(@NonNull Duration maxWait) {
+
+            if (maxWait.isZero() || maxWait.isNegative()) {
+                throw new IllegalArgumentException(String.format("Duration must be positive: %s", maxWait));
+            }
+
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        /**
+         * 送信枠を待機するリクエスト数の上限を設定します。
+         * <p>
+         * 初期値として {@code 1000} が設定されています。
+         *
+         * @param maxQueueDepth 送信枠を待機するリクエスト数の上限
+         * @return 自分自身のインスタンス
+         *
+         * @exception IllegalArgumentException 引数として {@code 0} 未満の値が渡された場合
+         */
+        public Builder withMaxQueueDepth(int maxQueueDepth) {
+
+            if (maxQueueDepth < 0) {
+                throw new IllegalArgumentException(
+                        String.format("Max queue depth must not be negative: %d", maxQueueDepth));
+            }
+
+            this.maxQueueDepth = maxQueueDepth;
+            return this;
+        }
+
+        /**
+         * 設定された値を基に {@link RequestLimiter} クラスの新しいインスタンスを生成し返却します。
+         *
+         * @return {@link RequestLimiter} クラスの新しいインスタンス
+         */
+        public RequestLimiter build() {
+            return new RequestLimiter(this);
+        }
+    }
+
+    /**
+     * 送信中のリクエスト数を返却します。
+     *
+     * @return 送信中のリクエスト数
+     */
+    public int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    /**
+     * トークンの補充または送信枠の解放を待機しているリクエスト数を返却します。
+     *
+     * @return 待機しているリクエスト数
+     */
+    public int getQueueDepth() {
+        return this.waitingForPermit.get() + this.waitingForToken.get();
+    }
+
+    /**
+     * 上限に達したために失敗させたリクエスト数を返却します。
+     *
+     * @return 上限に達したために失敗させたリクエスト数
+     */
+    public long getRejectedCount() {
+        return this.rejectedCount.sum();
+    }
+
+    /**
+     * 上限に達したために最後に取得に成功した為替レートを返却した回数を返却します。
+     *
+     * @return 最後に取得に成功した為替レートを返却した回数
+     */
+    public long getStaleCount() {
+        return this.staleCount.sum();
+    }
+
+    /**
+     * 制限を適用して {@code request} を実行します。
+     *
+     * @param <T>     結果の型
+     * @param request リクエストを送信し、その結果を返却する処理
+     * @return {@code request} の結果を返却する {@link CompletableFuture}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    <T> CompletableFuture<T> execute(@NonNull Supplier<CompletableFuture<T>> request) {
+        return this.execute(request, this.policy != OverloadPolicy.FAIL_FAST, null);
+    }
+
+    /**
+     * 制限を適用して {@code request} を実行し、為替レートを取得します。
+     * <p>
+     * {@link OverloadPolicy#STALE} が設定されており、同一のリクエストパラメータで最後に取得に成功した為替レートが存在する場合は、
+     * 上限に達した時点で待機せずにその為替レートを返却します。
+     *
+     * @param key     リクエストパラメータ
+     * @param request リクエストを送信し、為替レートを返却する処理
+     * @return 日付の昇順に並べた為替レートのリストを返却する {@link CompletableFuture}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    CompletableFuture<List<ExchangeRates>> execute(@NonNull RequestParameter key,
+            @NonNull Supplier<CompletableFuture<List<ExchangeRates>>> request) {
+
+        if (this.policy != OverloadPolicy.STALE) {
+            return this.execute(request);
+        }
+
+        final List<ExchangeRates> stale = this.lastGood.getIfPresent(key);
+        final CompletableFuture<List<ExchangeRates>> rates = this.execute(request, stale == null, stale);
+
+        rates.thenAccept(result -> {
+            if (result != stale) {
+                this.lastGood.put(key, result);
+            }
+        });
+
+        return rates;
+    }
+
+    /**
+     * 送信枠とトークンを取得した上で {@code request} を実行し、完了時に送信枠を解放します。
+     *
+     * @param <T>      結果の型
+     * @param request  リクエストを送信し、その結果を返却する処理
+     * @param queue    上限に達した場合に待機するか否か
+     * @param fallback 上限に達した場合に返却する結果。失敗させる場合は {@code null}
+     * @return {@code request} の結果を返却する {@link CompletableFuture}
+     */
+    private <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> request, boolean queue, T fallback) {
+
+        final long arrivedAt = System.nanoTime();
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final CompletableFuture<Void> permit = this.acquirePermit(queue);
+
+        result.whenComplete((value, throwable) -> permit.cancel(true));
+        permit.whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                final Throwable cause = Futures.unwrap(throwable);
+
+                if (!(cause instanceof CancellationException)) {
+                    this.reject(result, fallback, cause instanceof RequestLimitExceededException ? cause.getMessage()
+                            : "Timed out waiting for an in-flight permit");
+                }
+
+                return;
+            }
+
+            final long now = System.nanoTime();
+            final long delay = this.reserveToken(now, queue ? Math.max(0L, this.maxWait - (now - arrivedAt)) : 0L);
+
+            if (delay < 0L) {
+                this.release();
+                this.reject(result, fallback, "Rate limit exceeded");
+            } else if (delay == 0L) {
+                this.start(request, result, arrivedAt);
+            } else {
+                this.waitingForToken.incrementAndGet();
+                CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> {
+                    this.waitingForToken.decrementAndGet();
+                    this.start(request, result, arrivedAt);
+                });
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * 送信枠とトークンを取得したリクエストの送信を開始し、完了時に送信枠を解放します。待機中に {@code result} が完了していた場合は送信しません。
+     *
+     * @param <T>       結果の型
+     * @param request   リクエストを送信し、その結果を返却する処理
+     * @param result    呼び出し元へ返却する結果
+     * @param arrivedAt リクエストが到着した時刻（ナノ秒）
+     */
+    private <T> void start(Supplier<CompletableFuture<T>> request, CompletableFuture<T> result, long arrivedAt) {
+
+        this.waitTime.record(System.nanoTime() - arrivedAt);
+
+        if (result.isDone()) {
+            this.release();
+            return;
+        }
+
+        final CompletableFuture<T> call;
+
+        try {
+            call = request.get();
+        } catch (RuntimeException e) {
+            this.release();
+            result.completeExceptionally(e);
+            return;
+        }
+
+        result.whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                call.cancel(true);
+            }
+        });
+        call.whenComplete((value, throwable) -> {
+            this.release();
+
+            if (throwable == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(throwable);
+            }
+        });
+    }
+
+    /**
+     * 上限に達したリクエストを {@code fallback} で完了します。 {@code fallback} が {@code null} の場合は
+     * {@link RequestLimitExceededException} を原因とする {@link ApiRequestFailedException} で完了します。
+     *
+     * @param <T>      結果の型
+     * @param result   呼び出し元へ返却する結果
+     * @param fallback 上限に達した場合に返却する結果
+     * @param message  失敗させる場合の詳細メッセージ
+     */
+    private <T> void reject(CompletableFuture<T> result, T fallback, String message) {
+
+        if (fallback != null) {
+            this.staleCount.increment();
+            result.complete(fallback);
+            return;
+        }
+
+        this.rejectedCount.increment();
+        result.completeExceptionally(new ApiRequestFailedException(new RequestLimitExceededException(message)));
+    }
+
+    /**
+     * 送信枠を取得します。送信中のリクエスト数が上限に達している場合、 {@code queue} が {@code true} であれば送信枠が解放されるまで待機します。
+     *
+     * @param queue 上限に達した場合に待機するか否か
+     * @return 送信枠を取得した際に完了する {@link CompletableFuture} 。待機せずに取得できなかった場合は
+     *         {@link RequestLimitExceededException} 、待機時間の上限を超えた場合は {@link java.util.concurrent.TimeoutException}
+     *         で完了します
+     */
+    private CompletableFuture<Void> acquirePermit(boolean queue) {
+
+        if (this.waiters.isEmpty() && this.tryAcquirePermit()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (!queue || this.waitingForPermit.incrementAndGet() > this.maxQueueDepth) {
+            if (queue) {
+                this.waitingForPermit.decrementAndGet();
+            }
+
+            return CompletableFuture.failedFuture(
+                    new RequestLimitExceededException(queue ? "Request queue is full" : "Too many requests in flight"));
+        }
+
+        final CompletableFuture<Void> waiter = new CompletableFuture<>();
+
+        this.waiters.add(waiter);
+        waiter.orTimeout(this.maxWait, TimeUnit.NANOSECONDS).whenComplete((ignored, throwable) -> {
+            if (throwable != null && this.waiters.remove(waiter)) {
+                this.waitingForPermit.decrementAndGet();
+            }
+        });
+        this.drain();
+
+        return waiter;
+    }
+
+    /**
+     * 送信中のリクエスト数が上限未満であれば送信枠を取得します。
+     *
+     * @return 送信枠を取得した場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    private boolean tryAcquirePermit() {
+
+        int current;
+
+        do {
+            current = this.inFlight.get();
+
+            if (current >= this.maxInFlight) {
+                return false;
+            }
+        } while (!this.inFlight.compareAndSet(current, current + 1));
+
+        return true;
+    }
+
+    /**
+     * 送信枠を解放し、待機しているリクエストへ割り当てます。
+     */
+    private void release() {
+        this.inFlight.decrementAndGet();
+        this.drain();
+    }
+
+    /**
+     * 取得可能な送信枠を、待機しているリクエストへ到着した順に割り当てます。
+     * <p>
+     * 待機を終えたリクエストへ割り当てようとした場合は送信枠を解放し、次のリクエストへ割り当てます。
+     */
+    private void drain() {
+
+        while (!this.waiters.isEmpty() && this.tryAcquirePermit()) {
+            final CompletableFuture<Void> waiter = this.waiters.poll();
+
+            if (waiter == null) {
+                this.inFlight.decrementAndGet();
+                continue;
+            }
+
+            this.waitingForPermit.decrementAndGet();
+
+            if (!waiter.complete(null)) {
+                this.inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * トークンを1件予約し、トークンが補充されるまでの待機時間を返却します。
+     * <p>
+     * 理論上の到着時刻を比較交換で進めることで、ロックを使用せずに予約します（GCRA）。頻度を制限しない場合は常に {@code 0} を返却します。
+     *
+     * @param now          現在時刻（ナノ秒）
+     * @param maxDelay 許容する待機時間の上限（ナノ秒）
+     * @return トークンが補充されるまでの待機時間（ナノ秒）。上限を超える場合は予約せずに {@code -1}
+     */
+    private long reserveToken(long now, long maxDelay) {
+
+        if (this.emissionInterval == 0L) {
+            return 0L;
+        }
+
+        while (true) {
+            final long arrival = this.theoreticalArrival.get();
+            final long start = arrival - now > 0L ? arrival : now;
+            final long delay = Math.max(0L, start - now - this.burstTolerance);
+
+            if (delay > maxDelay) {
+                return -1L;
+            }
+
+            if (this.theoreticalArrival.compareAndSet(arrival, start + this.emissionInterval)) {
+                return delay;
+            }
+        }
+    }
+}
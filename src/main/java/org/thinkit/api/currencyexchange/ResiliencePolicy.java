@@ -0,0 +1,771 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.http.HttpTimeoutException;
+import java.nio.channels.ClosedChannelException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.thinkit.api.common.entity.RequestParameter;
+import org.thinkit.api.common.exception.ApiRequestFailedException;
+
+import lombok.NonNull;
+
+/**
+ * 為替レートAPIへのリクエストに適用する再試行、サーキットブレーカー、ヘッジリクエストの方針を定義したクラスです。
+ * <p>
+ * 各試行には試行ごとのタイムアウトが適用されます。一時的な失敗で終了した試行は上限回数まで再試行され、再試行までの待機時間は試行ごとに倍増する上限値から
+ * 無作為に選ばれます（フルジッター）。一時的な失敗とは接続や通信の失敗、タイムアウト、およびステータスコード {@code 429} または {@code 5xx}
+ * の応答です。それ以外のステータスコードやエラーペイロードによる応答、およびレスポンスボディの解析や検証の失敗は再試行しても結果が変わらないため、
+ * 再試行せずに直ちに失敗します。キャンセルされた試行も再試行されません。
+ * <p>
+ * 一時的な失敗のみがサーキットブレーカーの失敗として数えられ、連続した失敗回数が閾値に達するとサーキットが開き、開いている期間はリクエストを送信せずに同一のリクエストパラメータで最後に取得に成功した為替レートを返却します。
+ * 最後に取得に成功した為替レートが存在しない場合は {@link CircuitBreakerOpenException} を原因とする
+ * {@link ApiRequestFailedException} で失敗します。開いている期間が経過すると1件の試行のみが許可され、成功した場合はサーキットが閉じます。
+ * <p>
+ * ヘッジの待機時間が設定されている場合、試行が待機時間内に完了しなければ同一のリクエストをもう1件送信し、先に成功した結果を採用して他方をキャンセルします。
+ * <p>
+ * サーキットブレーカーの状態は当インスタンスを共有する全てのリクエストで共有されます。当クラスはスレッドセーフです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ *
+ * @see CurrencyExchangeRates.Builder#withResiliencePolicy(ResiliencePolicy)
+ */
+public final class ResiliencePolicy {
+
+    /**
+     * 最後に取得に成功した為替レートを保持するリクエストパラメータ数の上限
+     */
+    private static final long LAST_GOOD_MAXIMUM_SIZE = 1000;
+
+    /**
+     * 試行ごとのタイムアウト
+     */
+    private final Duration attemptTimeout;
+
+    /**
+     * 最大試行回数
+     */
+    private final int maxAttempts;
+
+    /**
+     * 再試行までの待機時間の初期値
+     */
+    private final Duration initialBackoff;
+
+    /**
+     * 再試行までの待機時間の上限
+     */
+    private final Duration maxBackoff;
+
+    /**
+     * ヘッジリクエストを送信するまでの待機時間。ヘッジリクエストを送信しない場合は {@code null}
+     */
+    private final Duration hedgeDelay;
+
+    /**
+     * サーキットブレーカー
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * リクエストパラメータごとの最後に取得に成功した為替レート
+     */
+    private final Cache<RequestParameter, List<ExchangeRates>> lastGood = CacheBuilder.newBuilder()
+            .maximumSize(LAST_GOOD_MAXIMUM_SIZE).build();
+
+    /**
+     * 再試行の回数
+     */
+    private final LongAdder retryCount = new LongAdder();
+
+    /**
+     * ヘッジリクエストの送信回数
+     */
+    private final LongAdder hedgeCount = new LongAdder();
+
+    /**
+     * サーキットが開いているために最後に取得に成功した為替レートを返却した回数
+     */
+    private final LongAdder fallbackCount = new LongAdder();
+
+    /**
+     * コンストラクタ
+     *
+     * @param builder ビルダー
+     */
+    private ResiliencePolicy(Builder builder) {
+        this.attemptTimeout = builder.attemptTimeout;
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoff = builder.initialBackoff;
+        this.maxBackoff = builder.maxBackoff;
+        this.hedgeDelay = builder.hedgeDelay;
+        this.circuitBreaker = new CircuitBreaker(builder.failureThreshold, builder.openDuration, builder.clock);
+    }
+
+    /**
+     * {@link ResiliencePolicy} クラスのインスタンスを生成するビルダークラスを返却します。
+     *
+     * @return {@link ResiliencePolicy} クラスのインスタンスを生成するビルダークラス
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * {@link ResiliencePolicy} クラスのインスタンスを生成するビルダークラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0
+     * @version 1.0
+     *
+     * @see #withAttemptTimeout(Duration)
+     * @see #withMaxAttempts(int)
+     * @see #withBackoff(Duration, Duration)
+     * @see #withCircuitBreaker(int, Duration)
+     * @see #withHedgeDelay(Duration)
+     * @see #build()
+     */
+    public static class Builder {
+
+        /**
+         * 試行ごとのタイムアウト
+         */
+        private Duration attemptTimeout = Duration.ofSeconds(10);
+
+        /**
+         * 最大試行回数
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * 再試行までの待機時間の初期値
+         */
+        private Duration initialBackoff = Duration.ofMillis(100);
+
+        /**
+         * 再試行までの待機時間の上限
+         */
+        private Duration maxBackoff = Duration.ofSeconds(5);
+
+        /**
+         * サーキットが開く連続した失敗回数
+         */
+        private int failureThreshold = 5;
+
+        /**
+         * サーキットが開いている期間
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        /**
+         * ヘッジリクエストを送信するまでの待機時間
+         */
+        private Duration hedgeDelay;
+
+        /**
+         * 時計
+         */
+        private Clock clock = Clock.systemUTC();
+
+        /**
+         * デフォルトコンストラクタ
+         */
+        private Builder() {
+        }
+
+        /**
+         * 試行ごとのタイムアウトを設定します。
+         * <p>
+         * 初期値として10秒が設定されています。
+         *
+         * @param attemptTimeout 試行ごとのタイムアウト
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     引数として {@code null} が渡された場合
+         * @exception IllegalArgumentException 引数として {@code 0} 以下の期間が渡された場合
+         */
+        public Builder withAttemptTimeout(@NonNull Duration attemptTimeout) {
+            this.attemptTimeout = requirePositive(attemptTimeout);
+            return this;
+        }
+
+        /**
+         * 初回の試行を含む最大試行回数を設定します。 {@code 1} を設定した場合は再試行しません。
+         * <p>
+         * 初期値として {@code 3} が設定されています。
+         *
+         * @param maxAttempts 最大試行回数
+         * @return 自分自身のインスタンス
+         *
+         * @exception IllegalArgumentException 引数として {@code 1} 未満の値が渡された場合
+         */
+        public Builder withMaxAttempts(int maxAttempts) {
+
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException(String.format("Max attempts must be positive: %d", maxAttempts));
+            }
+
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * 再試行までの待機時間を設定します。 {@code n} 回目の再試行までの待機時間は {@code 0} 以上
+         * {@code min(maxBackoff, initialBackoff * 2^(n-1))} 未満の範囲から無作為に選ばれます。
+         * <p>
+         * 初期値として初期値100ミリ秒、上限5秒が設定されています。
+         *
+         * @param initialBackoff 待機時間の初期値
+         * @param maxBackoff     待機時間の上限
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     引数として {@code null} が渡された場合
+         * @exception IllegalArgumentException 引数として {@code 0} 以下の期間が渡された場合、または
+         *                                     {@code maxBackoff} が {@code initialBackoff}
+         *                                     より短い場合
+         */
+        public Builder withBackoff(@NonNull Duration initialBackoff, @NonNull Duration maxBackoff) {
+
+            if (requirePositive(maxBackoff).compareTo(requirePositive(initialBackoff)) < 0) {
+                throw new IllegalArgumentException(
+                        String.format("Max backoff %s is shorter than initial backoff %s", maxBackoff, initialBackoff));
+            }
+
+            this.initialBackoff = initialBackoff;
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * サーキットブレーカーを設定します。
+         * <p>
+         * 初期値として連続した失敗回数 {@code 5} 回でサーキットが開き、30秒間開いたままとなるよう設定されています。
+         *
+         * @param failureThreshold サーキットが開く連続した失敗回数
+         * @param openDuration     サーキットが開いている期間
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     {@code openDuration} として {@code null} が渡された場合
+         * @exception IllegalArgumentException {@code failureThreshold} が {@code 1} 未満の場合、または
+         *                                     {@code openDuration} が {@code 0} 以下の期間の場合
+         */
+        public Builder withCircuitBreaker(int failureThreshold, @NonNull Duration openDuration) {
+
+            if (failureThreshold < 1) {
+                throw new IllegalArgumentException(
+                        String.format("Failure threshold must be positive: %d", failureThreshold));
+            }
+
+            this.failureThreshold = failureThreshold;
+            this.openDuration = requirePositive(openDuration);
+            return this;
+        }
+
+        /**
+         * ヘッジリクエストを送信するまでの待機時間を設定します。試行が待機時間内に完了しなかった場合、同一のリクエストをもう1件送信します。
+         * <p>
+         * 当メソッドを呼び出さない場合、ヘッジリクエストは送信されません。待機時間には通常のレスポンス時間の高いパーセンタイル値を設定してください。
+         *
+         * @param hedgeDelay ヘッジリクエストを送信するまでの待機時間
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     引数として {@code null} が渡された場合
+         * @exception IllegalArgumentException 引数として {@code 0} 以下の期間が渡された場合
+         */
+        public Builder withHedgeDelay(@NonNull Duration hedgeDelay) {
+            this.hedgeDelay = requirePositive(hedgeDelay);
+            return this;
+        }
+
+        /**
+         * サーキットブレーカーが使用する時計を設定します。
+         *
+         * @param clock 時計
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        Builder withClock(@NonNull Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * 設定された値を基に {@link ResiliencePolicy} クラスの新しいインスタンスを生成し返却します。
+         *
+         * @return {@link ResiliencePolicy} クラスの新しいインスタンス
+         */
+        public ResiliencePolicy build() {
+            return new ResiliencePolicy(this);
+        }
+
+        /**
+         * 引数として渡された期間が {@code 0} より大きいことを検証し、そのまま返却します。
+         *
+         * @param duration 検証対象の期間
+         * @return 引数として渡された期間
+         *
+         * @exception IllegalArgumentException 引数として {@code 0} 以下の期間が渡された場合
+         */
+        private static Duration requirePositive(Duration duration) {
+
+            if (duration.isZero() || duration.isNegative()) {
+                throw new IllegalArgumentException(String.format("Duration must be positive: %s", duration));
+            }
+
+            return duration;
+        }
+    }
+
+    /**
+     * 当方針を適用して {@code attempt} を実行し、為替レートを取得します。
+     *
+     * @param key     リクエストパラメータ
+     * @param attempt 1回分の試行を開始し、その結果を返却する処理
+     * @return 日付の昇順に並べた為替レートのリストを返却する {@link CompletableFuture}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    CompletableFuture<List<ExchangeRates>> execute(@NonNull RequestParameter key,
+            @NonNull Supplier<CompletableFuture<List<ExchangeRates>>> attempt) {
+        return this.execute(key, (number, hedge) -> attempt.get());
+    }
+
+    /**
+     * 当方針を適用して {@code attempt} を実行し、為替レートを取得します。
+     * <p>
+     * {@code attempt} には試行の回数と、ヘッジリクエストであるか否かが渡されるため、呼び出し元は再試行とヘッジリクエストを区別して計測できます。
+     *
+     * @param key     リクエストパラメータ
+     * @param attempt 1回分の試行を開始し、その結果を返却する処理
+     * @return 日付の昇順に並べた為替レートのリストを返却する {@link CompletableFuture}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    CompletableFuture<List<ExchangeRates>> execute(@NonNull RequestParameter key, @NonNull Attempt attempt) {
+
+        final CompletableFuture<List<ExchangeRates>> result = new CompletableFuture<>();
+        this.attempt(1, key, attempt, result);
+        return result;
+    }
+
+    /**
+     * サーキットが開いているか判定します。
+     *
+     * @return サーキットが開いている場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    public boolean isCircuitOpen() {
+        return this.circuitBreaker.isOpen();
+    }
+
+    /**
+     * 再試行の回数を返却します。
+     *
+     * @return 再試行の回数
+     */
+    public long getRetryCount() {
+        return this.retryCount.sum();
+    }
+
+    /**
+     * ヘッジリクエストの送信回数を返却します。
+     *
+     * @return ヘッジリクエストの送信回数
+     */
+    public long getHedgeCount() {
+        return this.hedgeCount.sum();
+    }
+
+    /**
+     * サーキットが開いているために最後に取得に成功した為替レートを返却した回数を返却します。
+     *
+     * @return 最後に取得に成功した為替レートを返却した回数
+     */
+    public long getFallbackCount() {
+        return this.fallbackCount.sum();
+    }
+
+    /**
+     * {@code number} 回目の試行を開始します。試行が失敗した場合は待機時間の経過後に次の試行を開始します。
+     *
+     * @param number  試行の回数
+     * @param key     リクエストパラメータ
+     * @param attempt 1回分の試行を開始し、その結果を返却する処理
+     * @param result  呼び出し元へ返却する結果
+     */
+    private void attempt(int number, RequestParameter key, Attempt attempt,
+            CompletableFuture<List<ExchangeRates>> result) {
+
+        if (result.isDone()) {
+            return;
+        }
+
+        if (!this.circuitBreaker.tryAcquire()) {
+            this.fallback(key, result);
+            return;
+        }
+
+        final CompletableFuture<List<ExchangeRates>> call = this.hedge(number, attempt);
+
+        result.whenComplete((rates, throwable) -> call.cancel(true));
+
+        call.whenComplete((rates, throwable) -> {
+            if (throwable == null) {
+                this.circuitBreaker.onSuccess();
+                this.lastGood.put(key, rates);
+                result.complete(rates);
+                return;
+            }
+
+            final Throwable cause = Futures.unwrap(throwable);
+
+            if (cause instanceof CancellationException) {
+                this.circuitBreaker.release();
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            if (!isTransient(cause)) {
+                this.circuitBreaker.release();
+                result.completeExceptionally(Futures.toApiRequestFailedException(cause));
+                return;
+            }
+
+            this.circuitBreaker.onFailure();
+
+            if (number >= this.maxAttempts || result.isDone()) {
+                result.completeExceptionally(Futures.toApiRequestFailedException(cause));
+                return;
+            }
+
+            this.retryCount.increment();
+            CompletableFuture.delayedExecutor(this.backoff(number), TimeUnit.NANOSECONDS)
+                    .execute(() -> this.attempt(number + 1, key, attempt, result));
+        });
+    }
+
+    /**
+     * 引数として渡された失敗の原因が、再試行により成功する可能性のある一時的な失敗であるか判定します。
+     * <p>
+     * 原因の連鎖に {@link ErrorResponseException} が含まれる場合はそのステータスコードで判定し、 {@link MalformedResponseException}
+     * が含まれる場合はレスポンスを受信した上での失敗であるため一時的な失敗とはみなしません。それ以外の場合は、タイムアウトと、HTTPクライアントが
+     * 接続や通信の失敗として送出する入出力エラーのみを一時的な失敗とみなします。
+     *
+     * @param cause 失敗の原因
+     * @return 接続や通信の失敗、タイムアウト、またはステータスコード {@code 429} もしくは {@code 5xx} の応答の場合は {@code true} 、
+     *         それ以外の場合は {@code false}
+     */
+    static boolean isTransient(Throwable cause) {
+
+        for (Throwable current = cause; current != null; current = current.getCause()) {
+            if (current instanceof ErrorResponseException) {
+                return ((ErrorResponseException) current).isTransient();
+            }
+
+            if (current instanceof MalformedResponseException) {
+                return false;
+            }
+        }
+
+        for (Throwable current = cause; current != null; current = current.getCause()) {
+            if (current instanceof TimeoutException || current instanceof HttpTimeoutException
+                    || current instanceof ConnectException || isTransportFailure(current)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 引数として渡された例外が、HTTPクライアントが接続や通信の失敗として送出する入出力エラーであるか判定します。
+     * <p>
+     * HTTPクライアントは接続の切断などを具象クラスではない {@link IOException} として送出するため、その他の {@link IOException}
+     * のサブクラスはレスポンスボディの展開の失敗などを表すものとして除外します。
+     *
+     * @param exception 例外
+     * @return 接続や通信の失敗を表す入出力エラーの場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    private static boolean isTransportFailure(Throwable exception) {
+        return exception.getClass() == IOException.class || exception instanceof SocketException
+                || exception instanceof EOFException || exception instanceof ClosedChannelException;
+    }
+
+    /**
+     * 1回分の試行を開始します。ヘッジの待機時間が設定されている場合は、待機時間内に完了しなければもう1件のリクエストを送信し、先に成功した結果を採用します。
+     *
+     * @param number  試行の回数
+     * @param attempt 1回分の試行を開始し、その結果を返却する処理
+     * @return 試行の結果
+     */
+    private CompletableFuture<List<ExchangeRates>> hedge(int number, Attempt attempt) {
+
+        if (this.hedgeDelay == null) {
+            return this.timed(number, false, attempt);
+        }
+
+        final CompletableFuture<List<ExchangeRates>> result = new CompletableFuture<>();
+        final List<CompletableFuture<List<ExchangeRates>>> calls = new CopyOnWriteArrayList<>();
+        final AtomicInteger hedgeState = new AtomicInteger(HedgeState.WAITING);
+        final AtomicInteger failures = new AtomicInteger();
+
+        final Consumer<Boolean> launch = hedge -> {
+            final CompletableFuture<List<ExchangeRates>> call = this.timed(number, hedge, attempt);
+            calls.add(call);
+            call.whenComplete((rates, throwable) -> {
+                if (throwable == null) {
+                    result.complete(rates);
+                } else if (hedgeState.compareAndSet(HedgeState.WAITING, HedgeState.ABANDONED)
+                        || failures.incrementAndGet() == 2) {
+                    result.completeExceptionally(throwable);
+                }
+            });
+        };
+
+        launch.accept(false);
+
+        CompletableFuture.delayedExecutor(this.hedgeDelay.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            if (!result.isDone() && hedgeState.compareAndSet(HedgeState.WAITING, HedgeState.STARTED)) {
+                this.hedgeCount.increment();
+                launch.accept(true);
+            }
+        });
+
+        result.whenComplete((rates, throwable) -> calls.forEach(call -> call.cancel(true)));
+
+        return result;
+    }
+
+    /**
+     * 1回分のリクエストを送信し、試行ごとのタイムアウトを適用した結果を返却します。
+     *
+     * @param number  試行の回数
+     * @param hedge   ヘッジリクエストの場合は {@code true} 、それ以外の場合は {@code false}
+     * @param attempt 1回分の試行を開始し、その結果を返却する処理
+     * @return タイムアウトを適用した結果
+     */
+    private CompletableFuture<List<ExchangeRates>> timed(int number, boolean hedge, Attempt attempt) {
+        return Futures.forward(attempt.start(number, hedge)).orTimeout(this.attemptTimeout.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * サーキットが開いている場合に、最後に取得に成功した為替レートで {@code result} を完了します。最後に取得に成功した為替レートが存在しない場合は
+     * {@link CircuitBreakerOpenException} を原因とする {@link ApiRequestFailedException} で完了します。
+     *
+     * @param key    リクエストパラメータ
+     * @param result 呼び出し元へ返却する結果
+     */
+    private void fallback(RequestParameter key, CompletableFuture<List<ExchangeRates>> result) {
+
+        final List<ExchangeRates> rates = this.lastGood.getIfPresent(key);
+
+        if (rates == null) {
+            result.completeExceptionally(new ApiRequestFailedException(new CircuitBreakerOpenException()));
+            return;
+        }
+
+        this.fallbackCount.increment();
+        result.complete(rates);
+    }
+
+    /**
+     * {@code number} 回目の試行が失敗した後、次の試行までの待機時間をフルジッターで算出します。
+     *
+     * @param number 失敗した試行の回数
+     * @return 次の試行までの待機時間（ナノ秒）
+     */
+    private long backoff(int number) {
+
+        final long initial = this.initialBackoff.toNanos();
+        final int shift = Math.min(number - 1, Long.numberOfLeadingZeros(initial) - 1);
+        final long ceiling = Math.min(this.maxBackoff.toNanos(), initial << shift);
+
+        return ThreadLocalRandom.current().nextLong(ceiling);
+    }
+
+    /**
+     * 1回分の試行を開始する処理です。
+     */
+    @FunctionalInterface
+    interface Attempt {
+
+        /**
+         * 1回分の試行を開始し、その結果を返却します。
+         *
+         * @param number 試行の回数。最初の試行を {@code 1} とし、再試行ごとに {@code 1} ずつ増加します。ヘッジリクエストには元の試行と同一の回数が渡されます。
+         * @param hedge  ヘッジリクエストの場合は {@code true} 、それ以外の場合は {@code false}
+         * @return 試行の結果
+         */
+        CompletableFuture<List<ExchangeRates>> start(int number, boolean hedge);
+    }
+
+    /**
+     * ヘッジリクエストの状態を表す定数です。
+     */
+    private static final class HedgeState {
+
+        /**
+         * ヘッジリクエストの送信を待機している状態
+         */
+        private static final int WAITING = 0;
+
+        /**
+         * ヘッジリクエストを送信した状態
+         */
+        private static final int STARTED = 1;
+
+        /**
+         * 最初のリクエストが失敗したためヘッジリクエストを送信しない状態
+         */
+        private static final int ABANDONED = 2;
+
+        /**
+         * デフォルトコンストラクタ
+         */
+        private HedgeState() {
+        }
+    }
+
+    /**
+     * 連続した失敗回数に基づいてリクエストの送信可否を判定するサーキットブレーカーです。
+     */
+    private static final class CircuitBreaker {
+
+        /**
+         * サーキットが開く連続した失敗回数
+         */
+        private final int failureThreshold;
+
+        /**
+         * サーキットが開いている期間
+         */
+        private final Duration openDuration;
+
+        /**
+         * 時計
+         */
+        private final Clock clock;
+
+        /**
+         * 連続した失敗回数
+         */
+        private int consecutiveFailures;
+
+        /**
+         * サーキットが開いた時刻。サーキットが閉じている場合は {@code null}
+         */
+        private Instant openedAt;
+
+        /**
+         * サーキットが半開状態で試行中であるか否か
+         */
+        private boolean probing;
+
+        /**
+         * コンストラクタ
+         *
+         * @param failureThreshold サーキットが開く連続した失敗回数
+         * @param openDuration     サーキットが開いている期間
+         * @param clock            時計
+         */
+        private CircuitBreaker(int failureThreshold, Duration openDuration, Clock clock) {
+            this.failureThreshold = failureThreshold;
+            this.openDuration = openDuration;
+            this.clock = clock;
+        }
+
+        /**
+         * 試行を開始できるか判定します。サーキットが開いている期間が経過している場合は1件の試行のみを許可します。
+         *
+         * @return 試行を開始できる場合は {@code true} 、それ以外の場合は {@code false}
+         */
+        private synchronized boolean tryAcquire() {
+
+            if (this.openedAt == null) {
+                return true;
+            }
+
+            if (this.probing || this.clock.instant().isBefore(this.openedAt.plus(this.openDuration))) {
+                return false;
+            }
+
+            this.probing = true;
+            return true;
+        }
+
+        /**
+         * 試行の成功を記録し、サーキットを閉じます。
+         */
+        private synchronized void onSuccess() {
+            this.consecutiveFailures = 0;
+            this.openedAt = null;
+            this.probing = false;
+        }
+
+        /**
+         * 試行の失敗を記録し、連続した失敗回数が閾値に達した場合または半開状態の試行が失敗した場合はサーキットを開きます。
+         */
+        private synchronized void onFailure() {
+
+            this.consecutiveFailures++;
+
+            if (this.probing || this.consecutiveFailures >= this.failureThreshold) {
+                this.openedAt = this.clock.instant();
+                this.probing = false;
+            }
+        }
+
+        /**
+         * 失敗として数えずに試行の終了を記録します。半開状態の試行であった場合は、次の試行を許可します。
+         */
+        private synchronized void release() {
+            this.probing = false;
+        }
+
+        /**
+         * サーキットが開いているか判定します。
+         *
+         * @return サーキットが開いている場合は {@code true} 、それ以外の場合は {@code false}
+         */
+        private synchronized boolean isOpen() {
+            return this.openedAt != null && (this.probing
+                    || this.clock.instant().isBefore(this.openedAt.plus(this.openDuration)));
+        }
+    }
+}
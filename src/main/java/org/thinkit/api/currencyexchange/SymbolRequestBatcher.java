@@ -0,0 +1,439 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.thinkit.api.common.Resource;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 短い時間枠内に要求された為替レートの取得をまとめ、為替レートAPIへのリクエスト数を削減するクラスです。
+ * <p>
+ * 当クラスへ渡されたリクエストは、リソース、基軸通貨、検索期間が同一のリクエストごとに時間枠の間だけ保留されます。時間枠が経過した時点で、
+ * 保留されたリクエストのシンボルを結合した1件のリクエストが送信され、その結果が各リクエストのシンボルで絞り込まれて呼び出し元へ返却されます。
+ * 保留されたリクエストのいずれかがシンボルを指定していない場合は、全ての通貨を取得します。
+ * <p>
+ * まとめて送信されるリクエストには、時間枠内で最初に渡されたリクエストの通信設定、キャッシュおよびストアが使用されます。
+ * <p>
+ * 当クラスはスレッドセーフです。
+ *
+ * <pre>
+ * try (SymbolRequestBatcher batcher = SymbolRequestBatcher.builder().withWindow(Duration.ofMillis(2)).build()) {
+ *     CompletableFuture&lt;List&lt;ExchangeRates&gt;&gt; rates = batcher.fetchAsync(api);
+ * }
+ * </pre>
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+public final class SymbolRequestBatcher implements Closeable {
+
+    /**
+     * リクエストをまとめる時間枠
+     */
+    private final Duration window;
+
+    /**
+     * 時間枠の経過を待機するスケジューラ
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * スケジューラを当クラスが生成したか否か
+     */
+    private final boolean ownsScheduler;
+
+    /**
+     * リクエストをまとめる単位ごとの保留中のバッチ
+     */
+    private final ConcurrentMap<BatchKey, Batch> batches = new ConcurrentHashMap<>();
+
+    /**
+     * 当クラスへ渡されたリクエスト数
+     */
+    private final LongAdder requestCount = new LongAdder();
+
+    /**
+     * 為替レートAPIへ送信したリクエスト数
+     */
+    private final LongAdder upstreamCallCount = new LongAdder();
+
+    /**
+     * 停止済みか否か
+     */
+    private volatile boolean closed;
+
+    /**
+     * コンストラクタ
+     *
+     * @param builder ビルダー
+     */
+    private SymbolRequestBatcher(Builder builder) {
+        this.window = builder.window;
+        this.ownsScheduler = builder.scheduler == null;
+        this.scheduler = this.ownsScheduler ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "currency-exchange-batcher");
+            thread.setDaemon(true);
+            return thread;
+        }) : builder.scheduler;
+    }
+
+    /**
+     * {@link SymbolRequestBatcher} クラスのインスタンスを生成するビルダークラスを返却します。
+     *
+     * @return {@link SymbolRequestBatcher} クラスのインスタンスを生成するビルダークラス
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * {@link SymbolRequestBatcher} クラスのインスタンスを生成するビルダークラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0
+     * @version 1.0
+     *
+     * @see #withWindow(Duration)
+     * @see #withScheduler(ScheduledExecutorService)
+     * @see #build()
+     */
+    public static class Builder {
+
+        /**
+         * リクエストをまとめる時間枠
+         */
+        private Duration window = Duration.ofMillis(2);
+
+        /**
+         * 時間枠の経過を待機するスケジューラ
+         */
+        private ScheduledExecutorService scheduler;
+
+        /**
+         * デフォルトコンストラクタ
+         */
+        private Builder() {
+        }
+
+        /**
+         * リクエストをまとめる時間枠を設定します。
+         * <p>
+         * 初期値として2ミリ秒が設定されています。
+         *
+         * @param window リクエストをまとめる時間枠
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException     引数として {@code null} が渡された場合
+         * @exception IllegalArgumentException 引数として {@code 0} 以下の期間が渡された場合
+         */
+        public Builder withWindow(@NonNull Duration window) {
+
+            if (window.isZero() || window.isNegative()) {
+                throw new IllegalArgumentException(String.format("Duration must be positive: %s", window));
+            }
+
+            this.window = window;
+            return this;
+        }
+
+        /**
+         * 時間枠の経過を待機するスケジューラを設定します。
+         * <p>
+         * 当メソッドを呼び出さない場合は、当クラス専用のスケジューラを生成し {@link SymbolRequestBatcher#close()}
+         * メソッドで停止します。渡されたスケジューラのライフサイクルは呼び出し元で管理してください。
+         *
+         * @param scheduler 時間枠の経過を待機するスケジューラ
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withScheduler(@NonNull ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * 設定された値を基に {@link SymbolRequestBatcher} クラスの新しいインスタンスを生成し返却します。
+         *
+         * @return {@link SymbolRequestBatcher} クラスの新しいインスタンス
+         */
+        public SymbolRequestBatcher build() {
+            return new SymbolRequestBatcher(this);
+        }
+    }
+
+    /**
+     * 引数として渡されたリクエストを時間枠の間保留し、同一のリソース、基軸通貨、検索期間を対象とする他のリクエストとまとめて為替レートを取得します。
+     * <p>
+     * 返却される {@link CompletableFuture} の結果は、引数として渡されたリクエストのシンボルで絞り込まれた為替レートのリストです。
+     * まとめて送信されたリクエストが失敗した場合は、同じバッチに含まれる全ての呼び出し元へ失敗が通知されます。
+     * 返却された {@link CompletableFuture} をキャンセルしても、他の呼び出し元のためにまとめたリクエストはキャンセルされません。
+     * <p>
+     * スケジューラが時間枠の待機を受け付けなかった場合、そのバッチは破棄され、バッチに含まれる全ての呼び出し元へ
+     * {@link RejectedExecutionException} が通知されます。
+     *
+     * @param request 為替レートを取得するリクエスト
+     * @return 日付の昇順に並べた為替レートのリストを返却する {@link CompletableFuture}
+     *
+     * @exception NullPointerException  引数として {@code null} が渡された場合
+     * @exception IllegalStateException 当インスタンスが既に停止されている場合
+     */
+    public CompletableFuture<List<ExchangeRates>> fetchAsync(@NonNull CurrencyExchangeRates request) {
+
+        if (this.closed) {
+            throw new IllegalStateException("Batcher is already closed");
+        }
+
+        this.requestCount.increment();
+
+        final BatchKey key = new BatchKey(request.getResource(), request.getBase(), request.getStartAt(),
+                request.getEndAt());
+        final Pending pending = new Pending(request, new CompletableFuture<>());
+
+        while (true) {
+            Batch batch = this.batches.get(key);
+
+            if (batch == null) {
+                final Batch created = new Batch();
+                batch = this.batches.putIfAbsent(key, created);
+
+                if (batch == null) {
+                    batch = created;
+
+                    try {
+                        this.scheduler.schedule(() -> this.flush(key, created), this.window.toNanos(),
+                                TimeUnit.NANOSECONDS);
+                    } catch (RejectedExecutionException e) {
+                        this.batches.remove(key, created);
+                        created.close().forEach(joined -> joined.result.completeExceptionally(e));
+                        return CompletableFuture.failedFuture(e);
+                    }
+                }
+            }
+
+            if (batch.add(pending)) {
+                return pending.result;
+            }
+
+            this.batches.remove(key, batch);
+        }
+    }
+
+    /**
+     * 当クラスへ渡されたリクエスト数を返却します。
+     *
+     * @return 当クラスへ渡されたリクエスト数
+     */
+    public long getRequestCount() {
+        return this.requestCount.sum();
+    }
+
+    /**
+     * 当クラスが為替レートAPIへ送信したリクエスト数を返却します。
+     *
+     * @return 為替レートAPIへ送信したリクエスト数
+     */
+    public long getUpstreamCallCount() {
+        return this.upstreamCallCount.sum();
+    }
+
+    /**
+     * 当クラスが生成したスケジューラを停止します。保留中のリクエストは時間枠の経過を待たずに直ちに送信されます。
+     * <p>
+     * 停止後に {@link #fetchAsync(CurrencyExchangeRates)} メソッドを呼び出した場合は {@link IllegalStateException} が発生します。
+     */
+    @Override
+    public void close() {
+
+        this.closed = true;
+        this.batches.forEach(this::flush);
+
+        if (this.ownsScheduler) {
+            this.scheduler.shutdown();
+        }
+    }
+
+    /**
+     * 引数として渡されたバッチを締め切り、保留中のリクエストのシンボルを結合した1件のリクエストを送信します。
+     *
+     * @param key   バッチのキー
+     * @param batch 締め切るバッチ
+     */
+    private void flush(BatchKey key, Batch batch) {
+
+        this.batches.remove(key, batch);
+        final List<Pending> pendings = batch.close();
+
+        if (pendings.isEmpty()) {
+            return;
+        }
+
+        this.upstreamCallCount.increment();
+
+        final CompletableFuture<List<ExchangeRates>> merged;
+
+        try {
+            merged = pendings.get(0).request.forSymbols(mergeSymbols(pendings)).fetchAsync();
+        } catch (RuntimeException e) {
+            pendings.forEach(pending -> pending.result.completeExceptionally(e));
+            return;
+        }
+
+        merged.whenComplete((rates, throwable) -> pendings.forEach(pending -> {
+            if (throwable != null) {
+                pending.result.completeExceptionally(throwable);
+            } else {
+                final List<Currency> symbols = pending.request.getSymbols();
+                pending.result.complete(
+                        rates.stream().map(daily -> daily.select(symbols)).collect(Collectors.toList()));
+            }
+        }));
+    }
+
+    /**
+     * 引数として渡されたリクエストのシンボルを結合して返却します。いずれかのリクエストがシンボルを指定していない場合は空のリストを返却します。
+     *
+     * @param pendings 保留中のリクエスト
+     * @return 結合したシンボル。全ての通貨を取得する場合は空のリスト
+     */
+    private static List<Currency> mergeSymbols(List<Pending> pendings) {
+
+        final Set<Currency> symbols = EnumSet.noneOf(Currency.class);
+
+        for (Pending pending : pendings) {
+            if (pending.request.getSymbols().isEmpty()) {
+                return List.of();
+            }
+
+            symbols.addAll(pending.request.getSymbols());
+        }
+
+        return new ArrayList<>(symbols);
+    }
+
+    /**
+     * リクエストをまとめる単位を表すキーです。
+     */
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class BatchKey {
+
+        /**
+         * 為替レートAPIのリソース
+         */
+        private final Resource resource;
+
+        /**
+         * 基軸通貨
+         */
+        private final Currency base;
+
+        /**
+         * 検索開始日。最新リソースを対象とする場合は {@code null}
+         */
+        private final LocalDate startAt;
+
+        /**
+         * 検索終了日。最新リソースを対象とする場合は {@code null}
+         */
+        private final LocalDate endAt;
+    }
+
+    /**
+     * 保留中のリクエストと、その呼び出し元へ返却する結果の組です。
+     */
+    @RequiredArgsConstructor
+    private static final class Pending {
+
+        /**
+         * 保留中のリクエスト
+         */
+        private final CurrencyExchangeRates request;
+
+        /**
+         * 呼び出し元へ返却する結果
+         */
+        private final CompletableFuture<List<ExchangeRates>> result;
+    }
+
+    /**
+     * 時間枠内に渡されたリクエストを保持するバッチです。締め切られたバッチにはリクエストを追加できません。
+     */
+    private static final class Batch {
+
+        /**
+         * 保留中のリクエスト
+         */
+        private final List<Pending> pendings = new ArrayList<>();
+
+        /**
+         * 締め切られたか否か
+         */
+        private boolean closed;
+
+        /**
+         * 引数として渡されたリクエストをバッチへ追加します。
+         *
+         * @param pending 保留中のリクエスト
+         * @return 追加できた場合は {@code true} 、バッチが締め切られていた場合は {@code false}
+         */
+        private synchronized boolean add(Pending pending) {
+
+            if (this.closed) {
+                return false;
+            }
+
+            this.pendings.add(pending);
+            return true;
+        }
+
+        /**
+         * バッチを締め切り、保留中のリクエストを返却します。既に締め切られていた場合は空のリストを返却します。
+         *
+         * @return 保留中のリクエスト
+         */
+        private synchronized List<Pending> close() {
+
+            if (this.closed) {
+                return List.of();
+            }
+
+            this.closed = true;
+            return new ArrayList<>(this.pendings);
+        }
+    }
+}
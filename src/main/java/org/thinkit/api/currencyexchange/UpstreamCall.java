@@ -0,0 +1,377 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+import lombok.NonNull;
+
+/**
+ * 為替レートAPIへ送信する1件のリクエストを計測し、完了時に {@link ExchangeRatesListener} へ通知するクラスです。
+ * <p>
+ * リスナーが設定されていない場合は共有の無効なインスタンスが使用され、全てのメソッドは何も行いません。そのため、計測が無効な場合はオブジェクトの生成も時刻の取得も発生しません。
+ * 完了の通知は1度だけ行われ、以降の呼び出しは無視されます。
+ * <p>
+ * 当クラスの1つのインスタンスはエンドポイントへの1回の送信に対応します。他のエンドポイントへの送信し直しや、未更新のレスポンスを受けた送信し直しを含む
+ * 一連の送信は {@link Sequence} で計測し、送信ごとに個別の計測結果が通知されます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class UpstreamCall {
+
+    /**
+     * 計測を行わない無効なインスタンス
+     */
+    static final UpstreamCall DISABLED = new UpstreamCall(null, null, null, 0);
+
+    /**
+     * 計測を行わない無効な一連の送信
+     */
+    static final Sequence DISABLED_SEQUENCE = new Sequence(null, null, null);
+
+    /**
+     * 計測結果の通知先。計測を行わない場合は {@code null}
+     */
+    private final ExchangeRatesListener listener;
+
+    /**
+     * 為替レートAPIのリソース
+     */
+    private final CurrencyExchangeRatesResource resource;
+
+    /**
+     * 基軸通貨
+     */
+    private final Currency base;
+
+    /**
+     * リクエストの送信開始時刻（ナノ秒）
+     */
+    private final long startTime;
+
+    /**
+     * 完了を通知したか否か
+     */
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    /**
+     * レスポンスのステータスコード。レスポンスを受信していない場合は {@code 0}
+     */
+    private volatile int statusCode;
+
+    /**
+     * レスポンスヘッダーの受信時刻（ナノ秒）
+     */
+    private volatile long headersTime;
+
+    /**
+     * レスポンスボディの受信完了時刻（ナノ秒）。受信が完了していない場合は {@code 0}
+     */
+    private volatile long bodyEndTime;
+
+    /**
+     * 受信したレスポンスボディのバイト数
+     */
+    private volatile long payloadBytes;
+
+    /**
+     * コンストラクタ
+     *
+     * @param listener  計測結果の通知先
+     * @param resource  為替レートAPIのリソース
+     * @param base      基軸通貨
+     * @param startTime リクエストの送信開始時刻（ナノ秒）
+     */
+    private UpstreamCall(ExchangeRatesListener listener, CurrencyExchangeRatesResource resource, Currency base,
+            long startTime) {
+        this.listener = listener;
+        this.resource = resource;
+        this.base = base;
+        this.startTime = startTime;
+    }
+
+    /**
+     * 同一のリクエストに対する一連の送信の計測を開始します。
+     *
+     * @param listener 計測結果の通知先。計測を行わない場合は {@code null}
+     * @param resource 為替レートAPIのリソース
+     * @param base     基軸通貨
+     * @return 一連の送信の計測。リスナーが {@code null} の場合は {@link #DISABLED_SEQUENCE}
+     */
+    static Sequence sequence(ExchangeRatesListener listener, @NonNull CurrencyExchangeRatesResource resource,
+            @NonNull Currency base) {
+
+        if (listener == null) {
+            return DISABLED_SEQUENCE;
+        }
+
+        return new Sequence(listener, resource, base);
+    }
+
+    /**
+     * 計測を行うか判定します。
+     *
+     * @return 計測を行う場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    boolean isEnabled() {
+        return this.listener != null;
+    }
+
+    /**
+     * 計測を行う場合のみ現在時刻を取得します。
+     *
+     * @return 現在時刻（ナノ秒）。計測を行わない場合は {@code 0}
+     */
+    long nanoTime() {
+        return this.listener == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * 引数として渡されたボディハンドラに、レスポンスヘッダーの受信時刻とレスポンスボディのバイト数の計測を追加したボディハンドラを返却します。
+     *
+     * @param <T>      レスポンスボディの型
+     * @param delegate 委譲先のボディハンドラ
+     * @return 計測を追加したボディハンドラ。計測を行わない場合は {@code delegate}
+     */
+    <T> HttpResponse.BodyHandler<T> bodyHandler(@NonNull HttpResponse.BodyHandler<T> delegate) {
+
+        if (this.listener == null) {
+            return delegate;
+        }
+
+        return responseInfo -> {
+            this.headersTime = System.nanoTime();
+            this.statusCode = responseInfo.statusCode();
+            return new CountingSubscriber<>(delegate.apply(responseInfo));
+        };
+    }
+
+    /**
+     * リクエストの成功を通知します。
+     *
+     * @param parseTime レスポンスボディの展開と解析に要した時間（ナノ秒）
+     */
+    void succeeded(long parseTime) {
+        this.complete(parseTime, null);
+    }
+
+    /**
+     * リクエストの失敗を通知します。レスポンスを受信していない場合は {@link ExchangeRatesListener#onUpstreamFailure} を呼び出します。
+     *
+     * @param failure 失敗の原因
+     */
+    void failed(@NonNull Throwable failure) {
+        this.complete(0, failure);
+    }
+
+    /**
+     * 次の送信に置き換えられたことを通知します。
+     * <p>
+     * レスポンスを受信したまま完了していない場合は、その時点の計測結果を通知します。ステータスコードが {@code 429} または {@code 5xx}
+     * の場合は {@link ErrorResponseException} を失敗の原因とします。レスポンスを受信していない場合は、送信の失敗が別途通知されるため何も行いません。
+     */
+    private void supersede() {
+
+        final int statusCode = this.statusCode;
+
+        if (statusCode == 0) {
+            return;
+        }
+
+        this.complete(0, ErrorResponseException.isTransient(statusCode)
+                ? new ErrorResponseException(statusCode, String.format("Unexpected HTTP status code: %d", statusCode))
+                : null);
+    }
+
+    /**
+     * 計測結果を1度だけ通知します。
+     *
+     * @param parseTime レスポンスボディの展開と解析に要した時間（ナノ秒）
+     * @param failure   失敗の原因。成功した場合は {@code null}
+     */
+    private void complete(long parseTime, Throwable failure) {
+
+        if (this.listener == null || !this.completed.compareAndSet(false, true)) {
+            return;
+        }
+
+        if (this.statusCode == 0) {
+            this.listener.onUpstreamFailure(this.resource, this.base,
+                    failure != null ? failure : new IllegalStateException("No response received"));
+            return;
+        }
+
+        final long bodyEnd = this.bodyEndTime != 0 ? this.bodyEndTime : System.nanoTime();
+
+        this.listener.onUpstreamCall(new UpstreamCallEvent(this.resource, this.base, this.statusCode,
+                this.headersTime - this.startTime, bodyEnd - this.headersTime, parseTime, this.payloadBytes, failure));
+    }
+
+    /**
+     * 受信したレスポンスボディのバイト数と受信完了時刻を計測しながら、委譲先のサブスクライバへ処理を委譲するサブスクライバです。
+     *
+     * @param <T> レスポンスボディの型
+     */
+    private final class CountingSubscriber<T> implements HttpResponse.BodySubscriber<T> {
+
+        /**
+         * 委譲先のサブスクライバ
+         */
+        private final HttpResponse.BodySubscriber<T> delegate;
+
+        /**
+         * コンストラクタ
+         *
+         * @param delegate 委譲先のサブスクライバ
+         */
+        CountingSubscriber(HttpResponse.BodySubscriber<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return this.delegate.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.delegate.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+
+            long received = 0;
+
+            for (ByteBuffer buffer : item) {
+                received += buffer.remaining();
+            }
+
+            payloadBytes += received;
+            this.delegate.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            bodyEndTime = System.nanoTime();
+            this.delegate.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            bodyEndTime = System.nanoTime();
+            this.delegate.onComplete();
+        }
+    }
+
+    /**
+     * 同一のリクエストに対する一連の送信を計測するクラスです。
+     * <p>
+     * {@link #next()} メソッドで送信ごとに新しい {@link UpstreamCall} を開始します。新しい送信を開始した時点で、前回の送信がレスポンスを受信したまま
+     * 完了していない場合は、他のエンドポイントへ送信し直されたものとして前回の計測結果を通知します。一連の送信は順番に行われることを前提とします。
+     */
+    static final class Sequence {
+
+        /**
+         * 計測結果の通知先。計測を行わない場合は {@code null}
+         */
+        private final ExchangeRatesListener listener;
+
+        /**
+         * 為替レートAPIのリソース
+         */
+        private final CurrencyExchangeRatesResource resource;
+
+        /**
+         * 基軸通貨
+         */
+        private final Currency base;
+
+        /**
+         * 最後に開始した送信。送信を開始していない場合は {@code null}
+         */
+        private volatile UpstreamCall current;
+
+        /**
+         * コンストラクタ
+         *
+         * @param listener 計測結果の通知先
+         * @param resource 為替レートAPIのリソース
+         * @param base     基軸通貨
+         */
+        private Sequence(ExchangeRatesListener listener, CurrencyExchangeRatesResource resource, Currency base) {
+            this.listener = listener;
+            this.resource = resource;
+            this.base = base;
+        }
+
+        /**
+         * 計測を行うか判定します。
+         *
+         * @return 計測を行う場合は {@code true} 、それ以外の場合は {@code false}
+         */
+        boolean isEnabled() {
+            return this.listener != null;
+        }
+
+        /**
+         * 次の送信の計測を開始します。前回の送信がレスポンスを受信したまま完了していない場合は、その計測結果を通知します。
+         *
+         * @return 開始した送信の計測。計測を行わない場合は {@link UpstreamCall#DISABLED}
+         */
+        UpstreamCall next() {
+
+            if (this.listener == null) {
+                return DISABLED;
+            }
+
+            final UpstreamCall previous = this.current;
+
+            if (previous != null) {
+                previous.supersede();
+            }
+
+            final UpstreamCall call = new UpstreamCall(this.listener, this.resource, this.base, System.nanoTime());
+            this.current = call;
+
+            return call;
+        }
+
+        /**
+         * 最後に開始した送信の計測を返却します。送信を開始していない場合は、送信前の失敗を通知するための計測を開始して返却します。
+         *
+         * @return 最後に開始した送信の計測。計測を行わない場合は {@link UpstreamCall#DISABLED}
+         */
+        UpstreamCall current() {
+
+            if (this.listener == null) {
+                return DISABLED;
+            }
+
+            final UpstreamCall current = this.current;
+            return current != null ? current : this.next();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import java.util.Optional;
+
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 為替レートAPIへ送信した1件のリクエストの計測結果を管理するクラスです。
+ * <p>
+ * 当クラスはレスポンスのステータスコードを受信したリクエストについてのみ生成される不変オブジェクトです。時間は全てナノ秒単位です。
+ * JDKのHTTPクライアントは名前解決と接続確立の所要時間を公開しないため、それらの時間はレスポンスヘッダーの受信までの時間に含まれます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ *
+ * @see ExchangeRatesListener#onUpstreamCall(UpstreamCallEvent)
+ */
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class UpstreamCallEvent {
+
+    /**
+     * 為替レートAPIのリソース
+     */
+    @Getter
+    private final CurrencyExchangeRatesResource resource;
+
+    /**
+     * 基軸通貨
+     */
+    @Getter
+    private final Currency base;
+
+    /**
+     * レスポンスのステータスコード
+     */
+    @Getter
+    private final int statusCode;
+
+    /**
+     * リクエストの送信開始からレスポンスヘッダーを受信するまでの時間（ナノ秒）。名前解決、接続確立、TLSハンドシェイクおよびサーバーの処理時間を含みます。
+     */
+    @Getter
+    private final long timeToHeaders;
+
+    /**
+     * レスポンスヘッダーの受信からレスポンスボディの最後のバイトを受信するまでの時間（ナノ秒）
+     */
+    @Getter
+    private final long bodyTime;
+
+    /**
+     * レスポンスボディの展開と解析に要した時間（ナノ秒）。解析はレスポンスボディの受信と並行して行われるため、 {@link #getBodyTime()}
+     * と重複します。レスポンスボディを解析しない {@link CurrencyExchangeRates#send()} メソッドでは {@code 0} です。
+     */
+    @Getter
+    private final long parseTime;
+
+    /**
+     * 受信したレスポンスボディのバイト数。圧縮されている場合は展開前のバイト数です。
+     */
+    @Getter
+    private final long payloadBytes;
+
+    /**
+     * レスポンスの受信後に発生した失敗。成功した場合は {@code null}
+     */
+    private final Throwable failure;
+
+    /**
+     * レスポンスの受信後に発生した失敗を返却します。
+     *
+     * @return レスポンスの受信後に発生した失敗。成功した場合は空
+     */
+    public Optional<Throwable> getFailure() {
+        return Optional.ofNullable(this.failure);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 仮想スレッドを使用するエグゼキュータを提供するユーティリティクラスです。
+ * <p>
+ * 当ライブラリは仮想スレッドが導入される前のJDKを対象にコンパイルされるため、
+ * {@code Executors#newVirtualThreadPerTaskExecutor()} メソッドは実行時に検索されます。
+ * 実行中のJDKが仮想スレッドをサポートしない場合、エグゼキュータは提供されません。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class VirtualThreads {
+
+    /**
+     * 仮想スレッドを使用するエグゼキュータを生成するメソッドの名前
+     */
+    private static final String FACTORY_METHOD = "newVirtualThreadPerTaskExecutor";
+
+    /**
+     * 仮想スレッドを使用するエグゼキュータを生成するメソッド。実行中のJDKがサポートしない場合は {@code null}
+     */
+    private static final MethodHandle FACTORY = findFactory();
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private VirtualThreads() {
+    }
+
+    /**
+     * 実行中のJDKが仮想スレッドをサポートするか判定します。
+     *
+     * @return 仮想スレッドをサポートする場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    static boolean isSupported() {
+        return FACTORY != null;
+    }
+
+    /**
+     * タスクごとに仮想スレッドを生成するエグゼキュータを返却します。
+     * <p>
+     * エグゼキュータはJVM全体で共有され、同一の {@link java.net.http.HttpClient} が再利用されるよう常に同一のインスタンスが返却されます。
+     *
+     * @return タスクごとに仮想スレッドを生成するエグゼキュータ
+     *
+     * @exception UnsupportedOperationException 実行中のJDKが仮想スレッドをサポートしない場合
+     */
+    static ExecutorService executor() {
+
+        if (!isSupported()) {
+            throw new UnsupportedOperationException(
+                    String.format("Virtual threads are not supported on Java %s", Runtime.version()));
+        }
+
+        return Holder.EXECUTOR;
+    }
+
+    /**
+     * 仮想スレッドを使用するエグゼキュータを生成するメソッドを検索します。
+     * <p>
+     * 仮想スレッドがプレビュー機能であるJDKでは、 {@code --enable-preview} を指定せずに起動した場合でもメソッドは存在しますが、呼び出すと例外が発生します。
+     * そのため、検索したメソッドを一度呼び出して実際にエグゼキュータを生成できることを確認します。
+     *
+     * @return 仮想スレッドを使用するエグゼキュータを生成するメソッド。実行中のJDKがサポートしない場合は {@code null}
+     */
+    private static MethodHandle findFactory() {
+
+        final MethodHandle factory;
+
+        try {
+            factory = MethodHandles.publicLookup().findStatic(Executors.class, FACTORY_METHOD,
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+
+        try {
+            ((ExecutorService) factory.invokeExact()).shutdown();
+            return factory;
+        } catch (VirtualMachineError e) {
+            throw e;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * 共有されるエグゼキュータを初回参照時に生成するためのホルダークラスです。
+     */
+    private static final class Holder {
+
+        /**
+         * タスクごとに仮想スレッドを生成する共有のエグゼキュータ
+         */
+        private static final ExecutorService EXECUTOR = create();
+
+        /**
+         * タスクごとに仮想スレッドを生成するエグゼキュータを生成します。
+         *
+         * @return タスクごとに仮想スレッドを生成するエグゼキュータ
+         */
+        private static ExecutorService create() {
+            try {
+                return (ExecutorService) FACTORY.invokeExact();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
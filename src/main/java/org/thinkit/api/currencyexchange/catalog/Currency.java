@@ -14,6 +14,9 @@
 
 package org.thinkit.api.currencyexchange.catalog;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.thinkit.api.catalog.BiCatalog;
 
 import lombok.Getter;
@@ -200,4 +203,27 @@ public enum Currency implements BiCatalog<Currency, String> {
      */
     @Getter
     private final String tag;
+
+    /**
+     * タグをキーとした通貨のマップ
+     */
+    private static final Map<String, Currency> TAGS = new HashMap<>(values().length * 2);
+
+    static {
+        for (Currency currency : values()) {
+            TAGS.put(currency.getTag(), currency);
+        }
+    }
+
+    /**
+     * 引数として渡されたタグに対応する通貨を返却します。
+     * <p>
+     * 当メソッドは {@link #values()} を走査せずにハッシュ表から通貨を検索します。
+     *
+     * @param tag ISO 4217 形式の通貨のタグ
+     * @return タグに対応する通貨。対応する通貨が定義されていない場合は {@code null}
+     */
+    public static Currency ofTag(String tag) {
+        return tag == null ? null : TAGS.get(tag);
+    }
 }
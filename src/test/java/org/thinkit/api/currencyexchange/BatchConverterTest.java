@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link BatchConverter} クラスのテストクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class BatchConverterTest {
+
+    /**
+     * 並列処理の閾値を超える要素数
+     */
+    private static final int LARGE_SIZE = 100_000;
+
+    /**
+     * 一部の通貨のみを含む為替レート
+     */
+    private static final ExchangeRates PARTIAL_RATES = ExchangeRates.of(Currency.USA_DOLLAR, LocalDate.of(2020, 10, 14),
+            Map.of(Currency.JAPANESE_YEN, 105.5, Currency.ENGLAND_STERLING_POUND, 0.775));
+
+    @Test
+    void testConvertToMinorUnitsRoundsToMinorUnit() {
+        final BatchConverter converter = BatchConverter.of(PARTIAL_RATES);
+        final double[] amounts = { 12.345, 100.0, 1.0 };
+        final int[] from = { Currency.USA_DOLLAR.getCode(), Currency.USA_DOLLAR.getCode(),
+                Currency.JAPANESE_YEN.getCode() };
+        final int[] to = { Currency.USA_DOLLAR.getCode(), Currency.JAPANESE_YEN.getCode(),
+                Currency.JAPANESE_YEN.getCode() };
+        final long[] output = new long[amounts.length];
+
+        converter.convertToMinorUnits(amounts, from, to, output);
+
+        assertArrayEquals(new long[] { 1235, 10550, 1 }, output);
+    }
+
+    @Test
+    void testConvertToMinorUnitsRejectsMissingRateWithoutWriting() {
+        final BatchConverter converter = BatchConverter.of(PARTIAL_RATES);
+        final double[] amounts = { 1.0, 2.0, 3.0 };
+        final int[] from = { Currency.USA_DOLLAR.getCode(), Currency.USA_DOLLAR.getCode(),
+                Currency.USA_DOLLAR.getCode() };
+        final int[] to = { Currency.JAPANESE_YEN.getCode(), Currency.JAPANESE_YEN.getCode(),
+                Currency.ICELAND_KRONA.getCode() };
+        final long[] output = { -1, -1, -1 };
+
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToMinorUnits(amounts, from, to, output));
+        assertArrayEquals(new long[] { -1, -1, -1 }, output);
+    }
+
+    @Test
+    void testInvalidCodeIsRejectedWithoutWriting() {
+        final BatchConverter converter = BatchConverter.of(PARTIAL_RATES);
+        final double[] amounts = { 1.0, 2.0, 3.0 };
+        final int[] from = { Currency.USA_DOLLAR.getCode(), Currency.USA_DOLLAR.getCode(),
+                Currency.USA_DOLLAR.getCode() };
+        final int[] to = { Currency.JAPANESE_YEN.getCode(), Currency.JAPANESE_YEN.getCode(),
+                ExchangeRates.CURRENCY_COUNT };
+        final double[] output = { -1.0, -1.0, -1.0 };
+        final long[] minorUnits = { -1, -1, -1 };
+
+        assertThrows(IndexOutOfBoundsException.class, () -> converter.convert(amounts, from, to, output));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> converter.convertToMinorUnits(amounts, from, to, minorUnits));
+        assertArrayEquals(new double[] { -1.0, -1.0, -1.0 }, output);
+        assertArrayEquals(new long[] { -1, -1, -1 }, minorUnits);
+    }
+
+    @Test
+    void testParallelConversionMatchesSequential() {
+        final ExchangeRates rates = ExchangeRatesPayloads
+                .dataset(Currency.USA_DOLLAR, LocalDate.of(2020, 10, 14), LocalDate.of(2020, 10, 14)).get(0);
+        final BatchConverter converter = BatchConverter.of(rates);
+        final Random random = new Random(42L);
+        final double[] amounts = new double[LARGE_SIZE];
+        final int[] from = new int[LARGE_SIZE];
+        final int[] to = new int[LARGE_SIZE];
+
+        for (int i = 0; i < LARGE_SIZE; i++) {
+            amounts[i] = random.nextDouble() * 10_000;
+            from[i] = random.nextInt(ExchangeRates.CURRENCY_COUNT);
+            to[i] = random.nextInt(ExchangeRates.CURRENCY_COUNT);
+        }
+
+        final double[] sequential = new double[LARGE_SIZE];
+        final double[] parallel = new double[LARGE_SIZE];
+        converter.convert(amounts, from, to, sequential);
+        converter.convertParallel(amounts, from, to, parallel);
+        assertArrayEquals(sequential, parallel);
+
+        final long[] sequentialMinor = new long[LARGE_SIZE];
+        final long[] parallelMinor = new long[LARGE_SIZE];
+        converter.convertToMinorUnits(amounts, from, to, sequentialMinor);
+        converter.convertParallelToMinorUnits(amounts, from, to, parallelMinor);
+        assertArrayEquals(sequentialMinor, parallelMinor);
+
+        final double[] single = Arrays.copyOf(amounts, LARGE_SIZE);
+        converter.convertParallel(single, Currency.USA_DOLLAR, Currency.JAPANESE_YEN, single);
+
+        for (int i = 0; i < LARGE_SIZE; i++) {
+            assertEquals(rates.convert(amounts[i], Currency.USA_DOLLAR, Currency.JAPANESE_YEN), single[i]);
+        }
+    }
+}
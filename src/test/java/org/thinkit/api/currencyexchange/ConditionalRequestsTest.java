@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link CurrencyExchangeRates.Builder#withConditionalRequests(ConditionalRequestCache)} メソッドで設定する条件付きリクエストのテストクラスです。
+ * <p>
+ * 各テストは {@code ETag} ヘッダーを返却する {@link ExchangeRatesServer} に対してリクエストを送信します。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class ConditionalRequestsTest {
+
+    /**
+     * データセット
+     */
+    private static final List<ExchangeRates> DATASET = ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR,
+            LocalDate.of(2020, 10, 1), LocalDate.of(2020, 10, 9));
+
+    /**
+     * サーバーの応答遅延（ミリ秒）
+     */
+    private static final long LATENCY = 300;
+
+    @Test
+    void testNotModifiedReturnsCachedRates() {
+        try (ExchangeRatesServer server = ExchangeRatesServer.builder().withDataset(DATASET).build()) {
+
+            final ConditionalRequestCache conditionalRequests = ConditionalRequestCache.builder().build();
+            final CurrencyExchangeRates api = CurrencyExchangeRates.builder().withEndpoint(server.getEndpoint())
+                    .withConditionalRequests(conditionalRequests).build();
+
+            final List<ExchangeRates> expected = api.fetch();
+
+            assertEquals(expected, api.fetch());
+            assertEquals(expected, api.fetchAsync().join());
+            assertEquals(2, conditionalRequests.getNotModifiedCount());
+            assertEquals(3, server.getRequestCount());
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testSynchronousFetchResendsWhenEntryIsEvictedInFlight() throws InterruptedException {
+        try (ExchangeRatesServer server = ExchangeRatesServer.builder().withDataset(DATASET)
+                .withLatency(Duration.ofMillis(LATENCY)).build()) {
+
+            final ConditionalRequestCache conditionalRequests = ConditionalRequestCache.builder().build();
+            final CurrencyExchangeRates api = CurrencyExchangeRates.builder().withEndpoint(server.getEndpoint())
+                    .withConditionalRequests(conditionalRequests).build();
+
+            final List<ExchangeRates> expected = api.fetch();
+
+            assertEquals(expected, evictInFlight(conditionalRequests, () -> CompletableFuture.supplyAsync(api::fetch)));
+            assertEquals(0, conditionalRequests.getNotModifiedCount());
+            assertEquals(3, server.getRequestCount());
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testAsynchronousFetchResendsWhenEntryIsEvictedInFlight() throws InterruptedException {
+        try (ExchangeRatesServer server = ExchangeRatesServer.builder().withDataset(DATASET)
+                .withLatency(Duration.ofMillis(LATENCY)).build()) {
+
+            final ConditionalRequestCache conditionalRequests = ConditionalRequestCache.builder().build();
+            final CurrencyExchangeRates api = CurrencyExchangeRates.builder().withEndpoint(server.getEndpoint())
+                    .withConditionalRequests(conditionalRequests).build();
+
+            final List<ExchangeRates> expected = api.fetchAsync().join();
+
+            assertEquals(expected, evictInFlight(conditionalRequests, api::fetchAsync));
+            assertEquals(0, conditionalRequests.getNotModifiedCount());
+            assertEquals(3, server.getRequestCount());
+        }
+    }
+
+    /**
+     * 条件付きリクエストの送信中に保持している為替レートを破棄し、リクエストの結果を返却します。
+     *
+     * @param conditionalRequests 条件付きリクエストのキャッシュ
+     * @param request             条件付きリクエストを送信する処理
+     * @return リクエストの結果
+     *
+     * @exception InterruptedException 待機中に割り込まれた場合
+     */
+    private static List<ExchangeRates> evictInFlight(ConditionalRequestCache conditionalRequests,
+            Supplier<CompletableFuture<List<ExchangeRates>>> request) throws InterruptedException {
+
+        final CompletableFuture<List<ExchangeRates>> pending = request.get();
+
+        Thread.sleep(LATENCY / 2);
+        conditionalRequests.invalidateAll();
+
+        return pending.join();
+    }
+}
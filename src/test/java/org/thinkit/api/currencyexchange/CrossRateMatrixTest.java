@@ -0,0 +1,217 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link CrossRateMatrix} クラスのテストクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class CrossRateMatrixTest {
+
+    /**
+     * 為替レートの日付
+     */
+    private static final LocalDate DATE = LocalDate.of(2020, 10, 14);
+
+    /**
+     * 許容する相対誤差。入力となる2つの為替レートの丸めと除算の丸めを合わせた、丸め単位 {@code 2^-53} の3倍とします。
+     */
+    private static final double RELATIVE_ERROR_BOUND = 3 * Math.scalb(1.0, -53);
+
+    /**
+     * 欧州中央銀行の参照レートと同じ形式で手書きした、1ユーロに対する各通貨の為替レートです。
+     * <p>
+     * ユーロは {@link Currency} に含まれないため、いずれの基軸通貨とも独立した共通の単位として使用し、各基軸通貨に対する直接の為替レートを
+     * {@link BigDecimal} による十進演算で算出する際の元データとします。
+     */
+    private static final Map<Currency, String> EURO_QUOTES = Map.ofEntries(Map.entry(Currency.ICELAND_KRONA, "162.30"),
+            Map.entry(Currency.PHILIPPHINE_PESO, "57.035"), Map.entry(Currency.DANISH_KRONE, "7.4418"),
+            Map.entry(Currency.CANADIAN_DOLLAR, "1.5442"), Map.entry(Currency.HONG_KONG_DOLLAR, "9.0991"),
+            Map.entry(Currency.HUNGARIAN_FORINT, "363.93"), Map.entry(Currency.CZECH_KORUNA, "27.251"),
+            Map.entry(Currency.AUSTRALIAN_DOLLAR, "1.6427"), Map.entry(Currency.ROMANIAN_LEU, "4.8725"),
+            Map.entry(Currency.SWEDISH_KRONA, "10.3558"), Map.entry(Currency.INDONESIAN_RUPEE, "17328.45"),
+            Map.entry(Currency.INDIAN_RUPEE, "86.0935"), Map.entry(Currency.BRAZILIAN_REAL, "6.5874"),
+            Map.entry(Currency.RUSSIAN_RUBLE, "91.1493"), Map.entry(Currency.CROATIAN_KUNA, "7.5775"),
+            Map.entry(Currency.JAPANESE_YEN, "123.84"), Map.entry(Currency.THAILAND_BAHT, "36.531"),
+            Map.entry(Currency.SWISS_FRANC, "1.0735"), Map.entry(Currency.SINGAPORE_DOLLAR, "1.5957"),
+            Map.entry(Currency.POLISH_ZLOTY, "4.5597"), Map.entry(Currency.BULGARIAN_LEV, "1.9558"),
+            Map.entry(Currency.TURKISH_LIRA, "9.2962"), Map.entry(Currency.CHINESE_YUAN, "7.9053"),
+            Map.entry(Currency.NORWEGIAN_KRONE, "10.9283"), Map.entry(Currency.NEW_ZEALAND_DOLLAR, "1.7735"),
+            Map.entry(Currency.SOUTH_AFRICAN_RAND, "19.4568"), Map.entry(Currency.USA_DOLLAR, "1.1741"),
+            Map.entry(Currency.MEXICAN_PESO, "25.0537"), Map.entry(Currency.ISRAELI_NEW_SHEKEL, "3.9754"),
+            Map.entry(Currency.ENGLAND_STERLING_POUND, "0.90760"), Map.entry(Currency.KOREAN_WON, "1342.66"),
+            Map.entry(Currency.MALAYSIAN_RINGGIT, "4.8771"));
+
+    @Test
+    void testRateMatchesExchangeRatesBitForBit() {
+        final Random random = new Random(20201014L);
+
+        for (int trial = 0; trial < 200; trial++) {
+            final Map<Currency, Double> quotes = new EnumMap<>(Currency.class);
+
+            for (Currency currency : Currency.values()) {
+                quotes.put(currency, Math.scalb(1.0 + random.nextDouble(), random.nextInt(16) - 4));
+            }
+
+            assertSameRates(ExchangeRates.of(Currency.USA_DOLLAR, DATE, quotes));
+        }
+    }
+
+    @Test
+    void testRateMatchesExchangeRatesForPublishedDataset() {
+        for (ExchangeRates rates : ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR, DATE.minusYears(1), DATE)) {
+            assertSameRates(rates);
+        }
+    }
+
+    @Test
+    void testMissingCurrencyYieldsNaN() {
+        final ExchangeRates rates = ExchangeRates.of(Currency.USA_DOLLAR, DATE,
+                Map.of(Currency.JAPANESE_YEN, 105.42, Currency.ENGLAND_STERLING_POUND, 0.7741));
+        final CrossRateMatrix matrix = CrossRateMatrix.of(rates);
+
+        assertTrue(Double.isNaN(matrix.rate(Currency.ICELAND_KRONA, Currency.JAPANESE_YEN)));
+        assertTrue(Double.isNaN(matrix.rate(Currency.JAPANESE_YEN, Currency.ICELAND_KRONA)));
+        assertTrue(Double.isNaN(matrix.rate(Currency.ICELAND_KRONA, Currency.ICELAND_KRONA)));
+        assertEquals(1.0, matrix.rate(Currency.USA_DOLLAR, Currency.USA_DOLLAR));
+        assertEquals(1.0, matrix.rate(Currency.JAPANESE_YEN, Currency.JAPANESE_YEN));
+        assertSameRates(rates);
+    }
+
+    @Test
+    void testConvertMatchesExchangeRates() {
+        final ExchangeRates rates = ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR, DATE, DATE).get(0);
+        final CrossRateMatrix matrix = CrossRateMatrix.of(rates);
+
+        for (Currency from : Currency.values()) {
+            for (Currency to : Currency.values()) {
+                assertEquals(Double.doubleToLongBits(rates.convert(1234.56, from, to)),
+                        Double.doubleToLongBits(matrix.convert(1234.56, from, to)), from + " -> " + to);
+            }
+        }
+    }
+
+    @Test
+    void testCrossRatesAgreeWithIndependentDirectQuotes() {
+        final CrossRateMatrix matrix = CrossRateMatrix.of(directQuotes(Currency.USA_DOLLAR));
+
+        for (Currency base : new Currency[] { Currency.ENGLAND_STERLING_POUND, Currency.JAPANESE_YEN,
+                Currency.SWISS_FRANC, Currency.ICELAND_KRONA }) {
+            for (Currency to : Currency.values()) {
+                assertWithinBound(exactQuote(base, to), matrix.rate(base, to), base + " -> " + to);
+            }
+        }
+    }
+
+    @Test
+    void testRebaseAgreesWithIndependentDirectQuotes() {
+        final ExchangeRates usd = directQuotes(Currency.USA_DOLLAR);
+        final CrossRateMatrix matrix = CrossRateMatrix.of(usd);
+        final ExchangeRates gbp = matrix.rebase(Currency.ENGLAND_STERLING_POUND);
+
+        assertEquals(Currency.ENGLAND_STERLING_POUND, gbp.getBase());
+        assertEquals(DATE, gbp.getDate());
+        assertEquals(1.0, gbp.rate(Currency.ENGLAND_STERLING_POUND));
+
+        for (Currency to : Currency.values()) {
+            assertWithinBound(exactQuote(Currency.ENGLAND_STERLING_POUND, to), gbp.rate(to), "GBP -> " + to);
+        }
+
+        final ExchangeRates original = matrix.rebase(Currency.USA_DOLLAR);
+
+        for (Currency to : Currency.values()) {
+            assertEquals(Double.doubleToLongBits(usd.rate(to)), Double.doubleToLongBits(original.rate(to)),
+                    "USD -> " + to);
+        }
+    }
+
+    /**
+     * 引数として渡された通貨を基軸通貨とする為替レートを、1ユーロに対する為替レートから十進演算で算出し、最も近い {@code double} へ丸めて返却します。
+     *
+     * @param base 基軸通貨
+     * @return {@code base} を基軸通貨とする為替レート
+     */
+    private static ExchangeRates directQuotes(Currency base) {
+
+        final Map<Currency, Double> quotes = new EnumMap<>(Currency.class);
+
+        for (Currency to : Currency.values()) {
+            quotes.put(to, exactQuote(base, to).doubleValue());
+        }
+
+        return ExchangeRates.of(base, DATE, quotes);
+    }
+
+    /**
+     * 通貨 {@code from} 1単位に対する通貨 {@code to} の為替レートを、1ユーロに対する為替レートから34桁の十進演算で算出します。
+     *
+     * @param from 換算元の通貨
+     * @param to   換算先の通貨
+     * @return 十進演算で算出した為替レート
+     */
+    private static BigDecimal exactQuote(Currency from, Currency to) {
+        return new BigDecimal(EURO_QUOTES.get(to)).divide(new BigDecimal(EURO_QUOTES.get(from)),
+                MathContext.DECIMAL128);
+    }
+
+    /**
+     * 算出されたクロスレートと十進演算による為替レートの相対誤差が {@link #RELATIVE_ERROR_BOUND} 以下であることを検証します。
+     *
+     * @param expected 十進演算による為替レート
+     * @param actual   算出されたクロスレート
+     * @param message  検証失敗時のメッセージ
+     */
+    private static void assertWithinBound(BigDecimal expected, double actual, String message) {
+
+        final double error = new BigDecimal(actual).subtract(expected).abs()
+                .divide(expected, MathContext.DECIMAL128).doubleValue();
+
+        assertTrue(error <= RELATIVE_ERROR_BOUND,
+                String.format("%s: expected %s but was %s (relative error %.3g)", message, expected, actual, error));
+    }
+
+    /**
+     * 全ての通貨の組み合わせについて、行列のクロスレートが {@link ExchangeRates#rate(Currency, Currency)} とビット単位で一致することを検証します。
+     *
+     * @param rates 為替レート
+     */
+    private static void assertSameRates(ExchangeRates rates) {
+
+        final CrossRateMatrix matrix = CrossRateMatrix.of(rates);
+
+        for (Currency from : Currency.values()) {
+            for (Currency to : Currency.values()) {
+                assertEquals(Double.doubleToLongBits(rates.rate(from, to)),
+                        Double.doubleToLongBits(matrix.rate(from, to)), from + " -> " + to);
+            }
+        }
+    }
+}
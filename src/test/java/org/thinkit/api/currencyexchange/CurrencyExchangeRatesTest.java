@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link CurrencyExchangeRates} クラスのテストクラスです。
+ * <p>
+ * 各テストは {@link ExchangeRatesServer} に対してリクエストを送信します。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class CurrencyExchangeRatesTest {
+
+    /**
+     * データセット
+     */
+    private static final List<ExchangeRates> DATASET = ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR,
+            LocalDate.of(2020, 10, 1), LocalDate.of(2020, 10, 9));
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testSendAsyncTimesOutWithTimeoutException() {
+        try (ExchangeRatesServer server = ExchangeRatesServer.builder().withDataset(DATASET)
+                .withLatency(Duration.ofMillis(500)).build()) {
+
+            final CurrencyExchangeRates api = CurrencyExchangeRates.builder().withEndpoint(server.getEndpoint())
+                    .build();
+
+            for (int i = 0; i < 5; i++) {
+                final CompletionException thrown = assertThrows(CompletionException.class,
+                        () -> api.sendAsync(Duration.ofMillis(50)).join());
+
+                assertTrue(thrown.getCause() instanceof TimeoutException, String.valueOf(thrown.getCause()));
+            }
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testSendReturnsDecodedBodyWithoutContentEncoding() throws IOException {
+
+        final byte[] payload = ExchangeRatesPayloads.latest(Currency.USA_DOLLAR, LocalDate.of(2020, 10, 14));
+        final Queue<String> acceptEncodings = new ConcurrentLinkedQueue<>();
+        final HttpServer server = gzipServer(payload, acceptEncodings);
+
+        try {
+            final String endpoint = String.format("http://127.0.0.1:%d", server.getAddress().getPort());
+            final CurrencyExchangeRates api = CurrencyExchangeRates.builder().withEndpoint(endpoint).build();
+
+            for (HttpResponse<String> response : List.of(api.send(), api.sendAsync().join())) {
+                assertEquals(new String(payload, StandardCharsets.UTF_8), response.body());
+                assertFalse(response.headers().firstValue("Content-Encoding").isPresent());
+                assertFalse(response.headers().firstValue("Content-Length").isPresent());
+                assertEquals(200, response.statusCode());
+            }
+
+            assertEquals(List.of("gzip, deflate", "gzip, deflate"), List.copyOf(acceptEncodings));
+
+            acceptEncodings.clear();
+            final HttpResponse<String> identity = CurrencyExchangeRates.builder().withEndpoint(endpoint)
+                    .withCompression(false).build().send();
+
+            assertEquals(new String(payload, StandardCharsets.UTF_8), identity.body());
+            assertEquals(String.valueOf(payload.length), identity.headers().firstValue("Content-Length").orElse(""));
+            assertEquals(List.of(""), List.copyOf(acceptEncodings));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * {@code Accept-Encoding} ヘッダーで {@code gzip} が受け入れ可能な場合のみ、レスポンスボディをgzip形式で圧縮して返却するサーバーを起動します。
+     *
+     * @param payload         レスポンスボディ
+     * @param acceptEncodings 受信した {@code Accept-Encoding} ヘッダーを記録するキュー。ヘッダーがない場合は空文字列を記録します。
+     * @return 起動したサーバー
+     *
+     * @exception IOException サーバーの起動に失敗した場合
+     */
+    private static HttpServer gzipServer(byte[] payload, Queue<String> acceptEncodings) throws IOException {
+
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+
+        server.createContext("/", exchange -> {
+            final String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            acceptEncodings.add(acceptEncoding == null ? "" : acceptEncoding);
+
+            byte[] body = payload;
+
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(payload);
+                }
+
+                body = compressed.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+
+        return server;
+    }
+}
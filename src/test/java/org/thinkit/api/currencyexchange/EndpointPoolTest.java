@@ -0,0 +1,271 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link EndpointPool} クラスのテストクラスです。
+ * <p>
+ * 各テストは複数の {@link ExchangeRatesServer} をエンドポイントとしてリクエストを送信します。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class EndpointPoolTest {
+
+    /**
+     * データセット
+     */
+    private static final List<ExchangeRates> DATASET = ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR,
+            LocalDate.of(2020, 10, 1), LocalDate.of(2020, 10, 9));
+
+    /**
+     * 除外期間
+     */
+    private static final Duration EJECTION_TIME = Duration.ofMillis(300);
+
+    /**
+     * 遅いエンドポイントの遅延
+     */
+    private static final Duration SLOW_LATENCY = Duration.ofMillis(200);
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testFailoverAcrossServersAndFailuresRaiseScore() {
+        try (ExchangeRatesServer failing = ExchangeRatesServer.builder().withDataset(DATASET).withErrorRate(1.0)
+                .build();
+                ExchangeRatesServer throttled = ExchangeRatesServer.builder().withDataset(DATASET)
+                        .withThrottle(1, 1).build();
+                ExchangeRatesServer healthy = ExchangeRatesServer.builder().withDataset(DATASET).build()) {
+
+            final EndpointPool pool = EndpointPool.builder()
+                    .withEndpoints(List.of(failing.getEndpoint(), throttled.getEndpoint(), healthy.getEndpoint()))
+                    .build();
+            final CurrencyExchangeRates api = api(pool);
+            final List<ExchangeRates> expected = CurrencyExchangeRates.builder()
+                    .withEndpoint(healthy.getEndpoint()).build().fetch();
+
+            for (int i = 0; i < 10; i++) {
+                assertEquals(expected, api.fetch());
+            }
+
+            assertEquals(1, failing.getRequestCount());
+            assertTrue(throttled.getRequestCount() <= 2, "throttled: " + throttled.getRequestCount());
+            assertEquals(failing.getRequestCount() + throttled.getRequestCount() - 1, pool.getFailoverCount());
+            assertEquals(0, pool.getEjectionCount());
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testRecoveringEndpointReceivesLimitedProbes() throws Exception {
+        try (ExchangeRatesServer healthy = ExchangeRatesServer.builder().withDataset(DATASET).build()) {
+
+            final ExchangeRatesServer failing = ExchangeRatesServer.builder().withDataset(DATASET).withErrorRate(1.0)
+                    .build();
+            final EndpointPool pool = EndpointPool.builder()
+                    .withEndpoints(List.of(failing.getEndpoint(), healthy.getEndpoint()))
+                    .withEjection(1, EJECTION_TIME).withRecoveryProbes(2).build();
+            final CurrencyExchangeRates api = api(pool);
+
+            api.fetch();
+
+            assertTrue(pool.isEjected(failing.getEndpoint()));
+            assertEquals(1, pool.getEjectionCount());
+
+            failing.close();
+
+            try (ExchangeRatesServer recovered = ExchangeRatesServer.builder().withDataset(DATASET)
+                    .withAddress(addressOf(failing)).withLatency(Duration.ofMillis(300)).build()) {
+
+                Thread.sleep(EJECTION_TIME.toMillis() + 50);
+
+                assertTrue(pool.isRecovering(recovered.getEndpoint()));
+
+                final List<CompletableFuture<List<ExchangeRates>>> pending = new ArrayList<>();
+
+                for (int i = 0; i < 20; i++) {
+                    pending.add(api.fetchAsync());
+                }
+
+                pending.forEach(CompletableFuture::join);
+
+                assertEquals(1, recovered.getRequestCount());
+                assertTrue(pool.isRecovering(recovered.getEndpoint()));
+
+                api.fetch();
+
+                assertEquals(2, recovered.getRequestCount());
+                assertFalse(pool.isRecovering(recovered.getEndpoint()));
+                assertFalse(pool.isEjected(recovered.getEndpoint()));
+            }
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testFailedProbeEjectsAgain() throws InterruptedException {
+        try (ExchangeRatesServer failing = ExchangeRatesServer.builder().withDataset(DATASET).withErrorRate(1.0)
+                .build();
+                ExchangeRatesServer healthy = ExchangeRatesServer.builder().withDataset(DATASET).build()) {
+
+            final EndpointPool pool = EndpointPool.builder()
+                    .withEndpoints(List.of(failing.getEndpoint(), healthy.getEndpoint()))
+                    .withEjection(1, EJECTION_TIME).build();
+            final CurrencyExchangeRates api = api(pool);
+
+            api.fetch();
+            Thread.sleep(EJECTION_TIME.toMillis() + 50);
+
+            assertTrue(pool.isRecovering(failing.getEndpoint()));
+
+            api.fetch();
+            api.fetch();
+
+            assertEquals(2, failing.getRequestCount());
+            assertEquals(2, pool.getEjectionCount());
+            assertTrue(pool.isEjected(failing.getEndpoint()));
+            assertEquals(2, pool.getFailoverCount());
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testTrafficGoesToFasterEndpoint() {
+        try (ExchangeRatesServer slow = ExchangeRatesServer.builder().withDataset(DATASET).withLatency(SLOW_LATENCY)
+                .build();
+                ExchangeRatesServer fast = ExchangeRatesServer.builder().withDataset(DATASET)
+                        .withLatency(Duration.ofMillis(5)).build()) {
+
+            final EndpointPool pool = EndpointPool.builder()
+                    .withEndpoints(List.of(slow.getEndpoint(), fast.getEndpoint())).build();
+            final CurrencyExchangeRates api = api(pool);
+
+            for (int i = 0; i < 20; i++) {
+                api.fetch();
+            }
+
+            assertEquals(1, slow.getRequestCount());
+            assertEquals(19, fast.getRequestCount());
+            assertTrue(pool.getLatency(slow.getEndpoint()).compareTo(SLOW_LATENCY) >= 0);
+            assertTrue(pool.getLatency(fast.getEndpoint()).compareTo(SLOW_LATENCY) < 0);
+            assertEquals(0, pool.getFailoverCount());
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testOutlierDetectionEjectsSlowEndpoint() {
+        try (ExchangeRatesServer fast = ExchangeRatesServer.builder().withDataset(DATASET).build();
+                ExchangeRatesServer slow = ExchangeRatesServer.builder().withDataset(DATASET)
+                        .withLatency(SLOW_LATENCY).build()) {
+
+            final EndpointPool pool = EndpointPool.builder()
+                    .withEndpoints(List.of(fast.getEndpoint(), slow.getEndpoint())).withOutlierDetection(3.0, 1)
+                    .withEjection(5, Duration.ofMinutes(1)).build();
+            final CurrencyExchangeRates api = api(pool);
+
+            api.fetch();
+
+            assertFalse(pool.isEjected(fast.getEndpoint()));
+
+            api.fetch();
+
+            assertEquals(1, slow.getRequestCount());
+            assertTrue(pool.isEjected(slow.getEndpoint()));
+            assertEquals(1, pool.getEjectionCount());
+
+            for (int i = 0; i < 5; i++) {
+                api.fetch();
+            }
+
+            assertEquals(1, slow.getRequestCount());
+            assertFalse(pool.isEjected(fast.getEndpoint()));
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testLatencyExcludesResponseBody() throws Exception {
+
+        final byte[] payload = ExchangeRatesPayloads.latest(Currency.USA_DOLLAR, LocalDate.of(2020, 10, 9));
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, payload.length);
+
+            try (OutputStream body = exchange.getResponseBody()) {
+                Thread.sleep(SLOW_LATENCY.toMillis());
+                body.write(payload);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+
+        try {
+            final String endpoint = String.format("http://127.0.0.1:%d", server.getAddress().getPort());
+            final EndpointPool pool = EndpointPool.builder().withEndpoints(List.of(endpoint)).build();
+
+            assertEquals(200, api(pool).send().statusCode());
+            assertTrue(pool.getLatency(endpoint).compareTo(SLOW_LATENCY) < 0, pool.getLatency(endpoint).toString());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 引数として渡されたエンドポイントの一覧へ最新リソースのリクエストを振り分けるインスタンスを返却します。
+     *
+     * @param pool エンドポイントの一覧
+     * @return 最新リソースを取得するインスタンス
+     */
+    private static CurrencyExchangeRates api(EndpointPool pool) {
+        return CurrencyExchangeRates.builder().withEndpointPool(pool).build();
+    }
+
+    /**
+     * 引数として渡されたサーバーが待ち受けていたアドレスを返却します。
+     *
+     * @param server サーバー
+     * @return サーバーのアドレス
+     */
+    private static InetSocketAddress addressOf(ExchangeRatesServer server) {
+        final URI uri = URI.create(server.getEndpoint());
+        return new InetSocketAddress(uri.getHost(), uri.getPort());
+    }
+}
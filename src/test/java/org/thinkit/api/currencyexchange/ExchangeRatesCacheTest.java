@@ -0,0 +1,232 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.thinkit.api.common.entity.RequestParameter;
+
+/**
+ * {@link ExchangeRatesCache} クラスのテストクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class ExchangeRatesCacheTest {
+
+    /**
+     * 2020年10月14日（水曜日）10時00分（欧州中央銀行の現地時刻）
+     */
+    private static final Instant WEDNESDAY_MORNING = Instant.parse("2020-10-14T08:00:00Z");
+
+    /**
+     * 最新リソースのリクエストパラメータ
+     */
+    private static final RequestParameter LATEST = CurrencyExchangeRatesParameter.of("EUR", "", "", "");
+
+    /**
+     * 期間指定リソースのリクエストパラメータ
+     */
+    private static final RequestParameter HISTORY = CurrencyExchangeRatesParameter.of("EUR", "", "2020-10-01",
+            "2020-10-09");
+
+    @Test
+    void testCoalescedLoadIsCountedAsHit() {
+        final ExchangeRatesCache cache = ExchangeRatesCache.builder().build();
+        final CompletableFuture<List<ExchangeRates>> pending = new CompletableFuture<>();
+        final AtomicInteger loads = new AtomicInteger();
+        final Supplier<CompletableFuture<List<ExchangeRates>>> loader = () -> {
+            loads.incrementAndGet();
+            return pending;
+        };
+
+        final CompletableFuture<List<ExchangeRates>> first = cache.get(LATEST, null, loader);
+        final CompletableFuture<List<ExchangeRates>> second = cache.get(LATEST, null, loader);
+        final CompletableFuture<List<ExchangeRates>> third = cache.get(LATEST, null, loader);
+
+        assertEquals(1, loads.get());
+        assertFalse(first.isDone());
+
+        final List<ExchangeRates> rates = List.of();
+        pending.complete(rates);
+
+        assertSame(rates, second.join());
+        assertSame(rates, third.join());
+
+        final ExchangeRatesCacheStats stats = cache.stats();
+        assertEquals(1, stats.getMissCount());
+        assertEquals(2, stats.getHitCount());
+        assertEquals(1, stats.getLoadSuccessCount());
+    }
+
+    @Test
+    void testLatestEntryExpiresAtNextPublicationOfInjectedClock() {
+        final MutableClock clock = new MutableClock(WEDNESDAY_MORNING);
+        final ExchangeRatesCache cache = ExchangeRatesCache.builder().withTimeToLive(Duration.ofDays(7))
+                .withClock(clock).build();
+        final AtomicInteger loads = new AtomicInteger();
+        final Supplier<CompletableFuture<List<ExchangeRates>>> loader = () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(List.of());
+        };
+
+        cache.get(LATEST, null, loader).join();
+        clock.set(Instant.parse("2020-10-14T14:14:59Z"));
+        cache.get(LATEST, null, loader).join();
+
+        assertEquals(1, loads.get());
+
+        clock.set(Instant.parse("2020-10-14T14:15:00Z"));
+        cache.get(LATEST, null, loader).join();
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.stats().getEvictionCount());
+    }
+
+    @Test
+    void testEntryEndingTodayIsTreatedAsLatest() {
+        final MutableClock clock = new MutableClock(WEDNESDAY_MORNING);
+        final ExchangeRatesCache cache = ExchangeRatesCache.builder().withTimeToLive(Duration.ofDays(7))
+                .withClock(clock).build();
+        final AtomicInteger loads = new AtomicInteger();
+        final Supplier<CompletableFuture<List<ExchangeRates>>> loader = () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(List.of());
+        };
+
+        cache.get(HISTORY, LocalDate.of(2020, 10, 14), loader).join();
+        clock.set(Instant.parse("2020-10-14T15:00:00Z"));
+        cache.get(HISTORY, LocalDate.of(2020, 10, 14), loader).join();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testPastEntryDoesNotExpireAtPublication() {
+        final MutableClock clock = new MutableClock(WEDNESDAY_MORNING);
+        final ExchangeRatesCache cache = ExchangeRatesCache.builder().withTimeToLive(Duration.ofDays(7))
+                .withClock(clock).build();
+        final AtomicInteger loads = new AtomicInteger();
+        final Supplier<CompletableFuture<List<ExchangeRates>>> loader = () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(List.of());
+        };
+
+        cache.get(HISTORY, LocalDate.of(2020, 10, 9), loader).join();
+        clock.set(Instant.parse("2020-10-16T15:00:00Z"));
+        cache.get(HISTORY, LocalDate.of(2020, 10, 9), loader).join();
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().getHitCount());
+    }
+
+    @Test
+    void testTimeToLiveIsMeasuredWithInjectedClock() {
+        final MutableClock clock = new MutableClock(WEDNESDAY_MORNING);
+        final ExchangeRatesCache cache = ExchangeRatesCache.builder().withTimeToLive(Duration.ofHours(1))
+                .withClock(clock).build();
+        final AtomicInteger loads = new AtomicInteger();
+        final Supplier<CompletableFuture<List<ExchangeRates>>> loader = () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(List.of());
+        };
+
+        cache.get(HISTORY, LocalDate.of(2020, 10, 9), loader).join();
+        clock.set(WEDNESDAY_MORNING.plus(Duration.ofMinutes(59)));
+        cache.get(HISTORY, LocalDate.of(2020, 10, 9), loader).join();
+
+        assertEquals(1, loads.get());
+
+        clock.set(WEDNESDAY_MORNING.plus(Duration.ofHours(1)));
+        cache.get(HISTORY, LocalDate.of(2020, 10, 9), loader).join();
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.stats().getEvictionCount());
+    }
+
+    @Test
+    void testSynchronousLoaderFailureReturnsFailedFuture() {
+        final ExchangeRatesCache cache = ExchangeRatesCache.builder().build();
+        final IllegalStateException failure = new IllegalStateException("loader failed");
+
+        final CompletableFuture<List<ExchangeRates>> failed = cache.get(LATEST, null, () -> {
+            throw failure;
+        });
+
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(0, cache.size());
+        assertSame(List.of(), cache.get(LATEST, null, () -> CompletableFuture.completedFuture(List.of())).join());
+    }
+
+    /**
+     * テストから現在時刻を変更できる時計です。
+     */
+    private static final class MutableClock extends Clock {
+
+        /**
+         * 現在時刻
+         */
+        private volatile Instant instant;
+
+        /**
+         * コンストラクタ
+         *
+         * @param instant 現在時刻
+         */
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        /**
+         * 現在時刻を変更します。
+         *
+         * @param instant 現在時刻
+         */
+        private void set(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return this.instant;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link ExchangeRatesCallMetrics} クラスのテストクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class ExchangeRatesCallMetricsTest {
+
+    @Test
+    void testEventsAreRecordedIntoHistogramsAndStatusCounts() {
+
+        final ExchangeRatesCallMetrics metrics = new ExchangeRatesCallMetrics(CurrencyExchangeRatesResource.LATEST,
+                Currency.USA_DOLLAR);
+
+        metrics.record(event(200, 1_000, 2_000, 3_000, 512));
+        metrics.record(event(200, 3_000, 4_000, 5_000, 1_024));
+        metrics.record(event(503, 500, 0, 0, 40));
+
+        assertEquals(2, metrics.getStatusCount(200));
+        assertEquals(1, metrics.getStatusCount(503));
+        assertEquals(0, metrics.getStatusCount(404));
+        assertEquals(3, metrics.getTimeToHeaders().getCount());
+        assertEquals(3_000, metrics.getTimeToHeaders().getMax());
+        assertEquals(4_000, metrics.getBodyTime().getMax());
+        assertEquals(5_000, metrics.getParseTime().getMax());
+        assertEquals(1_024, metrics.getPayloadBytes().getMax());
+        assertEquals((512 + 1_024 + 40) / 3.0, metrics.getPayloadBytes().getMean());
+    }
+
+    @Test
+    void testOutOfRangeStatusCodesAreNotCounted() {
+
+        final ExchangeRatesCallMetrics metrics = new ExchangeRatesCallMetrics(CurrencyExchangeRatesResource.LATEST,
+                Currency.USA_DOLLAR);
+
+        metrics.record(event(600, 1, 1, 1, 1));
+        metrics.record(event(-1, 1, 1, 1, 1));
+
+        assertEquals(0, metrics.getStatusCount(600));
+        assertEquals(0, metrics.getStatusCount(-1));
+        assertEquals(2, metrics.getTimeToHeaders().getCount());
+    }
+
+    @Test
+    void testCountersAreIndependent() {
+
+        final ExchangeRatesCallMetrics metrics = new ExchangeRatesCallMetrics(CurrencyExchangeRatesResource.HISTORY,
+                Currency.JAPANESE_YEN);
+
+        metrics.recordFailure();
+        metrics.recordCacheHit();
+        metrics.recordCacheHit();
+        metrics.recordCacheMiss();
+        metrics.recordRetry();
+        metrics.recordHedge();
+        metrics.recordHedge();
+        metrics.recordHedge();
+
+        assertEquals(1, metrics.getFailureCount());
+        assertEquals(2, metrics.getCacheHitCount());
+        assertEquals(1, metrics.getCacheMissCount());
+        assertEquals(1, metrics.getRetryCount());
+        assertEquals(3, metrics.getHedgeCount());
+        assertEquals(CurrencyExchangeRatesResource.HISTORY, metrics.getResource());
+        assertEquals(Currency.JAPANESE_YEN, metrics.getBase());
+    }
+
+    /**
+     * 基軸通貨を米ドルとする最新リソースの計測結果を生成します。
+     *
+     * @param statusCode    ステータスコード
+     * @param timeToHeaders レスポンスヘッダーの受信までの時間（ナノ秒）
+     * @param bodyTime      レスポンスボディの受信に要した時間（ナノ秒）
+     * @param parseTime     レスポンスボディの解析に要した時間（ナノ秒）
+     * @param payloadBytes  レスポンスボディのバイト数
+     * @return 計測結果
+     */
+    private static UpstreamCallEvent event(int statusCode, long timeToHeaders, long bodyTime, long parseTime,
+            long payloadBytes) {
+        return new UpstreamCallEvent(CurrencyExchangeRatesResource.LATEST, Currency.USA_DOLLAR, statusCode,
+                timeToHeaders, bodyTime, parseTime, payloadBytes, null);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.thinkit.api.common.exception.ApiRequestFailedException;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link ExchangeRatesMetrics} クラスと {@link ExchangeRatesListener} への通知のテストクラスです。
+ * <p>
+ * 各テストは {@link ExchangeRatesServer} に対してリクエストを送信します。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class ExchangeRatesMetricsTest {
+
+    /**
+     * データセット
+     */
+    private static final List<ExchangeRates> DATASET = ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR,
+            LocalDate.of(2020, 10, 1), LocalDate.of(2020, 10, 9));
+
+    /**
+     * 失敗するエンドポイントの遅延
+     */
+    private static final Duration FAILING_LATENCY = Duration.ofMillis(300);
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testCallsAreRecordedUnderResourceAndBase() {
+        try (ExchangeRatesServer server = ExchangeRatesServer.builder().withDataset(DATASET).build()) {
+
+            final ExchangeRatesMetrics metrics = ExchangeRatesMetrics.create();
+            final String latest = CurrencyExchangeRates.builder().withEndpoint(server.getEndpoint())
+                    .withBaseCurrency(Currency.USA_DOLLAR).withListener(metrics).build().send().body();
+
+            CurrencyExchangeRates.builder().withEndpoint(server.getEndpoint()).withBaseCurrency(Currency.JAPANESE_YEN)
+                    .withStartDateAt(LocalDate.of(2020, 10, 1)).withEndDateAt(LocalDate.of(2020, 10, 9))
+                    .withListener(metrics).build().fetch();
+
+            final ExchangeRatesCallMetrics latestUsd = metrics.get(CurrencyExchangeRatesResource.LATEST,
+                    Currency.USA_DOLLAR);
+
+            assertEquals(1, latestUsd.getStatusCount(200));
+            assertEquals(1, latestUsd.getTimeToHeaders().getCount());
+            assertEquals(latest.getBytes(StandardCharsets.UTF_8).length, latestUsd.getPayloadBytes().getMax());
+            assertEquals(0, latestUsd.getFailureCount());
+
+            final ExchangeRatesCallMetrics historyJpy = metrics.get(CurrencyExchangeRatesResource.HISTORY,
+                    Currency.JAPANESE_YEN);
+
+            assertEquals(1, historyJpy.getStatusCount(200));
+            assertEquals(1, historyJpy.getParseTime().getCount());
+            assertTrue(historyJpy.getPayloadBytes().getMax() > latestUsd.getPayloadBytes().getMax());
+
+            assertEquals(0, metrics.get(CurrencyExchangeRatesResource.LATEST, Currency.JAPANESE_YEN)
+                    .getPayloadBytes().getCount());
+            assertEquals(0, metrics.get(CurrencyExchangeRatesResource.HISTORY, Currency.USA_DOLLAR)
+                    .getStatusCount(200));
+            assertEquals(2, server.getRequestCount());
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testUnreachableEndpointIsRecordedAsFailure() {
+
+        final ExchangeRatesServer server = ExchangeRatesServer.builder().withDataset(DATASET).build();
+        final String endpoint = server.getEndpoint();
+        server.close();
+
+        final ExchangeRatesMetrics metrics = ExchangeRatesMetrics.create();
+        final CurrencyExchangeRates api = CurrencyExchangeRates.builder().withEndpoint(endpoint)
+                .withListener(metrics).build();
+
+        assertThrows(ApiRequestFailedException.class, api::fetch);
+
+        final ExchangeRatesCallMetrics latestUsd = metrics.get(CurrencyExchangeRatesResource.LATEST,
+                Currency.USA_DOLLAR);
+
+        assertEquals(1, latestUsd.getFailureCount());
+        assertEquals(0, latestUsd.getTimeToHeaders().getCount());
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testFailoverReportsEachAttemptSeparately() {
+        try (ExchangeRatesServer failing = ExchangeRatesServer.builder().withDataset(DATASET).withErrorRate(1.0)
+                .withLatency(FAILING_LATENCY).build();
+                ExchangeRatesServer healthy = ExchangeRatesServer.builder().withDataset(DATASET).build()) {
+
+            final Queue<UpstreamCallEvent> events = new ConcurrentLinkedQueue<>();
+            final ExchangeRatesMetrics metrics = ExchangeRatesMetrics.create();
+            final CurrencyExchangeRates api = CurrencyExchangeRates.builder()
+                    .withEndpoints(List.of(failing.getEndpoint(), healthy.getEndpoint()))
+                    .withListener(new ExchangeRatesListener() {
+
+                        @Override
+                        public void onUpstreamCall(UpstreamCallEvent event) {
+                            events.add(event);
+                            metrics.onUpstreamCall(event);
+                        }
+                    }).build();
+
+            api.fetch();
+
+            final List<UpstreamCallEvent> recorded = new ArrayList<>(events);
+
+            assertEquals(1, failing.getRequestCount());
+            assertEquals(2, recorded.size(), recorded.toString());
+
+            final UpstreamCallEvent failed = recorded.get(0);
+
+            assertEquals(500, failed.getStatusCode());
+            assertTrue(failed.getFailure().orElseThrow() instanceof ErrorResponseException);
+            assertTrue(failed.getTimeToHeaders() >= FAILING_LATENCY.toNanos(), failed.toString());
+
+            final UpstreamCallEvent succeeded = recorded.get(1);
+
+            assertEquals(200, succeeded.getStatusCode());
+            assertFalse(succeeded.getFailure().isPresent());
+            assertTrue(succeeded.getTimeToHeaders() < FAILING_LATENCY.toNanos(), succeeded.toString());
+            assertTrue(succeeded.getPayloadBytes() > 0);
+
+            final ExchangeRatesCallMetrics latestUsd = metrics.get(CurrencyExchangeRatesResource.LATEST,
+                    Currency.USA_DOLLAR);
+
+            assertEquals(1, latestUsd.getStatusCount(500));
+            assertEquals(1, latestUsd.getStatusCount(200));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * テストとベンチマークで使用する為替レートAPIのレスポンスボディを生成するクラスです。
+ * <p>
+ * 生成されるレスポンスボディは全ての通貨の為替レートを含み、為替レートは日付と通貨から決定的に算出されます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class ExchangeRatesPayloads {
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private ExchangeRatesPayloads() {
+    }
+
+    /**
+     * 最新リソースのレスポンスボディを生成し返却します。
+     *
+     * @param base 基軸通貨
+     * @param date 為替レートの日付
+     * @return UTF-8でエンコードされた最新リソースのレスポンスボディ
+     */
+    static byte[] latest(Currency base, LocalDate date) {
+
+        final StringBuilder payload = new StringBuilder(1024);
+
+        payload.append("{\"rates\":");
+        appendRates(payload, date);
+        payload.append(",\"base\":\"").append(base.getTag()).append("\",\"date\":\"").append(date).append("\"}");
+
+        return payload.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 履歴リソースのレスポンスボディを生成し返却します。欧州中央銀行の営業日に倣い、週末の為替レートは含まれません。
+     *
+     * @param base    基軸通貨
+     * @param startAt 検索開始日
+     * @param endAt   検索終了日
+     * @return UTF-8でエンコードされた履歴リソースのレスポンスボディ
+     */
+    static byte[] history(Currency base, LocalDate startAt, LocalDate endAt) {
+
+        final StringBuilder payload = new StringBuilder(1024 * 365);
+
+        payload.append("{\"rates\":{");
+
+        for (LocalDate date = startAt; !date.isAfter(endAt); date = date.plusDays(1)) {
+            if (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                continue;
+            }
+
+            if (payload.charAt(payload.length() - 1) != '{') {
+                payload.append(',');
+            }
+
+            payload.append('"').append(date).append("\":");
+            appendRates(payload, date);
+        }
+
+        payload.append("},\"start_at\":\"").append(startAt).append("\",\"base\":\"").append(base.getTag())
+                .append("\",\"end_at\":\"").append(endAt).append("\"}");
+
+        return payload.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * {@link ExchangeRatesServer} へ渡す履歴リソースのデータセットを生成し返却します。
+     *
+     * @param base    基軸通貨
+     * @param startAt 検索開始日
+     * @param endAt   検索終了日
+     * @return 日付の昇順に並べた為替レートのリスト
+     */
+    static List<ExchangeRates> dataset(Currency base, LocalDate startAt, LocalDate endAt) {
+        try (ExchangeRatesReader reader = new ExchangeRatesReader(
+                new ByteArrayInputStream(history(base, startAt, endAt)), base)) {
+            return reader.readAll();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 引数として渡された日付の全ての通貨の為替レートをJSONオブジェクトとして追加します。
+     *
+     * @param payload 追加先のビルダー
+     * @param date    為替レートの日付
+     */
+    private static void appendRates(StringBuilder payload, LocalDate date) {
+
+        payload.append('{');
+
+        for (Currency currency : Currency.values()) {
+            if (payload.charAt(payload.length() - 1) != '{') {
+                payload.append(',');
+            }
+
+            payload.append('"').append(currency.getTag()).append("\":")
+                    .append(1.0 + currency.getCode() * 0.37 + date.getDayOfYear() / 1000.0);
+        }
+
+        payload.append('}');
+    }
+}
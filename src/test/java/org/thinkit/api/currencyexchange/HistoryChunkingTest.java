@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.thinkit.api.common.exception.ApiRequestFailedException;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link CurrencyExchangeRates.Builder#withHistoryChunking(Period, int)} メソッドで設定する検索期間の分割のテストクラスです。
+ * <p>
+ * 各テストは遅延を注入した {@link ExchangeRatesServer} に対してリクエストを送信します。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class HistoryChunkingTest {
+
+    /**
+     * 検索開始日
+     */
+    private static final LocalDate START_AT = LocalDate.of(2015, 1, 1);
+
+    /**
+     * 検索終了日
+     */
+    private static final LocalDate END_AT = LocalDate.of(2019, 12, 31);
+
+    /**
+     * データセット
+     */
+    private static final List<ExchangeRates> DATASET = ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR, START_AT,
+            END_AT);
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testChunksAreStitchedInOrderUnderJitter() {
+        try (ExchangeRatesServer server = ExchangeRatesServer.builder().withDataset(DATASET)
+                .withLatency(Duration.ofMillis(10)).withLatencyJitter(Duration.ofMillis(200)).build()) {
+
+            final List<ExchangeRates> expected = history(server).build().fetch();
+            final CurrencyExchangeRates chunked = history(server).withHistoryChunking(Period.ofMonths(3), 4).build();
+
+            assertEquals(DATASET.size(), expected.size());
+
+            for (int trial = 0; trial < 3; trial++) {
+                final List<ExchangeRates> rates = chunked.fetch();
+
+                assertEquals(expected, rates);
+                assertAscending(rates);
+                assertEquals(expected, chunked.fetchAsync().join());
+            }
+
+            assertEquals(1 + 3 * 2 * 20, server.getRequestCount());
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testParallelismBoundsConcurrentChunks() {
+        final long latency = 300;
+
+        try (ExchangeRatesServer server = ExchangeRatesServer.builder().withDataset(DATASET)
+                .withLatency(Duration.ofMillis(latency)).build()) {
+
+            final List<ExchangeRates> expected = history(server).build().fetch();
+            final CurrencyExchangeRates chunked = history(server).withHistoryChunking(Period.ofYears(1), 2).build();
+            final long startTime = System.nanoTime();
+            final List<ExchangeRates> rates = chunked.fetch();
+            final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+            assertEquals(expected, rates);
+            assertEquals(1 + 5, server.getRequestCount());
+            assertTrue(elapsed >= 3 * latency, "five chunks over two lanes need three rounds: " + elapsed + "ms");
+            assertTrue(elapsed < 5 * latency, "chunks must overlap: " + elapsed + "ms");
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testFailedChunkStopsUnsentChunks() {
+        try (ExchangeRatesServer server = ExchangeRatesServer.builder().withDataset(DATASET)
+                .withLatency(Duration.ofMillis(20)).withErrorRate(1.0).build()) {
+
+            final CurrencyExchangeRates chunked = history(server).withHistoryChunking(Period.ofYears(1), 2).build();
+
+            assertThrows(ApiRequestFailedException.class, chunked::fetch);
+            assertEquals(2, server.getRequestCount());
+        }
+    }
+
+    @Test
+    void testShortRangeIsNotChunked() {
+        try (ExchangeRatesServer server = ExchangeRatesServer.builder().withDataset(DATASET).build()) {
+
+            final CurrencyExchangeRates api = CurrencyExchangeRates.builder().withEndpoint(server.getEndpoint())
+                    .withStartDateAt(START_AT).withEndDateAt(START_AT.plusMonths(6))
+                    .withHistoryChunking(Period.ofYears(1), 4).build();
+            final List<ExchangeRates> rates = api.fetch();
+
+            assertEquals(1, server.getRequestCount());
+            assertEquals(START_AT, rates.get(0).getDate());
+            assertAscending(rates);
+        }
+    }
+
+    /**
+     * 引数として渡された為替レートの日付が狭義の昇順であることを検証します。
+     *
+     * @param rates 為替レート
+     */
+    private static void assertAscending(List<ExchangeRates> rates) {
+        for (int i = 1; i < rates.size(); i++) {
+            assertTrue(rates.get(i - 1).getDate().isBefore(rates.get(i).getDate()), "out of order at " + i);
+        }
+    }
+
+    /**
+     * 引数として渡されたサーバーへ全期間の履歴リソースを要求するビルダーを返却します。
+     *
+     * @param server サーバー
+     * @return ビルダー
+     */
+    private static CurrencyExchangeRates.Builder history(ExchangeRatesServer server) {
+        return CurrencyExchangeRates.builder().withEndpoint(server.getEndpoint()).withStartDateAt(START_AT)
+                .withEndDateAt(END_AT);
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link LatestRatesRefresher} クラスのテストクラスです。
+ * <p>
+ * 各テストは {@link ExchangeRatesServer} に対してリクエストを送信します。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class LatestRatesRefresherTest {
+
+    /**
+     * データセット
+     */
+    private static final List<ExchangeRates> DATASET = ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR,
+            LocalDate.of(2020, 10, 1), LocalDate.of(2020, 10, 9));
+
+    /**
+     * 為替レートを読み込むスレッド数
+     */
+    private static final int READERS = 8;
+
+    /**
+     * 再取得と並行して為替レートを読み込む期間（ミリ秒）
+     */
+    private static final long READ_MILLIS = 1000;
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testStartIsIdempotent() {
+        try (ExchangeRatesServer server = ExchangeRatesServer.builder().withDataset(DATASET)
+                .withLatency(Duration.ofMillis(100)).build();
+                LatestRatesRefresher refresher = refresher(server).build()) {
+
+            final CompletableFuture<Void> first = refresher.start();
+            final CompletableFuture<Void> second = refresher.start();
+
+            first.join();
+            second.join();
+            refresher.start().join();
+
+            assertEquals(1, server.getRequestCount());
+            assertTrue(refresher.get(Currency.USA_DOLLAR, List.of()).isPresent());
+        }
+    }
+
+    @Test
+    void testStartAfterCloseIsRejected() {
+        try (ExchangeRatesServer server = ExchangeRatesServer.builder().withDataset(DATASET).build()) {
+
+            final LatestRatesRefresher refresher = refresher(server).build();
+            refresher.close();
+
+            assertThrows(IllegalStateException.class, refresher::start);
+            assertEquals(0, server.getRequestCount());
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testReadersObserveMonotonicCompleteSnapshotsUnderRefresh() throws Exception {
+        try (ExchangeRatesServer server = ExchangeRatesServer.builder().withDataset(DATASET)
+                .withLatency(Duration.ofMillis(2)).build()) {
+
+            final LatestRatesRefresher refresher = continuousRefresher(server).build();
+            final long initialVersion;
+            final List<Long> observations;
+
+            try (refresher) {
+                refresher.start().join();
+
+                initialVersion = refresher.snapshot().getVersion();
+                observations = readConcurrently(() -> {
+                    long lastVersion = 0;
+                    long reads = 0;
+                    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(READ_MILLIS);
+
+                    while (System.nanoTime() < deadline) {
+                        final RatesSnapshot snapshot = refresher.snapshot();
+
+                        assertTrue(snapshot.getVersion() >= lastVersion, "snapshot version went backwards");
+                        assertEquals(3, snapshot.size());
+                        assertComplete(snapshot);
+
+                        lastVersion = snapshot.getVersion();
+                        reads++;
+                    }
+
+                    return reads;
+                });
+            }
+
+            final long finalVersion = refresher.snapshot().getVersion();
+
+            observations.forEach(reads -> assertTrue(reads > 0));
+            assertTrue(finalVersion > initialVersion, "refresher must publish during the reads");
+            assertTrue(finalVersion <= server.getRequestCount(), "a version was published without a fetch");
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testPinnedSnapshotIsStableAcrossRefreshes() throws Exception {
+        try (ExchangeRatesServer server = ExchangeRatesServer.builder().withDataset(DATASET)
+                .withLatency(Duration.ofMillis(2)).build();
+                LatestRatesRefresher refresher = continuousRefresher(server).build()) {
+
+            refresher.start().join();
+
+            readConcurrently(() -> {
+                final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(READ_MILLIS);
+                long legs = 0;
+
+                while (System.nanoTime() < deadline) {
+                    final RatesSnapshot pinned = refresher.snapshot();
+                    final ExchangeRates dollar = pinned.get(Currency.USA_DOLLAR, List.of()).orElseThrow();
+                    final double yen = dollar.convert(100.0, Currency.USA_DOLLAR, Currency.JAPANESE_YEN);
+
+                    Thread.sleep(1);
+
+                    final ExchangeRates yenBase = pinned.get(Currency.JAPANESE_YEN, List.of()).orElseThrow();
+                    final double back = yenBase.convert(yen, Currency.JAPANESE_YEN, Currency.USA_DOLLAR);
+
+                    assertSame(dollar, pinned.get(Currency.USA_DOLLAR, List.of()).orElseThrow());
+                    assertEquals(100.0, back, 1e-9);
+                    legs++;
+                }
+
+                return legs;
+            });
+
+            final RatesSnapshot pinned = refresher.snapshot();
+            final long version = pinned.getVersion();
+
+            while (refresher.snapshot().getVersion() == version) {
+                Thread.sleep(1);
+            }
+
+            assertEquals(version, pinned.getVersion());
+        }
+    }
+
+    /**
+     * 引数として渡された処理を複数のスレッドで同時に実行し、各スレッドの結果を返却します。
+     *
+     * @param reader 各スレッドで実行する処理
+     * @return 各スレッドの結果
+     *
+     * @exception Exception いずれかのスレッドで例外が発生した場合
+     */
+    private static List<Long> readConcurrently(Callable<Long> reader) throws Exception {
+
+        final ExecutorService executor = Executors.newFixedThreadPool(READERS);
+
+        try {
+            final CountDownLatch ready = new CountDownLatch(READERS);
+            final List<Future<Long>> futures = new ArrayList<>();
+
+            for (int i = 0; i < READERS; i++) {
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    ready.await();
+                    return reader.call();
+                }));
+            }
+
+            final List<Long> results = new ArrayList<>();
+
+            for (Future<Long> future : futures) {
+                results.add(future.get());
+            }
+
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 引数として渡されたスナップショットの各為替レートが、購読したシンボルを全て含む完全な状態であることを検証します。
+     *
+     * @param snapshot スナップショット
+     */
+    private static void assertComplete(RatesSnapshot snapshot) {
+
+        final int currencies = Currency.values().length;
+        final ExchangeRates dollar = snapshot.get(Currency.USA_DOLLAR, List.of()).orElseThrow();
+        final ExchangeRates yen = snapshot.get(Currency.JAPANESE_YEN, List.of()).orElseThrow();
+        final ExchangeRates pair = snapshot
+                .get(Currency.USA_DOLLAR, List.of(Currency.JAPANESE_YEN, Currency.ENGLAND_STERLING_POUND))
+                .orElseThrow();
+
+        assertEquals(currencies, dollar.getRates().size() + 1);
+        assertEquals(currencies, yen.getRates().size() + 1);
+        assertEquals(2, pair.getRates().size());
+    }
+
+    /**
+     * 引数として渡されたサーバーから3件の購読を取得し、取得が完了する度に直ちに再取得する {@link LatestRatesRefresher} のビルダーを返却します。
+     *
+     * @param server サーバー
+     * @return {@link LatestRatesRefresher} のビルダー
+     */
+    private static LatestRatesRefresher.Builder continuousRefresher(ExchangeRatesServer server) {
+        return LatestRatesRefresher.builder()
+                .withRequest(CurrencyExchangeRates.builder().withEndpoint(server.getEndpoint()).build())
+                .withRequest(CurrencyExchangeRates.builder().withEndpoint(server.getEndpoint())
+                        .withBaseCurrency(Currency.JAPANESE_YEN).build())
+                .withRequest(CurrencyExchangeRates.builder().withEndpoint(server.getEndpoint())
+                        .withSymbolCurrencies(List.of(Currency.JAPANESE_YEN, Currency.ENGLAND_STERLING_POUND)).build())
+                .withTimeToLive(Duration.ofMillis(1)).withRefreshAhead(Duration.ofMillis(1))
+                .withJitter(Duration.ZERO).withPublicationAware(false);
+    }
+
+    /**
+     * 引数として渡されたサーバーから最新リソースを取得する {@link LatestRatesRefresher} のビルダーを返却します。
+     * <p>
+     * テスト中に再取得が予約どおりに実行されないよう、生存期間を長く設定し公表時刻を考慮しません。
+     *
+     * @param server サーバー
+     * @return {@link LatestRatesRefresher} のビルダー
+     */
+    private static LatestRatesRefresher.Builder refresher(ExchangeRatesServer server) {
+        return LatestRatesRefresher.builder()
+                .withRequest(CurrencyExchangeRates.builder().withEndpoint(server.getEndpoint()).build())
+                .withTimeToLive(Duration.ofHours(1)).withPublicationAware(false);
+    }
+}
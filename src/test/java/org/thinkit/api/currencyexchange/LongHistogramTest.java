@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link LongHistogram} クラスのテストクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class LongHistogramTest {
+
+    /**
+     * バケットの相対的な幅の上限
+     */
+    private static final double RELATIVE_ERROR_BOUND = 1.0 / 32;
+
+    @Test
+    void testBucketsAreExactBelowAndAtSubBucketBoundary() {
+        for (long value = 0; value < 64; value++) {
+            assertEquals(value, LongHistogram.bucketIndex(value));
+            assertEquals(value, LongHistogram.highestValueOf(LongHistogram.bucketIndex(value)));
+        }
+
+        assertEquals(64, LongHistogram.bucketIndex(64));
+        assertEquals(64, LongHistogram.bucketIndex(65));
+        assertEquals(65, LongHistogram.highestValueOf(64));
+        assertEquals(65, LongHistogram.bucketIndex(66));
+    }
+
+    @Test
+    void testBucketsCoverEveryMagnitudeUpToMaxValue() {
+        for (int bit = 5; bit < Long.SIZE - 1; bit++) {
+            final long power = 1L << bit;
+
+            for (long value : new long[] { power - 1, power, power + 1, power + (power >>> 1) }) {
+                assertCovers(value);
+            }
+        }
+
+        assertCovers(Long.MAX_VALUE - 1);
+        assertCovers(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, LongHistogram.highestValueOf(LongHistogram.bucketIndex(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void testPercentilesAreWithinBucketResolution() {
+
+        final LongHistogram histogram = new LongHistogram();
+        final int count = 100_000;
+
+        for (long value = 1; value <= count; value++) {
+            histogram.record(value);
+        }
+
+        for (double percentile : new double[] { 1.0, 50.0, 90.0, 99.0, 99.9 }) {
+            final long exact = (long) Math.ceil(count * percentile / 100.0);
+            final long reported = histogram.getValueAtPercentile(percentile);
+
+            assertTrue(reported >= exact && reported - exact <= exact * RELATIVE_ERROR_BOUND,
+                    percentile + ": " + reported + " for " + exact);
+        }
+
+        assertEquals(count, histogram.getCount());
+        assertEquals(count, histogram.getMax());
+        assertEquals((count + 1) / 2.0, histogram.getMean());
+    }
+
+    @Test
+    void testPercentilesAreClampedToMax() {
+
+        final LongHistogram histogram = new LongHistogram();
+        histogram.record(1000);
+
+        assertTrue(LongHistogram.highestValueOf(LongHistogram.bucketIndex(1000)) > 1000);
+        assertEquals(1000, histogram.getMedian());
+        assertEquals(1000, histogram.getValueAtPercentile(100.0));
+
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100.0));
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+    }
+
+    @Test
+    void testNegativeValuesAreRecordedAsZero() {
+
+        final LongHistogram histogram = new LongHistogram();
+        histogram.record(-5);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.get99thPercentile());
+    }
+
+    @Test
+    void testEmptyHistogramAndInvalidPercentile() {
+
+        final LongHistogram histogram = new LongHistogram();
+
+        assertEquals(0, histogram.getMedian());
+        assertEquals(0.0, histogram.getMean());
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(100.1));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(Double.NaN));
+    }
+
+    /**
+     * 引数として渡された値が、その値のバケットの範囲内かつ直前のバケットの範囲外であり、バケットの幅が分解能の範囲内であることを検証します。
+     *
+     * @param value 検証する値
+     */
+    private static void assertCovers(long value) {
+
+        final int index = LongHistogram.bucketIndex(value);
+        final long highest = LongHistogram.highestValueOf(index);
+
+        assertTrue(highest >= value, value + " above bucket " + index + " (" + highest + ")");
+        assertTrue(LongHistogram.highestValueOf(index - 1) < value, value + " below bucket " + index);
+        assertTrue(highest - value <= value * RELATIVE_ERROR_BOUND, value + " in bucket ending " + highest);
+    }
+}
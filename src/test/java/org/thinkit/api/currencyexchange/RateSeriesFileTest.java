@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link RateSeriesFile} クラスのテストクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class RateSeriesFileTest {
+
+    /**
+     * 開始日
+     */
+    private static final LocalDate FIRST_DATE = LocalDate.of(2018, 1, 1);
+
+    /**
+     * 作業ディレクトリ
+     */
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("rate-series");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (var paths = Files.list(this.directory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Files.delete(path);
+            }
+        }
+
+        Files.delete(this.directory);
+    }
+
+    @Test
+    void testGrowReplacesFileWhileReading() throws Exception {
+        final Path path = this.directory.resolve("USD.rates");
+        final LocalDate endDate = FIRST_DATE.plusYears(3).minusDays(1);
+        final List<ExchangeRates> expected = ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR, FIRST_DATE, endDate);
+        final AtomicBoolean appending = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        try (RateSeriesFile file = RateSeriesFile.create(path, Currency.USA_DOLLAR, FIRST_DATE)) {
+            final Thread reader = new Thread(() -> {
+                try {
+                    while (appending.get()) {
+                        final LocalDate last = file.getEndDate().minusDays(1);
+
+                        if (!last.isBefore(FIRST_DATE)) {
+                            file.range(FIRST_DATE, last);
+                            file.rate(last, Currency.JAPANESE_YEN);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            reader.start();
+
+            for (LocalDate month = FIRST_DATE; month.isBefore(endDate); month = month.plusMonths(1)) {
+                final LocalDate monthEnd = month.plusMonths(1).minusDays(1);
+                file.append(month, monthEnd, ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR, month, monthEnd));
+            }
+
+            appending.set(false);
+            reader.join();
+
+            assertEquals(null, failure.get());
+            assertEquals(expected, file.range(FIRST_DATE, endDate));
+        }
+
+        assertFalse(Files.exists(path.resolveSibling("USD.rates.tmp")));
+
+        try (RateSeriesFile reopened = RateSeriesFile.open(path, Currency.USA_DOLLAR)) {
+            assertEquals(endDate.plusDays(1), reopened.getEndDate());
+            assertEquals(expected, reopened.range(FIRST_DATE, endDate));
+        }
+    }
+
+    @Test
+    void testOpenRejectsCountGreaterThanCapacity() throws IOException {
+        final Path path = this.directory.resolve("USD.rates");
+        RateSeriesFile.create(path, Currency.USA_DOLLAR, FIRST_DATE).close();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 367), 24);
+        }
+
+        assertThrows(IOException.class, () -> RateSeriesFile.open(path, Currency.USA_DOLLAR));
+    }
+
+    @Test
+    void testOpenRejectsNegativeCount() throws IOException {
+        final Path path = this.directory.resolve("USD.rates");
+        RateSeriesFile.create(path, Currency.USA_DOLLAR, FIRST_DATE).close();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, -1), 24);
+        }
+
+        assertThrows(IOException.class, () -> RateSeriesFile.open(path, Currency.USA_DOLLAR));
+    }
+}
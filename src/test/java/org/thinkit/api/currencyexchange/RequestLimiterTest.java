@@ -0,0 +1,355 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.thinkit.api.common.entity.RequestParameter;
+import org.thinkit.api.common.exception.ApiRequestFailedException;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link RequestLimiter} クラスのテストクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class RequestLimiterTest {
+
+    /**
+     * 最新リソースのリクエストパラメータ
+     */
+    private static final RequestParameter LATEST = CurrencyExchangeRatesParameter.of("USD", "", "", "");
+
+    /**
+     * 期間指定リソースのリクエストパラメータ
+     */
+    private static final RequestParameter HISTORY = CurrencyExchangeRatesParameter.of("USD", "", "2020-10-01",
+            "2020-10-09");
+
+    /**
+     * 為替レート
+     */
+    private static final List<ExchangeRates> RATES = ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR,
+            LocalDate.of(2020, 10, 1), LocalDate.of(2020, 10, 9));
+
+    @Test
+    void testQueueStartsWaitersInArrivalOrder() {
+
+        final RequestLimiter limiter = RequestLimiter.builder().withMaxInFlight(1).build();
+        final List<Integer> started = new CopyOnWriteArrayList<>();
+        final List<CompletableFuture<Integer>> calls = new ArrayList<>();
+        final List<CompletableFuture<Integer>> results = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            final int id = i;
+            final CompletableFuture<Integer> call = new CompletableFuture<>();
+
+            calls.add(call);
+            results.add(limiter.execute(() -> {
+                started.add(id);
+                return call;
+            }));
+        }
+
+        assertEquals(List.of(0), started);
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(2, limiter.getQueueDepth());
+
+        for (int i = 0; i < 3; i++) {
+            calls.get(i).complete(i);
+            assertEquals(i, results.get(i).join().intValue());
+        }
+
+        assertEquals(List.of(0, 1, 2), started);
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, limiter.getQueueDepth());
+        assertEquals(0, limiter.getRejectedCount());
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testQueueTimesOutWithoutStartingTheRequest() {
+
+        final RequestLimiter limiter = RequestLimiter.builder().withMaxInFlight(1)
+                .withMaxWait(Duration.ofMillis(100)).build();
+        final CompletableFuture<Integer> held = new CompletableFuture<>();
+        final AtomicInteger starts = new AtomicInteger();
+
+        final CompletableFuture<Integer> first = limiter.execute(() -> held);
+        final CompletableFuture<Integer> second = limiter.execute(() -> {
+            starts.incrementAndGet();
+            return CompletableFuture.completedFuture(2);
+        });
+
+        assertEquals("Timed out waiting for an in-flight permit", rejection(second).getMessage());
+        assertEquals(0, starts.get());
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(0, limiter.getQueueDepth());
+
+        held.complete(1);
+
+        assertEquals(1, first.join().intValue());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testQueueRejectsWhenFull() {
+
+        final RequestLimiter limiter = RequestLimiter.builder().withMaxInFlight(1).withMaxQueueDepth(1).build();
+        final CompletableFuture<Integer> held = new CompletableFuture<>();
+
+        limiter.execute(() -> held);
+        final CompletableFuture<Integer> queued = limiter.execute(() -> CompletableFuture.completedFuture(2));
+        final CompletableFuture<Integer> overflow = limiter.execute(() -> CompletableFuture.completedFuture(3));
+
+        assertFalse(queued.isDone());
+        assertEquals("Request queue is full", rejection(overflow).getMessage());
+
+        held.complete(1);
+
+        assertEquals(2, queued.join().intValue());
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    @Test
+    void testCancelledWaiterReleasesItsPlace() {
+
+        final RequestLimiter limiter = RequestLimiter.builder().withMaxInFlight(1).build();
+        final CompletableFuture<Integer> held = new CompletableFuture<>();
+        final AtomicInteger starts = new AtomicInteger();
+
+        limiter.execute(() -> held);
+        final CompletableFuture<Integer> cancelled = limiter.execute(() -> {
+            starts.incrementAndGet();
+            return CompletableFuture.completedFuture(2);
+        });
+        final CompletableFuture<Integer> next = limiter.execute(() -> CompletableFuture.completedFuture(3));
+
+        cancelled.cancel(true);
+        held.complete(1);
+
+        assertEquals(3, next.join().intValue());
+        assertEquals(0, starts.get());
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    @Test
+    void testFailFastRejectsWithoutWaiting() {
+
+        final RequestLimiter limiter = RequestLimiter.builder().withMaxInFlight(1)
+                .withPolicy(RequestLimiter.OverloadPolicy.FAIL_FAST).build();
+        final CompletableFuture<Integer> held = new CompletableFuture<>();
+
+        limiter.execute(() -> held);
+        final CompletableFuture<Integer> rejected = limiter.execute(() -> CompletableFuture.completedFuture(2));
+
+        assertTrue(rejected.isDone());
+        assertEquals("Too many requests in flight", rejection(rejected).getMessage());
+        assertEquals(0, limiter.getQueueDepth());
+
+        held.complete(1);
+
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(3, limiter.execute(() -> CompletableFuture.completedFuture(3)).join().intValue());
+    }
+
+    @Test
+    void testFailFastRateLimitReleasesThePermit() {
+
+        final RequestLimiter limiter = RequestLimiter.builder().withRateLimit(1, 2)
+                .withPolicy(RequestLimiter.OverloadPolicy.FAIL_FAST).build();
+
+        assertEquals(1, limiter.execute(() -> CompletableFuture.completedFuture(1)).join().intValue());
+        assertEquals(2, limiter.execute(() -> CompletableFuture.completedFuture(2)).join().intValue());
+        assertEquals("Rate limit exceeded",
+                rejection(limiter.execute(() -> CompletableFuture.completedFuture(3))).getMessage());
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testStaleReturnsLastGoodRatesWhileSaturated() {
+
+        final RequestLimiter limiter = RequestLimiter.builder().withMaxInFlight(1)
+                .withPolicy(RequestLimiter.OverloadPolicy.STALE).build();
+
+        assertSame(RATES, limiter.execute(LATEST, () -> CompletableFuture.completedFuture(RATES)).join());
+
+        final CompletableFuture<List<ExchangeRates>> held = new CompletableFuture<>();
+        final CompletableFuture<List<ExchangeRates>> refreshing = limiter.execute(LATEST, () -> held);
+        final CompletableFuture<List<ExchangeRates>> stale = limiter.execute(LATEST,
+                () -> CompletableFuture.completedFuture(List.of()));
+        final CompletableFuture<List<ExchangeRates>> queued = limiter.execute(HISTORY,
+                () -> CompletableFuture.completedFuture(RATES));
+
+        assertSame(RATES, stale.join());
+        assertEquals(1, limiter.getStaleCount());
+        assertFalse(queued.isDone());
+
+        final List<ExchangeRates> refreshed = List.copyOf(RATES);
+        held.complete(refreshed);
+
+        assertSame(refreshed, refreshing.join());
+        assertSame(RATES, queued.join());
+        assertEquals(0, limiter.getInFlight());
+
+        final CompletableFuture<List<ExchangeRates>> next = new CompletableFuture<>();
+        limiter.execute(HISTORY, () -> next);
+
+        assertSame(refreshed, limiter.execute(LATEST, () -> CompletableFuture.completedFuture(List.of())).join());
+        next.complete(RATES);
+        assertEquals(0, limiter.getRejectedCount());
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void testPermitsAreNotLeakedUnderStress() throws Exception {
+
+        final int maxInFlight = 4;
+        final RequestLimiter limiter = RequestLimiter.builder().withMaxInFlight(maxInFlight)
+                .withRateLimit(20_000, 50).withMaxWait(Duration.ofMillis(20)).withMaxQueueDepth(16).build();
+        final Set<CompletableFuture<Integer>> running = ConcurrentHashMap.newKeySet();
+        final AtomicInteger peak = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            final List<Future<?>> workers = new ArrayList<>();
+
+            for (int worker = 0; worker < 8; worker++) {
+                workers.add(executor.submit(() -> {
+                    for (int burst = 0; burst < 50; burst++) {
+                        final List<CompletableFuture<Integer>> results = new ArrayList<>();
+
+                        for (int i = 0; i < 10; i++) {
+                            final CompletableFuture<Integer> result = limiter
+                                    .execute(() -> randomOutcome(running, peak));
+
+                            if (ThreadLocalRandom.current().nextInt(10) == 0) {
+                                result.cancel(true);
+                            }
+
+                            results.add(result);
+                        }
+
+                        for (CompletableFuture<Integer> result : results) {
+                            try {
+                                result.join();
+                            } catch (RuntimeException ignored) {
+                            }
+                        }
+                    }
+
+                    return null;
+                }));
+            }
+
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while ((limiter.getInFlight() != 0 || limiter.getQueueDepth() != 0) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, limiter.getQueueDepth());
+        assertTrue(running.stream().allMatch(CompletableFuture::isDone));
+        assertTrue(peak.get() <= maxInFlight, "peak in-flight: " + peak.get());
+        assertTrue(limiter.getRejectedCount() > 0, "stress run should saturate the limiter");
+        assertEquals(2, limiter.execute(() -> CompletableFuture.completedFuture(2)).join().intValue());
+    }
+
+    /**
+     * 無作為に成功、失敗、または呼び出し時の例外のいずれかとなる処理を開始し、同時に実行中の処理数の最大値を記録します。
+     *
+     * @param running 実行中の処理
+     * @param peak    実行中の処理数の最大値
+     * @return 処理の結果を返却する {@link CompletableFuture}
+     */
+    private static CompletableFuture<Integer> randomOutcome(Set<CompletableFuture<Integer>> running,
+            AtomicInteger peak) {
+
+        final int outcome = ThreadLocalRandom.current().nextInt(4);
+
+        if (outcome == 0) {
+            throw new IllegalStateException("Failed to send");
+        }
+
+        final CompletableFuture<Integer> call = new CompletableFuture<>();
+
+        running.removeIf(CompletableFuture::isDone);
+        running.add(call);
+        peak.accumulateAndGet(running.size(), Math::max);
+
+        final Supplier<Boolean> complete = outcome == 1
+                ? () -> call.completeExceptionally(new IllegalStateException("Failed to receive"))
+                : () -> call.complete(outcome);
+        final long delay = ThreadLocalRandom.current().nextInt(500);
+
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MICROSECONDS).execute(complete::get);
+
+        return call;
+    }
+
+    /**
+     * 引数として渡された結果が上限に達したために失敗したことを検証し、その原因を返却します。
+     *
+     * @param result 失敗した結果
+     * @return 失敗の原因
+     */
+    private static RequestLimitExceededException rejection(CompletableFuture<?> result) {
+
+        final CompletionException thrown = assertThrows(CompletionException.class, result::join);
+
+        assertTrue(thrown.getCause() instanceof ApiRequestFailedException, thrown.getCause().toString());
+        assertTrue(thrown.getCause().getCause() instanceof RequestLimitExceededException,
+                String.valueOf(thrown.getCause().getCause()));
+
+        return (RequestLimitExceededException) thrown.getCause().getCause();
+    }
+}
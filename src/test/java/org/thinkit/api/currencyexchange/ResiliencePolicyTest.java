@@ -0,0 +1,263 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.ZipException;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.thinkit.api.common.exception.ApiRequestFailedException;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link ResiliencePolicy} クラスのテストクラスです。
+ * <p>
+ * 各テストはエラーや遅延を注入した {@link ExchangeRatesServer} に対してリクエストを送信します。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class ResiliencePolicyTest {
+
+    /**
+     * 為替レートの日付
+     */
+    private static final LocalDate DATE = LocalDate.of(2020, 10, 14);
+
+    /**
+     * データセット
+     */
+    private static final List<ExchangeRates> DATASET = ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR,
+            DATE.minusDays(7), DATE);
+
+    /**
+     * 再試行までの待機時間
+     */
+    private static final Duration BACKOFF = Duration.ofMillis(1);
+
+    @Test
+    void testTransientFailureClassification() {
+        assertTrue(ResiliencePolicy.isTransient(new ConnectException()));
+        assertTrue(ResiliencePolicy.isTransient(new HttpTimeoutException("timed out")));
+        assertTrue(ResiliencePolicy.isTransient(new HttpConnectTimeoutException("connect timed out")));
+        assertTrue(ResiliencePolicy.isTransient(new TimeoutException()));
+        assertTrue(ResiliencePolicy.isTransient(new ApiRequestFailedException(new IOException("reset"))));
+        assertTrue(ResiliencePolicy.isTransient(new ErrorResponseException(429, "throttled")));
+        assertTrue(ResiliencePolicy.isTransient(new ErrorResponseException(503, "unavailable")));
+        assertTrue(ResiliencePolicy.isTransient(
+                new CompletionException(new ApiRequestFailedException(new ErrorResponseException(500, "failed")))));
+
+        assertFalse(ResiliencePolicy.isTransient(new ErrorResponseException(400, "bad request")));
+        assertFalse(ResiliencePolicy.isTransient(new ErrorResponseException(404, "not found")));
+        assertFalse(
+                ResiliencePolicy.isTransient(new ApiRequestFailedException(new ErrorResponseException(200, "error"))));
+        assertFalse(ResiliencePolicy.isTransient(new IllegalStateException()));
+    }
+
+    @Test
+    void testParseFailuresAreNotTransient() {
+        assertFalse(ResiliencePolicy.isTransient(new MalformedResponseException("Unexpected end of response body")));
+        assertFalse(ResiliencePolicy.isTransient(
+                new ApiRequestFailedException(new MalformedResponseException("Unexpected base currency: JPY"))));
+        assertFalse(ResiliencePolicy.isTransient(
+                new IOException("wrapped by HttpClient.send", new MalformedResponseException("Expected '{'"))));
+        assertFalse(ResiliencePolicy.isTransient(
+                new UncheckedIOException(new MalformedResponseException(new NumberFormatException("1.2.3")))));
+        assertFalse(ResiliencePolicy.isTransient(new ZipException("Not in GZIP format")));
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void testMalformedResponseFailsFast() throws IOException {
+
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        final AtomicInteger requests = new AtomicInteger();
+
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            final byte[] body = "{\"rates\":{\"JPY\":".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+
+        try {
+            final ResiliencePolicy policy = ResiliencePolicy.builder().withMaxAttempts(5).withBackoff(BACKOFF, BACKOFF)
+                    .build();
+            final CurrencyExchangeRates api = CurrencyExchangeRates.builder()
+                    .withEndpoint(String.format("http://127.0.0.1:%d", server.getAddress().getPort()))
+                    .withResiliencePolicy(policy).build();
+
+            final ApiRequestFailedException exception = assertThrows(ApiRequestFailedException.class, api::fetch);
+
+            assertTrue(exception.getCause() instanceof MalformedResponseException, String.valueOf(exception));
+            assertEquals(1, requests.get());
+            assertEquals(0, policy.getRetryCount());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void testInjectedServerErrorsAreRetried() {
+        try (ExchangeRatesServer server = ExchangeRatesServer.builder().withDataset(DATASET).withErrorRate(0.3)
+                .build()) {
+
+            final ResiliencePolicy policy = ResiliencePolicy.builder().withMaxAttempts(10).withBackoff(BACKOFF, BACKOFF)
+                    .withCircuitBreaker(1_000, Duration.ofMinutes(1)).build();
+            final CurrencyExchangeRates api = CurrencyExchangeRates.builder().withEndpoint(server.getEndpoint())
+                    .withResiliencePolicy(policy).build();
+
+            for (int i = 0; i < 50; i++) {
+                assertEquals(DATE, api.fetch().get(0).getDate());
+            }
+
+            assertTrue(server.getInjectedErrorCount() > 0);
+            assertEquals(server.getInjectedErrorCount(), policy.getRetryCount());
+            assertEquals(50 + server.getInjectedErrorCount(), server.getRequestCount());
+        }
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void testAttemptTimeoutIsRetried() {
+        try (ExchangeRatesServer server = ExchangeRatesServer.builder().withDataset(DATASET)
+                .withLatency(Duration.ofMillis(500)).build()) {
+
+            final ResiliencePolicy policy = ResiliencePolicy.builder().withAttemptTimeout(Duration.ofMillis(50))
+                    .withMaxAttempts(3).withBackoff(BACKOFF, BACKOFF).build();
+            final CurrencyExchangeRates api = CurrencyExchangeRates.builder().withEndpoint(server.getEndpoint())
+                    .withResiliencePolicy(policy).build();
+
+            assertThrows(ApiRequestFailedException.class, api::fetch);
+            assertEquals(2, policy.getRetryCount());
+        }
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void testClientErrorsAreNeitherRetriedNorCounted() {
+        try (ExchangeRatesServer server = ExchangeRatesServer.builder().build()) {
+
+            final ResiliencePolicy policy = ResiliencePolicy.builder().withMaxAttempts(5).withBackoff(BACKOFF, BACKOFF)
+                    .withCircuitBreaker(2, Duration.ofMinutes(1)).build();
+            final CurrencyExchangeRates api = CurrencyExchangeRates.builder().withEndpoint(server.getEndpoint())
+                    .withResiliencePolicy(policy).build();
+
+            for (int i = 0; i < 5; i++) {
+                final ApiRequestFailedException exception = assertThrows(ApiRequestFailedException.class, api::fetch);
+                assertEquals(404, ((ErrorResponseException) exception.getCause()).getStatusCode());
+            }
+
+            assertEquals(5, server.getRequestCount());
+            assertEquals(0, policy.getRetryCount());
+            assertFalse(policy.isCircuitOpen());
+        }
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void testOpenCircuitFallsBackToLastGoodRates() {
+        try (ExchangeRatesServer healthy = ExchangeRatesServer.builder().withDataset(DATASET).build();
+                ExchangeRatesServer failing = ExchangeRatesServer.builder().withDataset(DATASET).withErrorRate(1.0)
+                        .build()) {
+
+            final ResiliencePolicy policy = ResiliencePolicy.builder().withMaxAttempts(2).withBackoff(BACKOFF, BACKOFF)
+                    .withCircuitBreaker(4, Duration.ofMinutes(1)).build();
+            final List<ExchangeRates> expected = CurrencyExchangeRates.builder()
+                    .withEndpoint(healthy.getEndpoint()).withResiliencePolicy(policy).build().fetch();
+            final CurrencyExchangeRates api = CurrencyExchangeRates.builder().withEndpoint(failing.getEndpoint())
+                    .withResiliencePolicy(policy).build();
+
+            assertThrows(ApiRequestFailedException.class, api::fetch);
+            assertThrows(ApiRequestFailedException.class, api::fetch);
+            assertTrue(policy.isCircuitOpen());
+            assertEquals(4, failing.getRequestCount());
+
+            assertEquals(expected, api.fetch());
+            assertEquals(expected, api.fetch());
+            assertEquals(4, failing.getRequestCount());
+            assertEquals(2, policy.getFallbackCount());
+
+            final CurrencyExchangeRates unknown = CurrencyExchangeRates.builder().withEndpoint(failing.getEndpoint())
+                    .withBaseCurrency(Currency.JAPANESE_YEN).withResiliencePolicy(policy).build();
+            final ApiRequestFailedException exception = assertThrows(ApiRequestFailedException.class, unknown::fetch);
+
+            assertTrue(exception.getCause() instanceof CircuitBreakerOpenException);
+        }
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void testSlowAttemptsAreHedged() {
+        try (ExchangeRatesServer server = ExchangeRatesServer.builder().withDataset(DATASET)
+                .withLatencyJitter(Duration.ofMillis(300)).build()) {
+
+            final ResiliencePolicy policy = ResiliencePolicy.builder().withHedgeDelay(Duration.ofMillis(30)).build();
+            final LongAdder retries = new LongAdder();
+            final LongAdder hedges = new LongAdder();
+            final CurrencyExchangeRates api = CurrencyExchangeRates.builder().withEndpoint(server.getEndpoint())
+                    .withResiliencePolicy(policy).withListener(new ExchangeRatesListener() {
+
+                        @Override
+                        public void onRetry(CurrencyExchangeRatesResource resource, Currency base, int attempt) {
+                            retries.increment();
+                        }
+
+                        @Override
+                        public void onHedge(CurrencyExchangeRatesResource resource, Currency base, int attempt) {
+                            assertEquals(0, attempt);
+                            hedges.increment();
+                        }
+                    }).build();
+
+            for (int i = 0; i < 30; i++) {
+                assertEquals(DATE, api.fetch().get(0).getDate());
+            }
+
+            assertTrue(policy.getHedgeCount() > 0);
+            assertEquals(30 + policy.getHedgeCount(), server.getRequestCount());
+            assertEquals(0, policy.getRetryCount());
+            assertEquals(policy.getHedgeCount(), hedges.sum());
+            assertEquals(0, retries.sum());
+        }
+    }
+}
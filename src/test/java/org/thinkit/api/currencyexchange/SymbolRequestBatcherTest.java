@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link SymbolRequestBatcher} クラスのテストクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class SymbolRequestBatcherTest {
+
+    /**
+     * 同時に送信するリクエスト数
+     */
+    private static final int REQUESTS = 2_000;
+
+    /**
+     * リクエストごとに指定するシンボル
+     */
+    private static final List<List<Currency>> SYMBOLS = List.of(List.of(Currency.JAPANESE_YEN),
+            List.of(Currency.ENGLAND_STERLING_POUND), List.of(Currency.JAPANESE_YEN, Currency.SWISS_FRANC),
+            List.of(Currency.CANADIAN_DOLLAR, Currency.AUSTRALIAN_DOLLAR));
+
+    /**
+     * 為替レートAPIの代わりにリクエストを受け付けるサーバー
+     */
+    private ExchangeRatesServer server;
+
+    @BeforeEach
+    void setUp() {
+        final LocalDate date = LocalDate.of(2020, 10, 14);
+        this.server = ExchangeRatesServer.builder()
+                .withDataset(ExchangeRatesPayloads.dataset(Currency.USA_DOLLAR, date.minusDays(7), date))
+                .withLatency(Duration.ofMillis(20)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.server.close();
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void testBatchingReducesUpstreamCalls() {
+        final List<CurrencyExchangeRates> requests = new ArrayList<>(SYMBOLS.size());
+        SYMBOLS.forEach(symbols -> requests.add(CurrencyExchangeRates.builder()
+                .withEndpoint(this.server.getEndpoint()).withSymbolCurrencies(symbols).build()));
+
+        final List<ExchangeRates> expected = CurrencyExchangeRates.builder().withEndpoint(this.server.getEndpoint())
+                .build().fetch();
+        final long baseline = this.server.getRequestCount();
+        final ExecutorService callers = Executors.newFixedThreadPool(16);
+
+        try (SymbolRequestBatcher batcher = SymbolRequestBatcher.builder().withWindow(Duration.ofMillis(5))
+                .build()) {
+
+            final List<CompletableFuture<List<ExchangeRates>>> results = new ArrayList<>(REQUESTS);
+
+            for (int i = 0; i < REQUESTS; i++) {
+                final CurrencyExchangeRates request = requests.get(i % requests.size());
+                results.add(CompletableFuture.supplyAsync(() -> batcher.fetchAsync(request), callers)
+                        .thenCompose(result -> result));
+            }
+
+            for (int i = 0; i < REQUESTS; i++) {
+                final List<Currency> symbols = SYMBOLS.get(i % SYMBOLS.size());
+                final List<ExchangeRates> rates = results.get(i).join();
+
+                assertEquals(1, rates.size());
+                assertEquals(expected.get(0).select(symbols), rates.get(0));
+            }
+
+            final long upstreamCalls = this.server.getRequestCount() - baseline;
+
+            assertEquals(REQUESTS, batcher.getRequestCount());
+            assertEquals(batcher.getUpstreamCallCount(), upstreamCalls);
+            assertTrue(upstreamCalls * 10 <= REQUESTS,
+                    String.format("%d requests needed %d upstream calls", REQUESTS, upstreamCalls));
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFetchAfterCloseIsRejected() {
+        final SymbolRequestBatcher batcher = SymbolRequestBatcher.builder().build();
+        batcher.close();
+
+        assertThrows(IllegalStateException.class, () -> batcher
+                .fetchAsync(CurrencyExchangeRates.builder().withEndpoint(this.server.getEndpoint()).build()));
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void testRejectedScheduleFailsInsteadOfHanging() {
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.shutdown();
+
+        final SymbolRequestBatcher batcher = SymbolRequestBatcher.builder().withScheduler(scheduler).build();
+        final CurrencyExchangeRates request = CurrencyExchangeRates.builder().withEndpoint(this.server.getEndpoint())
+                .build();
+
+        for (int i = 0; i < 3; i++) {
+            final CompletionException exception = assertThrows(CompletionException.class,
+                    () -> batcher.fetchAsync(request).join());
+            assertTrue(exception.getCause() instanceof RejectedExecutionException);
+        }
+
+        assertEquals(0, this.server.getRequestCount());
+    }
+}
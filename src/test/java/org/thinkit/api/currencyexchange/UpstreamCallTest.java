@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.thinkit.api.currencyexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.thinkit.api.currencyexchange.catalog.Currency;
+
+/**
+ * {@link UpstreamCall} クラスのテストクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class UpstreamCallTest {
+
+    @Test
+    void testDisabledSequenceDoesNotMeasure() {
+
+        final UpstreamCall.Sequence calls = UpstreamCall.sequence(null, CurrencyExchangeRatesResource.LATEST,
+                Currency.USA_DOLLAR);
+        final HttpResponse.BodyHandler<Void> handler = HttpResponse.BodyHandlers.discarding();
+
+        assertSame(UpstreamCall.DISABLED_SEQUENCE, calls);
+        assertSame(UpstreamCall.DISABLED, calls.next());
+        assertSame(UpstreamCall.DISABLED, calls.current());
+        assertSame(handler, calls.next().bodyHandler(handler));
+    }
+
+    @Test
+    void testEachSendIsReportedWithItsOwnStatusAndPayload() {
+
+        final RecordingListener listener = new RecordingListener();
+        final UpstreamCall.Sequence calls = UpstreamCall.sequence(listener, CurrencyExchangeRatesResource.HISTORY,
+                Currency.JAPANESE_YEN);
+
+        final UpstreamCall first = calls.next();
+        receive(first, 503, 7);
+
+        assertTrue(listener.events.isEmpty());
+
+        final UpstreamCall second = calls.next();
+
+        assertSame(second, calls.current());
+        assertEquals(1, listener.events.size());
+
+        receive(second, 200, 3, 5);
+        second.succeeded(11);
+        first.failed(new IOException("late"));
+
+        assertEquals(2, listener.events.size());
+        assertTrue(listener.failures.isEmpty());
+
+        final UpstreamCallEvent superseded = listener.events.get(0);
+
+        assertEquals(CurrencyExchangeRatesResource.HISTORY, superseded.getResource());
+        assertEquals(Currency.JAPANESE_YEN, superseded.getBase());
+        assertEquals(503, superseded.getStatusCode());
+        assertEquals(7, superseded.getPayloadBytes());
+        assertEquals(503, ((ErrorResponseException) superseded.getFailure().orElseThrow()).getStatusCode());
+
+        final UpstreamCallEvent succeeded = listener.events.get(1);
+
+        assertEquals(200, succeeded.getStatusCode());
+        assertEquals(8, succeeded.getPayloadBytes());
+        assertEquals(11, succeeded.getParseTime());
+        assertFalse(succeeded.getFailure().isPresent());
+    }
+
+    @Test
+    void testSendWithoutResponseIsReportedAsFailure() {
+
+        final RecordingListener listener = new RecordingListener();
+        final UpstreamCall.Sequence calls = UpstreamCall.sequence(listener, CurrencyExchangeRatesResource.LATEST,
+                Currency.USA_DOLLAR);
+        final IOException refused = new IOException("refused");
+
+        calls.next().failed(refused);
+        calls.next();
+        calls.current().failed(refused);
+
+        assertTrue(listener.events.isEmpty());
+        assertEquals(List.of(refused, refused), listener.failures);
+    }
+
+    @Test
+    void testFailureBeforeAnySendIsReported() {
+
+        final RecordingListener listener = new RecordingListener();
+        final IllegalStateException rejected = new IllegalStateException("rejected");
+
+        UpstreamCall.sequence(listener, CurrencyExchangeRatesResource.LATEST, Currency.USA_DOLLAR).current()
+                .failed(rejected);
+
+        assertEquals(List.of(rejected), listener.failures);
+    }
+
+    /**
+     * 引数として渡されたステータスコードのレスポンスを受信し、指定されたバイト数のボディを1件ずつ受信したものとして計測します。
+     *
+     * @param call       計測中の送信
+     * @param statusCode ステータスコード
+     * @param chunks     受信するボディのバイト数
+     */
+    private static void receive(UpstreamCall call, int statusCode, int... chunks) {
+
+        final HttpResponse.BodySubscriber<Void> subscriber = call
+                .bodyHandler(HttpResponse.BodyHandlers.discarding()).apply(new HttpResponse.ResponseInfo() {
+
+                    @Override
+                    public int statusCode() {
+                        return statusCode;
+                    }
+
+                    @Override
+                    public HttpHeaders headers() {
+                        return HttpHeaders.of(Map.of(), (name, value) -> true);
+                    }
+
+                    @Override
+                    public HttpClient.Version version() {
+                        return HttpClient.Version.HTTP_1_1;
+                    }
+                });
+
+        for (int chunk : chunks) {
+            subscriber.onNext(List.of(ByteBuffer.allocate(chunk)));
+        }
+
+        subscriber.onComplete();
+    }
+
+    /**
+     * 通知された計測結果と失敗を記録するリスナーです。
+     */
+    private static final class RecordingListener implements ExchangeRatesListener {
+
+        /**
+         * 通知された計測結果
+         */
+        private final List<UpstreamCallEvent> events = new ArrayList<>();
+
+        /**
+         * 通知された失敗の原因
+         */
+        private final List<Throwable> failures = new ArrayList<>();
+
+        @Override
+        public void onUpstreamCall(UpstreamCallEvent event) {
+            this.events.add(event);
+        }
+
+        @Override
+        public void onUpstreamFailure(CurrencyExchangeRatesResource resource, Currency base, Throwable cause) {
+            this.failures.add(cause);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.api.currencyexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link VirtualThreads} クラスのテストクラスです。
+ * <p>
+ * 実行中のJDKが仮想スレッドをサポートするか否かに関わらず、判定結果とエグゼキュータの提供が一致することを検証します。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class VirtualThreadsTest {
+
+    @Test
+    void testSupportMatchesExecutorAvailability() {
+        assertEquals(VirtualThreads.isSupported(), CurrencyExchangeRates.isVirtualThreadSupported());
+
+        if (VirtualThreads.isSupported()) {
+            assertSame(VirtualThreads.executor(), VirtualThreads.executor());
+            assertTrue(CompletableFuture.supplyAsync(() -> Thread.currentThread().toString(), VirtualThreads.executor())
+                    .join().startsWith("VirtualThread"));
+            CurrencyExchangeRates.builder().withVirtualThreads();
+        } else {
+            assertThrows(UnsupportedOperationException.class, VirtualThreads::executor);
+            assertThrows(UnsupportedOperationException.class,
+                    () -> CurrencyExchangeRates.builder().withVirtualThreads());
+        }
+    }
+}